@@ -0,0 +1,26 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Admission control in front of the Azure chat deployments.
+ * - tokensPerMinute: prompt-token budget per deployment (override per deployment name in deploymentTokensPerMinute).
+ * - maxQueueSize / maxWait: bounded wait queue; requests that cannot start within maxWait are rejected up front.
+ * - contextTokens: estimated tokens added by retrieval augmentation on top of the user message.
+ * - tenantHeader: request header identifying the tenant for fair queuing.
+ */
+@ConfigurationProperties(prefix = "admission")
+public record AdmissionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("60000") long tokensPerMinute,
+        @DefaultValue Map<String, Long> deploymentTokensPerMinute,
+        @DefaultValue("200") int maxQueueSize,
+        @DefaultValue("5s") Duration maxWait,
+        @DefaultValue("1500") int contextTokens,
+        @DefaultValue("X-Tenant-Id") String tenantHeader
+) {
+}
@@ -0,0 +1,29 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.store.blob.FileSystemBlobStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(BlobStoreProperties.class)
+public class BlobStoreConfig {
+
+    /**
+     * Content-addressed store for uploaded documents on the local filesystem (storage.blob.type=filesystem, the default).
+     * @param properties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.blob", name = "type", havingValue = "filesystem", matchIfMissing = true)
+    public FileSystemBlobStore fileSystemBlobStore(BlobStoreProperties properties) {
+        Path directory = properties.directory().isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "rag-chatbot", "blob-store")
+                : Path.of(properties.directory());
+        return new FileSystemBlobStore(directory, properties.compress(), properties.ttl(),
+                properties.maxSize().toBytes(), properties.cleanupInterval());
+    }
+}
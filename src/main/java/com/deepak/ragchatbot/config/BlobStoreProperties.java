@@ -0,0 +1,28 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Storage of uploaded documents.
+ * - type: blob store implementation ("filesystem"; register another BlobStore bean and set a different type to replace it).
+ * - directory: root of the filesystem store; must be writable (not inside the application jar or image layers).
+ *   Unset, the store lives under java.io.tmpdir (rag-chatbot/blob-store), which is not kept across hosts or containers.
+ * - compress: gzip blobs on write.
+ * - ttl: blobs not uploaded again for this long are deleted (0 keeps them forever).
+ * - maxSize: total size after which the least recently uploaded blobs are deleted.
+ * - cleanupInterval: how often retention runs (0 disables the background run).
+ */
+@ConfigurationProperties(prefix = "storage.blob")
+public record BlobStoreProperties(
+        @DefaultValue("filesystem") String type,
+        @DefaultValue("") String directory,
+        @DefaultValue("true") boolean compress,
+        @DefaultValue("7d") Duration ttl,
+        @DefaultValue("2GB") DataSize maxSize,
+        @DefaultValue("10m") Duration cleanupInterval
+) {
+}
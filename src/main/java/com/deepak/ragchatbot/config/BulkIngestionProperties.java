@@ -0,0 +1,19 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for bulk (directory / corpus) ingestion.
+ * - workers: number of documents extracted and embedded in parallel.
+ * - checkpointDir: where per-run checkpoint logs are kept so a crashed run can resume.
+ * - root: the only directory tree the admin endpoints may ingest from; they refuse every directory when unset.
+ *   The CLI runner (--ingest-dir) is not restricted.
+ */
+@ConfigurationProperties(prefix = "ingestion.bulk")
+public record BulkIngestionProperties(
+        @DefaultValue("4") int workers,
+        @DefaultValue(".ingestion-checkpoints") String checkpointDir,
+        @DefaultValue("") String root
+) {
+}
@@ -1,55 +1,148 @@
 package com.deepak.ragchatbot.config;
 
-import dev.langchain4j.data.segment.TextSegment;
+import com.deepak.ragchatbot.store.EmbeddingStoreFactory;
+import com.deepak.ragchatbot.store.IndexVersionRegistry;
+import com.deepak.ragchatbot.store.LazyEmbeddingStore;
+import com.deepak.ragchatbot.store.PostgresChatMemoryStore;
+import com.deepak.ragchatbot.store.SwitchableEmbeddingStore;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 @Configuration
-@EnableConfigurationProperties({EmbeddingStoreProperties.class})
+@EnableConfigurationProperties({EmbeddingStoreProperties.class, AdmissionProperties.class, ChatMemoryProperties.class,
+        StreamingProperties.class, UploadProperties.class, IndexVersionProperties.class})
 public class ChatAssistantConfiguration {
 
-    private final EmbeddingModel embeddingModel;
+    // Resolved on demand: in fast-startup mode the model is never touched while the store is created
+    private final ObjectProvider<EmbeddingModel> embeddingModel;
 
-    public ChatAssistantConfiguration(EmbeddingModel embeddingModel) {
+    public ChatAssistantConfiguration(ObjectProvider<EmbeddingModel> embeddingModel) {
         this.embeddingModel = embeddingModel;
     }
 
     /**
      *  Provides a per-chat memory that:
      *  - maintains individual chat history for each chat Id
-     *  - keeps 10 last messages in memory to maintain conversational context
+     *  - keeps the last chat.memory.max-messages (10) messages to maintain conversational context
+     *  - is shared by all replicas through Postgres when chat.memory.store=postgres
+     * @param chatMemoryProperties
+     * @param chatMemoryStore
      * @return
      */
     @Bean
-    public ChatMemoryProvider chatMemoryProvider(){
-        return chatId -> MessageWindowChatMemory.withMaxMessages(10);
+    public ChatMemoryProvider chatMemoryProvider(ChatMemoryProperties chatMemoryProperties,
+                                                 ObjectProvider<ChatMemoryStore> chatMemoryStore){
+        ChatMemoryStore store = chatMemoryStore.getIfAvailable();
+        if (store == null) {
+            return chatId -> MessageWindowChatMemory.builder()
+                    .id(chatId)
+                    .maxMessages(chatMemoryProperties.maxMessages())
+                    .build();
+        }
+        return chatId -> MessageWindowChatMemory.builder()
+                .id(chatId)
+                .maxMessages(chatMemoryProperties.maxMessages())
+                .chatMemoryStore(store)
+                .build();
+    }
+
+    /**
+     * Cluster-shared chat memory on the application's Postgres database (write-behind, locally cached).
+     * @param jdbcTemplate
+     * @param chatMemoryProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "chat.memory", name = "store", havingValue = "postgres")
+    public PostgresChatMemoryStore postgresChatMemoryStore(JdbcTemplate jdbcTemplate, ChatMemoryProperties chatMemoryProperties){
+        return new PostgresChatMemoryStore(jdbcTemplate, chatMemoryProperties);
+    }
+
+    /**
+     * Truncates embeddings to embedding.store.dimension (Matryoshka) when it is configured.
+     * Static so the post-processor is registered before the embedding model beans are created.
+     * @return
+     */
+    @Bean
+    public static EmbeddingDimensionPostProcessor embeddingDimensionPostProcessor(){
+        return new EmbeddingDimensionPostProcessor();
+    }
+
+    /**
+     * Lets cancelled answer streams (client gone, idle timeout) abort their streaming completion.
+     * Static for the same reason as embeddingDimensionPostProcessor.
+     * @return
+     */
+    @Bean
+    public static StreamCancellationPostProcessor streamCancellationPostProcessor(){
+        return new StreamCancellationPostProcessor();
+    }
+
+    /**
+     * Puts retrieved context ahead of the conversation history so the provider can cache the prompt prefix.
+     * Static for the same reason as embeddingDimensionPostProcessor.
+     * @return
+     */
+    @Bean
+    public static StablePrefixPostProcessor stablePrefixPostProcessor(){
+        return new StablePrefixPostProcessor();
     }
 
     /**
      * Defines a Spring bean that configures
      * - a PostgreSQL-backed embedding store using the pgvector extension for storing and querying text segment embeddings
      *   with automatic table creation and dimension matching.
-     * - Returns a fully built PgVectorEmbeddingStore instance for storing and querying TextSegment embeddings.
+     * - Uses embedding.store.dimension when set (embeddings are then truncated to it), otherwise the model's native dimension.
+     * - Uses a quantized (halfvec / binary) ANN index with full-precision rescoring when embedding.store.quantization is set.
+     * - Points at the active index version ({table}_v{n}) once blue/green reindexing has been used, and can be
+     *   switched to another version at runtime. Looking it up runs no DDL.
+     * - In fast-startup mode: no model probe and no DDL on boot, the store connects on first use and the
+     *   schema is checked by EmbeddingSchemaValidator once the application is ready.
+     * - Returns a fully built EmbeddingStore instance for storing and querying TextSegment embeddings.
      * @param embeddingStoreProperties
+     * @param embeddingStoreFactory
+     * @param indexVersionRegistry
      * @return
      */
     @Bean
-    public EmbeddingStore<TextSegment> embeddingStore(EmbeddingStoreProperties embeddingStoreProperties){
-        return PgVectorEmbeddingStore.builder()
-                .host(embeddingStoreProperties.host())
-                .port(embeddingStoreProperties.port())
-                .database(embeddingStoreProperties.database())
-                .user(embeddingStoreProperties.user())
-                .password(embeddingStoreProperties.password())
-                .table(embeddingStoreProperties.table())
-                .dimension(embeddingModel.dimension())
-                .createTable(true)
-                .build();
+    public SwitchableEmbeddingStore embeddingStore(EmbeddingStoreProperties embeddingStoreProperties,
+                                                   EmbeddingStoreFactory embeddingStoreFactory,
+                                                   IndexVersionRegistry indexVersionRegistry){
+        if (embeddingStoreProperties.fastStartup()) {
+            if (embeddingStoreProperties.dimension() <= 0) {
+                throw new IllegalStateException("embedding.store.fast-startup requires embedding.store.dimension");
+            }
+            return new SwitchableEmbeddingStore(new LazyEmbeddingStore(() -> embeddingStoreFactory.create(
+                    activeTable(indexVersionRegistry, embeddingStoreProperties, embeddingStoreProperties.dimension()),
+                    embeddingStoreProperties.dimension(),
+                    false)));
+        }
+        int dimension = embeddingStoreProperties.dimension() > 0 ? embeddingStoreProperties.dimension() : embeddingModel.getObject().dimension();
+        return new SwitchableEmbeddingStore(embeddingStoreFactory.create(
+                activeTable(indexVersionRegistry, embeddingStoreProperties, dimension),
+                dimension,
+                true));
+    }
+
+    private static String activeTable(IndexVersionRegistry indexVersionRegistry,
+                                      EmbeddingStoreProperties embeddingStoreProperties,
+                                      int dimension) {
+        return indexVersionRegistry.active()
+                .map(active -> {
+                    if (active.dimension() != dimension) {
+                        throw new IllegalStateException("Active index version " + active.version() + " has "
+                                + active.dimension() + " dimensions but the embedding model produces " + dimension);
+                    }
+                    return active.tableName();
+                })
+                .orElse(embeddingStoreProperties.table());
     }
 }
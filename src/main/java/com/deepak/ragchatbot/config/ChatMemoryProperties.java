@@ -0,0 +1,24 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Where conversation memory lives.
+ * - store: "in-memory" (per JVM, needs sticky sessions) or "postgres" (shared by all replicas).
+ * - maxMessages: size of the message window kept per chat.
+ * - table: Postgres table holding one row per chat.
+ * - flushInterval: how often buffered writes are sent to Postgres in one batch.
+ * - cacheTtl: how long a chat read from Postgres is served from the local cache.
+ */
+@ConfigurationProperties(prefix = "chat.memory")
+public record ChatMemoryProperties(
+        @DefaultValue("in-memory") String store,
+        @DefaultValue("10") int maxMessages,
+        @DefaultValue("chat_memory") String table,
+        @DefaultValue("100ms") Duration flushInterval,
+        @DefaultValue("2s") Duration cacheTtl
+) {
+}
@@ -0,0 +1,33 @@
+package com.deepak.ragchatbot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties({EmbeddingStoreProperties.class})
+public class DataSourceConfig {
+
+    /**
+     * One pooled DataSource for the pgvector database, built from the existing embedding.store.* settings.
+     * - Shared by the embedding store and any custom SQL (quantized search, storage reports).
+     * - The pool opens its first connection lazily, on first use.
+     * @param embeddingStoreProperties
+     * @return
+     */
+    @Bean
+    public DataSource dataSource(EmbeddingStoreProperties embeddingStoreProperties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("embedding-store");
+        dataSource.setJdbcUrl("jdbc:postgresql://%s:%d/%s".formatted(
+                embeddingStoreProperties.host(),
+                embeddingStoreProperties.port(),
+                embeddingStoreProperties.database()));
+        dataSource.setUsername(embeddingStoreProperties.user());
+        dataSource.setPassword(embeddingStoreProperties.password());
+        return dataSource;
+    }
+}
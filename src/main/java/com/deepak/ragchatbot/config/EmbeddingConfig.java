@@ -1,5 +1,14 @@
 package com.deepak.ragchatbot.config;
 
+import com.deepak.ragchatbot.service.QueryEmbeddingPrefetcher;
+import com.deepak.ragchatbot.service.profiling.ProfilingDecorators;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.service.profiling.Stage;
+import com.deepak.ragchatbot.service.retrieval.HeuristicQueryRouter;
+import com.deepak.ragchatbot.service.retrieval.OrderedContentInjector;
+import com.deepak.ragchatbot.service.retrieval.TwoStageContentRetriever;
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
@@ -9,66 +18,153 @@ import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.filter.Filter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
 @Configuration
+@EnableConfigurationProperties({BulkIngestionProperties.class, IngestionQueueProperties.class, RetrievalProperties.class,
+        QueryRoutingProperties.class, RerankProperties.class, SummaryProperties.class})
 public class EmbeddingConfig {
 
     /**
-     * Splits documents into chunks of 1000 tokens.
-     * Applies a 100-token overlap between chunks to preserve context.
+     * Splits documents into chunks of retrieval.chunk-size (1000) characters.
+     * Applies a retrieval.chunk-overlap (100) overlap between chunks to preserve context.
+     * Shared by the single-upload ingestor and bulk ingestion so both produce identical segments.
+     *
+     * @param retrievalProperties
+     * @return
+     */
+    @Bean
+    public DocumentSplitter documentSplitter(RetrievalProperties retrievalProperties) {
+        return DocumentSplitters.recursive(retrievalProperties.chunkSize(), retrievalProperties.chunkOverlap());
+    }
+
+    /**
+     * Uses the shared document splitter to chunk documents.
      * Uses the provided embedding model to convert text chunks into vector embeddings.
      * Stores the generated vectors in the configured embedding store.
+     * Splitting and embedding are timed per request when the profiler is enabled.
      *
+     * @param documentSplitter
      * @param embeddingModel
      * @param embeddingStore
+     * @param requestProfiler
      * @return
      */
     @Bean
-    public EmbeddingStoreIngestor embeddingStoreIngestor(EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore) {
+    public EmbeddingStoreIngestor embeddingStoreIngestor(DocumentSplitter documentSplitter, EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore,
+                                                         RequestProfiler requestProfiler) {
+        boolean profiled = requestProfiler.enabled();
         return EmbeddingStoreIngestor.builder()
-                .documentSplitter(DocumentSplitters.recursive(1000, 100))
-                .embeddingModel(embeddingModel)
+                .documentSplitter(profiled ? ProfilingDecorators.splitter(documentSplitter, requestProfiler) : documentSplitter)
+                .embeddingModel(profiled ? ProfilingDecorators.embeddingModel(embeddingModel, requestProfiler, Stage.EMBEDDING) : embeddingModel)
                 .embeddingStore(embeddingStore)
                 .build();
     }
 
     /**
      * Performs vector similarity search to identify relevant document segments.
-     * Returns up to 3 top-matching results based on similarity.
-     * Filters results to include only those with a similarity score above 0.6.
-     * Uses the same embedding model to encode the query for accurate matching.
+     * Returns up to retrieval.max-results (5) top-matching results based on similarity.
+     * Filters results to include only those with a similarity score above retrieval.min-score (0.5).
+     * Uses the same embedding model to encode the query for accurate matching, through the prefetcher so a
+     * question embedded while its document was being ingested isn't embedded twice.
+     * With retrieval.rerank.enabled: fetches retrieval.rerank.candidates (50) segments instead and keeps the
+     * best retrieval.rerank.keep (3) after an in-process rerank (TwoStageContentRetriever).
+     * With ingestion.summaries.enabled, summary nodes are left out (they are retrieved for broad questions only).
      *
-     * @param embeddingModel
+     * @param queryEmbeddingPrefetcher
      * @param embeddingStore
+     * @param requestProfiler
+     * @param retrievalProperties
+     * @param rerankProperties
+     * @param summaryProperties
+     * @param meterRegistry
      * @return
      */
 
     @Bean(name = "contentRetriever")
-    public EmbeddingStoreContentRetriever embeddingStoreContentRetriever(EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore){
+    public ContentRetriever embeddingStoreContentRetriever(QueryEmbeddingPrefetcher queryEmbeddingPrefetcher, EmbeddingStore<TextSegment> embeddingStore,
+                                                          RequestProfiler requestProfiler, RetrievalProperties retrievalProperties,
+                                                          RerankProperties rerankProperties, SummaryProperties summaryProperties,
+                                                          MeterRegistry meterRegistry){
+        EmbeddingModel queryEmbeddingModel = queryEmbeddingModel(queryEmbeddingPrefetcher, requestProfiler);
+        Filter segmentsOnly = summaryProperties.enabled()
+                ? metadataKey(SummaryIndexer.NODE_TYPE).isNotEqualTo(SummaryIndexer.SUMMARY)
+                : null;
+        if (rerankProperties.enabled()) {
+            return new TwoStageContentRetriever(queryEmbeddingModel, embeddingStore, retrievalProperties.minScore(),
+                    segmentsOnly, rerankProperties, meterRegistry);
+        }
         return EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore)
-                .embeddingModel(embeddingModel)
-                .maxResults(5)
-                .minScore(0.5)
+                .embeddingModel(queryEmbeddingModel)
+                .maxResults(retrievalProperties.maxResults())
+                .minScore(retrievalProperties.minScore())
+                .filter(segmentsOnly)
                 .build();
     }
 
+    private static EmbeddingModel queryEmbeddingModel(QueryEmbeddingPrefetcher queryEmbeddingPrefetcher, RequestProfiler requestProfiler) {
+        return requestProfiler.enabled()
+                ? ProfilingDecorators.embeddingModel(queryEmbeddingPrefetcher.embeddingModel(), requestProfiler, Stage.QUERY_EMBEDDING)
+                : queryEmbeddingPrefetcher.embeddingModel();
+    }
+
     /**
      * RetrievalAugmentor
      * - Injects retrieved context into the user’s prompt before sending it to the LLM.
      * - Ensures the model has relevant information from knowledge base (e.g., document embeddings) to generate a grounded and accurate response.
+     * - Routes every message through HeuristicQueryRouter first: greetings, acknowledgements and other messages that
+     *   don't need documents skip the query embedding and vector search.
+     * - With ingestion.summaries.enabled, questions about a document as a whole (ingestion.summaries.broad-patterns)
+     *   are answered from up to ingestion.summaries.max-results (3) document / group / section summaries instead of chunks.
+     * - Injects the segments in document order (OrderedContentInjector), so the same documents give the same
+     *   context text whatever their scores; see StablePrefixStreamingChatModel for where it goes in the prompt.
+     *
+     * - With the profiler enabled, records augmentation and vector search time plus the retrieved segments.
      *
      * @param retriever
+     * @param queryEmbeddingPrefetcher
+     * @param embeddingStore
+     * @param requestProfiler
+     * @param queryRoutingProperties
+     * @param summaryProperties
+     * @param meterRegistry
      * @return
      */
     @Bean(name = "retrievalAugmentor")
-    public RetrievalAugmentor retrievalAugmentor(@Qualifier("contentRetriever") ContentRetriever retriever) {
-        return DefaultRetrievalAugmentor.builder()
-                .contentRetriever(retriever)
-                .build();
+    public RetrievalAugmentor retrievalAugmentor(@Qualifier("contentRetriever") ContentRetriever retriever,
+                                                 QueryEmbeddingPrefetcher queryEmbeddingPrefetcher, EmbeddingStore<TextSegment> embeddingStore,
+                                                 RequestProfiler requestProfiler, QueryRoutingProperties queryRoutingProperties,
+                                                 SummaryProperties summaryProperties, MeterRegistry meterRegistry) {
+        ContentRetriever summaryRetriever = null;
+        if (summaryProperties.enabled()) {
+            summaryRetriever = EmbeddingStoreContentRetriever.builder()
+                    .embeddingStore(embeddingStore)
+                    .embeddingModel(queryEmbeddingModel(queryEmbeddingPrefetcher, requestProfiler))
+                    .maxResults(summaryProperties.maxResults())
+                    .filter(metadataKey(SummaryIndexer.NODE_TYPE).isEqualTo(SummaryIndexer.SUMMARY))
+                    .build();
+        }
+        if (!requestProfiler.enabled()) {
+            return DefaultRetrievalAugmentor.builder()
+                    .queryRouter(new HeuristicQueryRouter(retriever, summaryRetriever, summaryProperties.broadPatterns(),
+                            queryRoutingProperties, meterRegistry))
+                    .contentInjector(new OrderedContentInjector())
+                    .build();
+        }
+        return ProfilingDecorators.retrievalAugmentor(DefaultRetrievalAugmentor.builder()
+                .queryRouter(new HeuristicQueryRouter(ProfilingDecorators.contentRetriever(retriever, requestProfiler),
+                        summaryRetriever == null ? null : ProfilingDecorators.contentRetriever(summaryRetriever, requestProfiler),
+                        summaryProperties.broadPatterns(), queryRoutingProperties, meterRegistry))
+                .contentInjector(new OrderedContentInjector())
+                .build(), requestProfiler);
     }
 
     /**
@@ -0,0 +1,36 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.model.MatryoshkaEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * Wraps every EmbeddingModel bean in a MatryoshkaEmbeddingModel when embedding.store.dimension is set,
+ * so ingestion, retrieval and the store all agree on the truncated dimension.
+ * Reads the property through the Binder because post-processors are created before
+ * @ConfigurationProperties beans are available.
+ */
+public class EmbeddingDimensionPostProcessor implements BeanPostProcessor, EnvironmentAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingDimensionPostProcessor.class);
+    private int dimension;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.dimension = Binder.get(environment).bind("embedding.store.dimension", Integer.class).orElse(0);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (dimension > 0 && bean instanceof EmbeddingModel embeddingModel && !(bean instanceof MatryoshkaEmbeddingModel)) {
+            logger.info("Truncating embeddings of '{}' to {} dimensions", beanName, dimension);
+            return new MatryoshkaEmbeddingModel(embeddingModel, dimension);
+        }
+        return bean;
+    }
+}
@@ -1,7 +1,14 @@
 package com.deepak.ragchatbot.config;
 
+import com.deepak.ragchatbot.store.VectorQuantization;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
+/**
+ * - quantization: how vectors are indexed for ANN search (NONE keeps the stock PgVectorEmbeddingStore).
+ * - rescoreCandidates: candidates fetched from the quantized index and reranked at full precision.
+ * - fastStartup: take the dimension from configuration, skip DDL on boot and validate the schema in the background.
+ */
 @ConfigurationProperties(prefix = "embedding.store")
 public record EmbeddingStoreProperties(
         String host,
@@ -11,6 +18,9 @@ public record EmbeddingStoreProperties(
         String password,
         String table,
         int dimension,
-        boolean createTable
+        boolean createTable,
+        @DefaultValue("NONE") VectorQuantization quantization,
+        @DefaultValue("40") int rescoreCandidates,
+        @DefaultValue("false") boolean fastStartup
 ) {
 }
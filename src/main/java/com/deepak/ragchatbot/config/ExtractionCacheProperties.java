@@ -0,0 +1,19 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for the on-disk cache of extracted document text.
+ * - enabled: wrap the PDF / DOCX extractors with the content-hash cache.
+ * - directory: where compressed entries are kept; unset, under java.io.tmpdir (rag-chatbot/extraction-cache).
+ * - maxSize: total size after which least recently used entries are evicted.
+ */
+@ConfigurationProperties(prefix = "extraction.cache")
+public record ExtractionCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("") String directory,
+        @DefaultValue("512MB") DataSize maxSize
+) {
+}
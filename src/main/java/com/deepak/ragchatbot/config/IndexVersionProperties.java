@@ -0,0 +1,22 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Blue/green index versions across replicas.
+ * - pollInterval: how often each node reads the registry, switches to the active version and freezes or unfreezes
+ *   writes around a running build.
+ * - retireAfter: older versions are dropped only once the last switch is this old; must exceed pollInterval plus
+ *   the longest search.
+ * - buildTimeout: a BUILDING version not heartbeated for this long (its node died) is failed, which unfreezes writes.
+ */
+@ConfigurationProperties(prefix = "index.versions")
+public record IndexVersionProperties(
+        @DefaultValue("10s") Duration pollInterval,
+        @DefaultValue("10m") Duration retireAfter,
+        @DefaultValue("1m") Duration buildTimeout
+) {
+}
@@ -0,0 +1,44 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import com.deepak.ragchatbot.service.ingestion.IngestionJobQueue;
+import com.deepak.ragchatbot.service.ingestion.IngestionJobService;
+import com.deepak.ragchatbot.service.ingestion.IngestionWorkers;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@ConditionalOnProperty(prefix = "ingestion.queue", name = "enabled", havingValue = "true")
+public class IngestionQueueConfig {
+
+    @Bean
+    public IngestionJobQueue ingestionJobQueue(JdbcTemplate jdbcTemplate, IngestionQueueProperties properties) {
+        return new IngestionJobQueue(jdbcTemplate, properties);
+    }
+
+    @Bean
+    public IngestionJobService ingestionJobService(IngestionJobQueue queue,
+                                                   RagChatbotService ragChatbotService,
+                                                   CorpusVersion corpusVersion,
+                                                   IngestionQueueProperties properties) {
+        return new IngestionJobService(queue, ragChatbotService, corpusVersion, properties);
+    }
+
+    /**
+     * Workers run on every replica that has the queue enabled.
+     */
+    @Bean
+    public IngestionWorkers ingestionWorkers(IngestionJobQueue queue,
+                                             RagChatbotService ragChatbotService,
+                                             DocumentIndexer documentIndexer,
+                                             IngestionQueueProperties properties,
+                                             EmbeddingStore<TextSegment> embeddingStore) {
+        return new IngestionWorkers(queue, ragChatbotService, documentIndexer, properties, embeddingStore);
+    }
+}
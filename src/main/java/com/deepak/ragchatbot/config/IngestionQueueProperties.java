@@ -0,0 +1,29 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Durable ingestion job queue shared by all replicas (Postgres, FOR UPDATE SKIP LOCKED).
+ * - enabled: run uploads through the queue and start workers on this node.
+ * - workers: jobs processed in parallel on this node.
+ * - pollInterval: how often idle workers look for new jobs.
+ * - visibilityTimeout: a claimed job whose worker stops heartbeating is handed to another worker after this.
+ * - heartbeatInterval: how often a running job extends its claim.
+ * - maxAttempts: attempts before a job is marked FAILED.
+ * - awaitTimeout: how long an upload + ask request waits for its job.
+ */
+@ConfigurationProperties(prefix = "ingestion.queue")
+public record IngestionQueueProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("ingestion_jobs") String table,
+        @DefaultValue("2") int workers,
+        @DefaultValue("500ms") Duration pollInterval,
+        @DefaultValue("2m") Duration visibilityTimeout,
+        @DefaultValue("20s") Duration heartbeatInterval,
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("2m") Duration awaitTimeout
+) {
+}
@@ -0,0 +1,40 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * With embedding.provider=local, points the store at the local model's dimension before any bean reads it:
+ * - embedding.store.dimension = 384 (also what fast-startup mode and the schema validator use),
+ * - embedding.store.table gets a "_minilm" suffix, so vectors of the remote model (other dimension,
+ *   other vector space) are never mixed with local ones.
+ * Set embedding.local.table to choose the table name explicitly.
+ */
+public class LocalEmbeddingEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final int LOCAL_DIMENSION = 384;
+    static final String TABLE_SUFFIX = "_minilm";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!"local".equalsIgnoreCase(environment.getProperty("embedding.provider"))) {
+            return;
+        }
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("embedding.store.dimension", LOCAL_DIMENSION);
+        String table = environment.getProperty("embedding.local.table");
+        if (table == null) {
+            String remoteTable = environment.getProperty("embedding.store.table");
+            table = remoteTable == null || remoteTable.endsWith(TABLE_SUFFIX) ? remoteTable : remoteTable + TABLE_SUFFIX;
+        }
+        if (table != null) {
+            overrides.put("embedding.store.table", table);
+        }
+        environment.getPropertySources().addFirst(new MapPropertySource("localEmbeddingModel", overrides));
+    }
+}
@@ -0,0 +1,56 @@
+package com.deepak.ragchatbot.config;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process CPU embedding model (quantized all-MiniLM-L6-v2, ONNX Runtime), enabled with embedding.provider=local.
+ * - The model ships inside the jar, so ingestion and question embedding make no network call.
+ * - One ONNX Runtime session is shared by all callers (sessions are thread-safe); batches are spread over a
+ *   fixed pool of embedding.local.threads inference threads so large ingestions use every core.
+ * - @Primary, so ingestion, retrieval and the store use it instead of the Azure embedding deployment.
+ * - The store dimension (384) and a dedicated table are set by LocalEmbeddingEnvironmentPostProcessor.
+ */
+@Configuration
+@EnableConfigurationProperties(LocalEmbeddingProperties.class)
+@ConditionalOnProperty(prefix = "embedding", name = "provider", havingValue = "local")
+public class LocalEmbeddingModelConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalEmbeddingModelConfig.class);
+
+    private ExecutorService inferenceExecutor;
+
+    @Bean(name = "localEmbeddingModel")
+    @Primary
+    EmbeddingModel localEmbeddingModel(LocalEmbeddingProperties localEmbeddingProperties) {
+        int threads = localEmbeddingProperties.threads() > 0
+                ? localEmbeddingProperties.threads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        inferenceExecutor = Executors.newFixedThreadPool(threads, runnable -> Thread.ofPlatform()
+                .name("onnx-embedding-" + counter.incrementAndGet())
+                .daemon()
+                .unstarted(runnable));
+        logger.info("Using in-process all-MiniLM-L6-v2 embedding model with {} inference threads", threads);
+        return new AllMiniLmL6V2QuantizedEmbeddingModel(inferenceExecutor);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (inferenceExecutor != null) {
+            inferenceExecutor.shutdownNow();
+        }
+    }
+}
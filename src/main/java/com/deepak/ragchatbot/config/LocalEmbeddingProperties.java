@@ -0,0 +1,14 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * In-process embedding model, active with embedding.provider=local.
+ * - threads: inference threads shared by all embedding calls (0 = one per available core).
+ */
+@ConfigurationProperties(prefix = "embedding.local")
+public record LocalEmbeddingProperties(
+        @DefaultValue("0") int threads
+) {
+}
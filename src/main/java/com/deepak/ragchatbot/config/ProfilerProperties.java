@@ -0,0 +1,16 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Opt-in per-request profiler.
+ * - enabled: record a stage-by-stage breakdown of every chat request.
+ * - capacity: number of most recent requests kept in the ring buffer.
+ */
+@ConfigurationProperties(prefix = "profiler")
+public record ProfilerProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("512") int capacity
+) {
+}
@@ -0,0 +1,24 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Local routing stage in front of retrieval (no model call).
+ * - enabled: when false, every message is retrieved for.
+ * - minWords: messages with fewer words are answered without retrieval, unless they mention the documents.
+ *   Off by default (1): short questions such as "Key dates?" right after an upload need the documents.
+ * - skipPatterns: extra regular expressions (matched against the whole lower-cased message) that skip retrieval.
+ * - documentCues: words that always trigger retrieval, whatever the other rules say.
+ */
+@ConfigurationProperties(prefix = "retrieval.routing")
+public record QueryRoutingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1") int minWords,
+        @DefaultValue List<String> skipPatterns,
+        @DefaultValue({"document", "documents", "doc", "file", "files", "pdf", "docx", "page", "section", "chapter",
+                "uploaded", "attached", "attachment", "according", "report", "contract"}) List<String> documentCues
+) {
+}
@@ -0,0 +1,26 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Two-stage retrieval: wide ANN recall, then an in-process CPU rerank.
+ * - enabled: replaces the single-stage retriever (retrieval.max-results is then not used).
+ * - candidates: segments fetched from the vector index in the first stage.
+ * - keep: segments passed on to the prompt.
+ * - lexicalWeight: share of the query-term overlap score in the relevance (the rest is the vector score).
+ * - mmrLambda: relevance vs diversity trade-off of the final selection (1 = relevance only).
+ * - budget: time allowed for scoring; candidates not scored in time keep their vector score.
+ */
+@ConfigurationProperties(prefix = "retrieval.rerank")
+public record RerankProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("50") int candidates,
+        @DefaultValue("3") int keep,
+        @DefaultValue("0.3") double lexicalWeight,
+        @DefaultValue("0.7") double mmrLambda,
+        @DefaultValue("30ms") Duration budget
+) {
+}
@@ -0,0 +1,18 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Chunking and retrieval parameters; tune them with the offline sweep (RetrievalSweepTest) rather than by hand.
+ * - chunkSize / chunkOverlap: recursive splitter segment size and overlap, in characters.
+ * - maxResults / minScore: number of segments retrieved per question and their minimum relevance score.
+ */
+@ConfigurationProperties(prefix = "retrieval")
+public record RetrievalProperties(
+        @DefaultValue("1000") int chunkSize,
+        @DefaultValue("100") int chunkOverlap,
+        @DefaultValue("5") int maxResults,
+        @DefaultValue("0.5") double minScore
+) {
+}
@@ -0,0 +1,103 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.model.CancellableHttpClientProvider;
+import com.deepak.ragchatbot.model.routing.DeploymentStats;
+import com.deepak.ragchatbot.model.routing.LatencyAwareRouter;
+import com.deepak.ragchatbot.model.routing.RoutingChatModel;
+import com.deepak.ragchatbot.model.routing.RoutingEmbeddingModel;
+import com.deepak.ragchatbot.model.routing.RoutingStreamingChatModel;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.azure.AzureOpenAiEmbeddingModel;
+import dev.langchain4j.model.azure.AzureOpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Routing models over the deployments listed under routing.deployments (enabled with routing.enabled=true).
+ * They are @Primary, so the AI service, retriever and ingestion pick them up instead of the single-endpoint
+ * models of the Azure starter; when routing is enabled, leave langchain4j.azure-open-ai.* unset so the
+ * starter doesn't register competing models.
+ * Chat and streaming requests to the same deployment share one DeploymentStats (same Azure quota).
+ * Streaming models read through CancellableHttpClientProvider, so a cancelled answer closes its completion's connection.
+ * The embedding router is skipped with embedding.provider=local (see LocalEmbeddingModelConfig).
+ */
+@Configuration
+@EnableConfigurationProperties(RoutingProperties.class)
+@ConditionalOnProperty(prefix = "routing", name = "enabled", havingValue = "true")
+public class RoutingModelConfig {
+
+    private final Map<String, DeploymentStats> chatStats = new ConcurrentHashMap<>();
+
+    @Bean(name = "routingChatModel")
+    @Primary
+    ChatModel routingChatModel(RoutingProperties routingProperties, MeterRegistry meterRegistry) {
+        return new RoutingChatModel(router(routingProperties, meterRegistry, true, deployment ->
+                AzureOpenAiChatModel.builder()
+                        .endpoint(deployment.endpoint())
+                        .apiKey(deployment.apiKey())
+                        .deploymentName(deployment.chatDeploymentName())
+                        .build()));
+    }
+
+    @Bean(name = "routingStreamingChatModel")
+    @Primary
+    StreamingChatModel routingStreamingChatModel(RoutingProperties routingProperties, MeterRegistry meterRegistry) {
+        return new RoutingStreamingChatModel(router(routingProperties, meterRegistry, true, deployment ->
+                AzureOpenAiStreamingChatModel.builder()
+                        .endpoint(deployment.endpoint())
+                        .apiKey(deployment.apiKey())
+                        .deploymentName(deployment.chatDeploymentName())
+                        .httpClientProvider(new CancellableHttpClientProvider())
+                        .build()));
+    }
+
+    @Bean(name = "routingEmbeddingModel")
+    @Primary
+    @ConditionalOnProperty(prefix = "embedding", name = "provider", havingValue = "azure", matchIfMissing = true)
+    EmbeddingModel routingEmbeddingModel(RoutingProperties routingProperties, MeterRegistry meterRegistry) {
+        LatencyAwareRouter<EmbeddingModel> router = router(routingProperties, meterRegistry, false, deployment ->
+                AzureOpenAiEmbeddingModel.builder()
+                        .endpoint(deployment.endpoint())
+                        .apiKey(deployment.apiKey())
+                        .deploymentName(deployment.embeddingDeploymentName())
+                        .build());
+        return new RoutingEmbeddingModel(router, Executors.newVirtualThreadPerTaskExecutor(), routingProperties.hedgeDelay());
+    }
+
+    private <M> LatencyAwareRouter<M> router(RoutingProperties routingProperties,
+                                             MeterRegistry meterRegistry,
+                                             boolean chat,
+                                             Function<RoutingProperties.Deployment, M> modelFactory) {
+        List<LatencyAwareRouter.Route<M>> routes = routingProperties.deployments().stream()
+                .filter(deployment -> (chat ? deployment.chatDeploymentName() : deployment.embeddingDeploymentName()) != null)
+                .map(deployment -> new LatencyAwareRouter.Route<>(
+                        deployment.name(),
+                        modelFactory.apply(deployment),
+                        chat
+                                ? chatStats.computeIfAbsent(deployment.name(), name -> stats(routingProperties, deployment))
+                                : stats(routingProperties, deployment)))
+                .toList();
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("routing.enabled requires at least one deployment with a "
+                    + (chat ? "chat-deployment-name" : "embedding-deployment-name"));
+        }
+        return new LatencyAwareRouter<>(routes, routingProperties.rateLimitCooldown(), meterRegistry, System::nanoTime);
+    }
+
+    private static DeploymentStats stats(RoutingProperties routingProperties, RoutingProperties.Deployment deployment) {
+        return new DeploymentStats(routingProperties.ewmaAlpha(), deployment.tokensPerMinute(), System.nanoTime());
+    }
+}
@@ -0,0 +1,36 @@
+package com.deepak.ragchatbot.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Several regional Azure OpenAI deployments behind one routing chat / streaming / embedding model.
+ * - ewmaAlpha: weight of the newest latency / error sample.
+ * - rateLimitCooldown: how long a deployment is avoided after a 429.
+ * - hedgeDelay: minimum wait before a hedged embedding request goes to a second deployment
+ *   (the effective delay is max(hedgeDelay, 2 x EWMA latency of the primary)).
+ */
+@Validated
+@ConfigurationProperties(prefix = "routing")
+public record RoutingProperties(
+        @DefaultValue("false") boolean enabled,
+        @Valid @DefaultValue List<Deployment> deployments,
+        @DefaultValue("0.2") double ewmaAlpha,
+        @DefaultValue("10s") Duration rateLimitCooldown,
+        @DefaultValue("150ms") Duration hedgeDelay
+) {
+    public record Deployment(
+            @NotBlank String name,
+            @NotBlank String endpoint,
+            @NotBlank String apiKey,
+            String chatDeploymentName,
+            String embeddingDeploymentName,
+            @DefaultValue("0") long tokensPerMinute
+    ) {}
+}
@@ -0,0 +1,18 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Retrieval-only search (/api/search).
+ * - defaultSize / maxSize: hits per page when size is omitted, and the largest page allowed.
+ * - maxWindow: deepest hit reachable through paging ((page + 1) * size); every page re-runs the ANN search
+ *   for the whole window, so deep paging gets slower.
+ */
+@ConfigurationProperties(prefix = "search")
+public record SearchProperties(
+        @DefaultValue("10") int defaultSize,
+        @DefaultValue("50") int maxSize,
+        @DefaultValue("200") int maxWindow
+) {
+}
@@ -0,0 +1,44 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.model.StablePrefixStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * Wraps every StreamingChatModel bean in a StablePrefixStreamingChatModel (unless chat.prompt.stable-prefix=false),
+ * so retrieved context is sent before the conversation history and the prompt prefix can be cached by the provider.
+ * The meter registry is looked up on first use because post-processors are created before it.
+ */
+public class StablePrefixPostProcessor implements BeanPostProcessor, BeanFactoryAware, EnvironmentAware {
+
+    private BeanFactory beanFactory;
+    private boolean enabled;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.enabled = Binder.get(environment)
+                .bind("chat.prompt.stable-prefix", Boolean.class)
+                .orElse(true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof StreamingChatModel streamingChatModel && !(bean instanceof StablePrefixStreamingChatModel)) {
+            return new StablePrefixStreamingChatModel(streamingChatModel,
+                    () -> beanFactory.getBeanProvider(MeterRegistry.class).getIfAvailable());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,25 @@
+package com.deepak.ragchatbot.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Logs time-to-ready (JVM start to ApplicationReadyEvent) so startup modes can be compared on the same node.
+ */
+@Component
+public class StartupTimingListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingListener.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        logger.info("Time to ready: {} ms since JVM start ({} ms in Spring context)",
+                ManagementFactory.getRuntimeMXBean().getUptime(),
+                event.getTimeTaken() == null ? -1 : event.getTimeTaken().toMillis());
+    }
+}
@@ -0,0 +1,45 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.model.CancellableStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * Wraps every StreamingChatModel bean in a CancellableStreamingChatModel, so cancelling an answer stream
+ * also stops the completion it is reading from.
+ * The meter registry is looked up on first use because post-processors are created before it.
+ */
+public class StreamCancellationPostProcessor implements BeanPostProcessor, BeanFactoryAware, EnvironmentAware {
+
+    private BeanFactory beanFactory;
+    private int expectedCompletionTokens;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.expectedCompletionTokens = Binder.get(environment)
+                .bind("chat.stream.expected-completion-tokens", Integer.class)
+                .orElse(400);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof StreamingChatModel streamingChatModel && !(bean instanceof CancellableStreamingChatModel)) {
+            return new CancellableStreamingChatModel(streamingChatModel,
+                    () -> beanFactory.getBeanProvider(MeterRegistry.class).getIfAvailable(),
+                    expectedCompletionTokens);
+        }
+        return bean;
+    }
+}
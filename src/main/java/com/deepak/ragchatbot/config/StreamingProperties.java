@@ -0,0 +1,19 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Answer streams of /api/chatbot and /api/context-chatbot.
+ * - idleTimeout: longest wait for the next token; the stream is then cancelled, upstream completion included.
+ * - expectedCompletionTokens: completion length assumed when estimating tokens saved by a cancellation
+ *   and the request sets no max output tokens.
+ */
+@ConfigurationProperties(prefix = "chat.stream")
+public record StreamingProperties(
+        @DefaultValue("60s") Duration idleTimeout,
+        @DefaultValue("400") int expectedCompletionTokens
+) {
+}
@@ -0,0 +1,31 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "ingestion.summaries", name = "enabled", havingValue = "true")
+public class SummaryConfig {
+
+    /**
+     * Builds the chunk / section / document summary tree of every ingested document (uploads, bulk, queue and reindex).
+     * Needs a (non-streaming) ChatModel bean next to the StreamingChatModel used for answers.
+     * @param chatModel
+     * @param embeddingModel
+     * @param documentSplitter
+     * @param summaryProperties
+     * @param meterRegistry
+     * @return
+     */
+    @Bean
+    public SummaryIndexer summaryIndexer(ChatModel chatModel, EmbeddingModel embeddingModel, DocumentSplitter documentSplitter,
+                                         SummaryProperties summaryProperties, MeterRegistry meterRegistry) {
+        return new SummaryIndexer(chatModel, embeddingModel, documentSplitter, summaryProperties, meterRegistry);
+    }
+}
@@ -0,0 +1,33 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Hierarchical document summaries (chunk -> section -> document), built in the background after ingestion.
+ * - enabled: builds summaries for every ingested document and routes broad questions to them.
+ * - parallelism: summaries generated concurrently per document.
+ * - chunkWords / sectionWords / documentWords: length asked of each level.
+ * - fanIn: most summaries rolled up in one call; documents with more sections get intermediate group summaries.
+ * - maxResults: summary nodes (section, group or document level) given to a broad question.
+ * - cacheSize: summaries kept in memory by content hash, so re-uploading a document doesn't regenerate them.
+ * - broadPatterns: regular expressions (found in the lower-cased message) that mark a question about a document as a whole.
+ */
+@ConfigurationProperties(prefix = "ingestion.summaries")
+public record SummaryProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("60") int chunkWords,
+        @DefaultValue("120") int sectionWords,
+        @DefaultValue("200") int documentWords,
+        @DefaultValue("8") int fanIn,
+        @DefaultValue("3") int maxResults,
+        @DefaultValue("2048") int cacheSize,
+        @DefaultValue({"summar(y|ise|ize)", "overview", "\\bgist\\b", "\\btl;? ?dr\\b", "main (points|topics|ideas|takeaways)",
+                "key (points|takeaways)", "what is (this|the) (document|file|pdf|report) about",
+                "what (is|are) the contents? of", "what does (this|the) (document|file|pdf|report) (say|cover)"})
+        List<String> broadPatterns
+) {
+}
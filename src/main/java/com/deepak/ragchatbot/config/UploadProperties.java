@@ -0,0 +1,16 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Multi-file uploads on /api/context-chatbot.
+ * - maxFiles: most files accepted in one request.
+ * - parallelism: files of one request extracted and embedded at the same time.
+ */
+@ConfigurationProperties(prefix = "upload")
+public record UploadProperties(
+        @DefaultValue("10") int maxFiles,
+        @DefaultValue("4") int parallelism
+) {
+}
@@ -0,0 +1,29 @@
+package com.deepak.ragchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Multiplexed WebSocket chat transport.
+ * - enabled: registers the endpoint.
+ * - path: WebSocket endpoint path.
+ * - maxStreams: concurrent answer streams per connection.
+ * - initialCredit: tokens a stream may send before the client's first request frame, when open doesn't say.
+ * - replayBuffer: tokens kept per stream for resumption; a client further behind than this can't resume.
+ * - resumeTimeout: how long streams of a closed connection keep running, waiting for a resume.
+ * - sendTimeout / sendBufferSize: limits of the per-connection send queue; a client that doesn't read is disconnected.
+ */
+@ConfigurationProperties(prefix = "chat.websocket")
+public record WebSocketChatProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("/api/chat-ws") String path,
+        @DefaultValue("32") int maxStreams,
+        @DefaultValue("64") int initialCredit,
+        @DefaultValue("512") int replayBuffer,
+        @DefaultValue("2m") Duration resumeTimeout,
+        @DefaultValue("10s") Duration sendTimeout,
+        @DefaultValue("524288") int sendBufferSize
+) {
+}
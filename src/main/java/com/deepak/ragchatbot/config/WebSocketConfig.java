@@ -0,0 +1,58 @@
+package com.deepak.ragchatbot.config;
+
+import com.deepak.ragchatbot.controller.ChatWebSocketHandler;
+import com.deepak.ragchatbot.service.CoalescingChatService;
+import com.deepak.ragchatbot.service.stream.ChatStreamRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@EnableConfigurationProperties({WebSocketChatProperties.class})
+@ConditionalOnProperty(prefix = "chat.websocket", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final CoalescingChatService chatService;
+    private final AdmissionProperties admissionProperties;
+    private final WebSocketChatProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketConfig(CoalescingChatService chatService,
+                           AdmissionProperties admissionProperties,
+                           WebSocketChatProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.admissionProperties = admissionProperties;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Answer streams of the multiplexed transport; they survive reconnects for chat.websocket.resume-timeout (2m).
+     * @return
+     */
+    @Bean
+    public ChatStreamRegistry chatStreamRegistry() {
+        return new ChatStreamRegistry(properties, meterRegistry);
+    }
+
+    @Bean
+    public ChatWebSocketHandler chatWebSocketHandler(ChatStreamRegistry chatStreamRegistry) {
+        return new ChatWebSocketHandler(chatService, chatStreamRegistry, admissionProperties, properties);
+    }
+
+    /**
+     * Registers the multiplexed chat endpoint at chat.websocket.path (/api/chat-ws).
+     * @param registry
+     */
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatWebSocketHandler(chatStreamRegistry()), properties.path());
+    }
+}
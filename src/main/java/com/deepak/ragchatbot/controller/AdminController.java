@@ -0,0 +1,140 @@
+package com.deepak.ragchatbot.controller;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import com.deepak.ragchatbot.service.ingestion.BulkIngestionReport;
+import com.deepak.ragchatbot.service.ingestion.BulkIngestionService;
+import com.deepak.ragchatbot.service.ingestion.ReindexReport;
+import com.deepak.ragchatbot.service.ingestion.ReindexService;
+import com.deepak.ragchatbot.service.profiling.RequestProfileReport;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.store.IndexVersion;
+import com.deepak.ragchatbot.store.IndexVersionRegistry;
+import com.deepak.ragchatbot.store.EmbeddingDimensionMigration;
+import com.deepak.ragchatbot.store.VectorStorageInspector;
+import com.deepak.ragchatbot.store.VectorStorageReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+    private final BulkIngestionService bulkIngestionService;
+    private final VectorStorageInspector vectorStorageInspector;
+    private final EmbeddingDimensionMigration embeddingDimensionMigration;
+    private final EmbeddingStoreProperties embeddingStoreProperties;
+    private final ReindexService reindexService;
+    private final IndexVersionRegistry indexVersionRegistry;
+    private final RequestProfiler requestProfiler;
+
+    public AdminController(BulkIngestionService bulkIngestionService,
+                           VectorStorageInspector vectorStorageInspector,
+                           EmbeddingDimensionMigration embeddingDimensionMigration,
+                           EmbeddingStoreProperties embeddingStoreProperties,
+                           ReindexService reindexService,
+                           IndexVersionRegistry indexVersionRegistry,
+                           RequestProfiler requestProfiler) {
+        this.bulkIngestionService = bulkIngestionService;
+        this.vectorStorageInspector = vectorStorageInspector;
+        this.embeddingDimensionMigration = embeddingDimensionMigration;
+        this.embeddingStoreProperties = embeddingStoreProperties;
+        this.reindexService = reindexService;
+        this.indexVersionRegistry = indexVersionRegistry;
+        this.requestProfiler = requestProfiler;
+    }
+
+    /**
+     * Starts a bulk ingestion run over a directory under ingestion.bulk.root; poll GET /api/admin/ingest for progress.
+     */
+    @PostMapping("/ingest")
+    public ResponseEntity<BulkIngestionReport> startIngestion(@RequestParam String directory) throws IOException {
+        Path resolved = bulkIngestionService.resolveDirectory(directory);
+        logger.info("Starting bulk ingestion of {}", resolved);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkIngestionService.startAsync(resolved));
+    }
+
+    @GetMapping("/ingest")
+    public ResponseEntity<BulkIngestionReport> ingestionStatus() {
+        return ResponseEntity.of(bulkIngestionService.currentReport());
+    }
+
+    /**
+     * Memory / disk / recall trade-off of the configured vector quantization on the live embedding table.
+     */
+    @GetMapping("/vector-storage")
+    public VectorStorageReport vectorStorage(@RequestParam(defaultValue = "20") int sampleQueries,
+                                             @RequestParam(defaultValue = "10") int k) {
+        return vectorStorageInspector.report(activeTable(), sampleQueries, k);
+    }
+
+    /**
+     * Copies the active embedding table into a truncated, re-normalized {table}_d{dimension} table without calling the model.
+     */
+    @PostMapping("/embeddings/reproject")
+    public Map<String, String> reprojectEmbeddings(@RequestParam int dimension) {
+        String table = embeddingDimensionMigration.reproject(activeTable(), dimension);
+        return Map.of("table", table, "dimension", String.valueOf(dimension));
+    }
+
+    /**
+     * Builds a new index version from a directory under ingestion.bulk.root in the background (blue/green);
+     * queries keep using the active version until the build completes. Poll GET /api/admin/index/build for progress.
+     */
+    @PostMapping("/index/build")
+    public ResponseEntity<ReindexReport> startIndexBuild(@RequestParam String directory,
+                                                         @RequestParam(defaultValue = "true") boolean activate) throws IOException {
+        Path resolved = bulkIngestionService.resolveDirectory(directory);
+        logger.info("Starting index build from {}", resolved);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reindexService.startAsync(resolved, activate));
+    }
+
+    @GetMapping("/index/build")
+    public ResponseEntity<ReindexReport> indexBuildStatus() {
+        return ResponseEntity.of(reindexService.currentReport());
+    }
+
+    @GetMapping("/index/versions")
+    public List<IndexVersion> indexVersions() {
+        return indexVersionRegistry.list();
+    }
+
+    @PostMapping("/index/activate")
+    public IndexVersion activateIndexVersion(@RequestParam int version) {
+        return reindexService.activate(version);
+    }
+
+    @PostMapping("/index/rollback")
+    public IndexVersion rollbackIndexVersion() {
+        return reindexService.rollback();
+    }
+
+    /**
+     * Picks up a switch made by another instance now, instead of waiting for the next registry poll.
+     */
+    @PostMapping("/index/sync")
+    public ResponseEntity<IndexVersion> syncIndexVersion() {
+        return ResponseEntity.of(reindexService.sync());
+    }
+
+    /**
+     * Slowest recent requests with their stage breakdown and retrieved segments (requires profiler.enabled=true).
+     */
+    @GetMapping("/profiles/slowest")
+    public List<RequestProfileReport> slowestRequests(@RequestParam(defaultValue = "10") int n) {
+        return requestProfiler.slowest(n);
+    }
+
+    // The table queries currently use: the active index version once blue/green reindexing has been used
+    private String activeTable() {
+        return indexVersionRegistry.active().map(IndexVersion::tableName).orElse(embeddingStoreProperties.table());
+    }
+}
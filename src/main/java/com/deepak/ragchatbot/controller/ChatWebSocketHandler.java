@@ -0,0 +1,151 @@
+package com.deepak.ragchatbot.controller;
+
+import com.deepak.ragchatbot.config.AdmissionProperties;
+import com.deepak.ragchatbot.config.WebSocketChatProperties;
+import com.deepak.ragchatbot.service.CoalescingChatService;
+import com.deepak.ragchatbot.service.stream.ChatStream;
+import com.deepak.ragchatbot.service.stream.ChatStreamRegistry;
+import com.deepak.ragchatbot.service.stream.Frame;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Multiplexed chat transport: many concurrent answer streams over one WebSocket connection (chat.websocket.path).
+ * Client frames (JSON text messages):
+ * - {"type":"open","stream":"s1","message":"...","n":32}: asks a question on a new stream, with n tokens of credit
+ *   (chat.websocket.initial-credit when omitted). An optional "conversation" selects the chat memory; by default
+ *   all questions of a session are one conversation.
+ * - {"type":"request","stream":"s1","n":32}: grants n more tokens.
+ * - {"type":"cancel","stream":"s1"}: stops the answer and its upstream completion.
+ * - {"type":"resume","stream":"s1","lastSeq":41}: after a reconnect, replays the frames after lastSeq and continues.
+ * Server frames are Frame records. The first one is hello with the session id; reconnecting with ?session=<id>
+ * gives access to the streams of that session again. Only ids issued by the server to the same tenant are accepted,
+ * any other id gets a new session. A stream can only be resumed once its previous connection is closed.
+ * Answers go through CoalescingChatService, like /api/chatbot.
+ */
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9-]{16,64}");
+    private static final String SESSION = "chat.session";
+    private static final String SENDER = "chat.sender";
+
+    private final CoalescingChatService chatService;
+    private final ChatStreamRegistry registry;
+    private final AdmissionProperties admissionProperties;
+    private final WebSocketChatProperties properties;
+
+    public ChatWebSocketHandler(CoalescingChatService chatService,
+                                ChatStreamRegistry registry,
+                                AdmissionProperties admissionProperties,
+                                WebSocketChatProperties properties) {
+        this.chatService = chatService;
+        this.registry = registry;
+        this.admissionProperties = admissionProperties;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String requested = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("session");
+        String sessionId = registry.connect(requested != null && SESSION_ID.matcher(requested).matches() ? requested : null,
+                tenant(session));
+        WebSocketSession sender = new ConcurrentWebSocketSessionDecorator(session,
+                (int) properties.sendTimeout().toMillis(), properties.sendBufferSize());
+        session.getAttributes().put(SESSION, sessionId);
+        session.getAttributes().put(SENDER, sender);
+        send(sender, Frame.hello(sessionId));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        String sessionId = (String) session.getAttributes().get(SESSION);
+        WebSocketSession sender = (WebSocketSession) session.getAttributes().get(SENDER);
+        ClientFrame frame;
+        try {
+            frame = objectMapper.readValue(message.getPayload(), ClientFrame.class);
+        } catch (JsonProcessingException e) {
+            send(sender, Frame.error(null, "Malformed frame"));
+            return;
+        }
+        try {
+            handle(frame, session, sessionId, sender);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            send(sender, Frame.error(frame.stream(), e.getMessage()));
+        }
+    }
+
+    private void handle(ClientFrame frame, WebSocketSession session, String sessionId, WebSocketSession sender) {
+        Consumer<Frame> outlet = out -> send(sender, out);
+        switch (String.valueOf(frame.type())) {
+            case "open" -> {
+                if (frame.message() == null || frame.message().isBlank()) {
+                    throw new IllegalArgumentException("message is required");
+                }
+                String tenant = tenant(session);
+                long credit = frame.n() != null ? frame.n() : properties.initialCredit();
+                String conversation = frame.conversation() != null ? frame.conversation() : sessionId;
+                registry.open(sessionId, frame.stream(),
+                        chatService.admit(frame.message(), tenant, conversation).flatMapMany(answer -> answer),
+                        credit, session.getId(), outlet);
+            }
+            case "request" -> stream(sessionId, frame).request(frame.n() == null ? 0 : frame.n());
+            case "cancel" -> stream(sessionId, frame).cancel();
+            case "resume" -> {
+                long lastSeq = frame.lastSeq() == null ? 0 : frame.lastSeq();
+                if (!stream(sessionId, frame).attach(session.getId(), outlet, lastSeq)) {
+                    throw new IllegalStateException("Stream " + frame.stream() + " can't be resumed after frame " + lastSeq);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown frame type: " + frame.type());
+        }
+    }
+
+    private ChatStream stream(String sessionId, ClientFrame frame) {
+        return registry.find(sessionId, frame.stream())
+                .orElseThrow(() -> new IllegalArgumentException("Unknown stream: " + frame.stream()));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String sessionId = (String) session.getAttributes().get(SESSION);
+        if (sessionId != null) {
+            registry.disconnect(sessionId, session.getId());
+        }
+    }
+
+    private String tenant(WebSocketSession session) {
+        return session.getHandshakeHeaders().getFirst(admissionProperties.tenantHeader());
+    }
+
+    private static void send(WebSocketSession sender, Frame frame) {
+        if (!sender.isOpen()) {
+            return;
+        }
+        try {
+            sender.sendMessage(new TextMessage(objectMapper.writeValueAsString(frame)));
+        } catch (IOException | RuntimeException e) {
+            // Over the send limits or closed meanwhile; the client can resume from its last frame
+            logger.debug("Failed to send frame to {}: {}", sender.getId(), e.getMessage());
+        }
+    }
+
+    record ClientFrame(String type, String stream, String message, String conversation, Long n, Long lastSeq) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.deepak.ragchatbot.controller;
+
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.ingestion.IngestionJob;
+import com.deepak.ragchatbot.service.ingestion.IngestionJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/ingest/jobs")
+@ConditionalOnProperty(prefix = "ingestion.queue", name = "enabled", havingValue = "true")
+public class IngestionJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobController.class);
+    private final IngestionJobService ingestionJobService;
+    private final RagChatbotService ragChatbotService;
+
+    public IngestionJobController(IngestionJobService ingestionJobService, RagChatbotService ragChatbotService) {
+        this.ingestionJobService = ingestionJobService;
+        this.ragChatbotService = ragChatbotService;
+    }
+
+    /**
+     * Queues a document to be added to the corpus by any replica; poll GET /api/ingest/jobs/{id} for its status.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, UUID>> submit(@RequestParam("file") MultipartFile file) throws IOException {
+        Resource resource = ragChatbotService.saveDocument(file);
+        UUID id = ingestionJobService.submit(resource, false);
+        logger.info("Queued ingestion job {} for {}", id, resource.getFilename());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("id", id));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<IngestionJob> status(@PathVariable UUID id) {
+        return ResponseEntity.of(ingestionJobService.find(id));
+    }
+
+    @GetMapping
+    public Map<IngestionJob.Status, Long> counts() {
+        return ingestionJobService.counts();
+    }
+}
@@ -1,60 +1,203 @@
 package com.deepak.ragchatbot.controller;
 
-import com.deepak.ragchatbot.assistant.ChatAssistant;
+import com.deepak.ragchatbot.config.AdmissionProperties;
+import com.deepak.ragchatbot.config.StreamingProperties;
+import com.deepak.ragchatbot.config.UploadProperties;
+import com.deepak.ragchatbot.service.CoalescingChatService;
+import com.deepak.ragchatbot.service.QueryEmbeddingPrefetcher;
 import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.UploadResult;
+import com.deepak.ragchatbot.service.ingestion.IngestionJobService;
+import com.deepak.ragchatbot.service.profiling.RequestProfile;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.service.profiling.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
 public class RagChatbotController {
 
     private static final Logger logger = LoggerFactory.getLogger(RagChatbotController.class);
-    private final ChatAssistant chatAssistant;
+    private static final String UPLOAD_RESULT_HEADER = "X-Upload-Result";
+    private static final String CONVERSATION_HEADER = "X-Conversation-Id";
+    private final CoalescingChatService chatService;
     private final RagChatbotService ragChatbotService;
+    private final AdmissionProperties admissionProperties;
+    private final QueryEmbeddingPrefetcher queryEmbeddingPrefetcher;
+    private final ObjectProvider<IngestionJobService> ingestionJobService;
+    private final RequestProfiler requestProfiler;
+    private final StreamingProperties streamingProperties;
+    private final UploadProperties uploadProperties;
 
-    public RagChatbotController(ChatAssistant chatAssistant, RagChatbotService ragChatbotService) {
-        this.chatAssistant = chatAssistant;
+    public RagChatbotController(CoalescingChatService chatService,
+                                RagChatbotService ragChatbotService,
+                                AdmissionProperties admissionProperties,
+                                QueryEmbeddingPrefetcher queryEmbeddingPrefetcher,
+                                ObjectProvider<IngestionJobService> ingestionJobService,
+                                RequestProfiler requestProfiler,
+                                StreamingProperties streamingProperties,
+                                UploadProperties uploadProperties) {
+        this.chatService = chatService;
         this.ragChatbotService = ragChatbotService;
+        this.admissionProperties = admissionProperties;
+        this.queryEmbeddingPrefetcher = queryEmbeddingPrefetcher;
+        this.ingestionJobService = ingestionJobService;
+        this.requestProfiler = requestProfiler;
+        this.streamingProperties = streamingProperties;
+        this.uploadProperties = uploadProperties;
     }
 
     @GetMapping(value = "/chatbot", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> chatbot(@RequestParam String message) {
-        return chatAssistant.chat(message);
+    public Mono<ResponseEntity<Flux<String>>> chatbot(@RequestParam String message,
+                                                      @RequestParam(required = false) String conversationId,
+                                                      @RequestHeader HttpHeaders headers) {
+        RequestProfile profile = requestProfiler.start("/api/chatbot", message);
+        try {
+            return respond(profile, message, headers, conversationId, new HttpHeaders());
+        } finally {
+            requestProfiler.detach();
+        }
     }
 
     @PostMapping(value = "/context-chatbot", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Flux<String>> load(@RequestParam(defaultValue = "What is the content of the document?") String message,
-                             @RequestParam(value = "file", required = false) MultipartFile file) throws IOException {
+    public Mono<ResponseEntity<Flux<String>>> load(@RequestParam(defaultValue = "What is the content of the document?") String message,
+                             @RequestParam(value = "file", required = false) List<MultipartFile> files,
+                             @RequestParam(required = false) String conversationId,
+                             @RequestHeader HttpHeaders headers) throws IOException {
+        RequestProfile profile = requestProfiler.start("/api/context-chatbot", message);
+        try {
+            List<UploadResult> uploads = new ArrayList<>();
+            ingest(message, files, uploads);
+            return respond(profile, message, headers, conversationId, uploadHeaders(uploads));
+        } catch (IOException | RuntimeException e) {
+            requestProfiler.complete(profile, "FAILED");
+            throw e;
+        } finally {
+            requestProfiler.detach();
+        }
+    }
+
+    /**
+     * Admission runs before the response is committed, so a rejection is answered with 429 instead of a broken stream.
+     * The conversation (chat memory) comes from the conversationId parameter or the X-Conversation-Id header;
+     * without either the question is answered as a one-off.
+     */
+    private Mono<ResponseEntity<Flux<String>>> respond(RequestProfile profile, String message, HttpHeaders requestHeaders,
+                                                       String conversationId, HttpHeaders headers) {
+        String conversation = conversationId != null ? conversationId : requestHeaders.getFirst(CONVERSATION_HEADER);
+        return chatService.admit(message, tenant(requestHeaders), conversation)
+                .map(answer -> ResponseEntity.ok()
+                        .headers(headers)
+                        .body(requestProfiler.track(profile, message, withIdleTimeout(answer))))
+                .doOnError(e -> {
+                    queryEmbeddingPrefetcher.discard(message);
+                    requestProfiler.complete(profile, "REJECTED");
+                });
+    }
 
+    private void ingest(String message, List<MultipartFile> files, List<UploadResult> uploads) throws IOException {
         // 1. File Validation: if no file is uploaded then proceed with regular chat model
-        if (file == null || file.isEmpty()) {
+        List<MultipartFile> uploaded = files == null ? List.of() : files.stream().filter(file -> !file.isEmpty()).toList();
+        if (uploaded.isEmpty()) {
             logger.info("File is empty or not provided.");
-            return ResponseEntity.ok(chatAssistant.chat(message));
+            return;
+        }
+        if (uploaded.size() > uploadProperties.maxFiles()) {
+            throw new IllegalArgumentException("At most " + uploadProperties.maxFiles() + " files can be uploaded at once");
         }
 
-        // 2. Save the uploaded file to directory
-        logger.info("Uploading document.....");
-        Resource optionalResource = ragChatbotService.saveDocument(file);
-
-        Resource resource = optionalResource;
-        logger.info("Document uploaded successfully.");
+        // 2. Start embedding the question now, it doesn't depend on the documents
+        queryEmbeddingPrefetcher.prefetch(message);
+        try {
+            // 3. Save the uploaded files to directory; a file that can't be saved is reported, the others go on
+            logger.info("Uploading {} document(s).....", uploaded.size());
+            UploadResult[] results = new UploadResult[uploaded.size()];
+            List<Resource> resources = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            Exception firstFailure = null;
+            for (int i = 0; i < uploaded.size(); i++) {
+                MultipartFile file = uploaded.get(i);
+                try {
+                    resources.add(requestProfiler.time(Stage.UPLOAD, () -> ragChatbotService.saveDocument(file)));
+                    positions.add(i);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to upload {}: {}", file.getOriginalFilename(), e.getMessage());
+                    results[i] = UploadResult.failed(String.valueOf(file.getOriginalFilename()), e);
+                    firstFailure = firstFailure == null ? e : firstFailure;
+                }
+            }
+            if (resources.isEmpty()) {
+                switch (firstFailure) {
+                    case IOException ioException -> throw ioException;
+                    case RuntimeException runtimeException -> throw runtimeException;
+                    default -> throw new IOException(firstFailure);
+                }
+            }
+            logger.info("Document(s) uploaded successfully.");
 
-        // 3. Extract text segments from the document and store them for retrieval
-        logger.info("Extracting and saving documents segments to DB.....");
-        ragChatbotService.saveSegments(resource);
-        logger.info("Document segments saved.");
+            // 4. Extract text segments from the documents (in parallel) and store them for retrieval
+            logger.info("Extracting and saving documents segments to DB.....");
+            IngestionJobService queue = ingestionJobService.getIfAvailable();
+            // Any node with a free ingestion worker does the parsing and embedding
+            List<UploadResult> ingested = queue != null
+                    ? queue.ingestAndWait(resources)
+                    : ragChatbotService.saveSegments(resources, uploadProperties.parallelism());
+            for (int i = 0; i < positions.size(); i++) {
+                results[positions.get(i)] = ingested.get(i);
+            }
+            uploads.addAll(List.of(results));
+            logger.info("Document segments saved.");
+        } catch (IOException | RuntimeException e) {
+            queryEmbeddingPrefetcher.discard(message);
+            throw e;
+        }
 
-        // 4. Generate a chat response using uploaded document as context conversation
+        // 5. The chat response is generated next (retrieval picks up the prefetched question embedding) using uploaded documents as context
         logger.info("Generating contextual chat response");
-        return ResponseEntity.ok(chatAssistant.chat(message));
+    }
+
+    /**
+     * One X-Upload-Result header per uploaded file: "name; status=INDEXED|EMPTY|FAILED[; error=...]".
+     */
+    private static HttpHeaders uploadHeaders(List<UploadResult> uploads) {
+        HttpHeaders headers = new HttpHeaders();
+        for (UploadResult upload : uploads) {
+            String value = headerSafe(upload.fileName()) + "; status=" + upload.status();
+            if (upload.error() != null) {
+                value += "; error=\"" + headerSafe(upload.error()).replace("\"", "'") + "\"";
+            }
+            headers.add(UPLOAD_RESULT_HEADER, value);
+        }
+        return headers;
+    }
+
+    private static String headerSafe(String value) {
+        return value.replaceAll("[^\\x20-\\x7E]", "_");
+    }
+
+    /**
+     * Cancels the answer (and with it the upstream completion) when no token arrives within chat.stream.idle-timeout.
+     * A client disconnect cancels the subscription the same way.
+     */
+    private Flux<String> withIdleTimeout(Flux<String> answer) {
+        return answer.timeout(streamingProperties.idleTimeout());
+    }
+
+    private String tenant(HttpHeaders headers) {
+        return headers.getFirst(admissionProperties.tenantHeader());
     }
 }
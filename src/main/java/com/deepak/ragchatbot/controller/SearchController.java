@@ -0,0 +1,42 @@
+package com.deepak.ragchatbot.controller;
+
+import com.deepak.ragchatbot.service.search.SearchHit;
+import com.deepak.ragchatbot.service.search.SearchService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class SearchController {
+
+    private static final String FILTER_PREFIX = "filter.";
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Top matching segments as NDJSON, one hit per line, without calling the chat model.
+     * Metadata filters are passed as filter.&lt;key&gt;=&lt;value&gt;, e.g. filter.file_name=contract.pdf&amp;filter.page=3;
+     * the keys are document_id, file_name, page and section, any other key is a 400.
+     */
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SearchHit> search(@RequestParam String q,
+                                  @RequestParam(defaultValue = "0") int page,
+                                  @RequestParam(required = false) Integer size,
+                                  @RequestParam Map<String, String> params) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        params.forEach((name, value) -> {
+            if (name.startsWith(FILTER_PREFIX)) {
+                filters.put(name.substring(FILTER_PREFIX.length()), value);
+            }
+        });
+        return searchService.search(q, page, size, filters);
+    }
+}
@@ -1,5 +1,6 @@
 package com.deepak.ragchatbot.exception;
 
+import com.deepak.ragchatbot.service.admission.AdmissionRejectedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -38,12 +39,22 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(exception, HttpStatus.BAD_REQUEST, webRequest);
     }
 
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalStateException(IllegalStateException exception, WebRequest webRequest) {
+        return buildErrorResponse(exception, HttpStatus.CONFLICT, webRequest);
+    }
+
     @ExceptionHandler(UnsupportedOperationException.class)
     public ResponseEntity<ErrorResponse> handleUnsupportedOperationException(UnsupportedOperationException exception, WebRequest webRequest) {
         return buildErrorResponse(exception, HttpStatus.UNSUPPORTED_MEDIA_TYPE, webRequest);
     }
 
 
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleAdmissionRejected(AdmissionRejectedException exception, WebRequest webRequest) {
+        return buildErrorResponse(exception, HttpStatus.TOO_MANY_REQUESTS, webRequest);
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<ErrorResponse> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException exception, WebRequest webRequest) {
         return buildErrorResponse(exception, HttpStatus.PAYLOAD_TOO_LARGE, webRequest);
@@ -0,0 +1,138 @@
+package com.deepak.ragchatbot.model;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpClientProvider;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.core.util.HttpClientOptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+
+/**
+ * Azure SDK HTTP client (the default one, Netty) whose responses stop reading their body once the answer stream
+ * that made the request is cancelled (CancellationToken).
+ * Cutting the body cancels its subscription, which closes the connection, so the deployment stops generating;
+ * the body then ends with a CancellationException and the token is marked aborted.
+ * The token is the one current on the thread sending the request; requests sent outside CancellationToken.bind()
+ * are passed through untouched.
+ * Pass it to the Azure OpenAI model builders with httpClientProvider().
+ */
+public class CancellableHttpClientProvider implements HttpClientProvider {
+
+    private final Function<HttpClientOptions, HttpClient> clients;
+
+    public CancellableHttpClientProvider() {
+        this(options -> options == null ? HttpClient.createDefault() : HttpClient.createDefault(options));
+    }
+
+    CancellableHttpClientProvider(Function<HttpClientOptions, HttpClient> clients) {
+        this.clients = clients;
+    }
+
+    @Override
+    public HttpClient createInstance() {
+        return new CancellableHttpClient(clients.apply(null));
+    }
+
+    @Override
+    public HttpClient createInstance(HttpClientOptions clientOptions) {
+        return new CancellableHttpClient(clients.apply(clientOptions));
+    }
+
+    private record CancellableHttpClient(HttpClient delegate) implements HttpClient {
+
+        @Override
+        public Mono<HttpResponse> send(HttpRequest request) {
+            return send(request, Context.NONE);
+        }
+
+        @Override
+        public Mono<HttpResponse> send(HttpRequest request, Context context) {
+            CancellationToken token = CancellationToken.current();
+            Mono<HttpResponse> response = delegate.send(request, context);
+            return token == null ? response : response.map(sent -> new CancellableHttpResponse(sent, token));
+        }
+
+        @Override
+        public HttpResponse sendSync(HttpRequest request, Context context) {
+            CancellationToken token = CancellationToken.current();
+            HttpResponse response = delegate.sendSync(request, context);
+            return token == null ? response : new CancellableHttpResponse(response, token);
+        }
+    }
+
+    private static final class CancellableHttpResponse extends HttpResponse {
+
+        private final HttpResponse delegate;
+        private final CancellationToken token;
+
+        CancellableHttpResponse(HttpResponse delegate, CancellationToken token) {
+            super(delegate.getRequest());
+            this.delegate = delegate;
+            this.token = token;
+        }
+
+        @Override
+        public Flux<ByteBuffer> getBody() {
+            return delegate.getBody()
+                    .doOnCancel(() -> {
+                        if (token.isCancelled()) {
+                            token.markAborted();
+                        }
+                    })
+                    .takeUntilOther(token.whenCancelled())
+                    .concatWith(Flux.defer(() -> token.isAborted()
+                            ? Flux.error(new CancellationException("Answer stream cancelled by the client"))
+                            : Flux.empty()));
+        }
+
+        @Override
+        public BinaryData getBodyAsBinaryData() {
+            return BinaryData.fromFlux(getBody(), null, false).block();
+        }
+
+        @Override
+        public Mono<byte[]> getBodyAsByteArray() {
+            return delegate.getBodyAsByteArray();
+        }
+
+        @Override
+        public Mono<String> getBodyAsString() {
+            return delegate.getBodyAsString();
+        }
+
+        @Override
+        public Mono<String> getBodyAsString(Charset charset) {
+            return delegate.getBodyAsString(charset);
+        }
+
+        @Override
+        public int getStatusCode() {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        @Deprecated
+        public String getHeaderValue(String name) {
+            return delegate.getHeaderValue(name);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
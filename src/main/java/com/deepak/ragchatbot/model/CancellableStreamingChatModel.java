@@ -0,0 +1,136 @@
+package com.deepak.ragchatbot.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Stops a streaming completion once the stream that asked for it has been cancelled (see CancellationToken).
+ * - A call whose token is already cancelled never reaches the deployment.
+ * - After cancellation, partial responses are no longer passed on and neither is the end of the completion.
+ * - The completion itself is stopped by the transport: models built with CancellableHttpClientProvider close the
+ *   response stream, which marks the token aborted. Provider SDKs swallow exceptions thrown by the handler, so
+ *   throwing from it would not stop anything.
+ * - rag.stream.cancelled counts cancelled completions; rag.stream.tokens.saved estimates the completion tokens not
+ *   generated, only for completions the transport aborted: the request's max output tokens (or expectedCompletionTokens)
+ *   minus the partial responses already received.
+ * Calls made outside CancellationToken.bind() are passed through untouched.
+ */
+public class CancellableStreamingChatModel implements StreamingChatModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(CancellableStreamingChatModel.class);
+
+    private final StreamingChatModel delegate;
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final int expectedCompletionTokens;
+
+    public CancellableStreamingChatModel(StreamingChatModel delegate, Supplier<MeterRegistry> meterRegistry, int expectedCompletionTokens) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.expectedCompletionTokens = expectedCompletionTokens;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        CancellationToken token = CancellationToken.current();
+        if (token == null) {
+            delegate.chat(chatRequest, handler);
+            return;
+        }
+        if (token.isCancelled()) {
+            recordCancelled(expected(chatRequest));
+            return;
+        }
+
+        delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+            private final AtomicInteger received = new AtomicInteger();
+            private final AtomicBoolean finished = new AtomicBoolean();
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (token.isCancelled()) {
+                    return;
+                }
+                received.incrementAndGet();
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                if (token.isCancelled()) {
+                    cancelled();
+                    return;
+                }
+                handler.onCompleteResponse(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                if (token.isCancelled()) {
+                    logger.debug("Streaming completion ended after cancellation: {}", error.getMessage());
+                    cancelled();
+                    return;
+                }
+                handler.onError(error);
+            }
+
+            private void cancelled() {
+                recordCancelled(token.isAborted() ? Math.max(0, expected(chatRequest) - received.get()) : 0);
+            }
+        });
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    private int expected(ChatRequest chatRequest) {
+        Integer maxOutputTokens = chatRequest.maxOutputTokens();
+        return maxOutputTokens != null ? maxOutputTokens : expectedCompletionTokens;
+    }
+
+    private void recordCancelled(long tokensSaved) {
+        MeterRegistry registry = meterRegistry.get();
+        if (registry == null) {
+            return;
+        }
+        Counter.builder("rag.stream.cancelled").register(registry).increment();
+        if (tokensSaved == 0) {
+            return;
+        }
+        Counter.builder("rag.stream.tokens.saved")
+                .description("Estimated completion tokens not generated because the client went away")
+                .register(registry)
+                .increment(tokensSaved);
+    }
+}
@@ -0,0 +1,86 @@
+package com.deepak.ragchatbot.model;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.function.Supplier;
+
+/**
+ * Cancellation flag shared between a reactive answer stream and the streaming model call behind it.
+ * bind() creates one token per subscription and exposes it to the model call through a thread-local while the
+ * source is being subscribed (that is when the AI service assembles the prompt and starts the model call);
+ * cancelling the returned Flux (client disconnect, timeout) sets the flag.
+ * The transport reading the completion (CancellableHttpClientProvider) cuts its response body on whenCancelled()
+ * and marks the token aborted, which is what tells that the deployment actually stopped generating.
+ */
+public final class CancellationToken {
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final Sinks.Empty<Void> cancellation = Sinks.empty();
+    private volatile boolean cancelled;
+    private volatile boolean aborted;
+
+    public void cancel() {
+        cancelled = true;
+        cancellation.tryEmitEmpty();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return completes once the token is cancelled (right away when it already is)
+     */
+    public Mono<Void> whenCancelled() {
+        return cancellation.asMono();
+    }
+
+    /**
+     * Marks that the provider's response stream was closed because of the cancellation.
+     */
+    public void markAborted() {
+        aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * @return the token of the stream being subscribed on this thread, or null outside of bind()
+     */
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs action with token as the current one, e.g. to start a retried model call from a callback thread.
+     *
+     * @param token  may be null
+     * @param action
+     */
+    public static void runWith(CancellationToken token, Runnable action) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(token);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static <T> Flux<T> bind(Supplier<Flux<T>> source) {
+        return Flux.defer(() -> {
+            CancellationToken token = new CancellationToken();
+            return Flux.<T>from(subscriber -> runWith(token, () -> source.get().subscribe(subscriber)))
+                    .doOnCancel(token::cancel);
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.deepak.ragchatbot.model;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Truncates embeddings to their first {@code dimension} components and re-normalizes them to unit length.
+ * Models trained with Matryoshka representation learning (e.g. text-embedding-3-small / -large) keep most of
+ * their retrieval quality at 256 or 512 dimensions, so the vectors stored and searched become several times smaller.
+ */
+public class MatryoshkaEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final int dimension;
+
+    public MatryoshkaEmbeddingModel(EmbeddingModel delegate, int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        this.delegate = delegate;
+        this.dimension = dimension;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        Response<List<Embedding>> response = delegate.embedAll(textSegments);
+        List<Embedding> truncated = response.content().stream()
+                .map(embedding -> Embedding.from(truncate(embedding.vector(), dimension)))
+                .toList();
+        return Response.from(truncated, response.tokenUsage(), response.finishReason());
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public EmbeddingModel delegate() {
+        return delegate;
+    }
+
+    /**
+     * Keeps the first {@code dimension} components and rescales them to unit L2 norm,
+     * the same operation as pgvector's l2_normalize(subvector(embedding, 1, dimension)).
+     *
+     * @param vector
+     * @param dimension
+     * @return
+     */
+    public static float[] truncate(float[] vector, int dimension) {
+        if (vector.length < dimension) {
+            throw new IllegalStateException(
+                    "Embedding has %d dimensions, cannot truncate to %d".formatted(vector.length, dimension));
+        }
+        float[] truncated = Arrays.copyOf(vector, dimension);
+        double norm = 0;
+        for (float value : truncated) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < truncated.length; i++) {
+                truncated[i] *= scale;
+            }
+        }
+        return truncated;
+    }
+}
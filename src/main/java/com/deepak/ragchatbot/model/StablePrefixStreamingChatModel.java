@@ -0,0 +1,175 @@
+package com.deepak.ragchatbot.model;
+
+import com.deepak.ragchatbot.service.retrieval.OrderedContentInjector;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lays out the prompt so that it starts with the content that repeats between requests, which lets the provider
+ * serve that prefix from its prompt cache:
+ * system message, then the retrieved context (OrderedContentInjector), then the conversation history, then the question.
+ * - The context of the current question is moved from the last user message into a user message of its own, right
+ *   after the system message. Retrieved text never goes into the system message, so it can't carry instructions
+ *   with system-level authority.
+ * - Context injected into earlier user messages of the history is dropped; otherwise each turn would change
+ *   the prompt right after the first cached message.
+ * Metrics: rag.prompt.tokens (tag type=input|cached) from the token usage of the response, and
+ * rag.prompt.first.token (tag cached=true|false), the time to the first partial response.
+ * Cached tokens are read from the provider's TokenUsage subtype when it reports them (OpenAI-style
+ * inputTokensDetails().cachedTokens() or cacheReadInputTokens()); 0 otherwise.
+ */
+public class StablePrefixStreamingChatModel implements StreamingChatModel {
+
+    static final String CONTEXT_PREFIX = "Context from the uploaded documents:\n";
+
+    private final StreamingChatModel delegate;
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    public StablePrefixStreamingChatModel(StreamingChatModel delegate, Supplier<MeterRegistry> meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        long start = System.nanoTime();
+        AtomicLong firstToken = new AtomicLong();
+        delegate.chat(layout(chatRequest), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                firstToken.compareAndSet(0, System.nanoTime() - start);
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                record(completeResponse.tokenUsage(), firstToken.get());
+                handler.onCompleteResponse(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
+    }
+
+    static ChatRequest layout(ChatRequest chatRequest) {
+        List<ChatMessage> messages = chatRequest.messages();
+        if (messages.isEmpty() || !(messages.getLast() instanceof UserMessage question) || !question.hasSingleText()) {
+            return chatRequest;
+        }
+        Optional<OrderedContentInjector.Injected> injected = OrderedContentInjector.split(question.singleText());
+        if (injected.isEmpty()) {
+            return chatRequest;
+        }
+
+        SystemMessage system = null;
+        List<ChatMessage> history = new ArrayList<>();
+        for (ChatMessage message : messages.subList(0, messages.size() - 1)) {
+            if (message instanceof SystemMessage systemMessage) {
+                system = systemMessage;
+            } else {
+                history.add(withoutContext(message));
+            }
+        }
+
+        List<ChatMessage> laidOut = new ArrayList<>();
+        if (system != null) {
+            laidOut.add(system);
+        }
+        laidOut.add(UserMessage.from(CONTEXT_PREFIX + injected.get().context()));
+        laidOut.addAll(history);
+        laidOut.add(rename(question, injected.get().question()));
+        return ChatRequest.builder()
+                .messages(laidOut)
+                .parameters(chatRequest.parameters())
+                .build();
+    }
+
+    private static ChatMessage withoutContext(ChatMessage message) {
+        if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+            return OrderedContentInjector.split(userMessage.singleText())
+                    .<ChatMessage>map(injected -> rename(userMessage, injected.question()))
+                    .orElse(message);
+        }
+        return message;
+    }
+
+    private static UserMessage rename(UserMessage original, String text) {
+        return original.name() == null ? UserMessage.from(text) : UserMessage.from(original.name(), text);
+    }
+
+    private void record(TokenUsage tokenUsage, long firstTokenNanos) {
+        MeterRegistry registry = meterRegistry.get();
+        if (registry == null || tokenUsage == null) {
+            return;
+        }
+        int cached = cachedTokens(tokenUsage);
+        if (tokenUsage.inputTokenCount() != null) {
+            Counter.builder("rag.prompt.tokens").tag("type", "input").register(registry).increment(tokenUsage.inputTokenCount());
+        }
+        Counter.builder("rag.prompt.tokens").tag("type", "cached").register(registry).increment(cached);
+        if (firstTokenNanos > 0) {
+            Timer.builder("rag.prompt.first.token")
+                    .tag("cached", String.valueOf(cached > 0))
+                    .register(registry)
+                    .record(firstTokenNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param tokenUsage
+     * @return prompt tokens the provider served from its cache, 0 when it doesn't report them
+     */
+    static int cachedTokens(TokenUsage tokenUsage) {
+        Object details = invoke(tokenUsage, "inputTokensDetails");
+        Object cached = details != null ? invoke(details, "cachedTokens") : invoke(tokenUsage, "cacheReadInputTokens");
+        return cached instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static Object invoke(Object target, String method) {
+        try {
+            Method accessor = target.getClass().getMethod(method);
+            return accessor.invoke(target);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+}
@@ -0,0 +1,93 @@
+package com.deepak.ragchatbot.model.routing;
+
+/**
+ * Live health of one deployment: EWMA latency, EWMA error rate, 429 cool-down and a
+ * sliding one-minute token counter used to estimate remaining quota.
+ */
+public class DeploymentStats {
+
+    private static final long MINUTE_NANOS = 60_000_000_000L;
+
+    private final double alpha;
+    private final long tokensPerMinute;
+    private double ewmaLatencyNanos = -1;
+    private double ewmaErrorRate;
+    private long cooldownUntilNanos;
+    private long windowStartNanos;
+    private long tokensThisWindow;
+    private long tokensPreviousWindow;
+
+    public DeploymentStats(double alpha, long tokensPerMinute, long nowNanos) {
+        this.alpha = alpha;
+        this.tokensPerMinute = tokensPerMinute;
+        this.windowStartNanos = nowNanos;
+    }
+
+    public synchronized void recordSuccess(long latencyNanos, long tokens, long nowNanos) {
+        ewmaLatencyNanos = ewmaLatencyNanos < 0 ? latencyNanos : alpha * latencyNanos + (1 - alpha) * ewmaLatencyNanos;
+        ewmaErrorRate = (1 - alpha) * ewmaErrorRate;
+        rollWindow(nowNanos);
+        tokensThisWindow += tokens;
+    }
+
+    public synchronized void recordTokens(long tokens, long nowNanos) {
+        rollWindow(nowNanos);
+        tokensThisWindow += tokens;
+    }
+
+    public synchronized void recordFailure(boolean rateLimited, long cooldownNanos, long nowNanos) {
+        ewmaErrorRate = alpha + (1 - alpha) * ewmaErrorRate;
+        if (rateLimited) {
+            cooldownUntilNanos = nowNanos + cooldownNanos;
+        }
+    }
+
+    public synchronized boolean coolingDown(long nowNanos) {
+        return cooldownUntilNanos - nowNanos > 0;
+    }
+
+    public synchronized double ewmaLatencyNanos() {
+        return ewmaLatencyNanos;
+    }
+
+    /**
+     * Lower is better. Unmeasured deployments score 0 so they get explored first;
+     * errors and a nearly exhausted quota inflate the latency estimate.
+     */
+    public synchronized double score(long nowNanos) {
+        if (coolingDown(nowNanos)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (ewmaLatencyNanos < 0) {
+            return 0;
+        }
+        double score = ewmaLatencyNanos * (1 + 4 * ewmaErrorRate);
+        if (tokensPerMinute > 0 && remainingQuotaFraction(nowNanos) < 0.1) {
+            score *= 4;
+        }
+        return score;
+    }
+
+    /**
+     * Sliding-window estimate: the previous minute's count weighted by how much of it still overlaps the window.
+     */
+    synchronized double remainingQuotaFraction(long nowNanos) {
+        rollWindow(nowNanos);
+        double elapsed = (double) (nowNanos - windowStartNanos) / MINUTE_NANOS;
+        double used = tokensThisWindow + tokensPreviousWindow * (1 - elapsed);
+        return Math.max(0, 1 - used / tokensPerMinute);
+    }
+
+    private void rollWindow(long nowNanos) {
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed >= 2 * MINUTE_NANOS) {
+            tokensPreviousWindow = 0;
+            tokensThisWindow = 0;
+            windowStartNanos = nowNanos;
+        } else if (elapsed >= MINUTE_NANOS) {
+            tokensPreviousWindow = tokensThisWindow;
+            tokensThisWindow = 0;
+            windowStartNanos += MINUTE_NANOS;
+        }
+    }
+}
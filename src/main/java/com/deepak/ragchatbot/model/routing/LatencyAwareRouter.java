@@ -0,0 +1,138 @@
+package com.deepak.ragchatbot.model.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Picks a deployment per call and fails over to the others.
+ * - Primary selection is "power of two choices" over the deployment scores, which follows the
+ *   fastest deployments without sending every request to the same one.
+ * - The remaining deployments are tried in score order if the primary fails.
+ * - Latency and errors of every attempt feed back into DeploymentStats; a 429 puts the deployment
+ *   into cool-down.
+ * Metrics: rag.routing.latency (timer with p99) and rag.routing.errors (counter, type=rate_limit|error).
+ *
+ * @param <M> model type (ChatModel, StreamingChatModel, EmbeddingModel or a local stub in tests)
+ */
+public class LatencyAwareRouter<M> {
+
+    public record Route<M>(String name, M model, DeploymentStats stats) {
+    }
+
+    private final List<Route<M>> routes;
+    private final long rateLimitCooldownNanos;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+
+    public LatencyAwareRouter(List<Route<M>> routes, Duration rateLimitCooldown, MeterRegistry meterRegistry, LongSupplier clock) {
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("At least one deployment is required");
+        }
+        this.routes = List.copyOf(routes);
+        this.rateLimitCooldownNanos = rateLimitCooldown.toNanos();
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * @return all routes, best candidate first
+     */
+    public List<Route<M>> ordered() {
+        long now = clock.getAsLong();
+        List<Route<M>> ordered = new ArrayList<>(routes);
+        ordered.sort(Comparator.comparingDouble(route -> route.stats().score(now)));
+        if (ordered.size() > 2) {
+            // Power of two choices among the non-cooling routes
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int available = (int) ordered.stream().filter(route -> !route.stats().coolingDown(now)).count();
+            if (available >= 2) {
+                int a = random.nextInt(available);
+                int b = random.nextInt(available);
+                int primary = Math.min(a, b);
+                ordered.addFirst(ordered.remove(primary));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Calls the best deployment and fails over in score order.
+     *
+     * @param call
+     * @param tokens extracts the consumed tokens from the result, for the quota estimate
+     */
+    public <T> T call(Function<M, T> call, Function<T, Long> tokens) {
+        return call(ordered(), call, tokens);
+    }
+
+    public <T> T call(List<Route<M>> candidates, Function<M, T> call, Function<T, Long> tokens) {
+        RuntimeException last = null;
+        for (Route<M> route : candidates) {
+            long start = clock.getAsLong();
+            try {
+                T result = call.apply(route.model());
+                recordSuccess(route, clock.getAsLong() - start, tokens.apply(result));
+                return result;
+            } catch (RuntimeException e) {
+                recordFailure(route, e);
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    public void recordSuccess(Route<M> route, long latencyNanos, Long tokens) {
+        route.stats().recordSuccess(latencyNanos, tokens == null ? 0 : tokens, clock.getAsLong());
+        if (meterRegistry != null) {
+            Timer.builder("rag.routing.latency")
+                    .tag("deployment", route.name())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(latencyNanos));
+        }
+    }
+
+    public void recordFailure(Route<M> route, Throwable error) {
+        boolean rateLimited = isRateLimited(error);
+        route.stats().recordFailure(rateLimited, rateLimitCooldownNanos, clock.getAsLong());
+        if (meterRegistry != null) {
+            Counter.builder("rag.routing.errors")
+                    .tag("deployment", route.name())
+                    .tag("type", rateLimited ? "rate_limit" : "error")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Provider SDKs surface throttling differently (mapped RateLimitException, raw HTTP 429 from the Azure SDK),
+     * so the cause chain is checked by name and message rather than by a single exception type.
+     */
+    static boolean isRateLimited(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            String message = String.valueOf(t.getMessage());
+            if (t.getClass().getSimpleName().contains("RateLimit")
+                    || message.contains("429")
+                    || message.contains("Too Many Requests")) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.deepak.ragchatbot.model.routing;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * ChatModel that sends each request to the currently best deployment and fails over to the others.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private final LatencyAwareRouter<ChatModel> router;
+
+    public RoutingChatModel(LatencyAwareRouter<ChatModel> router) {
+        this.router = router;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return router.call(model -> model.chat(chatRequest), RoutingChatModel::totalTokens);
+    }
+
+    static Long totalTokens(ChatResponse response) {
+        if (response == null || response.tokenUsage() == null || response.tokenUsage().totalTokenCount() == null) {
+            return null;
+        }
+        return response.tokenUsage().totalTokenCount().longValue();
+    }
+}
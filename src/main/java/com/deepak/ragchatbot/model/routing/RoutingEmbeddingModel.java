@@ -0,0 +1,124 @@
+package com.deepak.ragchatbot.model.routing;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EmbeddingModel that routes across deployments and hedges slow requests.
+ * Steps:
+ * - Sends the request to the best deployment.
+ * - If it hasn't answered after max(hedgeDelay, 2 x its EWMA latency), sends the same request to the next one
+ *   and returns whichever answers first.
+ * - If the primary fails fast, fails over to the remaining deployments in score order.
+ * Embeddings are idempotent, so the duplicate request only costs tokens, and only on the slow tail.
+ */
+public class RoutingEmbeddingModel implements EmbeddingModel {
+
+    private final LatencyAwareRouter<EmbeddingModel> router;
+    private final ExecutorService executor;
+    private final long hedgeDelayNanos;
+
+    public RoutingEmbeddingModel(LatencyAwareRouter<EmbeddingModel> router, ExecutorService executor, Duration hedgeDelay) {
+        this.router = router;
+        this.executor = executor;
+        this.hedgeDelayNanos = hedgeDelay.toNanos();
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        List<LatencyAwareRouter.Route<EmbeddingModel>> routes = router.ordered();
+        LatencyAwareRouter.Route<EmbeddingModel> primary = routes.getFirst();
+        CompletableFuture<Response<List<Embedding>>> primaryAttempt = attempt(primary, textSegments);
+
+        try {
+            return primaryAttempt.get(hedgeDelayNanos(primary), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException slowPrimary) {
+            if (routes.size() == 1) {
+                return join(primaryAttempt);
+            }
+            return join(firstSuccessful(primaryAttempt, attempt(routes.get(1), textSegments)));
+        } catch (ExecutionException primaryFailed) {
+            if (routes.size() == 1) {
+                throw unwrap(primaryFailed.getCause());
+            }
+            return router.call(routes.subList(1, routes.size()), model -> model.embedAll(textSegments), RoutingEmbeddingModel::tokens);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primaryAttempt.cancel(true);
+            throw new IllegalStateException("Interrupted while embedding", e);
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return router.ordered().getFirst().model().dimension();
+    }
+
+    private CompletableFuture<Response<List<Embedding>>> attempt(LatencyAwareRouter.Route<EmbeddingModel> route,
+                                                                 List<TextSegment> textSegments) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = router.now();
+            try {
+                Response<List<Embedding>> response = route.model().embedAll(textSegments);
+                router.recordSuccess(route, router.now() - start, tokens(response));
+                return response;
+            } catch (RuntimeException e) {
+                router.recordFailure(route, e);
+                throw e;
+            }
+        }, executor);
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+                ? unwrap(error.getCause())
+                : error instanceof RuntimeException runtime ? runtime : new IllegalStateException(error);
+    }
+
+    private long hedgeDelayNanos(LatencyAwareRouter.Route<EmbeddingModel> primary) {
+        double ewma = primary.stats().ewmaLatencyNanos();
+        return ewma < 0 ? hedgeDelayNanos : Math.max(hedgeDelayNanos, (long) (2 * ewma));
+    }
+
+    private static Long tokens(Response<List<Embedding>> response) {
+        if (response == null || response.tokenUsage() == null || response.tokenUsage().totalTokenCount() == null) {
+            return null;
+        }
+        return response.tokenUsage().totalTokenCount().longValue();
+    }
+}
@@ -0,0 +1,92 @@
+package com.deepak.ragchatbot.model.routing;
+
+import com.deepak.ragchatbot.model.CancellationToken;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * StreamingChatModel that routes each stream to the currently best deployment.
+ * Latency is measured as time to first token. A stream that fails before emitting anything is
+ * retried on the next deployment; once tokens have been sent to the caller, errors are passed through.
+ * A stream ended because its answer was cancelled (CancellationToken) says nothing about the deployment:
+ * it is neither recorded as a failure nor retried.
+ */
+public class RoutingStreamingChatModel implements StreamingChatModel {
+
+    private final LatencyAwareRouter<StreamingChatModel> router;
+
+    public RoutingStreamingChatModel(LatencyAwareRouter<StreamingChatModel> router) {
+        this.router = router;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        attempt(router.ordered(), 0, chatRequest, handler, CancellationToken.current());
+    }
+
+    private void attempt(List<LatencyAwareRouter.Route<StreamingChatModel>> routes, int index,
+                         ChatRequest chatRequest, StreamingChatResponseHandler handler, CancellationToken token) {
+        LatencyAwareRouter.Route<StreamingChatModel> route = routes.get(index);
+        long start = router.now();
+
+        route.model().chat(chatRequest, new StreamingChatResponseHandler() {
+            private boolean started;
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (!started) {
+                    started = true;
+                    router.recordSuccess(route, router.now() - start, 0L);
+                }
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (token != null && token.isCancelled()) {
+                    handler.onCompleteResponse(completeResponse);
+                    return;
+                }
+                Long tokens = RoutingChatModel.totalTokens(completeResponse);
+                if (!started) {
+                    router.recordSuccess(route, router.now() - start, tokens);
+                } else if (tokens != null) {
+                    route.stats().recordTokens(tokens, router.now());
+                }
+                handler.onCompleteResponse(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (cancelled(error, token)) {
+                    handler.onError(error);
+                    return;
+                }
+                router.recordFailure(route, error);
+                if (!started && index + 1 < routes.size()) {
+                    // Possibly on the provider's thread: the retried call must still see the stream's token
+                    CancellationToken.runWith(token, () -> attempt(routes, index + 1, chatRequest, handler, token));
+                } else {
+                    handler.onError(error);
+                }
+            }
+        });
+    }
+
+    private static boolean cancelled(Throwable error, CancellationToken token) {
+        if (token != null && token.isCancelled()) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,175 @@
+package com.deepak.ragchatbot.service;
+
+import com.deepak.ragchatbot.assistant.ChatAssistant;
+import com.deepak.ragchatbot.model.CancellationToken;
+import com.deepak.ragchatbot.service.admission.AdmissionControlService;
+import com.deepak.ragchatbot.store.PostgresChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Single-flight wrapper around ChatAssistant.chat.
+ * Identical questions (same normalised message, same conversation, same corpus version) that arrive while an answer is
+ * still streaming attach to the same upstream Flux instead of starting their own retrieval and completion:
+ * - the first subscriber starts the upstream call,
+ * - late subscribers get a replay of the tokens already emitted, then the live tail,
+ * - the entry is dropped as soon as the upstream completes, fails or every subscriber has gone,
+ *   so nothing is cached beyond the in-flight window.
+ * Admission control runs in admit(), before the caller starts streaming, so a rejection can still become a 429.
+ * admit() looks up or creates the in-flight answer atomically: only the request that creates it is charged, the
+ * others wait for that same admission and get that same answer. A rejected answer is dropped from the in-flight map,
+ * and so is an admitted one whose caller went away before streaming it.
+ * When the last subscriber cancels, the upstream completion is cancelled too (CancellationToken).
+ * Conversations:
+ * - a conversation id selects the chat memory; it is scoped to the tenant, so another tenant can't read it,
+ * - questions of different conversations are never coalesced, their answers depend on different histories,
+ * - without a conversation id the question is a one-off: it gets an empty memory that is evicted when the answer ends.
+ */
+@Service
+public class CoalescingChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingChatService.class);
+    private static final Pattern CONVERSATION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final ChatAssistant chatAssistant;
+    private final CorpusVersion corpusVersion;
+    private final AdmissionControlService admissionControlService;
+    private final ConcurrentMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public CoalescingChatService(ChatAssistant chatAssistant,
+                                 CorpusVersion corpusVersion,
+                                 AdmissionControlService admissionControlService) {
+        this.chatAssistant = chatAssistant;
+        this.corpusVersion = corpusVersion;
+        this.admissionControlService = admissionControlService;
+    }
+
+    /**
+     * Admits the request, unless an identical answer is already streaming, then hands out the (coalesced) answer.
+     *
+     * @param message
+     * @param tenant
+     * @param conversationId null for a one-off question
+     * @return the answer, or AdmissionRejectedException before any token is produced
+     */
+    public Mono<Flux<String>> admit(String message, String tenant, String conversationId) {
+        return Mono.defer(() -> {
+            String memoryId = memoryId(tenant, conversationId);
+            Key key = key(memoryId, message);
+            Flight flight = flight(key, message, () -> admissionControlService.admit(tenant, message));
+            return flight.admission()
+                    .thenReturn(flight.answer())
+                    .doOnCancel(() -> flight.abandon(key));
+        });
+    }
+
+    /**
+     * The coalesced answer to a one-off question, without admission control.
+     *
+     * @param message
+     * @return
+     */
+    public Flux<String> chat(String message) {
+        return Flux.defer(() -> {
+            Key key = key(null, message);
+            return flight(key, message, Mono::empty).answer();
+        });
+    }
+
+    // The in-flight answer for key, created with its admission if there is none
+    private Flight flight(Key key, String message, Supplier<Mono<Void>> admission) {
+        return inFlight.compute(key, (k, existing) -> {
+            if (existing != null) {
+                logger.debug("Attaching to in-flight answer for corpus version {}", k.corpusVersion());
+                return existing;
+            }
+            return new Flight(k, message, admission.get());
+        });
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Key key(String memoryId, String message) {
+        return new Key(memoryId, normalize(message), corpusVersion.current());
+    }
+
+    /**
+     * The chat memory id of a conversation: "tenant/conversationId", or just the conversation id without a tenant.
+     *
+     * @param tenant
+     * @param conversationId
+     * @return null for a one-off question
+     */
+    static String memoryId(String tenant, String conversationId) {
+        if (conversationId == null || conversationId.isEmpty()) {
+            return null;
+        }
+        if (!CONVERSATION_ID.matcher(conversationId).matches()) {
+            throw new IllegalArgumentException("Conversation id must be 1-64 letters, digits, '-' or '_'");
+        }
+        return tenant == null || tenant.isBlank() ? conversationId : tenant + "/" + conversationId;
+    }
+
+    static String normalize(String message) {
+        return message == null ? "" : message.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record Key(String memoryId, String message, long corpusVersion) {
+    }
+
+    /**
+     * One in-flight answer: its admission, shared by every request attached to it, and the shared upstream Flux.
+     */
+    private final class Flight {
+
+        private final Mono<Void> admission;
+        private final Flux<String> answer;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        Flight(Key key, String message, Mono<Void> admission) {
+            this.admission = admission
+                    .doOnError(e -> inFlight.remove(key, this))
+                    .cache();
+            boolean oneOff = key.memoryId() == null;
+            String memoryId = oneOff ? PostgresChatMemoryStore.ONE_OFF_PREFIX + UUID.randomUUID() : key.memoryId();
+            this.answer = CancellationToken.bind(() -> chatAssistant.chat(memoryId, message))
+                    .doFinally(signal -> {
+                        inFlight.remove(key, this);
+                        if (oneOff) {
+                            chatAssistant.evictChatMemory(memoryId);
+                        }
+                    })
+                    .replay()
+                    .refCount()
+                    .doOnSubscribe(subscription -> started.set(true));
+        }
+
+        Mono<Void> admission() {
+            return admission;
+        }
+
+        Flux<String> answer() {
+            return answer;
+        }
+
+        // The caller went away between admission and streaming: nobody may ever subscribe
+        void abandon(Key key) {
+            if (!started.get()) {
+                inFlight.remove(key, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.deepak.ragchatbot.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic counter bumped whenever the indexed corpus changes.
+ * Lets caches and in-flight request sharing tell answers over the old corpus from answers over the new one.
+ */
+@Component
+public class CorpusVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public long increment() {
+        return version.incrementAndGet();
+    }
+}
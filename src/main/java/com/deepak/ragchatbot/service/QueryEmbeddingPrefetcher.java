@@ -0,0 +1,106 @@
+package com.deepak.ragchatbot.service;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lets a question be embedded before retrieval asks for it.
+ * - prefetch() starts embedding the question on a virtual thread and returns immediately.
+ * - The content retriever embeds queries through {@link #embeddingModel()}: a prefetched question is taken
+ *   from here (waiting for it if still in flight), anything else goes straight to the model.
+ * - Each prefetch is used once; entries nobody picked up expire after a minute.
+ */
+@Component
+public class QueryEmbeddingPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryEmbeddingPrefetcher.class);
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final EmbeddingModel delegate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final EmbeddingModel view = new PrefetchingView();
+
+    public QueryEmbeddingPrefetcher(EmbeddingModel embeddingModel) {
+        this.delegate = embeddingModel;
+    }
+
+    /**
+     * Starts embedding the given query text in the background.
+     *
+     * @param text
+     */
+    public void prefetch(String text) {
+        long now = System.nanoTime();
+        pending.values().removeIf(entry -> now - entry.createdNanos() > TTL.toNanos());
+        pending.computeIfAbsent(text, key -> new Pending(
+                CompletableFuture.supplyAsync(() -> delegate.embed(key).content(), executor), now));
+    }
+
+    /**
+     * Drops a prefetch that will not be used (e.g. the upload failed).
+     *
+     * @param text
+     */
+    public void discard(String text) {
+        Pending entry = pending.remove(text);
+        if (entry != null) {
+            entry.embedding().cancel(true);
+        }
+    }
+
+    public EmbeddingModel embeddingModel() {
+        return view;
+    }
+
+    private Embedding take(String text) {
+        Pending entry = pending.remove(text);
+        if (entry != null) {
+            try {
+                return entry.embedding().join();
+            } catch (CompletionException e) {
+                logger.warn("Prefetched query embedding failed, embedding again: {}", e.getMessage());
+            }
+        }
+        return delegate.embed(text).content();
+    }
+
+    private record Pending(CompletableFuture<Embedding> embedding, long createdNanos) {
+    }
+
+    private class PrefetchingView implements EmbeddingModel {
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            if (textSegments.size() == 1) {
+                return Response.from(List.of(take(textSegments.getFirst().text())));
+            }
+            return delegate.embedAll(textSegments);
+        }
+
+        @Override
+        public int dimension() {
+            return delegate.dimension();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
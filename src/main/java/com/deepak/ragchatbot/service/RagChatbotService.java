@@ -1,6 +1,13 @@
 package com.deepak.ragchatbot.service;
 
+import com.deepak.ragchatbot.service.extractor.ExtractedText;
 import com.deepak.ragchatbot.service.extractor.TextExtractor;
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import com.deepak.ragchatbot.service.profiling.RequestProfile;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import com.deepak.ragchatbot.store.blob.BlobResource;
+import com.deepak.ragchatbot.store.blob.BlobStore;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingStore;
@@ -8,81 +15,202 @@ import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class RagChatbotService {
 
     private static final Logger logger = LoggerFactory.getLogger(RagChatbotService.class);
     private static final long MAX_UPLOAD_FILE_SIZE = 3L * 1024 * 1024;  // 3MB limit
-    private static final String UPLOAD_DIR = "src/main/resources/docs";
 
     private final EmbeddingStoreIngestor embeddingStoreIngestor;
     private final EmbeddingStore<TextSegment> embeddingStore;
 
     private final List<TextExtractor> extractors;
+    private final CorpusVersion corpusVersion;
+    private final RequestProfiler requestProfiler;
+    private final BlobStore blobStore;
+    private final ObjectProvider<SummaryIndexer> summaryIndexer;
 
     public RagChatbotService(
             EmbeddingStoreIngestor embeddingStoreIngestor,
             EmbeddingStore<TextSegment> embeddingStore,
-            List<TextExtractor> extractors) {
+            List<TextExtractor> extractors,
+            CorpusVersion corpusVersion,
+            RequestProfiler requestProfiler,
+            BlobStore blobStore,
+            ObjectProvider<SummaryIndexer> summaryIndexer) {
         this.embeddingStoreIngestor = embeddingStoreIngestor;
         this.embeddingStore = embeddingStore;
         this.extractors = extractors;
+        this.corpusVersion = corpusVersion;
+        this.requestProfiler = requestProfiler;
+        this.blobStore = blobStore;
+        this.summaryIndexer = summaryIndexer;
     }
 
     /**
      * Clears existing embeddings and ingests new document content into the embedding store.
-     * Steps:
-     * - Removes all previous segments from embeddingStore.
-     * - Extracts text from the uploaded document (extractText()).
-     * - Converts text into a Document object.
-     * - Uses embeddingStoreIngestor to generate embeddings and store them.
+     * Same as saveSegments(List, int) with a single document; its failure is rethrown.
      *
      * @param resource
      */
     public void saveSegments(Resource resource) throws IOException {
+        saveSegments(List.of(resource), 1);
+    }
+
+    /**
+     * Replaces the corpus with the given documents, ingested in parallel.
+     * Steps:
+     * - Discards the summary refreshes still queued for the previous corpus (SummaryIndexer.discardPending()).
+     * - Removes all previous segments from embeddingStore, on a separate thread while the texts are extracted.
+     * - Extracts each document with its page / section structure (extractStructuredText()), up to parallelism at a time.
+     * - Converts each section into a Document tagged with its document id (DocumentIndexer.uploadId()), file name, page and section title.
+     * - Once the removal is done, uses embeddingStoreIngestor to generate embeddings and store them.
+     * - Bumps the corpus version so answers over the previous corpus are not shared with new questions.
+     * - With ingestion.summaries.enabled, queues the summary tree of every indexed document (SummaryIndexer.refreshAsync());
+     *   the corpus version is bumped again as each one is stored.
+     * A failing document is reported in its result and doesn't stop the others; if every document fails,
+     * the first failure is rethrown.
+     *
+     * @param resources
+     * @param parallelism
+     * @return one result per resource, in the same order
+     */
+    public List<UploadResult> saveSegments(List<Resource> resources, int parallelism) throws IOException {
+        // Summaries still queued for the old corpus must not land after its removal
+        summaryIndexer.ifAvailable(summaries -> summaries.discardPending(embeddingStore));
         logger.info("Removing existing segments from embedding store");
-        embeddingStore.removeAll();
-
-        logger.info("Extracting text from document: {}", resource.getFilename());
-        extractText(resource)
-                .filter(text -> !text.isBlank())
-                .map(Document::from)
-                .ifPresentOrElse(document -> {
-                    logger.info("Ingesting document into embedding store");
-                    embeddingStoreIngestor.ingest(document);
-                    logger.info("Document Ingested Successfully");
-                }, () -> logger.warn("Document is empty or unreadable: {}", resource.getFilename()));
+        CompletableFuture<Void> removal = CompletableFuture.runAsync(embeddingStore::removeAll,
+                command -> Thread.ofVirtual().name("segment-removal").start(command));
+
+        List<UploadResult> results = new ArrayList<>();
+        Map<String, Indexed> indexed = new ConcurrentHashMap<>();
+        Exception firstFailure = null;
+        RequestProfile profile = requestProfiler.current();
+        int threads = Math.max(1, Math.min(parallelism, resources.size()));
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads, Thread.ofVirtual().name("ingest-", 0).factory())) {
+            List<Future<UploadResult>> futures = new ArrayList<>();
+            for (Resource resource : resources) {
+                futures.add(pool.submit(() -> {
+                    requestProfiler.attach(profile);
+                    try {
+                        return ingest(resource, removal, indexed);
+                    } finally {
+                        requestProfiler.detach();
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                String fileName = fileName(resources.get(i));
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Exception failure = e.getCause() instanceof Exception cause ? cause : e;
+                    logger.warn("Failed to ingest {}: {}", fileName, failure.getMessage());
+                    results.add(UploadResult.failed(fileName, failure));
+                    firstFailure = firstFailure == null ? failure : firstFailure;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while ingesting " + fileName, e);
+                }
+            }
+        } finally {
+            awaitRemoval(removal);
+        }
+
+        if (results.stream().anyMatch(result -> result.status() == UploadResult.Status.INDEXED)) {
+            corpusVersion.increment();
+            logger.info("Document Ingested Successfully");
+            indexed.forEach(this::refreshSummaries);
+        }
+        if (results.stream().allMatch(result -> result.status() == UploadResult.Status.FAILED) && firstFailure != null) {
+            switch (firstFailure) {
+                case IOException ioException -> throw ioException;
+                case RuntimeException runtimeException -> throw runtimeException;
+                default -> throw new IOException(firstFailure);
+            }
+        }
+        return results;
+    }
+
+    private UploadResult ingest(Resource resource, CompletableFuture<Void> removal, Map<String, Indexed> indexed)
+            throws IOException {
+        String fileName = fileName(resource);
+        logger.info("Extracting text from document: {}", fileName);
+        String documentId = DocumentIndexer.uploadId(resource);
+        Optional<ExtractedText> extracted = extractStructuredText(resource);
+        List<Document> documents = extracted
+                .map(text -> DocumentIndexer.documents(text, documentId, fileName))
+                .orElse(List.of());
+        if (documents.isEmpty()) {
+            logger.warn("Document is empty or unreadable: {}", fileName);
+            return UploadResult.empty(fileName);
+        }
+        // New segments must not be written before the old corpus is gone
+        removal.join();
+        logger.info("Ingesting document into embedding store: {}", fileName);
+        embeddingStoreIngestor.ingest(documents);
+        indexed.put(documentId, new Indexed(fileName, extracted.get()));
+        return UploadResult.indexed(fileName);
+    }
+
+    private void refreshSummaries(String documentId, Indexed indexed) {
+        summaryIndexer.ifAvailable(summaries -> summaries.refreshAsync(embeddingStore, documentId, indexed.fileName(), indexed.text())
+                .thenAccept(nodes -> {
+                    if (nodes > 0) {
+                        corpusVersion.increment();
+                    }
+                }));
+    }
+
+    private record Indexed(String fileName, ExtractedText text) {
+    }
+
+    private static String fileName(Resource resource) {
+        return Optional.ofNullable(resource.getFilename()).orElse("uploaded_file");
+    }
+
+    private void awaitRemoval(CompletableFuture<Void> removal) {
+        try {
+            removal.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        corpusVersion.increment();
     }
 
     /**
-     * Saves the uploaded file to a local directory and returns it as a Resource.
+     * Saves the uploaded file in the blob store and returns it as a Resource.
      * Steps:
      * - Validates file size (max 3MB).
-     * - Creates upload directory if missing.
-     * - Generates a unique filename and saves the file.
-     * - Returns a UrlResource pointing to the saved file.
+     * - Streams the file into the content-addressed blob store; identical uploads share one stored copy.
+     * - Returns a BlobResource that keeps the (sanitized) original filename, so the extractor is chosen by its extension.
      * <p>
      * Refactoring provides:
      * - Sanitization: Replaces unsafe characters in filenames.
-     * - Optional return: Avoids throwing exceptions, making it safer for consumers.
      * - Logging: Provides context for both warnings and errors.
-     * - Modern APIs: Uses Path.of, Files.createDirectories, and try-with-resources.
+     * - No writes into the application's own source or resource folders, so it works on read-only images.
      *
      * @param file
      * @return
@@ -93,25 +221,26 @@ public class RagChatbotService {
             throw new IllegalArgumentException("File size must not exceed 3MB");
         }
 
-        File directory = new File(UPLOAD_DIR);
-        if (!directory.exists()) {
-            Files.createDirectories(directory.toPath());
-        }
-
         var originalFileName = Optional.ofNullable(file.getOriginalFilename())
                 .map(name -> name.replaceAll("[^a-zA-Z0-9\\.\\-_]", "_")) //Sanitization: Replaces unsafe characters in filenames.
                 .orElse("uploaded_file");
 
-        var fileName = UUID.randomUUID() + "_" + originalFileName;
-        Path path = Paths.get(UPLOAD_DIR, fileName);
-
-
+        BlobResource resource;
         try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+            resource = blobStore.put(inputStream, originalFileName);
         }
 
-        logger.info("File saved successfully: {}", path.toAbsolutePath());
-        return new UrlResource(path.toUri());
+        logger.info("File saved successfully: {} as blob {}", originalFileName, resource.hash());
+        return resource;
+    }
+
+    /**
+     * @param filename
+     * @return whether one of the extractors can read this file type
+     */
+    public boolean isSupported(String filename) {
+        String lowerCase = filename.toLowerCase();
+        return extractors.stream().anyMatch(extractor -> extractor.supports(lowerCase));
     }
 
     /**
@@ -144,4 +273,24 @@ public class RagChatbotService {
                     .orElseThrow(() -> new UnsupportedOperationException("Unsupported file type: " + filename));
         }
     }
+
+    /**
+     * Same as extractText() but keeps the page / section structure of the document.
+     *
+     * @param resource
+     * @return
+     */
+    public Optional<ExtractedText> extractStructuredText(Resource resource) throws IOException {
+        String filename = Optional.ofNullable(resource.getFilename())
+                .map(String::toLowerCase)
+                .orElse("");
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            return extractors.stream()
+                    .filter(extractor -> extractor.supports(filename))
+                    .findFirst()
+                    .map(extractor -> extractor.extractStructured(inputStream))
+                    .orElseThrow(() -> new UnsupportedOperationException("Unsupported file type: " + filename));
+        }
+    }
 }
\ No newline at end of file
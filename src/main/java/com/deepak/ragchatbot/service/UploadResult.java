@@ -0,0 +1,22 @@
+package com.deepak.ragchatbot.service;
+
+/**
+ * Outcome of one file of a multi-file upload.
+ * error is only set for FAILED files.
+ */
+public record UploadResult(String fileName, Status status, String error) {
+
+    public enum Status { INDEXED, EMPTY, FAILED }
+
+    public static UploadResult indexed(String fileName) {
+        return new UploadResult(fileName, Status.INDEXED, null);
+    }
+
+    public static UploadResult empty(String fileName) {
+        return new UploadResult(fileName, Status.EMPTY, null);
+    }
+
+    public static UploadResult failed(String fileName, Exception error) {
+        return new UploadResult(fileName, Status.FAILED, String.valueOf(error.getMessage()));
+    }
+}
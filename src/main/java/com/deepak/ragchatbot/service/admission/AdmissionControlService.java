@@ -0,0 +1,149 @@
+package com.deepak.ragchatbot.service.admission;
+
+import com.deepak.ragchatbot.config.AdmissionProperties;
+import com.deepak.ragchatbot.config.RoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for chat completions.
+ * Steps:
+ * - Estimates the prompt tokens of a request (message + augmentation overhead).
+ * - Queues it on the target deployment's FairTokenScheduler under the caller's tenant.
+ * - Completes once the deployment's token budget allows it to start, or fails early with AdmissionRejectedException.
+ * Chat requests are admitted before the model picks a deployment, so there is a single bucket for them:
+ * - without routing, the bucket of the starter's streaming deployment;
+ * - with routing.enabled, one global bucket "routed" for the whole pool, sized as the sum of the routed chat
+ *   deployments' budgets (routing.deployments[].tokens-per-minute, else admission.tokens-per-minute). It is not
+ *   per deployment: LatencyAwareRouter then spreads the admitted requests by each deployment's remaining headroom.
+ * Metrics: rag.admission.queue.depth (gauge), rag.admission.wait (timer), rag.admission.rejected (counter).
+ */
+@Service
+public class AdmissionControlService {
+
+    private static final int SYSTEM_PROMPT_TOKENS = 150;
+
+    /**
+     * Deployment name of the global bucket used with routing.enabled.
+     */
+    public static final String ROUTED = "routed";
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final String defaultDeployment;
+    // Budget of the "routed" pool, 0 without routing
+    private final long routedTokensPerMinute;
+    private final Map<String, FairTokenScheduler> schedulers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("admission-ticker").daemon().factory());
+
+    @Autowired
+    public AdmissionControlService(AdmissionProperties properties,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${langchain4j.azure-open-ai.streaming-chat-model.deployment-name:default}") String defaultDeployment,
+                                   ObjectProvider<RoutingProperties> routingProperties) {
+        this(properties, meterRegistry, defaultDeployment, routingProperties.getIfAvailable());
+    }
+
+    public AdmissionControlService(AdmissionProperties properties, MeterRegistry meterRegistry, String defaultDeployment) {
+        this(properties, meterRegistry, defaultDeployment, (RoutingProperties) null);
+    }
+
+    AdmissionControlService(AdmissionProperties properties,
+                            MeterRegistry meterRegistry,
+                            String defaultDeployment,
+                            RoutingProperties routingProperties) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        boolean routed = routingProperties != null && routingProperties.enabled();
+        this.defaultDeployment = routed ? ROUTED : defaultDeployment;
+        this.routedTokensPerMinute = routed
+                ? routingProperties.deployments().stream()
+                        .filter(deployment -> deployment.chatDeploymentName() != null)
+                        .mapToLong(deployment -> deployment.tokensPerMinute() > 0
+                                ? deployment.tokensPerMinute()
+                                : properties.deploymentTokensPerMinute().getOrDefault(deployment.name(), properties.tokensPerMinute()))
+                        .sum()
+                : 0;
+        if (properties.enabled()) {
+            ticker.scheduleWithFixedDelay(() -> schedulers.values().forEach(FairTokenScheduler::drain),
+                    20, 20, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Admits one streaming chat request against the chat bucket: the starter's streaming deployment, or the global
+     * "routed" bucket with routing.enabled.
+     *
+     * @param tenant
+     * @param message
+     * @return completes empty when the request may start
+     */
+    public Mono<Void> admit(String tenant, String message) {
+        return admit(defaultDeployment, tenant, estimatePromptTokens(message));
+    }
+
+    public Mono<Void> admit(String deployment, String tenant, long estimatedTokens) {
+        if (!properties.enabled()) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.fromFuture(scheduler(deployment).acquire(tenant == null ? "anonymous" : tenant, estimatedTokens), false)
+                    .doOnSuccess(ignored -> waitTimer(deployment, "admitted").record(Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnError(AdmissionRejectedException.class, e -> {
+                        waitTimer(deployment, "rejected").record(Duration.ofNanos(System.nanoTime() - start));
+                        Counter.builder("rag.admission.rejected")
+                                .tag("deployment", deployment)
+                                .tag("reason", e.reason().name())
+                                .register(meterRegistry)
+                                .increment();
+                    });
+        });
+    }
+
+    public long estimatePromptTokens(String message) {
+        // ~4 characters per token for English text
+        return SYSTEM_PROMPT_TOKENS + properties.contextTokens() + (message == null ? 0 : message.length() / 4);
+    }
+
+    private FairTokenScheduler scheduler(String deployment) {
+        return schedulers.computeIfAbsent(deployment, name -> {
+            long fallback = ROUTED.equals(name) && routedTokensPerMinute > 0 ? routedTokensPerMinute : properties.tokensPerMinute();
+            long tokensPerMinute = properties.deploymentTokensPerMinute().getOrDefault(name, fallback);
+            FairTokenScheduler scheduler = new FairTokenScheduler(
+                    tokensPerMinute, properties.maxQueueSize(), properties.maxWait().toNanos(), System::nanoTime);
+            Gauge.builder("rag.admission.queue.depth", scheduler, FairTokenScheduler::queued)
+                    .tag("deployment", name)
+                    .register(meterRegistry);
+            return scheduler;
+        });
+    }
+
+    private Timer waitTimer(String deployment, String outcome) {
+        return Timer.builder("rag.admission.wait")
+                .tag("deployment", deployment)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,21 @@
+package com.deepak.ragchatbot.service.admission;
+
+/**
+ * Thrown when a chat request cannot be admitted to the model deployment in time; mapped to 429 Too Many Requests.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final FairTokenScheduler.Rejection reason;
+
+    public AdmissionRejectedException(FairTokenScheduler.Rejection reason) {
+        super(switch (reason) {
+            case QUEUE_FULL -> "Too many requests are waiting for the chat model, please retry shortly";
+            case DEADLINE -> "The chat model cannot start this request in time, please retry shortly";
+        });
+        this.reason = reason;
+    }
+
+    public FairTokenScheduler.Rejection reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,151 @@
+package com.deepak.ragchatbot.service.admission;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission queue of a single deployment.
+ * - A token bucket limits estimated prompt tokens per minute.
+ * - Waiting requests are queued per tenant and served round-robin, one grant per tenant per round,
+ *   so a noisy tenant cannot starve the others.
+ * - The queue is bounded and every waiter has a deadline; a request whose estimated wait already
+ *   exceeds the deadline is rejected on arrival instead of timing out later.
+ * All state is guarded by the scheduler's monitor; futures are completed outside of it.
+ */
+public class FairTokenScheduler {
+
+    public enum Rejection { QUEUE_FULL, DEADLINE }
+
+    private final TokenBucket bucket;
+    private final int maxQueueSize;
+    private final long maxWaitNanos;
+    private final LongSupplier clock;
+
+    private final Map<String, Deque<Waiter>> queues = new HashMap<>();
+    private final Deque<String> tenantRing = new ArrayDeque<>();
+    private int queued;
+    private long queuedTokens;
+
+    public FairTokenScheduler(long tokensPerMinute, int maxQueueSize, long maxWaitNanos, LongSupplier clock) {
+        // Azure enforces TPM quotas over short windows, so allow bursts of ~10 seconds worth of tokens
+        this.bucket = new TokenBucket(Math.max(1, tokensPerMinute / 6), tokensPerMinute, clock.getAsLong());
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitNanos = maxWaitNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * @param tenant
+     * @param estimatedTokens
+     * @return a future completed when the request may start, or failed with AdmissionRejectedException
+     */
+    public CompletableFuture<Void> acquire(String tenant, long estimatedTokens) {
+        long tokens = Math.min(Math.max(1, estimatedTokens), bucket.capacity());
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Rejection rejection;
+        List<Runnable> completions;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            if (queued == 0 && bucket.tryConsume(tokens, now)) {
+                future.complete(null);
+                return future;
+            }
+            rejection = queued >= maxQueueSize ? Rejection.QUEUE_FULL
+                    : bucket.nanosUntilAvailable(queuedTokens + tokens, now) > maxWaitNanos ? Rejection.DEADLINE
+                    : null;
+            if (rejection == null) {
+                queues.computeIfAbsent(tenant, t -> {
+                    tenantRing.addLast(t);
+                    return new ArrayDeque<>();
+                }).addLast(new Waiter(tokens, now + maxWaitNanos, future));
+                queued++;
+                queuedTokens += tokens;
+            }
+            completions = drainLocked(now);
+        }
+        if (rejection != null) {
+            future.completeExceptionally(new AdmissionRejectedException(rejection));
+        }
+        completions.forEach(Runnable::run);
+        return future;
+    }
+
+    /**
+     * Grants whatever the bucket allows and expires overdue waiters; called on every acquire and periodically.
+     */
+    public void drain() {
+        List<Runnable> completions;
+        synchronized (this) {
+            completions = drainLocked(clock.getAsLong());
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    private List<Runnable> drainLocked(long now) {
+        List<Runnable> completions = new ArrayList<>();
+        expireLocked(now, completions);
+
+        while (!tenantRing.isEmpty()) {
+            String tenant = tenantRing.pollFirst();
+            Deque<Waiter> queue = queues.get(tenant);
+            Waiter head = queue.peekFirst();
+            if (!bucket.tryConsume(head.tokens(), now)) {
+                tenantRing.addFirst(tenant);
+                break;
+            }
+            queue.pollFirst();
+            dequeued(head);
+            completions.add(() -> head.future().complete(null));
+            if (queue.isEmpty()) {
+                queues.remove(tenant);
+            } else {
+                tenantRing.addLast(tenant);
+            }
+        }
+        return completions;
+    }
+
+    private void expireLocked(long now, List<Runnable> completions) {
+        Iterator<String> tenants = tenantRing.iterator();
+        while (tenants.hasNext()) {
+            String tenant = tenants.next();
+            Deque<Waiter> queue = queues.get(tenant);
+            queue.removeIf(waiter -> {
+                boolean cancelled = waiter.future().isDone();
+                boolean expired = waiter.deadlineNanos() - now < 0;
+                if (cancelled || expired) {
+                    dequeued(waiter);
+                    if (expired && !cancelled) {
+                        completions.add(() -> waiter.future().completeExceptionally(
+                                new AdmissionRejectedException(Rejection.DEADLINE)));
+                    }
+                    return true;
+                }
+                return false;
+            });
+            if (queue.isEmpty()) {
+                queues.remove(tenant);
+                tenants.remove();
+            }
+        }
+    }
+
+    private void dequeued(Waiter waiter) {
+        queued--;
+        queuedTokens -= waiter.tokens();
+    }
+
+    private record Waiter(long tokens, long deadlineNanos, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.deepak.ragchatbot.service.admission;
+
+/**
+ * Continuously refilled token bucket. Not thread-safe; guarded by the owning FairTokenScheduler.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double available;
+    private long lastRefillNanos;
+
+    TokenBucket(long capacity, long tokensPerMinute, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerMinute / 60_000_000_000.0;
+        this.available = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    boolean tryConsume(long tokens, long nowNanos) {
+        refill(nowNanos);
+        if (available >= tokens) {
+            available -= tokens;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Time until {@code tokens} more than what is available now could be consumed.
+     */
+    long nanosUntilAvailable(long tokens, long nowNanos) {
+        refill(nowNanos);
+        double missing = tokens - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / tokensPerNano);
+    }
+
+    long capacity() {
+        return (long) capacity;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            available = Math.min(capacity, available + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
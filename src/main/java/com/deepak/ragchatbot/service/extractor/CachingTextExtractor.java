@@ -0,0 +1,75 @@
+package com.deepak.ragchatbot.service.extractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Decorates a TextExtractor with the content-addressed ExtractedTextCache.
+ * Steps:
+ * - Reads the file bytes once and hashes them.
+ * - On a cache hit returns the stored text without touching PDFBox / POI.
+ * - On a miss runs the wrapped extractor and stores its output.
+ * extract() and extractStructured() are cached under separate keys, so each returns exactly what the wrapped
+ * extractor's method of the same name returns (the plain text isn't always the sections joined together).
+ */
+public class CachingTextExtractor implements TextExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingTextExtractor.class);
+    private static final String PLAIN = "-plain";
+
+    private final TextExtractor delegate;
+    private final ExtractedTextCache cache;
+
+    public CachingTextExtractor(TextExtractor delegate, ExtractedTextCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean supports(String filename) {
+        return delegate.supports(filename);
+    }
+
+    @Override
+    public Optional<String> extract(InputStream inputStream) {
+        byte[] content = readAll(inputStream);
+        String key = ExtractedTextCache.hash(content) + PLAIN;
+        Optional<ExtractedText> cached = cache.get(key);
+        if (cached.isPresent()) {
+            logger.debug("Extracted-text cache hit for {}", key);
+            // Stored as a single section, whose text() is the plain text unchanged
+            return cached.map(ExtractedText::text);
+        }
+        Optional<String> extracted = delegate.extract(new ByteArrayInputStream(content));
+        extracted.ifPresent(text -> cache.put(key, ExtractedText.of(text)));
+        return extracted;
+    }
+
+    @Override
+    public Optional<ExtractedText> extractStructured(InputStream inputStream) {
+        byte[] content = readAll(inputStream);
+        String hash = ExtractedTextCache.hash(content);
+        Optional<ExtractedText> cached = cache.get(hash);
+        if (cached.isPresent()) {
+            logger.debug("Extracted-text cache hit for {}", hash);
+            return cached;
+        }
+        Optional<ExtractedText> extracted = delegate.extractStructured(new ByteArrayInputStream(content));
+        extracted.ifPresent(text -> cache.put(hash, text));
+        return extracted;
+    }
+
+    private static byte[] readAll(InputStream inputStream) {
+        try {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
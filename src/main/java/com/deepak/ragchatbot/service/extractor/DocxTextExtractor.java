@@ -1,12 +1,17 @@
 package com.deepak.ragchatbot.service.extractor;
 
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class DocxTextExtractor implements TextExtractor{
@@ -40,4 +45,45 @@ public class DocxTextExtractor implements TextExtractor{
             return Optional.empty();
         }
     }
+
+    /**
+     * Extracts text split into sections at every heading paragraph (Title / Heading* styles).
+     * Tables are kept in the section they appear in.
+     *
+     * @param inputStream
+     * @return
+     */
+    @Override
+    public Optional<ExtractedText> extractStructured(InputStream inputStream) {
+        try (XWPFDocument document = new XWPFDocument(inputStream)) {
+            List<ExtractedText.Section> sections = new ArrayList<>();
+            String title = null;
+            StringBuilder text = new StringBuilder();
+            for (IBodyElement element : document.getBodyElements()) {
+                if (element instanceof XWPFParagraph paragraph && isHeading(paragraph)) {
+                    if (!text.isEmpty()) {
+                        sections.add(new ExtractedText.Section(title, 0, text.toString()));
+                        text.setLength(0);
+                    }
+                    title = paragraph.getText();
+                } else if (element instanceof XWPFParagraph paragraph) {
+                    text.append(paragraph.getText()).append('\n');
+                } else if (element instanceof XWPFTable table) {
+                    text.append(table.getText()).append('\n');
+                }
+            }
+            if (!text.isEmpty() || sections.isEmpty()) {
+                sections.add(new ExtractedText.Section(title, 0, text.toString()));
+            }
+            return Optional.of(new ExtractedText(sections));
+        } catch (IOException e) {
+            logger.error("Failed to extract DOCX text", e);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isHeading(XWPFParagraph paragraph) {
+        String style = paragraph.getStyle();
+        return style != null && (style.startsWith("Heading") || style.equals("Title"));
+    }
 }
@@ -0,0 +1,23 @@
+package com.deepak.ragchatbot.service.extractor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Text of a document together with its page / section structure.
+ * - PDF: one section per page (page numbers start at 1).
+ * - DOCX: one section per heading (page is 0, Word files carry no reliable page breaks).
+ */
+public record ExtractedText(List<Section> sections) {
+
+    public record Section(String title, int page, String text) {
+    }
+
+    public static ExtractedText of(String text) {
+        return new ExtractedText(List.of(new Section(null, 0, text)));
+    }
+
+    public String text() {
+        return sections.stream().map(Section::text).collect(Collectors.joining("\n"));
+    }
+}
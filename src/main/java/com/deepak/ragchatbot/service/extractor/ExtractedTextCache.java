@@ -0,0 +1,187 @@
+package com.deepak.ragchatbot.service.extractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed, gzip-compressed on-disk cache of extracted text.
+ * - Key: SHA-256 of the raw file bytes, so re-uploads and renamed copies hit the same entry.
+ * - Layout: {dir}/{first two hex chars}/{hash}.gz to keep directories small.
+ * - Writes go to a temp file and are moved into place, so readers never see half-written entries.
+ * - A hit touches the file's mtime; once the cache grows past maxBytes the least recently used
+ *   entries are deleted until it is back under 90% of the limit.
+ */
+public class ExtractedTextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractedTextCache.class);
+
+    /** Bumped whenever the entry format or the extractors' output changes, invalidating old entries. */
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong sizeBytes = new AtomicLong();
+
+    public ExtractedTextCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+            sizeBytes.set(entries().stream().mapToLong(Entry::size).sum());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot initialise extracted-text cache at " + directory, e);
+        }
+    }
+
+    public static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Optional<ExtractedText> get(String hash) {
+        Path file = path(hash);
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            ExtractedText text = read(in);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.ofNullable(text);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable extracted-text cache entry {}", file, e);
+            delete(file);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String hash, ExtractedText text) {
+        Path file = path(hash);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), hash, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp)))) {
+                write(out, text);
+            }
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (sizeBytes.addAndGet(Files.size(file) - previous) > maxBytes) {
+                evict();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write extracted-text cache entry {}", file, e);
+        }
+    }
+
+    public long sizeBytes() {
+        return sizeBytes.get();
+    }
+
+    private synchronized void evict() throws IOException {
+        long target = maxBytes * 9 / 10;
+        if (sizeBytes.get() <= target) {
+            return;
+        }
+        List<Entry> entries = entries();
+        entries.sort(Comparator.comparing(Entry::lastModified));
+        for (Entry entry : entries) {
+            if (sizeBytes.get() <= target) {
+                break;
+            }
+            if (delete(entry.file())) {
+                sizeBytes.addAndGet(-entry.size());
+            }
+        }
+        logger.info("Evicted extracted-text cache down to {} bytes", sizeBytes.get());
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(p -> p.toString().endsWith(".gz"))::iterator) {
+                try {
+                    entries.add(new Entry(file, Files.size(file), Files.getLastModifiedTime(file)));
+                } catch (NoSuchFileException ignored) {
+                    // removed concurrently
+                }
+            }
+        }
+        return entries;
+    }
+
+    private Path path(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + ".gz");
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void write(DataOutputStream out, ExtractedText text) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(text.sections().size());
+        for (ExtractedText.Section section : text.sections()) {
+            writeString(out, section.title());
+            out.writeInt(section.page());
+            writeString(out, section.text());
+        }
+    }
+
+    private static ExtractedText read(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        int count = in.readInt();
+        List<ExtractedText.Section> sections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sections.add(new ExtractedText.Section(readString(in), in.readInt(), readString(in)));
+        }
+        return new ExtractedText(sections);
+    }
+
+    // writeUTF is capped at 64KB, so strings are written as length-prefixed UTF-8 (-1 for null)
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private record Entry(Path file, long size, FileTime lastModified) {
+    }
+}
@@ -8,6 +8,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class PdfTextExtractor implements TextExtractor{
@@ -42,4 +44,27 @@ public class PdfTextExtractor implements TextExtractor{
             return Optional.empty();
         }
     }
+
+    /**
+     * Extracts text page by page so that segments can keep their page number.
+     *
+     * @param inputStream
+     * @return
+     */
+    @Override
+    public Optional<ExtractedText> extractStructured(InputStream inputStream) {
+        try (PDDocument document = Loader.loadPDF(inputStream.readAllBytes())) {
+            PDFTextStripper pdfTextStripper = new PDFTextStripper();
+            List<ExtractedText.Section> pages = new ArrayList<>();
+            for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                pdfTextStripper.setStartPage(page);
+                pdfTextStripper.setEndPage(page);
+                pages.add(new ExtractedText.Section(null, page, pdfTextStripper.getText(document)));
+            }
+            return Optional.of(new ExtractedText(pages));
+        } catch (IOException e) {
+            logger.error("Failed to extract PDF text", e);
+            return Optional.empty();
+        }
+    }
 }
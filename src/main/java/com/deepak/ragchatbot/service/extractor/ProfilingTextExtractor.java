@@ -0,0 +1,36 @@
+package com.deepak.ragchatbot.service.extractor;
+
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.service.profiling.Stage;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Records extraction time into the profile of the current request.
+ */
+public class ProfilingTextExtractor implements TextExtractor {
+
+    private final TextExtractor delegate;
+    private final RequestProfiler requestProfiler;
+
+    public ProfilingTextExtractor(TextExtractor delegate, RequestProfiler requestProfiler) {
+        this.delegate = delegate;
+        this.requestProfiler = requestProfiler;
+    }
+
+    @Override
+    public boolean supports(String filename) {
+        return delegate.supports(filename);
+    }
+
+    @Override
+    public Optional<String> extract(InputStream inputStream) {
+        return requestProfiler.time(Stage.EXTRACTION, () -> delegate.extract(inputStream));
+    }
+
+    @Override
+    public Optional<ExtractedText> extractStructured(InputStream inputStream) {
+        return requestProfiler.time(Stage.EXTRACTION, () -> delegate.extractStructured(inputStream));
+    }
+}
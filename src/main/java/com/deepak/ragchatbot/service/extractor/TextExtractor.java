@@ -6,4 +6,11 @@ import java.util.Optional;
 public interface TextExtractor {
     boolean supports(String filename);
     Optional<String> extract(InputStream inputStream);
+
+    /**
+     * Extracts text with its page / section structure. Defaults to a single section holding the plain text.
+     */
+    default Optional<ExtractedText> extractStructured(InputStream inputStream) {
+        return extract(inputStream).map(ExtractedText::of);
+    }
 }
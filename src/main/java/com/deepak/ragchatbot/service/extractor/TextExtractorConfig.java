@@ -1,18 +1,44 @@
 package com.deepak.ragchatbot.service.extractor;
 
+import com.deepak.ragchatbot.config.ExtractionCacheProperties;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+
 @Configuration
+@EnableConfigurationProperties({ExtractionCacheProperties.class})
 public class TextExtractorConfig {
 
     @Bean
-    public TextExtractor pdfTextExtractor(){
-        return new PdfTextExtractor();
+    public TextExtractor pdfTextExtractor(ObjectProvider<ExtractedTextCache> cache, RequestProfiler requestProfiler){
+        return profiled(cached(new PdfTextExtractor(), cache), requestProfiler);
+    }
+
+    @Bean
+    public TextExtractor docxTextExtractor(ObjectProvider<ExtractedTextCache> cache, RequestProfiler requestProfiler){
+        return profiled(cached(new DocxTextExtractor(), cache), requestProfiler);
     }
 
     @Bean
-    public TextExtractor docxTextExtractor(){
-        return new DocxTextExtractor();
+    @ConditionalOnProperty(prefix = "extraction.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ExtractedTextCache extractedTextCache(ExtractionCacheProperties properties){
+        Path directory = properties.directory().isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "rag-chatbot", "extraction-cache")
+                : Path.of(properties.directory());
+        return new ExtractedTextCache(directory, properties.maxSize().toBytes());
+    }
+
+    private static TextExtractor cached(TextExtractor extractor, ObjectProvider<ExtractedTextCache> cache){
+        ExtractedTextCache extractedTextCache = cache.getIfAvailable();
+        return extractedTextCache == null ? extractor : new CachingTextExtractor(extractor, extractedTextCache);
+    }
+
+    private static TextExtractor profiled(TextExtractor extractor, RequestProfiler requestProfiler){
+        return requestProfiler.enabled() ? new ProfilingTextExtractor(extractor, requestProfiler) : extractor;
     }
 }
@@ -0,0 +1,61 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live, thread-safe counters of a bulk ingestion run. Workers update it concurrently,
+ * the admin endpoint reads it through {@link #snapshot()}.
+ */
+public class BulkIngestionProgress {
+
+    private final String directory;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong segments = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile BulkIngestionReport.Status status = BulkIngestionReport.Status.RUNNING;
+    private volatile long endNanos;
+
+    public BulkIngestionProgress(String directory) {
+        this.directory = directory;
+    }
+
+    void documentIndexed(int segmentCount) {
+        documents.incrementAndGet();
+        segments.addAndGet(segmentCount);
+    }
+
+    void documentSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    void documentFailed() {
+        failed.incrementAndGet();
+    }
+
+    void finish(BulkIngestionReport.Status finalStatus) {
+        endNanos = System.nanoTime();
+        status = finalStatus;
+    }
+
+    public boolean isRunning() {
+        return status == BulkIngestionReport.Status.RUNNING;
+    }
+
+    public BulkIngestionReport snapshot() {
+        long end = isRunning() ? System.nanoTime() : endNanos;
+        long elapsedMillis = Math.max(1, (end - startNanos) / 1_000_000);
+        double seconds = elapsedMillis / 1000.0;
+        return new BulkIngestionReport(
+                directory,
+                status,
+                documents.get(),
+                segments.get(),
+                skipped.get(),
+                failed.get(),
+                elapsedMillis,
+                documents.get() / seconds,
+                segments.get() / seconds);
+    }
+}
@@ -0,0 +1,18 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+/**
+ * Point-in-time view of a bulk ingestion run, returned by the admin endpoint and logged by the CLI runner.
+ */
+public record BulkIngestionReport(
+        String directory,
+        Status status,
+        long documents,
+        long segments,
+        long skipped,
+        long failed,
+        long elapsedMillis,
+        double documentsPerSecond,
+        double segmentsPerSecond
+) {
+    public enum Status { RUNNING, COMPLETED, FAILED }
+}
@@ -0,0 +1,36 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * CLI entry point for bulk ingestion, e.g.
+ * java -jar rag-chatbot.jar --spring.main.web-application-type=none --ingest-dir=/data/corpus
+ * Does nothing unless --ingest-dir is given.
+ */
+@Component
+public class BulkIngestionRunner implements ApplicationRunner {
+
+    static final String INGEST_DIR_OPTION = "ingest-dir";
+
+    private final BulkIngestionService bulkIngestionService;
+
+    public BulkIngestionRunner(BulkIngestionService bulkIngestionService) {
+        this.bulkIngestionService = bulkIngestionService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> directories = args.getOptionValues(INGEST_DIR_OPTION);
+        if (directories == null) {
+            return;
+        }
+        for (String directory : directories) {
+            bulkIngestionService.ingest(Path.of(directory));
+        }
+    }
+}
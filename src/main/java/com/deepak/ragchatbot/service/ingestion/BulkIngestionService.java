@@ -0,0 +1,243 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.BulkIngestionProperties;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.extractor.ExtractedText;
+import com.deepak.ragchatbot.service.extractor.TextExtractor;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Walks a directory tree of PDF / DOCX files and indexes every document into the embedding store.
+ * Unlike the single-upload flow, it never wipes the store.
+ * Steps:
+ * - Opens (or resumes) the checkpoint log of the directory.
+ * - Streams the tree and hands each supported, not yet checkpointed file to a fixed worker pool.
+ * - Each worker extracts, splits, embeds and stores one document, then checkpoints it.
+ * - Progress (docs/sec, segments/sec) is observable while the run is in flight.
+ */
+@Service
+public class BulkIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestionService.class);
+
+    private final RagChatbotService ragChatbotService;
+    private final DocumentIndexer documentIndexer;
+    private final List<TextExtractor> extractors;
+    private final BulkIngestionProperties properties;
+
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor();
+    private final AtomicReference<BulkIngestionProgress> current = new AtomicReference<>();
+
+    public BulkIngestionService(RagChatbotService ragChatbotService,
+                                DocumentIndexer documentIndexer,
+                                List<TextExtractor> extractors,
+                                BulkIngestionProperties properties) {
+        this.ragChatbotService = ragChatbotService;
+        this.documentIndexer = documentIndexer;
+        this.extractors = extractors;
+        this.properties = properties;
+    }
+
+    /**
+     * Starts a run in the background and returns immediately.
+     *
+     * @param directory
+     * @return the initial progress snapshot
+     */
+    public BulkIngestionReport startAsync(Path directory) {
+        BulkIngestionProgress progress = begin(directory);
+        launcher.submit(() -> {
+            try {
+                run(directory, progress);
+            } catch (Exception e) {
+                logger.error("Bulk ingestion of {} failed", directory, e);
+            }
+        });
+        return progress.snapshot();
+    }
+
+    /**
+     * Runs to completion on the calling thread (used by the CLI runner).
+     *
+     * @param directory
+     * @return the final report
+     * @throws IOException
+     */
+    public BulkIngestionReport ingest(Path directory) throws IOException {
+        return run(directory, begin(directory));
+    }
+
+    /**
+     * Runs the same pipeline on the calling thread but writes into the given store instead of the live one.
+     * Used to fill a new index version; it has its own checkpoint log (per run name) and progress.
+     *
+     * @param directory
+     * @param target
+     * @param runName
+     * @param progress
+     * @return the final report
+     * @throws IOException
+     */
+    public BulkIngestionReport ingestInto(Path directory, EmbeddingStore<TextSegment> target,
+                                          String runName, BulkIngestionProgress progress) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Path root = directory.toAbsolutePath().normalize();
+        return run(root, progress, checkpointFile(root + "#" + runName),
+                (documentId, fileName, text) -> documentIndexer.indexInto(target, documentId, fileName, text));
+    }
+
+    /**
+     * Resolves a directory given to the admin endpoints against ingestion.bulk.root.
+     * Relative directories are taken from the root; the result (symbolic links resolved) must stay inside it.
+     *
+     * @param directory
+     * @return the real path of the directory
+     * @throws IOException
+     */
+    public Path resolveDirectory(String directory) throws IOException {
+        if (properties.root() == null || properties.root().isBlank()) {
+            throw new IllegalArgumentException("Server-side ingestion is disabled, set ingestion.bulk.root to allow it");
+        }
+        Path root = Path.of(properties.root()).toRealPath();
+        Path candidate = root.resolve(directory).normalize();
+        if (!candidate.startsWith(root) || !Files.isDirectory(candidate)
+                || !candidate.toRealPath().startsWith(root)) {
+            throw new IllegalArgumentException("Not a directory under ingestion.bulk.root: " + directory);
+        }
+        return candidate.toRealPath();
+    }
+
+    public Optional<BulkIngestionReport> currentReport() {
+        return Optional.ofNullable(current.get()).map(BulkIngestionProgress::snapshot);
+    }
+
+    private BulkIngestionProgress begin(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        BulkIngestionProgress progress = new BulkIngestionProgress(directory.toAbsolutePath().toString());
+        BulkIngestionProgress previous = current.get();
+        if ((previous != null && previous.isRunning()) || !current.compareAndSet(previous, progress)) {
+            throw new IllegalStateException("A bulk ingestion run is already in progress");
+        }
+        return progress;
+    }
+
+    private BulkIngestionReport run(Path directory, BulkIngestionProgress progress) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        return run(root, progress, checkpointFile(root.toString()), documentIndexer::index);
+    }
+
+    private BulkIngestionReport run(Path root, BulkIngestionProgress progress, Path checkpointFile, Sink sink) throws IOException {
+        int workers = Math.max(1, properties.workers());
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        // Bounds the number of queued files so a 50k-document walk doesn't sit in memory as pending tasks
+        Semaphore inFlight = new Semaphore(workers * 2);
+
+        logger.info("Bulk ingestion of {} started with {} workers", root, workers);
+        try (IngestionCheckpoint checkpoint = IngestionCheckpoint.open(checkpointFile);
+             Stream<Path> files = Files.walk(root)) {
+            logger.info("Resuming with {} checkpointed documents", checkpoint.completedCount());
+
+            files.filter(Files::isRegularFile)
+                    .filter(this::isSupported)
+                    .forEach(file -> {
+                        inFlight.acquireUninterruptibly();
+                        pool.execute(() -> {
+                            try {
+                                ingestFile(root, file, checkpoint, progress, sink);
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    });
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            progress.finish(BulkIngestionReport.Status.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.finish(BulkIngestionReport.Status.FAILED);
+        } catch (IOException | RuntimeException e) {
+            progress.finish(BulkIngestionReport.Status.FAILED);
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BulkIngestionReport report = progress.snapshot();
+        logger.info("Bulk ingestion finished: {}", report);
+        return report;
+    }
+
+    private void ingestFile(Path root, Path file, IngestionCheckpoint checkpoint, BulkIngestionProgress progress, Sink sink) {
+        String relativePath = root.relativize(file).toString();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            String key = IngestionCheckpoint.key(relativePath, attributes.size(), attributes.lastModifiedTime().toMillis());
+            if (checkpoint.isDone(key)) {
+                progress.documentSkipped();
+                return;
+            }
+
+            int segments = ragChatbotService.extractStructuredText(new FileSystemResource(file))
+                    .filter(text -> !text.text().isBlank())
+                    .map(text -> sink.index(DocumentIndexer.bulkId(file), file.getFileName().toString(), text))
+                    .orElse(0);
+            checkpoint.markDone(key);
+            progress.documentIndexed(segments);
+        } catch (Exception e) {
+            logger.warn("Failed to ingest {}: {}", relativePath, e.getMessage());
+            progress.documentFailed();
+        }
+    }
+
+    private boolean isSupported(Path file) {
+        String filename = file.getFileName().toString().toLowerCase();
+        return extractors.stream().anyMatch(extractor -> extractor.supports(filename));
+    }
+
+    private Path checkpointFile(String runKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(runKey.getBytes(StandardCharsets.UTF_8));
+            return Path.of(properties.checkpointDir(), HexFormat.of().formatHex(digest, 0, 8) + ".log");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Sink {
+        int index(String documentId, String fileName, ExtractedText text);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        launcher.shutdownNow();
+    }
+}
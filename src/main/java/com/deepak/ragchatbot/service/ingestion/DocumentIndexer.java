@@ -0,0 +1,211 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.service.extractor.ExtractedText;
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import com.deepak.ragchatbot.store.blob.BlobResource;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Splits, embeds and stores a single document without touching the rest of the store.
+ * The document's previous segments are removed before the new ones are stored, and segment ids are derived from
+ * the document id and the segment position, so indexing the same document twice replaces its rows instead of
+ * duplicating them (or leaving stale trailing segments behind when it now splits into fewer).
+ * This is what makes resumed bulk runs idempotent.
+ * Every ingestion path derives the document id the same way, so documents of different paths never share one:
+ * - uploads (direct or queued): uploadId(), "upload:" + SHA-256 of the content, i.e. the blob hash;
+ * - bulk runs and index builds: bulkId(), "bulk:" + absolute path of the file.
+ * Each section of a structured document is split on its own, so segments carry the page / section they come from.
+ * With ingestion.summaries.enabled, the document's summary tree is refreshed in the background once its segments
+ * are stored (SummaryIndexer.refreshAsync()); removing the previous segments leaves the summary nodes to that refresh.
+ */
+@Component
+public class DocumentIndexer {
+
+    public static final String DOCUMENT_ID = "document_id";
+    public static final String FILE_NAME = "file_name";
+    public static final String PAGE = "page";
+    public static final String SECTION = "section";
+
+    private final DocumentSplitter documentSplitter;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final CorpusVersion corpusVersion;
+    private final ObjectProvider<SummaryIndexer> summaryIndexer;
+
+    public DocumentIndexer(DocumentSplitter documentSplitter,
+                           EmbeddingModel embeddingModel,
+                           EmbeddingStore<TextSegment> embeddingStore,
+                           CorpusVersion corpusVersion,
+                           ObjectProvider<SummaryIndexer> summaryIndexer) {
+        this.documentSplitter = documentSplitter;
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.corpusVersion = corpusVersion;
+        this.summaryIndexer = summaryIndexer;
+    }
+
+    /**
+     * Steps:
+     * - Wraps the text into a Document tagged with document id and file name.
+     * - Splits it with the shared splitter.
+     * - Embeds all segments in one batched call.
+     * - Removes the document's previous segments, stores the new ones under deterministic ids and bumps the corpus version.
+     * - Queues the refresh of the document's summaries, which bumps the corpus version again once they are stored.
+     *
+     * @param documentId
+     * @param fileName
+     * @param text
+     * @return number of segments stored
+     */
+    public int index(String documentId, String fileName, String text) {
+        return index(documentId, fileName, ExtractedText.of(text));
+    }
+
+    /**
+     * Same as index(String, String, String) but tags each segment with the page / section it was split from.
+     *
+     * @param documentId
+     * @param fileName
+     * @param text
+     * @return number of segments stored
+     */
+    public int index(String documentId, String fileName, ExtractedText text) {
+        int segments = store(embeddingStore, documentId, fileName, text);
+        if (segments > 0) {
+            corpusVersion.increment();
+            summaryIndexer.ifAvailable(summaries -> summaries.refreshAsync(embeddingStore, documentId, fileName, text)
+                    .thenAccept(nodes -> {
+                        if (nodes > 0) {
+                            corpusVersion.increment();
+                        }
+                    }));
+        }
+        return segments;
+    }
+
+    /**
+     * Same as index() but writes into the given store (e.g. an index version being rebuilt)
+     * and leaves the corpus version alone, since that store isn't serving queries yet.
+     *
+     * @param target
+     * @param documentId
+     * @param fileName
+     * @param text
+     * @return number of segments stored
+     */
+    public int indexInto(EmbeddingStore<TextSegment> target, String documentId, String fileName, String text) {
+        return indexInto(target, documentId, fileName, ExtractedText.of(text));
+    }
+
+    public int indexInto(EmbeddingStore<TextSegment> target, String documentId, String fileName, ExtractedText text) {
+        int segments = store(target, documentId, fileName, text);
+        if (segments > 0) {
+            summaryIndexer.ifAvailable(summaries -> summaries.refreshAsync(target, documentId, fileName, text));
+        }
+        return segments;
+    }
+
+    private int store(EmbeddingStore<TextSegment> target, String documentId, String fileName, ExtractedText text) {
+        List<TextSegment> segments = new ArrayList<>();
+        for (Document document : documents(text, documentId, fileName)) {
+            segments.addAll(documentSplitter.split(document));
+        }
+        if (segments.isEmpty()) {
+            return 0;
+        }
+
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        List<String> ids = IntStream.range(0, segments.size())
+                .mapToObj(i -> segmentId(documentId, i))
+                .toList();
+        target.removeAll(metadataKey(DOCUMENT_ID).isEqualTo(documentId)
+                .and(metadataKey(SummaryIndexer.NODE_TYPE).isNotEqualTo(SummaryIndexer.SUMMARY)));
+        target.addAll(ids, embeddings, segments);
+        return segments.size();
+    }
+
+    /**
+     * One Document per non-blank section, tagged with document id, file name and, when known, page and section title.
+     *
+     * @param text
+     * @param documentId
+     * @param fileName
+     * @return
+     */
+    public static List<Document> documents(ExtractedText text, String documentId, String fileName) {
+        List<Document> documents = new ArrayList<>();
+        for (ExtractedText.Section section : text.sections()) {
+            if (section.text() == null || section.text().isBlank()) {
+                continue;
+            }
+            Metadata metadata = new Metadata()
+                    .put(DOCUMENT_ID, documentId)
+                    .put(FILE_NAME, fileName);
+            if (section.page() > 0) {
+                metadata.put(PAGE, section.page());
+            }
+            if (section.title() != null && !section.title().isBlank()) {
+                metadata.put(SECTION, section.title());
+            }
+            documents.add(Document.from(section.text(), metadata));
+        }
+        return documents;
+    }
+
+    /**
+     * @param resource uploaded file
+     * @return its document id, "upload:" + the SHA-256 of its content (the blob hash of stored uploads)
+     */
+    public static String uploadId(Resource resource) throws IOException {
+        if (resource instanceof BlobResource blob) {
+            return "upload:" + blob.hash();
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(resource.getInputStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return "upload:" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param file file of a bulk run or index build
+     * @return its document id, "bulk:" + its absolute path
+     */
+    public static String bulkId(Path file) {
+        return "bulk:" + file.toAbsolutePath().normalize();
+    }
+
+    static String segmentId(String documentId, int index) {
+        return UUID.nameUUIDFromBytes((documentId + "#" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -0,0 +1,76 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only log of files that were fully ingested during a bulk run.
+ * - One line per completed file: relative path, size and last-modified time.
+ * - A changed file produces a different key and is therefore ingested again.
+ * - Only newline-terminated lines count: a line torn by a crash is cut off when the log is reopened, so that file
+ *   is redone and the next append starts on a fresh line instead of continuing the torn one.
+ */
+public class IngestionCheckpoint implements Closeable {
+
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+    private final BufferedWriter writer;
+
+    private IngestionCheckpoint(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (Files.exists(file)) {
+            byte[] content = Files.readAllBytes(file);
+            int end = content.length;
+            while (end > 0 && content[end - 1] != '\n') {
+                end--;
+            }
+            if (end < content.length) {
+                // Drops the line torn by a crash, so the next append doesn't continue it
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(end);
+                }
+            }
+            new String(content, 0, end, StandardCharsets.UTF_8).lines()
+                    .filter(line -> !line.isEmpty())
+                    .forEach(completed::add);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public static IngestionCheckpoint open(Path file) throws IOException {
+        return new IngestionCheckpoint(file);
+    }
+
+    public static String key(String relativePath, long size, long lastModifiedMillis) {
+        return relativePath + "\t" + size + "\t" + lastModifiedMillis;
+    }
+
+    public boolean isDone(String key) {
+        return completed.contains(key);
+    }
+
+    public int completedCount() {
+        return completed.size();
+    }
+
+    public synchronized void markDone(String key) throws IOException {
+        if (completed.add(key)) {
+            // Whole line in one write, always '\n' so the reader's rule doesn't depend on the platform
+            writer.write(key + "\n");
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
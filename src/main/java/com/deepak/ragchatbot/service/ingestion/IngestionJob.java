@@ -0,0 +1,22 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * State of a queued ingestion job (without its payload).
+ */
+public record IngestionJob(
+        UUID id,
+        String fileName,
+        Status status,
+        boolean replaceCorpus,
+        int attempts,
+        String lockedBy,
+        Integer segments,
+        String lastError,
+        Instant createdAt,
+        Instant updatedAt
+) {
+    public enum Status { PENDING, RUNNING, SUCCEEDED, FAILED }
+}
@@ -0,0 +1,178 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.IngestionQueueProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Postgres table of ingestion jobs that every replica pulls from.
+ * - The uploaded file travels in the row (bytea), so any node can process it.
+ * - claim() takes the oldest runnable job with FOR UPDATE SKIP LOCKED: concurrent workers never block on
+ *   or double-claim the same row.
+ * - A claim is a lease until locked_until; workers extend it with heartbeats, and a job whose lease
+ *   expired (worker died) becomes claimable again.
+ * - Failures are retried with a linear backoff until maxAttempts, then the job is FAILED.
+ * - complete() / fail() only apply while the caller still holds the lease.
+ */
+public class IngestionJobQueue {
+
+    private static final RowMapper<IngestionJob> JOB_MAPPER = (rs, rowNum) -> new IngestionJob(
+            rs.getObject("id", UUID.class),
+            rs.getString("file_name"),
+            IngestionJob.Status.valueOf(rs.getString("status")),
+            rs.getBoolean("replace_corpus"),
+            rs.getInt("attempts"),
+            rs.getString("locked_by"),
+            (Integer) rs.getObject("segments"),
+            rs.getString("last_error"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getTimestamp("updated_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestionQueueProperties properties;
+    private final String table;
+
+    public IngestionJobQueue(JdbcTemplate jdbcTemplate, IngestionQueueProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.table = properties.table();
+        createTable();
+    }
+
+    private void createTable() {
+        jdbcTemplate.execute(("CREATE TABLE IF NOT EXISTS %s (id UUID PRIMARY KEY, file_name TEXT NOT NULL, "
+                + "payload BYTEA NOT NULL, replace_corpus BOOLEAN NOT NULL DEFAULT false, status TEXT NOT NULL, "
+                + "attempts INT NOT NULL DEFAULT 0, run_after TIMESTAMPTZ NOT NULL DEFAULT now(), "
+                + "locked_by TEXT NULL, locked_until TIMESTAMPTZ NULL, segments INT NULL, last_error TEXT NULL, "
+                + "created_at TIMESTAMPTZ NOT NULL DEFAULT now(), updated_at TIMESTAMPTZ NOT NULL DEFAULT now())").formatted(table));
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS %1$s_runnable_idx ON %1$s (status, run_after, created_at)".formatted(table));
+    }
+
+    /**
+     * @param fileName
+     * @param payload
+     * @param replaceCorpus wipe the store before indexing (single-upload semantics) instead of adding to it
+     * @return the job id
+     */
+    public UUID enqueue(String fileName, byte[] payload, boolean replaceCorpus) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO %s (id, file_name, payload, replace_corpus, status) VALUES (?, ?, ?, ?, 'PENDING')"
+                .formatted(table), id, fileName, payload, replaceCorpus);
+        return id;
+    }
+
+    /**
+     * Claims the oldest runnable job (pending and due, or running with an expired lease) for the given worker.
+     *
+     * @param workerId
+     * @return the claimed job with its payload
+     */
+    public Optional<ClaimedJob> claim(String workerId) {
+        return jdbcTemplate.query(("UPDATE %1$s SET status = 'RUNNING', attempts = attempts + 1, locked_by = ?, "
+                        + "locked_until = now() + make_interval(secs => ?), updated_at = now() "
+                        + "WHERE id = (SELECT id FROM %1$s "
+                        + "WHERE ((status = 'PENDING' AND run_after <= now()) OR (status = 'RUNNING' AND locked_until < now())) "
+                        + "AND attempts < ? ORDER BY created_at FOR UPDATE SKIP LOCKED LIMIT 1) "
+                        + "RETURNING id, file_name, payload, replace_corpus, attempts").formatted(table),
+                (rs, rowNum) -> new ClaimedJob(
+                        rs.getObject("id", UUID.class),
+                        rs.getString("file_name"),
+                        rs.getBytes("payload"),
+                        rs.getBoolean("replace_corpus"),
+                        rs.getInt("attempts")),
+                workerId, seconds(properties.visibilityTimeout()), properties.maxAttempts()).stream().findFirst();
+    }
+
+    /**
+     * Extends the lease of a running job.
+     *
+     * @return false if the lease was lost (expired and taken by another worker)
+     */
+    public boolean heartbeat(UUID id, String workerId) {
+        return jdbcTemplate.update(("UPDATE %s SET locked_until = now() + make_interval(secs => ?), updated_at = now() "
+                + "WHERE id = ? AND status = 'RUNNING' AND locked_by = ?").formatted(table),
+                seconds(properties.visibilityTimeout()), id, workerId) == 1;
+    }
+
+    public void complete(UUID id, String workerId, Integer segments) {
+        // The payload isn't needed any more, keep the row as a record of the job
+        jdbcTemplate.update(("UPDATE %s SET status = 'SUCCEEDED', segments = ?, payload = ''::bytea, locked_until = NULL, "
+                + "updated_at = now() WHERE id = ? AND locked_by = ?").formatted(table), segments, id, workerId);
+    }
+
+    /**
+     * Releases the job for a retry after a backoff, or marks it FAILED once attempts are exhausted
+     * (or right away when retrying cannot help).
+     */
+    public void fail(UUID id, String workerId, String error, boolean retryable) {
+        jdbcTemplate.update(("UPDATE %s SET status = CASE WHEN ? AND attempts < ? THEN 'PENDING' ELSE 'FAILED' END, "
+                + "run_after = now() + make_interval(secs => 5 * attempts), locked_by = NULL, locked_until = NULL, "
+                + "last_error = ?, updated_at = now() WHERE id = ? AND locked_by = ?").formatted(table),
+                retryable, properties.maxAttempts(), error, id, workerId);
+    }
+
+    /**
+     * Marks jobs whose last attempt's lease expired with no attempts left as FAILED.
+     */
+    public int failAbandoned() {
+        return jdbcTemplate.update(("UPDATE %s SET status = 'FAILED', last_error = COALESCE(last_error, 'lease expired'), "
+                + "locked_until = NULL, updated_at = now() WHERE status = 'RUNNING' AND locked_until < now() AND attempts >= ?")
+                .formatted(table), properties.maxAttempts());
+    }
+
+    public Optional<IngestionJob> find(UUID id) {
+        return jdbcTemplate.query("SELECT * FROM %s WHERE id = ?".formatted(table), JOB_MAPPER, id).stream().findFirst();
+    }
+
+    public Map<IngestionJob.Status, Long> counts() {
+        Map<IngestionJob.Status, Long> counts = new EnumMap<>(IngestionJob.Status.class);
+        jdbcTemplate.query("SELECT status, count(*) FROM %s GROUP BY status".formatted(table),
+                rs -> { counts.put(IngestionJob.Status.valueOf(rs.getString(1)), rs.getLong(2)); });
+        return counts;
+    }
+
+    /**
+     * Blocks until the job finished, polling its row.
+     *
+     * @param id
+     * @param timeout
+     * @return the finished job
+     * @throws IOException when the job failed or didn't finish in time
+     */
+    public IngestionJob awaitCompletion(UUID id, Duration timeout) throws IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long pollMillis = Math.min(100, Math.max(10, properties.pollInterval().toMillis()));
+        while (true) {
+            IngestionJob job = find(id).orElseThrow(() -> new IOException("Ingestion job disappeared: " + id));
+            if (job.status() == IngestionJob.Status.SUCCEEDED) {
+                return job;
+            }
+            if (job.status() == IngestionJob.Status.FAILED) {
+                throw new IOException("Ingestion job " + id + " failed: " + job.lastError());
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Timed out waiting for ingestion job " + id);
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for ingestion job " + id, e);
+            }
+        }
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    public record ClaimedJob(UUID id, String fileName, byte[] payload, boolean replaceCorpus, int attempts) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.IngestionQueueProperties;
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.UploadResult;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Entry point for queued ingestion: validates and enqueues uploads, and lets the upload + ask flow
+ * wait for its document to be indexed by whichever node picked the job up.
+ */
+public class IngestionJobService {
+
+    private final IngestionJobQueue queue;
+    private final RagChatbotService ragChatbotService;
+    private final CorpusVersion corpusVersion;
+    private final IngestionQueueProperties properties;
+
+    public IngestionJobService(IngestionJobQueue queue,
+                               RagChatbotService ragChatbotService,
+                               CorpusVersion corpusVersion,
+                               IngestionQueueProperties properties) {
+        this.queue = queue;
+        this.ragChatbotService = ragChatbotService;
+        this.corpusVersion = corpusVersion;
+        this.properties = properties;
+    }
+
+    /**
+     * Enqueues a document. Unsupported types are rejected here rather than failing on a worker.
+     *
+     * @param resource
+     * @param replaceCorpus
+     * @return the job id
+     * @throws IOException
+     */
+    public UUID submit(Resource resource, boolean replaceCorpus) throws IOException {
+        String filename = Optional.ofNullable(resource.getFilename()).orElse("");
+        if (!ragChatbotService.isSupported(filename)) {
+            throw new UnsupportedOperationException("Unsupported file type: " + filename.toLowerCase());
+        }
+        return queue.enqueue(filename, resource.getContentAsByteArray(), replaceCorpus);
+    }
+
+    /**
+     * Queued equivalent of RagChatbotService.saveSegments(): replaces the corpus with the document and
+     * returns once a worker (on any node) has indexed it.
+     *
+     * @param resource
+     * @throws IOException
+     */
+    public void ingestAndWait(Resource resource) throws IOException {
+        UUID id = submit(resource, true);
+        queue.awaitCompletion(id, properties.awaitTimeout());
+        // The worker may have run on another node
+        corpusVersion.increment();
+    }
+
+    /**
+     * Queued equivalent of RagChatbotService.saveSegments(List, int): the first document that can be indexed
+     * replaces the corpus, the others are then added by as many workers as are free, on any node.
+     * A failing document is reported in its result; if every document fails, the first failure is rethrown.
+     *
+     * @param resources
+     * @return one result per resource, in the same order
+     * @throws IOException
+     */
+    public List<UploadResult> ingestAndWait(List<Resource> resources) throws IOException {
+        UploadResult[] results = new UploadResult[resources.size()];
+        Exception firstFailure = null;
+        int next = 0;
+        // Replace jobs must not race each other, so the corpus is replaced by one document before the rest are queued
+        while (next < resources.size()) {
+            Resource resource = resources.get(next);
+            try {
+                ingestAndWait(resource);
+                results[next++] = UploadResult.indexed(fileName(resource));
+                break;
+            } catch (IOException | RuntimeException e) {
+                results[next++] = UploadResult.failed(fileName(resource), e);
+                firstFailure = firstFailure == null ? e : firstFailure;
+            }
+        }
+
+        Map<Integer, UUID> appended = new LinkedHashMap<>();
+        for (int i = next; i < resources.size(); i++) {
+            try {
+                appended.put(i, submit(resources.get(i), false));
+            } catch (IOException | RuntimeException e) {
+                results[i] = UploadResult.failed(fileName(resources.get(i)), e);
+            }
+        }
+        for (Map.Entry<Integer, UUID> job : appended.entrySet()) {
+            String fileName = fileName(resources.get(job.getKey()));
+            try {
+                IngestionJob done = queue.awaitCompletion(job.getValue(), properties.awaitTimeout());
+                results[job.getKey()] = done.segments() != null && done.segments() == 0
+                        ? UploadResult.empty(fileName)
+                        : UploadResult.indexed(fileName);
+            } catch (IOException e) {
+                results[job.getKey()] = UploadResult.failed(fileName, e);
+            }
+        }
+        if (!appended.isEmpty()) {
+            corpusVersion.increment();
+        }
+
+        List<UploadResult> resultList = List.of(results);
+        if (firstFailure != null && resultList.stream().allMatch(result -> result.status() == UploadResult.Status.FAILED)) {
+            switch (firstFailure) {
+                case IOException ioException -> throw ioException;
+                case RuntimeException runtimeException -> throw runtimeException;
+                default -> throw new IOException(firstFailure);
+            }
+        }
+        return resultList;
+    }
+
+    private static String fileName(Resource resource) {
+        return Optional.ofNullable(resource.getFilename()).orElse("uploaded_file");
+    }
+
+    public Optional<IngestionJob> find(UUID id) {
+        return queue.find(id);
+    }
+
+    public Map<IngestionJob.Status, Long> counts() {
+        return queue.counts();
+    }
+}
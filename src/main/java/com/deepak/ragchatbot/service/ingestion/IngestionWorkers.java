@@ -0,0 +1,235 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.IngestionQueueProperties;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.store.SwitchableEmbeddingStore;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingestion workers of this node. Every replica runs them, so queued uploads are parsed and embedded
+ * by whichever node has a free worker.
+ * Steps (per worker, in a loop):
+ * - Claims the next job (SKIP LOCKED); sleeps for pollInterval when there is none.
+ * - Heartbeats the claim while the job runs. When the lease is lost (another worker took the job over) the job is
+ *   aborted: the worker thread is interrupted and the job is neither completed nor failed by this worker.
+ * - Runs the RagChatbotService pipeline: replace-corpus jobs go through saveSegments(), other jobs are
+ *   extracted and added with the DocumentIndexer under their upload id (DocumentIndexer.uploadId()).
+ * - Completes the job, or fails it (retried unless the file itself is unusable).
+ * No job is claimed while the embedding store is frozen by an index build; the jobs wait in the queue instead of
+ * failing their attempts.
+ * Jobs abandoned on their last attempt are failed by a sweep that runs once per visibilityTimeout on each node,
+ * not on every poll.
+ */
+public class IngestionWorkers {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionWorkers.class);
+
+    private final IngestionJobQueue queue;
+    private final RagChatbotService ragChatbotService;
+    private final DocumentIndexer documentIndexer;
+    private final IngestionQueueProperties properties;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final String nodeId;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final List<Thread> threads = new ArrayList<>();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ingestion-heartbeat").daemon().factory());
+
+    public IngestionWorkers(IngestionJobQueue queue,
+                            RagChatbotService ragChatbotService,
+                            DocumentIndexer documentIndexer,
+                            IngestionQueueProperties properties,
+                            EmbeddingStore<TextSegment> embeddingStore) {
+        this.queue = queue;
+        this.ragChatbotService = ragChatbotService;
+        this.documentIndexer = documentIndexer;
+        this.properties = properties;
+        this.embeddingStore = embeddingStore;
+        this.nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long sweepMillis = Math.max(1, properties.visibilityTimeout().toMillis());
+        heartbeats.scheduleWithFixedDelay(this::failAbandoned, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        int workers = Math.max(1, properties.workers());
+        for (int i = 0; i < workers; i++) {
+            String workerId = nodeId + "/" + i;
+            threads.add(Thread.ofPlatform().name("ingestion-worker-" + i).daemon().start(() -> loop(workerId)));
+        }
+        logger.info("Started {} ingestion workers on {}", workers, nodeId);
+    }
+
+    public int busyWorkers() {
+        return busy.get();
+    }
+
+    private void loop(String workerId) {
+        while (running.get()) {
+            if (embeddingStore instanceof SwitchableEmbeddingStore switchable && switchable.isFrozen()) {
+                idle();
+                continue;
+            }
+            try {
+                queue.claim(workerId).ifPresentOrElse(job -> process(job, workerId), this::idle);
+            } catch (Exception e) {
+                logger.warn("Ingestion worker {} error: {}", workerId, e.getMessage());
+                idle();
+            }
+        }
+    }
+
+    private void process(IngestionJobQueue.ClaimedJob job, String workerId) {
+        busy.incrementAndGet();
+        Lease lease = new Lease(Thread.currentThread());
+        long heartbeatMillis = properties.heartbeatInterval().toMillis();
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> {
+            try {
+                if (!lease.isLost() && !queue.heartbeat(job.id(), workerId)) {
+                    logger.warn("Lost the lease on ingestion job {}, aborting it", job.id());
+                    lease.lose();
+                }
+            } catch (Exception e) {
+                logger.warn("Heartbeat for ingestion job {} failed: {}", job.id(), e.getMessage());
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            logger.info("Worker {} ingesting {} (job {}, attempt {})", workerId, job.fileName(), job.id(), job.attempts());
+            Integer segments = ingest(job);
+            heartbeat.cancel(false);
+            if (lease.finish()) {
+                logger.info("Ingestion job {} finished after its lease was lost, leaving it to its new owner", job.id());
+                return;
+            }
+            queue.complete(job.id(), workerId, segments);
+            logger.info("Ingestion job {} done in {} ms", job.id(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            heartbeat.cancel(false);
+            if (lease.finish()) {
+                logger.info("Ingestion job {} aborted after its lease was lost: {}", job.id(), e.getMessage());
+                return;
+            }
+            boolean retryable = !(e instanceof UnsupportedOperationException || e instanceof IllegalArgumentException);
+            logger.warn("Ingestion job {} failed (retryable: {}): {}", job.id(), retryable, e.getMessage());
+            queue.fail(job.id(), workerId, String.valueOf(e.getMessage()), retryable);
+        } finally {
+            if (lease.isLost() && running.get()) {
+                // The interrupt was meant for the aborted job, not for the worker loop
+                Thread.interrupted();
+            }
+            busy.decrementAndGet();
+        }
+    }
+
+    private Integer ingest(IngestionJobQueue.ClaimedJob job) throws Exception {
+        Resource resource = new ByteArrayResource(job.payload()) {
+            @Override
+            public String getFilename() {
+                return job.fileName();
+            }
+        };
+        if (job.replaceCorpus()) {
+            ragChatbotService.saveSegments(resource);
+            return null;
+        }
+        String documentId = DocumentIndexer.uploadId(resource);
+        return ragChatbotService.extractStructuredText(resource)
+                .filter(text -> !text.text().isBlank())
+                .map(text -> documentIndexer.index(documentId, job.fileName(), text))
+                .orElse(0);
+    }
+
+    private void failAbandoned() {
+        try {
+            int failed = queue.failAbandoned();
+            if (failed > 0) {
+                logger.info("Failed {} abandoned ingestion jobs", failed);
+            }
+        } catch (Exception e) {
+            logger.warn("Sweeping abandoned ingestion jobs failed: {}", e.getMessage());
+        }
+    }
+
+    private void idle() {
+        try {
+            Thread.sleep(properties.pollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.set(false);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
+    /**
+     * The claim of one running job, as seen by its worker and its heartbeat.
+     * Losing the lease interrupts the worker, unless the job already finished.
+     */
+    private static final class Lease {
+
+        private final Thread worker;
+        private boolean lost;
+        private boolean finished;
+
+        private Lease(Thread worker) {
+            this.worker = worker;
+        }
+
+        synchronized void lose() {
+            lost = true;
+            if (!finished) {
+                worker.interrupt();
+            }
+        }
+
+        synchronized boolean isLost() {
+            return lost;
+        }
+
+        /**
+         * @return whether the lease was lost, in which case the job belongs to another worker now
+         */
+        synchronized boolean finish() {
+            finished = true;
+            return lost;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running.set(false);
+        threads.forEach(Thread::interrupt);
+        heartbeats.shutdownNow();
+    }
+}
@@ -0,0 +1,12 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.store.IndexVersion;
+
+/**
+ * Progress of a blue/green rebuild: the index version being built and the bulk ingestion counters filling it.
+ */
+public record ReindexReport(
+        IndexVersion version,
+        BulkIngestionReport build
+) {
+}
@@ -0,0 +1,290 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import com.deepak.ragchatbot.config.IndexVersionProperties;
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.store.EmbeddingStoreFactory;
+import com.deepak.ragchatbot.store.IndexVersion;
+import com.deepak.ragchatbot.store.IndexVersionRegistry;
+import com.deepak.ragchatbot.store.SwitchableEmbeddingStore;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Blue/green rebuilds of the embedding index.
+ * Steps:
+ * - Registers a new version {table}_v{n} and creates its table next to the active one.
+ * - Fills it in the background with the bulk ingestion pipeline (current splitter and embedding model),
+ *   while queries keep hitting the active version.
+ * - When the build completes without failures (and activation was requested), switches the application
+ *   store over in one step; the previous version is kept for rollback.
+ * Every node polls the registry (index.versions.poll-interval):
+ * - Switches to the active version when another node activated it.
+ * - Freezes writes to the application store while any node builds a version, so no upload lands in a table
+ *   that is about to be replaced; a build whose node died is failed after buildTimeout.
+ * - Drops versions beyond the rollback target once the last switch is retireAfter old.
+ */
+@Service
+public class ReindexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReindexService.class);
+
+    private final BulkIngestionService bulkIngestionService;
+    private final IndexVersionRegistry indexVersionRegistry;
+    private final EmbeddingStoreFactory embeddingStoreFactory;
+    private final EmbeddingStoreProperties embeddingStoreProperties;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final CorpusVersion corpusVersion;
+    private final IndexVersionProperties indexVersionProperties;
+
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("index-version-poll").daemon().factory());
+    private final AtomicReference<Build> current = new AtomicReference<>();
+    // Set from startAsync until the build (and its activation) is over
+    private volatile boolean building;
+    // The version the application store points at, null until versioning is used
+    private volatile Integer applied;
+
+    public ReindexService(BulkIngestionService bulkIngestionService,
+                          IndexVersionRegistry indexVersionRegistry,
+                          EmbeddingStoreFactory embeddingStoreFactory,
+                          EmbeddingStoreProperties embeddingStoreProperties,
+                          EmbeddingModel embeddingModel,
+                          EmbeddingStore<TextSegment> embeddingStore,
+                          CorpusVersion corpusVersion,
+                          IndexVersionProperties indexVersionProperties) {
+        this.bulkIngestionService = bulkIngestionService;
+        this.indexVersionRegistry = indexVersionRegistry;
+        this.embeddingStoreFactory = embeddingStoreFactory;
+        this.embeddingStoreProperties = embeddingStoreProperties;
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.corpusVersion = corpusVersion;
+        this.indexVersionProperties = indexVersionProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            // The application store was opened on the active version at boot
+            applied = indexVersionRegistry.active().map(IndexVersion::version).orElse(null);
+        } catch (Exception e) {
+            logger.warn("Reading the active index version failed: {}", e.getMessage());
+        }
+        long pollMillis = Math.max(1, indexVersionProperties.pollInterval().toMillis());
+        poller.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts building a new index version from the documents under the given directory.
+     *
+     * @param directory
+     * @param activate switch to the new version once it is built without failures
+     * @return the initial progress
+     */
+    public ReindexReport startAsync(Path directory, boolean activate) {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Build previous = current.get();
+        if (previous != null && previous.progress().isRunning()) {
+            throw new IllegalStateException("An index build is already in progress");
+        }
+
+        int dimension = dimension();
+        indexVersionRegistry.registerBase(dimension);
+        IndexVersion version = indexVersionRegistry.createBuilding(dimension);
+        Build build = new Build(version, new BulkIngestionProgress(directory.toAbsolutePath().toString()));
+        if (!current.compareAndSet(previous, build)) {
+            indexVersionRegistry.markStatus(version.version(), IndexVersion.Status.FAILED);
+            throw new IllegalStateException("An index build is already in progress");
+        }
+        // Other nodes freeze on their next poll
+        building = true;
+        freeze(true);
+
+        launcher.submit(() -> run(directory, build, activate));
+        return build.report();
+    }
+
+    public Optional<ReindexReport> currentReport() {
+        return Optional.ofNullable(current.get()).map(build -> new ReindexReport(
+                indexVersionRegistry.find(build.version().version()).orElse(build.version()),
+                build.progress().snapshot()));
+    }
+
+    /**
+     * Switches queries to the given READY version.
+     *
+     * @param version
+     * @return the now active version
+     */
+    public IndexVersion activate(int version) {
+        IndexVersion target = indexVersionRegistry.find(version)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown index version: " + version));
+        if (target.dimension() != dimension()) {
+            throw new IllegalStateException("Index version " + version + " has " + target.dimension()
+                    + " dimensions but the embedding model produces " + dimension());
+        }
+        // Open the target first so a broken table fails before the registry is touched
+        EmbeddingStore<TextSegment> store = embeddingStoreFactory.create(target.tableName(), target.dimension(), false);
+        IndexVersion active = indexVersionRegistry.activate(version);
+        switchTo(store, active);
+        return active;
+    }
+
+    /**
+     * Switches back to the version that was active before the current one.
+     *
+     * @return the now active version
+     */
+    public IndexVersion rollback() {
+        IndexVersion previous = indexVersionRegistry.previous()
+                .orElseThrow(() -> new IllegalStateException("No previous index version to roll back to"));
+        return activate(previous.version());
+    }
+
+    /**
+     * Re-reads the active version from the registry now, instead of waiting for the next poll.
+     *
+     * @return the active version, if versioning is in use
+     */
+    public Optional<IndexVersion> sync() {
+        Optional<IndexVersion> active = indexVersionRegistry.active();
+        active.ifPresent(version -> switchTo(
+                embeddingStoreFactory.create(version.tableName(), version.dimension(), false), version));
+        return active;
+    }
+
+    /**
+     * One registry poll: heartbeats this node's build, fails abandoned builds, freezes or unfreezes writes,
+     * follows the active version and drops retired ones.
+     */
+    void poll() {
+        try {
+            Build build = current.get();
+            if (building && build != null) {
+                indexVersionRegistry.heartbeat(build.version().version());
+            }
+            int failed = indexVersionRegistry.failStale(indexVersionProperties.buildTimeout());
+            if (failed > 0) {
+                logger.warn("Failed {} index builds whose node stopped heartbeating", failed);
+            }
+            freeze(building || indexVersionRegistry.building().isPresent());
+            indexVersionRegistry.active()
+                    .filter(version -> !Objects.equals(applied, version.version()))
+                    .ifPresent(this::follow);
+            indexVersionRegistry.dropRetired(indexVersionProperties.retireAfter());
+        } catch (Exception e) {
+            logger.warn("Polling the index version registry failed: {}", e.getMessage());
+        }
+    }
+
+    // Another node activated this version
+    private void follow(IndexVersion version) {
+        if (version.dimension() != dimension()) {
+            logger.error("Active index version {} has {} dimensions but the embedding model produces {}, not switching",
+                    version.version(), version.dimension(), dimension());
+            return;
+        }
+        switchTo(embeddingStoreFactory.create(version.tableName(), version.dimension(), false), version);
+    }
+
+    private void run(Path directory, Build build, boolean activate) {
+        try {
+            build(directory, build, activate);
+        } finally {
+            building = false;
+            try {
+                freeze(indexVersionRegistry.building().isPresent());
+            } catch (RuntimeException e) {
+                // The next poll unfreezes
+                logger.warn("Reading running index builds failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void build(Path directory, Build build, boolean activate) {
+        IndexVersion version = build.version();
+        BulkIngestionReport report;
+        try {
+            EmbeddingStore<TextSegment> target = embeddingStoreFactory.create(version.tableName(), version.dimension(), true);
+            logger.info("Building index version {} into {}", version.version(), version.tableName());
+            report = bulkIngestionService.ingestInto(directory, target, version.tableName(), build.progress());
+            if (report.status() != BulkIngestionReport.Status.COMPLETED) {
+                indexVersionRegistry.markStatus(version.version(), IndexVersion.Status.FAILED);
+                return;
+            }
+            indexVersionRegistry.markStatus(version.version(), IndexVersion.Status.READY);
+        } catch (Exception e) {
+            logger.error("Building index version {} failed", version.version(), e);
+            build.progress().finish(BulkIngestionReport.Status.FAILED);
+            indexVersionRegistry.markStatus(version.version(), IndexVersion.Status.FAILED);
+            return;
+        }
+
+        if (!activate || report.failed() > 0) {
+            logger.info("Index version {} is ready ({} failed documents), activate it explicitly", version.version(), report.failed());
+            return;
+        }
+        try {
+            activate(version.version());
+        } catch (RuntimeException e) {
+            // The build itself is fine: the version stays READY and can be activated later
+            logger.error("Index version {} is ready but could not be activated, activate it explicitly", version.version(), e);
+        }
+    }
+
+    private void switchTo(EmbeddingStore<TextSegment> store, IndexVersion version) {
+        if (!(embeddingStore instanceof SwitchableEmbeddingStore switchable)) {
+            throw new IllegalStateException("The embedding store does not support switching index versions");
+        }
+        switchable.switchTo(store);
+        applied = version.version();
+        // Answers computed against the old index must not be shared with new questions
+        corpusVersion.increment();
+        logger.info("Queries now use index version {} ({})", version.version(), version.tableName());
+    }
+
+    private void freeze(boolean frozen) {
+        if (embeddingStore instanceof SwitchableEmbeddingStore switchable && switchable.isFrozen() != frozen) {
+            switchable.setFrozen(frozen);
+            logger.info(frozen ? "Writes frozen while an index version is built" : "Writes unfrozen");
+        }
+    }
+
+    private int dimension() {
+        return embeddingStoreProperties.dimension() > 0 ? embeddingStoreProperties.dimension() : embeddingModel.dimension();
+    }
+
+    private record Build(IndexVersion version, BulkIngestionProgress progress) {
+        ReindexReport report() {
+            return new ReindexReport(version, progress.snapshot());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        launcher.shutdownNow();
+        poller.shutdownNow();
+    }
+}
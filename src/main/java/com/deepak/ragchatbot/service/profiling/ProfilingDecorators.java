@@ -0,0 +1,105 @@
+package com.deepak.ragchatbot.service.profiling;
+
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.AugmentationRequest;
+import dev.langchain4j.rag.AugmentationResult;
+import dev.langchain4j.rag.RetrievalAugmentor;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.List;
+
+/**
+ * Thin wrappers that record pipeline stages into the RequestProfiler.
+ * They are only installed when profiling is enabled; each finds its request either through the
+ * thread binding (ingestion on the request thread) or through the question text (retrieval).
+ */
+public final class ProfilingDecorators {
+
+    private ProfilingDecorators() {
+    }
+
+    public static DocumentSplitter splitter(DocumentSplitter delegate, RequestProfiler profiler) {
+        return document -> profiler.time(Stage.SPLIT, () -> delegate.split(document));
+    }
+
+    /**
+     * @param stage EMBEDDING for document chunks, QUERY_EMBEDDING for questions (looked up by text)
+     */
+    public static EmbeddingModel embeddingModel(EmbeddingModel delegate, RequestProfiler profiler, Stage stage) {
+        return new EmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                RequestProfile profile = stage == Stage.QUERY_EMBEDDING && textSegments.size() == 1
+                        ? profiler.forQuery(textSegments.getFirst().text())
+                        : profiler.current();
+                long start = System.nanoTime();
+                try {
+                    return delegate.embedAll(textSegments);
+                } finally {
+                    if (profile != null) {
+                        profile.record(stage, System.nanoTime() - start);
+                    }
+                }
+            }
+
+            @Override
+            public int dimension() {
+                return delegate.dimension();
+            }
+        };
+    }
+
+    /**
+     * Records vector search time (excluding query embedding) and the retrieved segment ids and scores.
+     */
+    public static ContentRetriever contentRetriever(ContentRetriever delegate, RequestProfiler profiler) {
+        return (Query query) -> {
+            RequestProfile profile = profiler.forQuery(query.text());
+            if (profile == null) {
+                return delegate.retrieve(query);
+            }
+            long embeddingBefore = profile.stageNanos(Stage.QUERY_EMBEDDING);
+            long start = System.nanoTime();
+            List<Content> contents = delegate.retrieve(query);
+            long embedding = profile.stageNanos(Stage.QUERY_EMBEDDING) - embeddingBefore;
+            profile.record(Stage.VECTOR_SEARCH, System.nanoTime() - start - embedding);
+            profile.segments(contents.stream()
+                    .map(content -> new RequestProfileReport.Segment(
+                            String.valueOf(content.metadata().get(ContentMetadata.EMBEDDING_ID)),
+                            content.metadata().get(ContentMetadata.SCORE) instanceof Number score ? score.doubleValue() : null))
+                    .toList());
+            return contents;
+        };
+    }
+
+    /**
+     * Records augmentation time excluding the query embedding and vector search it triggers.
+     */
+    public static RetrievalAugmentor retrievalAugmentor(RetrievalAugmentor delegate, RequestProfiler profiler) {
+        return new RetrievalAugmentor() {
+            @Override
+            public AugmentationResult augment(AugmentationRequest request) {
+                RequestProfile profile = request.chatMessage() instanceof UserMessage userMessage && userMessage.hasSingleText()
+                        ? profiler.forQuery(userMessage.singleText())
+                        : null;
+                if (profile == null) {
+                    return delegate.augment(request);
+                }
+                long retrievalBefore = profile.stageNanos(Stage.QUERY_EMBEDDING) + profile.stageNanos(Stage.VECTOR_SEARCH);
+                long start = System.nanoTime();
+                AugmentationResult result = delegate.augment(request);
+                long retrieval = profile.stageNanos(Stage.QUERY_EMBEDDING) + profile.stageNanos(Stage.VECTOR_SEARCH) - retrievalBefore;
+                profile.record(Stage.AUGMENTATION, System.nanoTime() - start - retrieval);
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.deepak.ragchatbot.service.profiling;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Mutable profile of one request. Stages may be recorded from different threads (servlet thread,
+ * model callback threads), so durations live in an AtomicLongArray indexed by stage.
+ */
+public class RequestProfile {
+
+    private static final int MAX_MESSAGE_LENGTH = 200;
+
+    private final UUID id = UUID.randomUUID();
+    private final String endpoint;
+    private final String message;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+    private volatile List<RequestProfileReport.Segment> segments = List.of();
+    private volatile long totalNanos;
+    private volatile String outcome = "RUNNING";
+
+    RequestProfile(String endpoint, String message) {
+        this.endpoint = endpoint;
+        this.message = message == null || message.length() <= MAX_MESSAGE_LENGTH ? message : message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    public void record(Stage stage, long nanos) {
+        stageNanos.addAndGet(stage.ordinal(), nanos);
+    }
+
+    public long stageNanos(Stage stage) {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    void segments(List<RequestProfileReport.Segment> retrieved) {
+        this.segments = List.copyOf(retrieved);
+    }
+
+    void finish(String finalOutcome) {
+        totalNanos = System.nanoTime() - startNanos;
+        outcome = finalOutcome;
+    }
+
+    long totalNanos() {
+        long total = totalNanos;
+        return total > 0 ? total : System.nanoTime() - startNanos;
+    }
+
+    public RequestProfileReport snapshot() {
+        Map<Stage, Double> stages = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            long nanos = stageNanos(stage);
+            if (nanos > 0) {
+                stages.put(stage, nanos / 1_000_000.0);
+            }
+        }
+        return new RequestProfileReport(id, endpoint, message, startedAt, totalNanos() / 1_000_000.0, outcome, stages, segments);
+    }
+}
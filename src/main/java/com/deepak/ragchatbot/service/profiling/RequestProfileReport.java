@@ -0,0 +1,23 @@
+package com.deepak.ragchatbot.service.profiling;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable view of a profiled request as returned by the admin endpoint. Durations are in milliseconds.
+ */
+public record RequestProfileReport(
+        UUID id,
+        String endpoint,
+        String message,
+        Instant startedAt,
+        double totalMillis,
+        String outcome,
+        Map<Stage, Double> stages,
+        List<Segment> segments
+) {
+    public record Segment(String embeddingId, Double score) {
+    }
+}
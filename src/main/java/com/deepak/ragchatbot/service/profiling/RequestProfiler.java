@@ -0,0 +1,177 @@
+package com.deepak.ragchatbot.service.profiling;
+
+import com.deepak.ragchatbot.config.ProfilerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Opt-in per-request profiler.
+ * - The controller starts a profile; it is bound to the request thread for the upload / ingestion stages and,
+ *   while the answer streams, to the question text so retrieval running on model threads can find it.
+ * - Finished profiles go into a fixed-size ring buffer: one getAndIncrement plus one array store, no locks;
+ *   the oldest profile is overwritten once the buffer is full.
+ * - When disabled, start() returns null and every other method is a no-op.
+ */
+@Component
+@EnableConfigurationProperties({ProfilerProperties.class})
+public class RequestProfiler {
+
+    private final boolean enabled;
+    private final AtomicReferenceArray<RequestProfile> ring;
+    private final AtomicLong cursor = new AtomicLong();
+    private final ThreadLocal<RequestProfile> current = new ThreadLocal<>();
+    private final Map<String, RequestProfile> byQuery = new ConcurrentHashMap<>();
+
+    public RequestProfiler(ProfilerProperties properties) {
+        this.enabled = properties.enabled();
+        this.ring = new AtomicReferenceArray<>(Math.max(1, properties.capacity()));
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts profiling a request and binds it to the current thread.
+     *
+     * @param endpoint
+     * @param message
+     * @return the profile, or null when profiling is disabled
+     */
+    public RequestProfile start(String endpoint, String message) {
+        if (!enabled) {
+            return null;
+        }
+        RequestProfile profile = new RequestProfile(endpoint, message);
+        current.set(profile);
+        return profile;
+    }
+
+    public RequestProfile current() {
+        return enabled ? current.get() : null;
+    }
+
+    /**
+     * Binds an already started profile to the current thread, so work handed to another thread is recorded too.
+     *
+     * @param profile may be null
+     */
+    public void attach(RequestProfile profile) {
+        if (enabled && profile != null) {
+            current.set(profile);
+        }
+    }
+
+    /**
+     * Unbinds the profile from the current thread (the request thread is about to be reused).
+     */
+    public void detach() {
+        if (enabled) {
+            current.remove();
+        }
+    }
+
+    public RequestProfile forQuery(String query) {
+        return enabled && query != null ? byQuery.get(query) : null;
+    }
+
+    /**
+     * Times a stage of the profile bound to the current thread.
+     *
+     * @param stage
+     * @param action
+     * @return the action's result
+     */
+    public <T, E extends Exception> T time(Stage stage, ThrowingSupplier<T, E> action) throws E {
+        RequestProfile profile = current();
+        if (profile == null) {
+            return action.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            profile.record(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Profiles the answer stream: first token and completion, and makes the profile reachable
+     * by question text for retrieval while it streams. Completes the profile when the stream ends.
+     *
+     * @param profile
+     * @param message
+     * @param answer
+     * @return the same stream, instrumented
+     */
+    public Flux<String> track(RequestProfile profile, String message, Flux<String> answer) {
+        if (profile == null) {
+            return answer;
+        }
+        return Flux.defer(() -> {
+            byQuery.putIfAbsent(message, profile);
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            return answer
+                    .doOnNext(token -> {
+                        if (first.compareAndSet(true, false)) {
+                            profile.record(Stage.FIRST_TOKEN, System.nanoTime() - start);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        profile.record(Stage.COMPLETION, System.nanoTime() - start);
+                        byQuery.remove(message, profile);
+                        complete(profile, signal == SignalType.ON_COMPLETE ? "COMPLETED" : signal.name());
+                    });
+        });
+    }
+
+    /**
+     * Finishes a profile and publishes it to the ring buffer.
+     *
+     * @param profile
+     * @param outcome
+     */
+    public void complete(RequestProfile profile, String outcome) {
+        if (profile == null) {
+            return;
+        }
+        profile.finish(outcome);
+        ring.set((int) (cursor.getAndIncrement() % ring.length()), profile);
+    }
+
+    /**
+     * @param n
+     * @return the n slowest requests currently in the ring buffer
+     */
+    public List<RequestProfileReport> slowest(int n) {
+        List<RequestProfile> profiles = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            RequestProfile profile = ring.get(i);
+            if (profile != null) {
+                profiles.add(profile);
+            }
+        }
+        return profiles.stream()
+                .sorted(Comparator.comparingLong(RequestProfile::totalNanos).reversed())
+                .limit(Math.max(0, n))
+                .map(RequestProfile::snapshot)
+                .toList();
+    }
+
+    @FunctionalInterface
+    public interface ThrowingSupplier<T, E extends Exception> {
+        T get() throws E;
+    }
+}
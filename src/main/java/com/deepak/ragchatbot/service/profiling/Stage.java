@@ -0,0 +1,17 @@
+package com.deepak.ragchatbot.service.profiling;
+
+/**
+ * Stages of a RAG request, in pipeline order. Durations are exclusive: AUGMENTATION excludes the
+ * query embedding and vector search it triggers, FIRST_TOKEN is measured from the start of the chat call.
+ */
+public enum Stage {
+    UPLOAD,
+    EXTRACTION,
+    SPLIT,
+    EMBEDDING,
+    QUERY_EMBEDDING,
+    VECTOR_SEARCH,
+    AUGMENTATION,
+    FIRST_TOKEN,
+    COMPLETION
+}
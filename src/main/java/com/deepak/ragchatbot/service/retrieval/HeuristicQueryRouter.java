@@ -0,0 +1,157 @@
+package com.deepak.ragchatbot.service.retrieval;
+
+import com.deepak.ragchatbot.config.QueryRoutingProperties;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Decides per message whether retrieval is worth a query embedding and a vector search, using local heuristics only.
+ * Rules, first match wins:
+ * - with a summary retriever: asks about a document as a whole (ingestion.summaries.broad-patterns) -> retrieve summaries,
+ * - mentions the documents (retrieval.routing.document-cues) -> retrieve,
+ * - greeting, thanks or acknowledgement -> skip,
+ * - arithmetic expression -> skip,
+ * - matches one of retrieval.routing.skip-patterns -> skip,
+ * - fewer than retrieval.routing.min-words words -> skip (off by default),
+ * - otherwise -> retrieve.
+ * Metrics: rag.router.decisions (tags decision, reason), rag.retrieval.latency for retrieved messages, and
+ * rag.router.latency.saved, which adds the moving average of retrieval latency for every skipped message.
+ */
+public class HeuristicQueryRouter implements QueryRouter {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern SMALL_TALK = Pattern.compile(
+            "(hi|hello|hey|hiya|yo|good (morning|afternoon|evening|night)|greetings|"
+                    + "thanks?( you)?( (so|very) much)?|thx|ty|cheers|great|cool|nice|awesome|perfect|"
+                    + "ok(ay)?|sure|yes|no|yep|nope|got it|bye|goodbye|see you|"
+                    + "how are you( doing)?|who are you|what can you do)( (there|again|a lot))?[\\s!.?]*",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern ARITHMETIC = Pattern.compile(
+            "(what is |what's |calculate |compute )?[\\d\\s.,()+\\-*/^%x=]+\\??", Pattern.CASE_INSENSITIVE);
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final ContentRetriever retriever;
+    private final ContentRetriever summaryRetriever;
+    private final List<Pattern> broadPatterns;
+    private final QueryRoutingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Pattern> skipPatterns;
+    private final Set<String> documentCues;
+    private final Timer retrievalLatency;
+    private final Counter latencySaved;
+    // Moving average of retrieval latency in nanoseconds, stored as double bits
+    private final AtomicLong averageRetrievalNanos = new AtomicLong(Double.doubleToLongBits(0));
+
+    public HeuristicQueryRouter(ContentRetriever retriever, QueryRoutingProperties properties, MeterRegistry meterRegistry) {
+        this(retriever, null, List.of(), properties, meterRegistry);
+    }
+
+    /**
+     * @param retriever
+     * @param summaryRetriever retriever over the summary nodes, null when summaries aren't built
+     * @param broadPatterns
+     * @param properties
+     * @param meterRegistry
+     */
+    public HeuristicQueryRouter(ContentRetriever retriever, ContentRetriever summaryRetriever, List<String> broadPatterns,
+                                QueryRoutingProperties properties, MeterRegistry meterRegistry) {
+        this.retriever = retriever;
+        this.summaryRetriever = summaryRetriever;
+        this.broadPatterns = broadPatterns.stream()
+                .map(pattern -> Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+                .toList();
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.skipPatterns = properties.skipPatterns().stream()
+                .map(pattern -> Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+                .toList();
+        this.documentCues = new HashSet<>();
+        properties.documentCues().forEach(cue -> documentCues.add(cue.toLowerCase(Locale.ROOT)));
+        this.retrievalLatency = Timer.builder("rag.retrieval.latency").register(meterRegistry);
+        this.latencySaved = Counter.builder("rag.router.latency.saved")
+                .baseUnit("seconds")
+                .description("Estimated retrieval time avoided by skipping retrieval")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        Decision decision = decide(query.text());
+        Counter.builder("rag.router.decisions")
+                .tag("decision", decision.retrieve() ? "retrieve" : "skip")
+                .tag("reason", decision.reason())
+                .register(meterRegistry)
+                .increment();
+        if (!decision.retrieve()) {
+            latencySaved.increment(Double.longBitsToDouble(averageRetrievalNanos.get()) / 1e9);
+            return List.of();
+        }
+        if (decision.summaries()) {
+            return List.of(routed -> timedRetrieve(summaryRetriever, routed));
+        }
+        return List.of(routed -> timedRetrieve(retriever, routed));
+    }
+
+    Decision decide(String text) {
+        String message = text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+        List<String> words = WORD.matcher(message).results().map(match -> match.group()).toList();
+
+        if (summaryRetriever != null && broadPatterns.stream().anyMatch(pattern -> pattern.matcher(message).find())) {
+            return new Decision(true, "broad", true);
+        }
+        if (!properties.enabled()) {
+            return new Decision(true, "disabled");
+        }
+        if (words.stream().anyMatch(documentCues::contains)) {
+            return new Decision(true, "document-cue");
+        }
+        if (SMALL_TALK.matcher(message).matches()) {
+            return new Decision(false, "small-talk");
+        }
+        if (ARITHMETIC.matcher(message).matches() && message.chars().anyMatch(Character::isDigit)) {
+            return new Decision(false, "arithmetic");
+        }
+        if (skipPatterns.stream().anyMatch(pattern -> pattern.matcher(message).matches())) {
+            return new Decision(false, "pattern");
+        }
+        if (words.size() < properties.minWords()) {
+            return new Decision(false, "short");
+        }
+        return new Decision(true, "default");
+    }
+
+    private List<Content> timedRetrieve(ContentRetriever target, Query query) {
+        long start = System.nanoTime();
+        try {
+            return target.retrieve(query);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            retrievalLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            averageRetrievalNanos.updateAndGet(bits -> {
+                double average = Double.longBitsToDouble(bits);
+                return Double.doubleToLongBits(average == 0 ? elapsed : average + EWMA_ALPHA * (elapsed - average));
+            });
+        }
+    }
+
+    record Decision(boolean retrieve, String reason, boolean summaries) {
+
+        Decision(boolean retrieve, String reason) {
+            this(retrieve, reason, false);
+        }
+    }
+}
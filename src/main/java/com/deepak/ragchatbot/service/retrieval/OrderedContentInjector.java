@@ -0,0 +1,85 @@
+package com.deepak.ragchatbot.service.retrieval;
+
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.injector.ContentInjector;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Injects retrieved segments in an order that doesn't depend on their scores, so the same documents always
+ * produce the same context text:
+ * - sorted by file name, document id, page and position of the segment in its section (the splitter's "index"),
+ *   then by text; duplicates are dropped.
+ * - appended to the question after CONTEXT_HEADER, the same layout as LangChain4j's default injector.
+ * StablePrefixStreamingChatModel then moves the block in front of the conversation (see split()).
+ */
+public class OrderedContentInjector implements ContentInjector {
+
+    public static final String CONTEXT_HEADER = "\n\nAnswer using the following information:\n";
+    private static final String SEGMENT_INDEX = "index";
+
+    private static final Comparator<TextSegment> DOCUMENT_ORDER = Comparator
+            .comparing((TextSegment segment) -> string(segment.metadata(), DocumentIndexer.FILE_NAME))
+            .thenComparing(segment -> string(segment.metadata(), DocumentIndexer.DOCUMENT_ID))
+            .thenComparingInt(segment -> number(segment.metadata(), DocumentIndexer.PAGE))
+            .thenComparingInt(segment -> number(segment.metadata(), SEGMENT_INDEX))
+            .thenComparing(TextSegment::text);
+
+    @Override
+    public ChatMessage inject(List<Content> contents, ChatMessage chatMessage) {
+        if (contents.isEmpty() || !(chatMessage instanceof UserMessage userMessage) || !userMessage.hasSingleText()) {
+            return chatMessage;
+        }
+        String context = contents.stream()
+                .map(Content::textSegment)
+                .sorted(DOCUMENT_ORDER)
+                .map(TextSegment::text)
+                .distinct()
+                .collect(Collectors.joining("\n\n"));
+        return userMessage.name() == null
+                ? UserMessage.from(userMessage.singleText() + CONTEXT_HEADER + context)
+                : UserMessage.from(userMessage.name(), userMessage.singleText() + CONTEXT_HEADER + context);
+    }
+
+    /**
+     * Splits a message built by inject() back into the question and the injected context.
+     *
+     * @param text
+     * @return empty when the text carries no injected context
+     */
+    public static Optional<Injected> split(String text) {
+        int header = text.indexOf(CONTEXT_HEADER);
+        if (header < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Injected(text.substring(0, header), text.substring(header + CONTEXT_HEADER.length())));
+    }
+
+    public record Injected(String question, String context) {
+    }
+
+    private static String string(Metadata metadata, String key) {
+        Object value = metadata.toMap().get(key);
+        return value == null ? "" : value.toString();
+    }
+
+    private static int number(Metadata metadata, String key) {
+        Object value = metadata.toMap().get(key);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return value == null ? 0 : Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
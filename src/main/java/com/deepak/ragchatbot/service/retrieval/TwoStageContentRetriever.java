@@ -0,0 +1,259 @@
+package com.deepak.ragchatbot.service.retrieval;
+
+import com.deepak.ragchatbot.config.RerankProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Two-stage ContentRetriever.
+ * Steps:
+ * - Embeds the query and fetches retrieval.rerank.candidates segments above retrieval.min-score from the store.
+ * - Tokenizes the candidates in parallel on a small CPU pool, within retrieval.rerank.budget; candidates not done in
+ *   time are ranked on their vector score alone.
+ * - Relevance = vector score blended with an IDF-weighted query-term coverage (IDF over the candidate set).
+ * - Selects retrieval.rerank.keep segments by maximal marginal relevance, using embedding cosine similarity
+ *   (or term overlap when the store returns no embeddings) to avoid near-duplicate segments.
+ * Metrics: rag.rerank.latency and rag.rerank.budget.exceeded.
+ */
+public class TwoStageContentRetriever implements ContentRetriever, AutoCloseable {
+
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]{2,}");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how", "in", "is", "it",
+            "of", "on", "or", "the", "to", "was", "what", "when", "where", "which", "who", "why", "with");
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final double minScore;
+    private final Filter filter;
+    private final RerankProperties properties;
+    private final ExecutorService pool;
+    private final int parallelism;
+    private final Timer latency;
+    private final Counter budgetExceeded;
+
+    public TwoStageContentRetriever(EmbeddingModel embeddingModel,
+                                    EmbeddingStore<TextSegment> embeddingStore,
+                                    double minScore,
+                                    RerankProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this(embeddingModel, embeddingStore, minScore, null, properties, meterRegistry);
+    }
+
+    /**
+     * @param embeddingModel
+     * @param embeddingStore
+     * @param minScore
+     * @param filter metadata filter of the first stage, null for none
+     * @param properties
+     * @param meterRegistry
+     */
+    public TwoStageContentRetriever(EmbeddingModel embeddingModel,
+                                    EmbeddingStore<TextSegment> embeddingStore,
+                                    double minScore,
+                                    Filter filter,
+                                    RerankProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.minScore = minScore;
+        this.filter = filter;
+        this.properties = properties;
+        this.parallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(parallelism, runnable -> Thread.ofPlatform()
+                .name("rerank-" + counter.incrementAndGet())
+                .daemon()
+                .unstarted(runnable));
+        this.latency = Timer.builder("rag.rerank.latency").register(meterRegistry);
+        this.budgetExceeded = Counter.builder("rag.rerank.budget.exceeded").register(meterRegistry);
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        Embedding queryEmbedding = embeddingModel.embed(query.text()).content();
+        List<EmbeddingMatch<TextSegment>> candidates = embeddingStore.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(queryEmbedding)
+                        .maxResults(properties.candidates())
+                        .minScore(minScore)
+                        .filter(filter)
+                        .build())
+                .matches();
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            return rerank(query.text(), candidates, start + properties.budget().toNanos());
+        } finally {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    List<Content> rerank(String query, List<EmbeddingMatch<TextSegment>> candidates, long deadlineNanos) {
+        Set<String> queryTerms = terms(query);
+        List<Set<String>> candidateTerms = tokenize(candidates, deadlineNanos);
+
+        // Query-term weights: terms found in few candidates discriminate better
+        Map<String, Double> weights = new HashMap<>();
+        for (String term : queryTerms) {
+            long df = candidateTerms.stream().filter(terms -> terms != null && terms.contains(term)).count();
+            weights.put(term, Math.log(1 + (double) candidates.size() / (1 + df)));
+        }
+        double totalWeight = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        int n = candidates.size();
+        double[] relevance = new double[n];
+        for (int i = 0; i < n; i++) {
+            Set<String> terms = candidateTerms.get(i);
+            if (terms == null || totalWeight == 0) {
+                // Not tokenized within the budget (or nothing to match): vector score only
+                relevance[i] = candidates.get(i).score();
+                continue;
+            }
+            double lexical = queryTerms.stream().filter(terms::contains).mapToDouble(weights::get).sum() / totalWeight;
+            relevance[i] = (1 - properties.lexicalWeight()) * candidates.get(i).score() + properties.lexicalWeight() * lexical;
+        }
+
+        // Maximal marginal relevance
+        List<Integer> selected = new ArrayList<>();
+        boolean[] taken = new boolean[n];
+        double lambda = properties.mmrLambda();
+        while (selected.size() < Math.min(properties.keep(), n)) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (taken[i]) {
+                    continue;
+                }
+                double redundancy = 0;
+                for (int j : selected) {
+                    redundancy = Math.max(redundancy, similarity(candidates.get(i), candidates.get(j),
+                            candidateTerms.get(i), candidateTerms.get(j)));
+                }
+                double score = lambda * relevance[i] - (1 - lambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            taken[best] = true;
+            selected.add(best);
+        }
+
+        return selected.stream()
+                .map(i -> Content.from(candidates.get(i).embedded(), Map.of(
+                        ContentMetadata.SCORE, relevance[i],
+                        ContentMetadata.EMBEDDING_ID, candidates.get(i).embeddingId())))
+                .toList();
+    }
+
+    private List<Set<String>> tokenize(List<EmbeddingMatch<TextSegment>> candidates, long deadlineNanos) {
+        int n = candidates.size();
+        AtomicReferenceArray<Set<String>> result = new AtomicReferenceArray<>(n);
+        AtomicBoolean expired = new AtomicBoolean(System.nanoTime() >= deadlineNanos);
+        if (expired.get()) {
+            budgetExceeded.increment();
+            return new ArrayList<>(Collections.nCopies(n, null));
+        }
+        int chunk = (n + parallelism - 1) / parallelism;
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            int start = from;
+            int end = Math.min(n, from + chunk);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end && !expired.get(); i++) {
+                    TextSegment segment = candidates.get(i).embedded();
+                    result.set(i, segment == null ? Set.of() : terms(segment.text()));
+                }
+            }, pool));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            expired.set(true);
+            budgetExceeded.increment();
+        } catch (InterruptedException e) {
+            expired.set(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reranking failed", e.getCause());
+        }
+        List<Set<String>> terms = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            terms.add(result.get(i));
+        }
+        return terms;
+    }
+
+    private static double similarity(EmbeddingMatch<TextSegment> a, EmbeddingMatch<TextSegment> b,
+                                     Set<String> aTerms, Set<String> bTerms) {
+        if (a.embedding() != null && b.embedding() != null) {
+            return cosine(a.embedding().vector(), b.embedding().vector());
+        }
+        if (aTerms == null || bTerms == null || aTerms.isEmpty() || bTerms.isEmpty()) {
+            return 0;
+        }
+        Set<String> intersection = new HashSet<>(aTerms);
+        intersection.retainAll(bTerms);
+        return (double) intersection.size() / (aTerms.size() + bTerms.size() - intersection.size());
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        TERM.matcher(text.toLowerCase(Locale.ROOT)).results()
+                .map(match -> match.group())
+                .filter(term -> !STOP_WORDS.contains(term))
+                .forEach(terms::add);
+        return terms;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
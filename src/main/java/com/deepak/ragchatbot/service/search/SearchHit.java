@@ -0,0 +1,20 @@
+package com.deepak.ragchatbot.service.search;
+
+import java.util.Map;
+
+/**
+ * One retrieved segment, written as one NDJSON line by /api/search.
+ * page and section are null when the source document has no such structure.
+ */
+public record SearchHit(
+        int rank,
+        String embeddingId,
+        double score,
+        String documentId,
+        String fileName,
+        Integer page,
+        String section,
+        String text,
+        Map<String, Object> metadata
+) {
+}
@@ -0,0 +1,148 @@
+package com.deepak.ragchatbot.service.search;
+
+import com.deepak.ragchatbot.config.RetrievalProperties;
+import com.deepak.ragchatbot.config.SearchProperties;
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Retrieval without generation: the same embedding model, store and minimum score as the contentRetriever bean,
+ * but with paging and metadata filters, and the chat model is never called.
+ * Like the contentRetriever, it only returns document segments, never the summary nodes (node_type=summary).
+ */
+@Service
+@EnableConfigurationProperties(SearchProperties.class)
+public class SearchService {
+
+    // Only these keys can be filtered on; page is numeric metadata, the others are text
+    private static final Set<String> FILTER_KEYS = Set.of(
+            DocumentIndexer.DOCUMENT_ID, DocumentIndexer.FILE_NAME, DocumentIndexer.PAGE, DocumentIndexer.SECTION);
+    private static final Filter SEGMENTS_ONLY = metadataKey(SummaryIndexer.NODE_TYPE).isNotEqualTo(SummaryIndexer.SUMMARY);
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final RetrievalProperties retrievalProperties;
+    private final SearchProperties searchProperties;
+
+    public SearchService(EmbeddingModel embeddingModel,
+                         EmbeddingStore<TextSegment> embeddingStore,
+                         RetrievalProperties retrievalProperties,
+                         SearchProperties searchProperties) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.retrievalProperties = retrievalProperties;
+        this.searchProperties = searchProperties;
+    }
+
+    /**
+     * Steps:
+     * - Validates paging against search.max-size / search.max-window, and the filters, before anything is streamed.
+     * - Embeds the query and searches the store for the top (page + 1) * size segments above retrieval.min-score,
+     *   restricted by the metadata filters (all must match). This runs on boundedElastic once subscribed.
+     * - Streams the slice of the requested page, ranked from 1 across pages.
+     *
+     * @param query
+     * @param page    zero-based
+     * @param size    hits per page, null for search.default-size
+     * @param filters metadata key (document_id, file_name, page or section) -> expected value
+     * @return
+     */
+    public Flux<SearchHit> search(String query, int page, Integer size, Map<String, String> filters) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be blank");
+        }
+        int pageSize = size == null ? searchProperties.defaultSize() : size;
+        if (page < 0 || pageSize < 1 || pageSize > searchProperties.maxSize()) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + searchProperties.maxSize());
+        }
+        int window = (page + 1) * pageSize;
+        if (window > searchProperties.maxWindow()) {
+            throw new IllegalArgumentException("Paging is limited to the first " + searchProperties.maxWindow() + " hits");
+        }
+        Filter filter = filter(filters);
+
+        return Flux.defer(() -> {
+                    Embedding queryEmbedding = embeddingModel.embed(query).content();
+                    List<EmbeddingMatch<TextSegment>> matches = embeddingStore.search(EmbeddingSearchRequest.builder()
+                                    .queryEmbedding(queryEmbedding)
+                                    .maxResults(window)
+                                    .minScore(retrievalProperties.minScore())
+                                    .filter(filter)
+                                    .build())
+                            .matches();
+                    AtomicInteger rank = new AtomicInteger(page * pageSize);
+                    return Flux.fromIterable(matches)
+                            .skip(page * pageSize)
+                            .map(match -> hit(rank.incrementAndGet(), match));
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Equality conditions on the allowed metadata keys, typed by key rather than by what the value looks like,
+     * on top of excluding the summary nodes.
+     *
+     * @param filters
+     * @return
+     */
+    static Filter filter(Map<String, String> filters) {
+        Filter filter = SEGMENTS_ONLY;
+        for (Map.Entry<String, String> entry : filters.entrySet()) {
+            String key = entry.getKey();
+            if (!FILTER_KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown filter: " + key + ", allowed are " + FILTER_KEYS);
+            }
+            Filter condition = key.equals(DocumentIndexer.PAGE)
+                    ? metadataKey(key).isEqualTo(pageNumber(entry.getValue()))
+                    : metadataKey(key).isEqualTo(entry.getValue());
+            filter = filter.and(condition);
+        }
+        return filter;
+    }
+
+    private static int pageNumber(String value) {
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Filter page must be a number: " + value);
+        }
+    }
+
+    private static SearchHit hit(int rank, EmbeddingMatch<TextSegment> match) {
+        TextSegment segment = match.embedded();
+        Map<String, Object> metadata = segment == null ? Map.of() : segment.metadata().toMap();
+        Object page = metadata.get(DocumentIndexer.PAGE);
+        return new SearchHit(
+                rank,
+                match.embeddingId(),
+                match.score(),
+                string(metadata.get(DocumentIndexer.DOCUMENT_ID)),
+                string(metadata.get(DocumentIndexer.FILE_NAME)),
+                page instanceof Number number ? number.intValue() : null,
+                string(metadata.get(DocumentIndexer.SECTION)),
+                segment == null ? null : segment.text(),
+                metadata);
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+}
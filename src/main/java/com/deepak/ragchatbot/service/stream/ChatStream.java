@@ -0,0 +1,173 @@
+package com.deepak.ragchatbot.service.stream;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * One answer stream of a multiplexed connection.
+ * - Upstream demand is the client's credit: the answer Flux is only asked for as many tokens as the client has
+ *   requested, so a slow client slows its own stream and no other.
+ * - Every frame is numbered and kept in a bounded replay buffer, so a client that reconnects can resume
+ *   after the last frame it received.
+ * - While detached (connection gone) the stream keeps running up to its credit; frames are only buffered.
+ */
+public class ChatStream {
+
+    private final String id;
+    private final int replayCapacity;
+    private final Deque<Frame> replay = new ArrayDeque<>();
+    private final Consumer<ChatStream> onTerminate;
+    private final BaseSubscriber<String> subscriber;
+    private long nextSeq = 1;
+    private String connectionId;
+    private Consumer<Frame> outlet;
+    private long detachedAt;
+    private boolean terminated;
+
+    ChatStream(String id, int replayCapacity, long initialCredit, Consumer<ChatStream> onTerminate) {
+        this.id = id;
+        this.replayCapacity = Math.max(1, replayCapacity);
+        this.onTerminate = onTerminate;
+        this.subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                if (initialCredit > 0) {
+                    request(initialCredit);
+                }
+            }
+
+            @Override
+            protected void hookOnNext(String token) {
+                emit(Frame.TOKEN, token);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                emit(Frame.COMPLETE, null);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                emit(Frame.ERROR, String.valueOf(throwable.getMessage()));
+            }
+        };
+    }
+
+    public String id() {
+        return id;
+    }
+
+    void start(Flux<String> answer, String connectionId, Consumer<Frame> outlet) {
+        synchronized (this) {
+            this.connectionId = connectionId;
+            this.outlet = outlet;
+        }
+        answer.subscribe(subscriber);
+    }
+
+    /**
+     * Grants the stream n more tokens.
+     *
+     * @param n
+     */
+    public void request(long n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("request n must be positive");
+        }
+        subscriber.request(n);
+    }
+
+    /**
+     * Cancels the answer, and with it the upstream completion.
+     */
+    public void cancel() {
+        subscriber.dispose();
+        terminate();
+    }
+
+    /**
+     * Sends the frames after lastSeq to outlet, then the live ones.
+     *
+     * @param connectionId
+     * @param outlet
+     * @param lastSeq last frame the client received, 0 for none
+     * @return false when the frames after lastSeq are no longer buffered
+     * @throws IllegalStateException while the stream is attached to another connection
+     */
+    public synchronized boolean attach(String connectionId, Consumer<Frame> outlet, long lastSeq) {
+        if (this.outlet != null && !connectionId.equals(this.connectionId)) {
+            throw new IllegalStateException("Stream " + id + " is attached to another open connection");
+        }
+        Frame oldest = replay.peekFirst();
+        if (oldest != null && oldest.seq() > lastSeq + 1) {
+            return false;
+        }
+        for (Frame frame : replay) {
+            if (frame.seq() > lastSeq) {
+                outlet.accept(frame);
+            }
+        }
+        this.connectionId = connectionId;
+        this.outlet = outlet;
+        return true;
+    }
+
+    /**
+     * Stops sending if the stream is still attached to that connection.
+     *
+     * @param connectionId
+     * @return whether the stream was attached to it
+     */
+    synchronized boolean detach(String connectionId) {
+        if (!connectionId.equals(this.connectionId)) {
+            return false;
+        }
+        this.connectionId = null;
+        this.outlet = null;
+        this.detachedAt = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * @return nanoseconds since the stream was detached, -1 while it is attached
+     */
+    synchronized long detachedNanos() {
+        return outlet != null ? -1 : System.nanoTime() - detachedAt;
+    }
+
+    synchronized boolean isTerminated() {
+        return terminated;
+    }
+
+    private void emit(String type, String data) {
+        boolean last = !Frame.TOKEN.equals(type);
+        synchronized (this) {
+            Frame frame = new Frame(type, id, nextSeq++, data);
+            replay.addLast(frame);
+            if (replay.size() > replayCapacity) {
+                replay.removeFirst();
+            }
+            if (outlet != null) {
+                outlet.accept(frame);
+            }
+        }
+        if (last) {
+            terminate();
+        }
+    }
+
+    private void terminate() {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+        }
+        onTerminate.accept(this);
+    }
+}
@@ -0,0 +1,210 @@
+package com.deepak.ragchatbot.service.stream;
+
+import com.deepak.ragchatbot.config.WebSocketChatProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Answer streams of the multiplexed chat transport, by client session and stream id.
+ * Sessions are issued by connect() and bound to the tenant of the connection that got them; a client can only come
+ * back to a session it was issued, with the same tenant. A session without connections expires after
+ * chat.websocket.resume-timeout, together with its streams.
+ * Streams outlive their connection: when it closes they are detached, and cancelled once chat.websocket.resume-timeout
+ * passes without a resume. Finished streams are kept for the same time so their tail can still be replayed.
+ * Metric: rag.ws.streams (streams still producing).
+ */
+public class ChatStreamRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatStreamRegistry.class);
+
+    private final WebSocketChatProperties properties;
+    private final Map<Key, ChatStream> streams = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService expiry = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("chat-stream-expiry").daemon().factory());
+
+    public ChatStreamRegistry(WebSocketChatProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        Gauge.builder("rag.ws.streams", streams, map -> map.values().stream().filter(stream -> !stream.isTerminated()).count())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Connects to the requested session when it was issued here to the same tenant and hasn't expired, or to a new one.
+     * Unknown and foreign session ids get the same answer (a new session), so they can't be probed for.
+     *
+     * @param requested session id asked for by the client, null for a new session
+     * @param tenant
+     * @return the session id to use for this connection
+     */
+    public String connect(String requested, String tenant) {
+        Session existing = requested == null ? null : sessions.get(requested);
+        if (existing != null && existing.connect(tenant)) {
+            return requested;
+        }
+        String id = UUID.randomUUID().toString();
+        Session session = new Session(tenant);
+        session.connect(tenant);
+        sessions.put(id, session);
+        return id;
+    }
+
+    /**
+     * A connection of the session closed: its streams are detached, and the session expires unless a connection
+     * comes back within the resume timeout.
+     *
+     * @param session
+     * @param connectionId
+     */
+    public void disconnect(String session, String connectionId) {
+        detach(session, connectionId);
+        Session state = sessions.get(session);
+        if (state != null && state.disconnect()) {
+            long timeout = properties.resumeTimeout().toNanos();
+            expiry.schedule(() -> {
+                if (state.expire(timeout) && sessions.remove(session, state)) {
+                    streams.forEach((key, stream) -> {
+                        if (key.session().equals(session) && streams.remove(key, stream)) {
+                            stream.cancel();
+                        }
+                    });
+                }
+            }, timeout, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Starts a stream and attaches it to the connection.
+     *
+     * @param session
+     * @param streamId
+     * @param answer
+     * @param initialCredit
+     * @param connectionId
+     * @param outlet
+     * @return
+     */
+    public ChatStream open(String session, String streamId, Flux<String> answer, long initialCredit,
+                           String connectionId, Consumer<Frame> outlet) {
+        if (streamId == null || streamId.isBlank()) {
+            throw new IllegalArgumentException("stream is required");
+        }
+        long active = streams.entrySet().stream()
+                .filter(entry -> entry.getKey().session().equals(session) && !entry.getValue().isTerminated())
+                .count();
+        if (active >= properties.maxStreams()) {
+            throw new IllegalStateException("At most " + properties.maxStreams() + " concurrent streams per session");
+        }
+        Key key = new Key(session, streamId);
+        ChatStream stream = new ChatStream(streamId, properties.replayBuffer(), initialCredit,
+                terminated -> scheduleExpiry(key, terminated));
+        if (streams.putIfAbsent(key, stream) != null) {
+            throw new IllegalStateException("Stream " + streamId + " is already open");
+        }
+        stream.start(answer, connectionId, outlet);
+        return stream;
+    }
+
+    public Optional<ChatStream> find(String session, String streamId) {
+        return Optional.ofNullable(streams.get(new Key(session, streamId)));
+    }
+
+    /**
+     * Detaches the streams of a closed connection; the ones not resumed in time are cancelled.
+     *
+     * @param session
+     * @param connectionId
+     */
+    public void detach(String session, String connectionId) {
+        streams.forEach((key, stream) -> {
+            if (key.session().equals(session) && stream.detach(connectionId)) {
+                scheduleExpiry(key, stream);
+            }
+        });
+    }
+
+    int size() {
+        return streams.size();
+    }
+
+    int sessionCount() {
+        return sessions.size();
+    }
+
+    private void scheduleExpiry(Key key, ChatStream stream) {
+        long timeout = properties.resumeTimeout().toNanos();
+        expiry.schedule(() -> {
+            if (stream.isTerminated()) {
+                streams.remove(key, stream);
+            } else if (stream.detachedNanos() >= timeout && streams.remove(key, stream)) {
+                // Not resumed since this detach (a later one schedules its own check)
+                logger.debug("Stream {} of session {} was not resumed, cancelling it", key.stream(), key.session());
+                stream.cancel();
+            }
+        }, timeout, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streams.values().forEach(ChatStream::cancel);
+        streams.clear();
+        sessions.clear();
+        expiry.shutdownNow();
+    }
+
+    private record Key(String session, String stream) {
+    }
+
+    /**
+     * Tenant and open connections of an issued session.
+     */
+    private static final class Session {
+
+        private final String tenant;
+        private int connections;
+        private long disconnectedAt;
+        private boolean expired;
+
+        private Session(String tenant) {
+            this.tenant = tenant;
+        }
+
+        synchronized boolean connect(String tenant) {
+            if (expired || !Objects.equals(this.tenant, tenant)) {
+                return false;
+            }
+            connections++;
+            return true;
+        }
+
+        /**
+         * @return whether that was the last connection
+         */
+        synchronized boolean disconnect() {
+            connections = Math.max(0, connections - 1);
+            disconnectedAt = System.nanoTime();
+            return connections == 0;
+        }
+
+        synchronized boolean expire(long timeoutNanos) {
+            if (connections == 0 && System.nanoTime() - disconnectedAt >= timeoutNanos) {
+                expired = true;
+            }
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.deepak.ragchatbot.service.stream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Server-to-client frame of the multiplexed chat transport.
+ * - hello: data = session id to reconnect with.
+ * - token: one piece of the answer of stream.
+ * - complete: the answer of stream is finished.
+ * - error: stream failed (with a seq) or a client frame was rejected (without); data = message.
+ * The frames of a stream are numbered by seq from 1; resume takes the last seq received.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Frame(String type, String stream, Long seq, String data) {
+
+    public static final String HELLO = "hello";
+    public static final String TOKEN = "token";
+    public static final String COMPLETE = "complete";
+    public static final String ERROR = "error";
+
+    public static Frame hello(String session) {
+        return new Frame(HELLO, null, null, session);
+    }
+
+    public static Frame error(String stream, String message) {
+        return new Frame(ERROR, stream, null, message);
+    }
+}
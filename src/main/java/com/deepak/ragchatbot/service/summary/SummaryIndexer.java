@@ -0,0 +1,452 @@
+package com.deepak.ragchatbot.service.summary;
+
+import com.deepak.ragchatbot.config.SummaryProperties;
+import com.deepak.ragchatbot.service.extractor.ExtractedText;
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Builds and stores a summary tree per document, next to its segments in the embedding store.
+ * Steps:
+ * - Splits each section with the shared splitter, like DocumentIndexer, and summarizes every chunk.
+ * - Rolls the chunk summaries of a section up into a section summary.
+ * - Rolls the section summaries up into the document summary, through group summaries of at most fanIn
+ *   sections when the document has more.
+ * - Embeds the new summaries in one batch and replaces the document's previous summary nodes.
+ * Chunk summaries are only an intermediate step: they are cached in memory but neither embedded nor stored,
+ * since broad questions are answered from section, group and document summaries.
+ * The summaries of one level are generated in parallel (ingestion.summaries.parallelism).
+ * Refresh is incremental: every node carries the hash of its input (the chunk texts of a section, the child summaries
+ * above it), and a node whose hash is found among the document's stored nodes, or in the in-memory cache, is reused
+ * without a model call. An unchanged section is reused without summarizing its chunks again.
+ * Ingestion uses refreshAsync(), which runs the refreshes one at a time on a background thread, so a document's
+ * latest refresh is also the last one stored.
+ * Replacing the corpus of a store calls discardPending() first: refreshes queued before it (or still running) store
+ * nothing in that store, so summaries of the replaced corpus never outlive its removal.
+ * Nodes are tagged node_type=summary and summary_level=section|group|document.
+ * Metrics: rag.summary.nodes (tag reused=true|false) and rag.summary.latency.
+ */
+public class SummaryIndexer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SummaryIndexer.class);
+
+    public static final String NODE_TYPE = "node_type";
+    public static final String SUMMARY = "summary";
+    public static final String LEVEL = "summary_level";
+    public static final String HASH = "summary_hash";
+    public static final String CHUNK = "chunk";
+    public static final String SECTION = "section";
+    public static final String GROUP = "group";
+    public static final String DOCUMENT = "document";
+    private static final List<String> LEVELS = List.of(DOCUMENT, GROUP, SECTION);
+
+    private final ChatModel chatModel;
+    private final EmbeddingModel embeddingModel;
+    private final DocumentSplitter documentSplitter;
+    private final SummaryProperties properties;
+    private final Map<String, Summary> cache;
+    private final Counter generated;
+    private final Counter reused;
+    private final Timer latency;
+    private final ExecutorService refreshes = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("summary-refresh").daemon().factory());
+    // Per target store, bumped by discardPending(); guarded by this
+    private final Map<EmbeddingStore<TextSegment>, Long> generations = new WeakHashMap<>();
+
+    public SummaryIndexer(ChatModel chatModel,
+                          EmbeddingModel embeddingModel,
+                          DocumentSplitter documentSplitter,
+                          SummaryProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.chatModel = chatModel;
+        this.embeddingModel = embeddingModel;
+        this.documentSplitter = documentSplitter;
+        this.properties = properties;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Summary> eldest) {
+                return size() > properties.cacheSize();
+            }
+        });
+        this.generated = Counter.builder("rag.summary.nodes").tag("reused", "false").register(meterRegistry);
+        this.reused = Counter.builder("rag.summary.nodes").tag("reused", "true").register(meterRegistry);
+        this.latency = Timer.builder("rag.summary.latency").register(meterRegistry);
+    }
+
+    /**
+     * Builds (or refreshes) the summary tree of a document in target.
+     * A failure is logged and leaves the previous summaries in place; it never fails the ingestion.
+     *
+     * @param target
+     * @param documentId
+     * @param fileName
+     * @param text
+     * @return number of summary nodes stored
+     */
+    public int refresh(EmbeddingStore<TextSegment> target, String documentId, String fileName, ExtractedText text) {
+        return refresh(target, documentId, fileName, text, generation(target));
+    }
+
+    private int refresh(EmbeddingStore<TextSegment> target, String documentId, String fileName, ExtractedText text,
+                        long generation) {
+        if (generation != generation(target)) {
+            logger.info("Skipping the summaries of {}: the corpus was replaced since they were queued", fileName);
+            return 0;
+        }
+        try {
+            return latency.recordCallable(() -> build(target, documentId, fileName, text, generation));
+        } catch (Exception e) {
+            logger.warn("Failed to build summaries for {}: {}", fileName, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Same as refresh() but queued behind the pending refreshes and run on a background thread, so ingestion
+     * doesn't wait for the model calls.
+     *
+     * @param target
+     * @param documentId
+     * @param fileName
+     * @param text
+     * @return completes with the number of summary nodes stored
+     */
+    public CompletableFuture<Integer> refreshAsync(EmbeddingStore<TextSegment> target, String documentId, String fileName,
+                                                   ExtractedText text) {
+        long generation = generation(target);
+        return CompletableFuture.supplyAsync(() -> refresh(target, documentId, fileName, text, generation), refreshes);
+    }
+
+    /**
+     * Discards the refreshes queued for target so far, including a running one that hasn't stored yet.
+     * Call it before removing the corpus of target: once it returns, none of them writes to target anymore.
+     *
+     * @param target
+     */
+    public synchronized void discardPending(EmbeddingStore<TextSegment> target) {
+        generations.merge(target, 1L, Long::sum);
+    }
+
+    private synchronized long generation(EmbeddingStore<TextSegment> target) {
+        return generations.getOrDefault(target, 0L);
+    }
+
+    @Override
+    public void close() {
+        refreshes.shutdownNow();
+    }
+
+    private int build(EmbeddingStore<TextSegment> target, String documentId, String fileName, ExtractedText text,
+                      long generation) throws Exception {
+        List<Document> sections = DocumentIndexer.documents(text, documentId, fileName);
+        if (sections.isEmpty()) {
+            return 0;
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (Document section : sections) {
+            chunks.add(documentSplitter.split(section).stream().map(TextSegment::text).toList());
+        }
+        Map<String, Summary> stored = stored(target, documentId, fileName, 2 * sections.size() + 1);
+
+        List<Node> nodes = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, properties.parallelism()),
+                Thread.ofVirtual().name("summary-", 0).factory())) {
+            // Sections are keyed by their chunk texts, so only the chunks of a changed section are summarized
+            List<Summary> knownSections = new ArrayList<>();
+            List<List<Node>> chunkNodes = new ArrayList<>();
+            for (int s = 0; s < sections.size(); s++) {
+                Summary known = known(hash(SECTION, chunks.get(s)), stored);
+                List<Node> own = new ArrayList<>();
+                if (known == null) {
+                    for (String chunk : chunks.get(s)) {
+                        own.add(new Node(CHUNK, sections.get(s).metadata(), List.of(chunk)));
+                    }
+                }
+                knownSections.add(known);
+                chunkNodes.add(own);
+            }
+            summarize(chunkNodes.stream().flatMap(List::stream).toList(), fileName, stored, pool);
+
+            List<Node> sectionNodes = new ArrayList<>();
+            List<Node> changed = new ArrayList<>();
+            for (int s = 0; s < sections.size(); s++) {
+                if (chunks.get(s).isEmpty()) {
+                    continue;
+                }
+                Node section = new Node(SECTION, sections.get(s).metadata(),
+                        chunkNodes.get(s).stream().map(Node::summary).toList(), hash(SECTION, chunks.get(s)));
+                if (knownSections.get(s) != null) {
+                    section.complete(knownSections.get(s).text(), knownSections.get(s).embedding());
+                    reused.increment();
+                } else {
+                    changed.add(section);
+                }
+                sectionNodes.add(section);
+            }
+            summarize(changed, fileName, stored, pool);
+            nodes.addAll(sectionNodes);
+
+            // Groups, then the document
+            int fanIn = Math.max(2, properties.fanIn());
+            List<Node> level = sectionNodes;
+            while (level.size() > fanIn) {
+                List<Node> groups = new ArrayList<>();
+                for (int from = 0; from < level.size(); from += fanIn) {
+                    List<Node> members = level.subList(from, Math.min(level.size(), from + fanIn));
+                    groups.add(new Node(GROUP, members.getFirst().metadata(), members.stream().map(Node::summary).toList()));
+                }
+                summarize(groups, fileName, stored, pool);
+                nodes.addAll(groups);
+                level = groups;
+            }
+            Node document = new Node(DOCUMENT, new Metadata(), level.stream().map(Node::summary).toList());
+            summarize(List.of(document), fileName, stored, pool);
+            nodes.add(document);
+        }
+        // Document summary first, so it also comes first in an injected context
+        nodes.sort(Comparator.comparingInt(node -> LEVELS.indexOf(node.level())));
+
+        List<TextSegment> segments = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>(Collections.nCopies(nodes.size(), null));
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            segments.add(node.segment(documentId, fileName, i));
+            ids.add(nodeId(documentId, i));
+            if (node.embedding() != null) {
+                embeddings.set(i, node.embedding());
+            } else {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Embedding> computed = embeddingModel.embedAll(missing.stream().map(segments::get).toList()).content();
+            for (int i = 0; i < missing.size(); i++) {
+                embeddings.set(missing.get(i), computed.get(i));
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            cache.put(nodes.get(i).hash(), new Summary(nodes.get(i).summary(), embeddings.get(i)));
+        }
+
+        // Checked and stored under the lock, so discardPending() can't slip in between
+        synchronized (this) {
+            if (generation != generation(target)) {
+                logger.info("Dropping the summaries of {}: the corpus was replaced while they were built", fileName);
+                return 0;
+            }
+            target.removeAll(summariesOf(documentId));
+            target.addAll(ids, embeddings, segments);
+        }
+        logger.info("Stored {} summary nodes for {}", nodes.size(), fileName);
+        return nodes.size();
+    }
+
+    private void summarize(List<Node> nodes, String fileName, Map<String, Summary> stored, ExecutorService pool) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (Node node : nodes) {
+            Summary known = known(node.hash(), stored);
+            if (known != null) {
+                node.complete(known.text(), known.embedding());
+                reused.increment();
+            } else if (node.children().size() == 1 && !CHUNK.equals(node.level())) {
+                // A single child already is the summary of this node
+                node.complete(node.children().getFirst(), null);
+                reused.increment();
+            } else {
+                futures.add(pool.submit(() -> {
+                    node.complete(chatModel.chat(prompt(node, fileName)).strip(), null);
+                    generated.increment();
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        for (Node node : nodes) {
+            if (CHUNK.equals(node.level())) {
+                // Not stored, so only the cache lets an unchanged chunk of a changed section skip the model
+                cache.put(node.hash(), new Summary(node.summary(), null));
+            }
+        }
+    }
+
+    private Summary known(String hash, Map<String, Summary> stored) {
+        return stored.containsKey(hash) ? stored.get(hash) : cache.get(hash);
+    }
+
+    private String prompt(Node node, String fileName) {
+        String joined = String.join("\n\n", node.children());
+        return switch (node.level()) {
+            case CHUNK -> "Summarize this passage from \"" + fileName + "\" in at most " + properties.chunkWords()
+                    + " words. Keep names, numbers, dates and defined terms. Answer with the summary only.\n\n" + joined;
+            case DOCUMENT -> "These are summaries of consecutive parts of \"" + fileName + "\". Write a summary of the whole "
+                    + "document in at most " + properties.documentWords() + " words: what it is, its purpose and its main points. "
+                    + "Answer with the summary only.\n\n" + joined;
+            default -> "These are summaries of consecutive passages of one part of \"" + fileName + "\". Combine them into one "
+                    + "summary of at most " + properties.sectionWords() + " words, keeping the key facts. "
+                    + "Answer with the summary only.\n\n" + joined;
+        };
+    }
+
+    /**
+     * Summary nodes currently stored for the document, by hash.
+     */
+    private Map<String, Summary> stored(EmbeddingStore<TextSegment> target, String documentId, String fileName, int maxNodes) {
+        try {
+            List<EmbeddingMatch<TextSegment>> matches = target.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(embeddingModel.embed(fileName).content())
+                    .filter(summariesOf(documentId))
+                    .maxResults(maxNodes)
+                    .minScore(0.0)
+                    .build()).matches();
+            Map<String, Summary> stored = new HashMap<>();
+            for (EmbeddingMatch<TextSegment> match : matches) {
+                String hash = match.embedded() == null ? null : match.embedded().metadata().getString(HASH);
+                if (hash != null && match.embedding() != null) {
+                    stored.put(hash, new Summary(match.embedded().text(), match.embedding()));
+                }
+            }
+            return stored;
+        } catch (RuntimeException e) {
+            logger.debug("Could not read the stored summaries of {}: {}", fileName, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    static Filter summariesOf(String documentId) {
+        return metadataKey(DocumentIndexer.DOCUMENT_ID).isEqualTo(documentId).and(metadataKey(NODE_TYPE).isEqualTo(SUMMARY));
+    }
+
+    static String nodeId(String documentId, int index) {
+        return UUID.nameUUIDFromBytes((documentId + "#summary#" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static String hash(String level, List<String> inputs) {
+        return sha256(level + "\n" + String.join("\n\u0000\n", inputs));
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Summary(String text, Embedding embedding) {
+    }
+
+    private static final class Node {
+
+        private final String level;
+        private final Metadata metadata;
+        private final List<String> children;
+        private final String hash;
+        private volatile String summary;
+        private volatile Embedding embedding;
+
+        Node(String level, Metadata metadata, List<String> children) {
+            this(level, metadata, children, hash(level, children));
+        }
+
+        Node(String level, Metadata metadata, List<String> children, String hash) {
+            this.level = level;
+            this.metadata = metadata;
+            this.children = children;
+            this.hash = hash;
+        }
+
+        String level() {
+            return level;
+        }
+
+        Metadata metadata() {
+            return metadata;
+        }
+
+        List<String> children() {
+            return children;
+        }
+
+        String hash() {
+            return hash;
+        }
+
+        String summary() {
+            return summary;
+        }
+
+        Embedding embedding() {
+            return embedding;
+        }
+
+        void complete(String summary, Embedding embedding) {
+            this.summary = summary;
+            this.embedding = embedding;
+        }
+
+        TextSegment segment(String documentId, String fileName, int index) {
+            Metadata nodeMetadata = new Metadata()
+                    .put(DocumentIndexer.DOCUMENT_ID, documentId)
+                    .put(DocumentIndexer.FILE_NAME, fileName)
+                    .put(NODE_TYPE, SUMMARY)
+                    .put(LEVEL, level)
+                    .put(HASH, hash)
+                    .put("index", String.valueOf(index));
+            if (!DOCUMENT.equals(level)) {
+                Integer page = metadata.getInteger(DocumentIndexer.PAGE);
+                if (page != null) {
+                    nodeMetadata.put(DocumentIndexer.PAGE, page);
+                }
+                String section = metadata.getString(DocumentIndexer.SECTION);
+                if (section != null) {
+                    nodeMetadata.put(DocumentIndexer.SECTION, section);
+                }
+            }
+            return TextSegment.from(summary, nodeMetadata);
+        }
+    }
+}
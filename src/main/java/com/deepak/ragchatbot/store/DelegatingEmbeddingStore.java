@@ -0,0 +1,75 @@
+package com.deepak.ragchatbot.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Base for stores that forward every call to another store chosen at call time
+ * (lazily created, or switched between index versions).
+ */
+public abstract class DelegatingEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    protected abstract EmbeddingStore<TextSegment> delegate();
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate().add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate().add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        return delegate().add(embedding, textSegment);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate().addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        return delegate().addAll(embeddings, textSegments);
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        delegate().addAll(ids, embeddings, textSegments);
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate().remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate().removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate().removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate().removeAll();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        return delegate().search(request);
+    }
+}
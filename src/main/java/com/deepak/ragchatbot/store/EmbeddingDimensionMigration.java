@@ -0,0 +1,53 @@
+package com.deepak.ragchatbot.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-projects an existing embedding table to a smaller Matryoshka dimension entirely inside Postgres,
+ * without calling the embedding model again.
+ * Steps:
+ * - Creates {table}_d{dimension} with the same layout and a vector(dimension) column.
+ * - Copies every row as l2_normalize(subvector(embedding, 1, dimension)), which is exactly what
+ *   MatryoshkaEmbeddingModel does to new embeddings.
+ * - Leaves the source table untouched, so switching back is just a configuration change.
+ * Switch over by setting embedding.store.table and embedding.store.dimension to the new values.
+ * Requires pgvector 0.7+.
+ */
+@Component
+public class EmbeddingDimensionMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingDimensionMigration.class);
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmbeddingDimensionMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param sourceTable
+     * @param dimension
+     * @return name of the re-projected table
+     */
+    public String reproject(String sourceTable, int dimension) {
+        Integer sourceDimension = jdbcTemplate.queryForObject(
+                "SELECT atttypmod FROM pg_attribute WHERE attrelid = ?::regclass AND attname = 'embedding'",
+                Integer.class, sourceTable);
+        if (sourceDimension == null || dimension <= 0 || dimension >= sourceDimension) {
+            throw new IllegalArgumentException("Target dimension must be between 1 and " + sourceDimension);
+        }
+
+        String targetTable = sourceTable + "_d" + dimension;
+        logger.info("Re-projecting {} ({} dims) into {} ({} dims)", sourceTable, sourceDimension, targetTable, dimension);
+        jdbcTemplate.execute(("CREATE TABLE IF NOT EXISTS %s (embedding_id UUID PRIMARY KEY, "
+                + "embedding vector(%d), text TEXT NULL, metadata JSON NULL)").formatted(targetTable, dimension));
+        int rows = jdbcTemplate.update(("INSERT INTO %1$s (embedding_id, embedding, text, metadata) "
+                + "SELECT embedding_id, l2_normalize(subvector(embedding, 1, %3$d))::vector(%3$d), text, metadata FROM %2$s "
+                + "ON CONFLICT (embedding_id) DO UPDATE SET embedding = EXCLUDED.embedding, "
+                + "text = EXCLUDED.text, metadata = EXCLUDED.metadata").formatted(targetTable, sourceTable, dimension));
+        logger.info("Re-projected {} rows into {}", rows, targetTable);
+        return targetTable;
+    }
+}
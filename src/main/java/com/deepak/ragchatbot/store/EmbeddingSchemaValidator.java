@@ -0,0 +1,87 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In fast-startup mode, checks the embedding table after the application is ready instead of during boot.
+ * Steps (on a background thread):
+ * - Looks up the embedding column of the active index version; creates the table and index if missing and embedding.store.create-table is set.
+ * - Reports a dimension mismatch between the table and embedding.store.dimension.
+ * - Warms up the lazily created store so the first request doesn't pay for it.
+ */
+@Component
+public class EmbeddingSchemaValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingSchemaValidator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingStoreFactory embeddingStoreFactory;
+    private final EmbeddingStoreProperties embeddingStoreProperties;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final IndexVersionRegistry indexVersionRegistry;
+
+    public EmbeddingSchemaValidator(JdbcTemplate jdbcTemplate,
+                                    EmbeddingStoreFactory embeddingStoreFactory,
+                                    EmbeddingStoreProperties embeddingStoreProperties,
+                                    EmbeddingStore<TextSegment> embeddingStore,
+                                    IndexVersionRegistry indexVersionRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingStoreFactory = embeddingStoreFactory;
+        this.embeddingStoreProperties = embeddingStoreProperties;
+        this.embeddingStore = embeddingStore;
+        this.indexVersionRegistry = indexVersionRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void validateInBackground() {
+        if (embeddingStoreProperties.fastStartup()) {
+            Thread.ofVirtual().name("embedding-schema-validator").start(this::validate);
+        }
+    }
+
+    void validate() {
+        String table = embeddingStoreProperties.table();
+        int dimension = embeddingStoreProperties.dimension();
+        try {
+            table = indexVersionRegistry.active().map(IndexVersion::tableName).orElse(table);
+
+            List<Integer> columnDimension = jdbcTemplate.queryForList(
+                    "SELECT atttypmod FROM pg_attribute WHERE attrelid = to_regclass(?) AND attname = 'embedding'",
+                    Integer.class, table);
+
+            if (columnDimension.isEmpty()) {
+                if (!embeddingStoreProperties.createTable()) {
+                    logger.error("Embedding table '{}' does not exist and embedding.store.create-table is false", table);
+                    return;
+                }
+                embeddingStoreFactory.create(table, dimension, true);
+                logger.info("Created embedding table '{}' with {} dimensions", table, dimension);
+            } else if (columnDimension.getFirst() != dimension) {
+                logger.error("Embedding table '{}' has {} dimensions but embedding.store.dimension is {}",
+                        table, columnDimension.getFirst(), dimension);
+                return;
+            } else if (embeddingStoreProperties.createTable()) {
+                // Idempotent: makes sure the (quantized) index exists
+                embeddingStoreFactory.create(table, dimension, true);
+            }
+
+            if (embeddingStore instanceof SwitchableEmbeddingStore switchable
+                    && switchable.current() instanceof LazyEmbeddingStore lazyEmbeddingStore) {
+                lazyEmbeddingStore.initialize();
+            }
+            logger.info("Embedding table '{}' validated", table);
+        } catch (Exception e) {
+            logger.error("Embedding schema validation failed for '{}'", table, e);
+        }
+    }
+}
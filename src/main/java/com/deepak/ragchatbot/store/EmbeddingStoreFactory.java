@@ -0,0 +1,53 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Builds the pgvector-backed EmbeddingStore for a given table according to embedding.store.quantization.
+ * Both variants share the application DataSource.
+ */
+@Component
+public class EmbeddingStoreFactory {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingStoreProperties embeddingStoreProperties;
+
+    public EmbeddingStoreFactory(DataSource dataSource, JdbcTemplate jdbcTemplate, EmbeddingStoreProperties embeddingStoreProperties) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingStoreProperties = embeddingStoreProperties;
+    }
+
+    public EmbeddingStore<TextSegment> create(String table, int dimension, boolean createTable) {
+        VectorQuantization quantization = quantization();
+        if (quantization == VectorQuantization.NONE) {
+            return PgVectorEmbeddingStore.datasourceBuilder()
+                    .datasource(dataSource)
+                    .table(table)
+                    .dimension(dimension)
+                    .createTable(createTable)
+                    .build();
+        }
+        return new QuantizedPgVectorEmbeddingStore(
+                jdbcTemplate,
+                table,
+                dimension,
+                quantization,
+                embeddingStoreProperties.rescoreCandidates(),
+                createTable);
+    }
+
+    public VectorQuantization quantization() {
+        return embeddingStoreProperties.quantization() == null
+                ? VectorQuantization.NONE
+                : embeddingStoreProperties.quantization();
+    }
+}
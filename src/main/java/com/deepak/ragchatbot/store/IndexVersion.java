@@ -0,0 +1,25 @@
+package com.deepak.ragchatbot.store;
+
+import java.time.Instant;
+
+/**
+ * One physical version of the embedding index (a pgvector table) as recorded in the version registry.
+ * Version 0 is the table configured in embedding.store.table.
+ */
+public record IndexVersion(
+        int version,
+        String tableName,
+        int dimension,
+        Status status,
+        Instant createdAt,
+        Instant activatedAt
+) {
+    /**
+     * - BUILDING: being filled in the background, never queried.
+     * - READY: complete; either never activated or kept for rollback.
+     * - ACTIVE: the version queries go to (exactly one).
+     * - RETIRED: table dropped by retention.
+     * - FAILED: build aborted.
+     */
+    public enum Status { BUILDING, READY, ACTIVE, RETIRED, FAILED }
+}
@@ -0,0 +1,246 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Registry of versioned embedding tables, kept in {table}_index_versions next to the embedding table.
+ * - Versions are built as {table}_v{n}; version 0 is the original {table}.
+ * - Activation flips the ACTIVE row inside one transaction, the previous active version stays READY for rollback.
+ *   Other replicas pick the switch up by polling active() (ReindexService).
+ * - Only the previous version is retained; older READY versions are dropped by dropRetired(), once the last switch
+ *   is older than a grace period, so no replica can still be searching them.
+ * - A BUILDING version is heartbeated by the node building it; one whose heartbeat stops is failed by failStale().
+ * - The registry table is only created once versioning is used (registerBase / createBuilding); until then reads
+ *   find no versions and run no DDL, so booting never touches the schema.
+ */
+@Component
+public class IndexVersionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexVersionRegistry.class);
+
+    private static final RowMapper<IndexVersion> ROW_MAPPER = (rs, rowNum) -> new IndexVersion(
+            rs.getInt("version"),
+            rs.getString("table_name"),
+            rs.getInt("dimension"),
+            IndexVersion.Status.valueOf(rs.getString("status")),
+            rs.getTimestamp("created_at").toInstant(),
+            Optional.ofNullable(rs.getTimestamp("activated_at")).map(Timestamp::toInstant).orElse(null));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String baseTable;
+    private final String registryTable;
+    private volatile boolean schemaReady;
+    private volatile boolean schemaMigrated;
+
+    public IndexVersionRegistry(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                EmbeddingStoreProperties embeddingStoreProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.baseTable = embeddingStoreProperties.table();
+        this.registryTable = baseTable + "_index_versions";
+    }
+
+    public Optional<IndexVersion> active() {
+        if (!schemaExists()) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query("SELECT * FROM %s WHERE status = 'ACTIVE'".formatted(registryTable), ROW_MAPPER)
+                .stream().findFirst();
+    }
+
+    public Optional<IndexVersion> find(int version) {
+        if (!schemaExists()) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query("SELECT * FROM %s WHERE version = ?".formatted(registryTable), ROW_MAPPER, version)
+                .stream().findFirst();
+    }
+
+    public List<IndexVersion> list() {
+        if (!schemaExists()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT * FROM %s ORDER BY version DESC".formatted(registryTable), ROW_MAPPER);
+    }
+
+    /**
+     * Records the original table as the active version 0 the first time versioning is used.
+     *
+     * @param dimension
+     */
+    public void registerBase(int dimension) {
+        ensureSchema();
+        jdbcTemplate.update(("INSERT INTO %s (version, table_name, dimension, status, activated_at) "
+                + "SELECT 0, ?, ?, 'ACTIVE', now() WHERE NOT EXISTS (SELECT 1 FROM %1$s)").formatted(registryTable),
+                baseTable, dimension);
+    }
+
+    /**
+     * Allocates the next version number and registers it as BUILDING.
+     *
+     * @param dimension
+     * @return the new version
+     */
+    public IndexVersion createBuilding(int dimension) {
+        ensureSchema();
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE %s IN EXCLUSIVE MODE".formatted(registryTable));
+            Integer next = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(version), 0) + 1 FROM %s".formatted(registryTable), Integer.class);
+            String table = baseTable + "_v" + next;
+            jdbcTemplate.update("INSERT INTO %s (version, table_name, dimension, status) VALUES (?, ?, ?, 'BUILDING')"
+                    .formatted(registryTable), next, table, dimension);
+            return find(next).orElseThrow();
+        });
+    }
+
+    public void markStatus(int version, IndexVersion.Status status) {
+        ensureSchema();
+        jdbcTemplate.update("UPDATE %s SET status = ? WHERE version = ?".formatted(registryTable), status.name(), version);
+    }
+
+    /**
+     * @return the version being built, by any node
+     */
+    public Optional<IndexVersion> building() {
+        if (!schemaExists()) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query("SELECT * FROM %s WHERE status = 'BUILDING'".formatted(registryTable), ROW_MAPPER)
+                .stream().findFirst();
+    }
+
+    /**
+     * Records that the given BUILDING version is still being built.
+     *
+     * @param version
+     */
+    public void heartbeat(int version) {
+        ensureSchema();
+        jdbcTemplate.update("UPDATE %s SET heartbeat_at = now() WHERE version = ? AND status = 'BUILDING'"
+                .formatted(registryTable), version);
+    }
+
+    /**
+     * Fails BUILDING versions whose builder stopped heartbeating (the node died mid-build).
+     *
+     * @param timeout
+     * @return the number of versions failed
+     */
+    public int failStale(Duration timeout) {
+        if (!schemaExists()) {
+            return 0;
+        }
+        ensureSchema();
+        return jdbcTemplate.update(("UPDATE %s SET status = 'FAILED' WHERE status = 'BUILDING' "
+                + "AND COALESCE(heartbeat_at, created_at) < now() - make_interval(secs => ?)").formatted(registryTable),
+                timeout.toMillis() / 1000.0);
+    }
+
+    /**
+     * Makes the given READY version the active one and demotes the current active version to READY.
+     * Nothing is dropped here: replicas may still be searching the old tables until they poll the switch.
+     *
+     * @param version
+     * @return the activated version
+     */
+    public IndexVersion activate(int version) {
+        ensureSchema();
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE %s IN EXCLUSIVE MODE".formatted(registryTable));
+            IndexVersion target = find(version)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown index version: " + version));
+            if (target.status() == IndexVersion.Status.ACTIVE) {
+                return null;
+            }
+            if (target.status() != IndexVersion.Status.READY) {
+                throw new IllegalStateException("Index version " + version + " is " + target.status());
+            }
+            jdbcTemplate.update("UPDATE %s SET status = 'READY', deactivated_at = now() WHERE status = 'ACTIVE'"
+                    .formatted(registryTable));
+            jdbcTemplate.update("UPDATE %s SET status = 'ACTIVE', activated_at = now(), deactivated_at = NULL WHERE version = ?"
+                    .formatted(registryTable), version);
+            return null;
+        });
+        return find(version).orElseThrow();
+    }
+
+    /**
+     * Retires and drops the READY versions beyond the rollback target, once the last switch is older than the
+     * grace period. The grace period must exceed the replicas' poll interval plus the longest search.
+     *
+     * @param grace
+     * @return the dropped tables
+     */
+    public List<String> dropRetired(Duration grace) {
+        if (!schemaExists()) {
+            return List.of();
+        }
+        List<String> dropped = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE %s IN EXCLUSIVE MODE".formatted(registryTable));
+            Boolean settled = jdbcTemplate.queryForObject(("SELECT COALESCE(MAX(activated_at) < now() - make_interval(secs => ?), "
+                    + "true) FROM %s").formatted(registryTable), Boolean.class, grace.toMillis() / 1000.0);
+            return Boolean.TRUE.equals(settled) ? retire() : List.<String>of();
+        });
+        dropped.forEach(table -> {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+            logger.info("Dropped retired index table {}", table);
+        });
+        return dropped;
+    }
+
+    /**
+     * @return the version that was active before the current one, if it is still retained
+     */
+    public Optional<IndexVersion> previous() {
+        if (!schemaExists()) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(("SELECT * FROM %s WHERE status = 'READY' AND deactivated_at IS NOT NULL "
+                + "ORDER BY deactivated_at DESC LIMIT 1").formatted(registryTable), ROW_MAPPER).stream().findFirst();
+    }
+
+    // Keeps the most recently deactivated version for rollback, retires the older ones (version 0 is never dropped)
+    private List<String> retire() {
+        List<IndexVersion> stale = jdbcTemplate.query(("SELECT * FROM %s WHERE status = 'READY' AND deactivated_at IS NOT NULL "
+                + "ORDER BY deactivated_at DESC OFFSET 1").formatted(registryTable), ROW_MAPPER);
+        for (IndexVersion version : stale) {
+            jdbcTemplate.update("UPDATE %s SET status = 'RETIRED' WHERE version = ?".formatted(registryTable), version.version());
+        }
+        return stale.stream().filter(version -> version.version() != 0).map(IndexVersion::tableName).toList();
+    }
+
+    private boolean schemaExists() {
+        if (!schemaReady) {
+            schemaReady = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, registryTable));
+        }
+        return schemaReady;
+    }
+
+    private void ensureSchema() {
+        if (!schemaMigrated) {
+            jdbcTemplate.execute(("CREATE TABLE IF NOT EXISTS %s (version INT PRIMARY KEY, table_name TEXT NOT NULL, "
+                    + "dimension INT NOT NULL, status TEXT NOT NULL, created_at TIMESTAMPTZ NOT NULL DEFAULT now(), "
+                    + "activated_at TIMESTAMPTZ NULL, deactivated_at TIMESTAMPTZ NULL)").formatted(registryTable));
+            // Registries created before builds were heartbeated
+            jdbcTemplate.execute("ALTER TABLE %s ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMPTZ NULL".formatted(registryTable));
+            schemaReady = true;
+            schemaMigrated = true;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.deepak.ragchatbot.store;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.function.Supplier;
+
+/**
+ * Builds the real store on first use instead of at bean creation.
+ * PgVectorEmbeddingStore opens a connection in its constructor, so this keeps the database
+ * off the startup path; the schema validator warms it up in the background.
+ */
+public class LazyEmbeddingStore extends DelegatingEmbeddingStore {
+
+    private final Supplier<EmbeddingStore<TextSegment>> factory;
+    private volatile EmbeddingStore<TextSegment> store;
+
+    public LazyEmbeddingStore(Supplier<EmbeddingStore<TextSegment>> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> delegate() {
+        EmbeddingStore<TextSegment> current = store;
+        if (current == null) {
+            synchronized (this) {
+                current = store;
+                if (current == null) {
+                    current = factory.get();
+                    store = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public void initialize() {
+        delegate();
+    }
+}
@@ -0,0 +1,87 @@
+package com.deepak.ragchatbot.store;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Renders a metadata Filter as a WHERE condition on the JSON metadata column, for statements that shouldn't read
+ * every row to evaluate it in memory.
+ * - Keys and values are bind parameters (metadata->>?), never formatted into the SQL.
+ * - Numeric values compare numerically, everything else compares as text.
+ * - A missing key behaves like Filter.test(): it fails every comparison except the negative ones (not equal, not in).
+ * Filters of other types can't be rendered (empty result); callers then fall back to Filter.test().
+ */
+final class MetadataFilterSql {
+
+    record Condition(String sql, List<Object> parameters) {
+    }
+
+    private MetadataFilterSql() {
+    }
+
+    static Optional<Condition> render(Filter filter) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = render(filter, parameters);
+        return sql == null ? Optional.empty() : Optional.of(new Condition(sql, Collections.unmodifiableList(parameters)));
+    }
+
+    private static String render(Filter filter, List<Object> parameters) {
+        return switch (filter) {
+            case IsEqualTo f -> comparison(f.key(), "=", f.comparisonValue(), false, parameters);
+            case IsNotEqualTo f -> comparison(f.key(), "<>", f.comparisonValue(), true, parameters);
+            case IsGreaterThan f -> comparison(f.key(), ">", f.comparisonValue(), false, parameters);
+            case IsGreaterThanOrEqualTo f -> comparison(f.key(), ">=", f.comparisonValue(), false, parameters);
+            case IsLessThan f -> comparison(f.key(), "<", f.comparisonValue(), false, parameters);
+            case IsLessThanOrEqualTo f -> comparison(f.key(), "<=", f.comparisonValue(), false, parameters);
+            case IsIn f -> membership(f.key(), "IN", f.comparisonValues(), false, parameters);
+            case IsNotIn f -> membership(f.key(), "NOT IN", f.comparisonValues(), true, parameters);
+            case And f -> logical(f.left(), "AND", f.right(), parameters);
+            case Or f -> logical(f.left(), "OR", f.right(), parameters);
+            case Not f -> {
+                String expression = render(f.expression(), parameters);
+                yield expression == null ? null : "NOT " + expression;
+            }
+            default -> null;
+        };
+    }
+
+    private static String comparison(String key, String operator, Object value, boolean whenMissing, List<Object> parameters) {
+        parameters.add(key);
+        parameters.add(value instanceof Number ? value : String.valueOf(value));
+        return "COALESCE(%s %s ?, %s)".formatted(field(value instanceof Number), operator, whenMissing);
+    }
+
+    private static String membership(String key, String operator, Collection<?> values, boolean whenMissing, List<Object> parameters) {
+        boolean numeric = values.stream().allMatch(value -> value instanceof Number);
+        parameters.add(key);
+        values.forEach(value -> parameters.add(numeric ? value : String.valueOf(value)));
+        String placeholders = String.join(", ", Collections.nCopies(values.size(), "?"));
+        return "COALESCE(%s %s (%s), %s)".formatted(field(numeric), operator, placeholders, whenMissing);
+    }
+
+    private static String logical(Filter left, String operator, Filter right, List<Object> parameters) {
+        String l = render(left, parameters);
+        String r = l == null ? null : render(right, parameters);
+        return r == null ? null : "(%s %s %s)".formatted(l, operator, r);
+    }
+
+    private static String field(boolean numeric) {
+        return numeric ? "(metadata->>?)::numeric" : "(metadata->>?)";
+    }
+}
@@ -0,0 +1,183 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.ChatMemoryProperties;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatMemoryStore on the application's Postgres database, so any replica can serve any turn.
+ * - Reads go through a local cache; a chat fetched from Postgres is reused for cacheTtl, which covers
+ *   the several reads MessageWindowChatMemory does within one turn.
+ * - Writes only update the cache and mark the chat dirty; a background flusher upserts all dirty chats
+ *   every flushInterval in one JDBC batch, so several updates of the same chat collapse into one write.
+ * - A chat with unflushed changes is always served from the cache, and pending writes are flushed on shutdown.
+ * - Each flush also evicts the cached chats that are clean and older than cacheTtl, and a deleted chat leaves the
+ *   cache once its delete is written, so the cache only holds the chats of the last few seconds.
+ * - One-off memories (ids starting with ONE_OFF_PREFIX) live for a single answer on this node: they are kept in
+ *   memory only and never written to Postgres.
+ * The next turn of a conversation normally arrives long after flushInterval, so another replica reads it fresh.
+ */
+public class PostgresChatMemoryStore implements ChatMemoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresChatMemoryStore.class);
+
+    /**
+     * Prefix of one-off memory ids; conversation memory ids never start with '/'.
+     */
+    public static final String ONE_OFF_PREFIX = "/one-off/";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final long cacheTtlNanos;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    // Chats changed since the last flush; an empty Optional means the chat was deleted
+    private final Map<String, Optional<List<ChatMessage>>> dirty = new ConcurrentHashMap<>();
+    private final Map<String, List<ChatMessage>> oneOff = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("chat-memory-flusher").daemon().factory());
+
+    public PostgresChatMemoryStore(JdbcTemplate jdbcTemplate, ChatMemoryProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = properties.table();
+        this.cacheTtlNanos = properties.cacheTtl().toNanos();
+        createTable();
+        long interval = Math.max(1, properties.flushInterval().toMillis());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void createTable() {
+        jdbcTemplate.execute(("CREATE TABLE IF NOT EXISTS %s (memory_id TEXT PRIMARY KEY, "
+                + "messages JSONB NOT NULL, updated_at TIMESTAMPTZ NOT NULL DEFAULT now())").formatted(table));
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        if (key.startsWith(ONE_OFF_PREFIX)) {
+            return oneOff.getOrDefault(key, List.of());
+        }
+        long now = System.nanoTime();
+        Cached cached = cache.get(key);
+        if (cached != null && (dirty.containsKey(key) || now - cached.loadedNanos() < cacheTtlNanos)) {
+            return cached.messages();
+        }
+        List<ChatMessage> messages = jdbcTemplate.query("SELECT messages FROM %s WHERE memory_id = ?".formatted(table),
+                        (rs, rowNum) -> ChatMessageDeserializer.messagesFromJson(rs.getString(1)), key)
+                .stream().findFirst().orElse(List.of());
+        // Don't overwrite a write that raced with this read
+        cache.compute(key, (k, current) -> current != null && dirty.containsKey(k) ? current : new Cached(messages, now));
+        return cache.get(key).messages();
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String key = String.valueOf(memoryId);
+        List<ChatMessage> copy = List.copyOf(messages);
+        if (key.startsWith(ONE_OFF_PREFIX)) {
+            oneOff.put(key, copy);
+            return;
+        }
+        cache.put(key, new Cached(copy, System.nanoTime()));
+        dirty.put(key, Optional.of(copy));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        if (key.startsWith(ONE_OFF_PREFIX)) {
+            oneOff.remove(key);
+            return;
+        }
+        cache.put(key, new Cached(List.of(), System.nanoTime()));
+        dirty.put(key, Optional.empty());
+    }
+
+    /**
+     * Writes all pending changes in one batch (upserts) plus one batch of deletes, then evicts expired cache entries.
+     */
+    public synchronized void flush() {
+        write();
+        long now = System.nanoTime();
+        // Conditional on the value, so an entry replaced meanwhile stays
+        cache.entrySet().removeIf(entry -> !dirty.containsKey(entry.getKey())
+                && now - entry.getValue().loadedNanos() >= cacheTtlNanos);
+    }
+
+    private void write() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Map.Entry<String, Optional<List<ChatMessage>>>> taken = new ArrayList<>();
+        for (Map.Entry<String, Optional<List<ChatMessage>>> entry : dirty.entrySet()) {
+            taken.add(Map.entry(entry.getKey(), entry.getValue()));
+            entry.getValue().ifPresentOrElse(
+                    messages -> upserts.add(new Object[]{entry.getKey(), ChatMessageSerializer.messagesToJson(messages)}),
+                    () -> deletes.add(new Object[]{entry.getKey()}));
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(("INSERT INTO %s (memory_id, messages, updated_at) VALUES (?, ?::jsonb, now()) "
+                    + "ON CONFLICT (memory_id) DO UPDATE SET messages = EXCLUDED.messages, updated_at = now()")
+                    .formatted(table), upserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM %s WHERE memory_id = ?".formatted(table), deletes);
+        }
+        // Only clear what was written; a chat updated again meanwhile stays dirty for the next flush
+        for (Map.Entry<String, Optional<List<ChatMessage>>> entry : taken) {
+            if (dirty.remove(entry.getKey(), entry.getValue()) && entry.getValue().isEmpty()) {
+                // The deleted chat is gone from Postgres too, unless it was written again meanwhile
+                cache.computeIfPresent(entry.getKey(),
+                        (key, cached) -> cached.messages().isEmpty() && !dirty.containsKey(key) ? null : cached);
+            }
+        }
+        logger.debug("Flushed {} chat memories", taken.size());
+    }
+
+    public int pendingWrites() {
+        return dirty.size();
+    }
+
+    int cachedChats() {
+        return cache.size() + oneOff.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Chat memory flush failed, retrying on next interval: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(Duration.ofSeconds(5).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    private record Cached(List<ChatMessage> messages, long loadedNanos) {
+    }
+}
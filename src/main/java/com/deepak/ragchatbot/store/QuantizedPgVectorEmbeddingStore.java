@@ -0,0 +1,245 @@
+package com.deepak.ragchatbot.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * pgvector store that searches a quantized (halfvec / binary) HNSW index and reranks the
+ * candidates with the full-precision vectors.
+ * - Table layout is identical to PgVectorEmbeddingStore (embedding_id, embedding, text, metadata),
+ *   so switching quantization on an existing table only adds an index.
+ * - Search fetches max(maxResults, rescoreCandidates) rows through the quantized index, then orders
+ *   them by exact cosine distance and keeps maxResults.
+ * - Scores use the same (1 + cosine) / 2 relevance scale as PgVectorEmbeddingStore, so minScore keeps its meaning.
+ * - Metadata filters are rendered into the candidate query and removeAll(Filter) (MetadataFilterSql), so the
+ *   candidate window only holds matching rows; filters it can't render are applied to the reranked candidates
+ *   in memory over a wider window.
+ */
+public class QuantizedPgVectorEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final int dimension;
+    private final VectorQuantization quantization;
+    private final int rescoreCandidates;
+
+    public QuantizedPgVectorEmbeddingStore(JdbcTemplate jdbcTemplate,
+                                           String table,
+                                           int dimension,
+                                           VectorQuantization quantization,
+                                           int rescoreCandidates,
+                                           boolean createTable) {
+        if (quantization == VectorQuantization.NONE) {
+            throw new IllegalArgumentException("Quantized store requires HALFVEC or BINARY quantization");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.dimension = dimension;
+        this.quantization = quantization;
+        this.rescoreCandidates = rescoreCandidates;
+        if (createTable) {
+            createTable();
+        }
+    }
+
+    public void createTable() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        jdbcTemplate.execute(("CREATE TABLE IF NOT EXISTS %s (embedding_id UUID PRIMARY KEY, "
+                + "embedding vector(%d), text TEXT NULL, metadata JSON NULL)").formatted(table, dimension));
+        jdbcTemplate.execute(quantization.createIndexStatement(table, dimension));
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = embeddings.stream().map(e -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        String sql = ("INSERT INTO %s (embedding_id, embedding, text, metadata) VALUES (?::uuid, ?::vector, ?, ?::json) "
+                + "ON CONFLICT (embedding_id) DO UPDATE SET embedding = EXCLUDED.embedding, "
+                + "text = EXCLUDED.text, metadata = EXCLUDED.metadata").formatted(table);
+        List<Object[]> rows = IntStream.range(0, ids.size())
+                .mapToObj(i -> {
+                    TextSegment segment = segments == null ? null : segments.get(i);
+                    return new Object[]{
+                            ids.get(i),
+                            toLiteral(embeddings.get(i).vector()),
+                            segment == null ? null : segment.text(),
+                            segment == null ? null : toJson(segment.metadata())
+                    };
+                })
+                .toList();
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("ids cannot be null or empty");
+        }
+        jdbcTemplate.update("DELETE FROM %s WHERE embedding_id = ANY (?::uuid[])".formatted(table),
+                (Object) ("{" + String.join(",", ids) + "}"));
+    }
+
+    /**
+     * Deletes in one statement with the filter as WHERE condition (MetadataFilterSql).
+     * Filters it can't render are evaluated in memory over every row instead.
+     *
+     * @param filter
+     */
+    @Override
+    public void removeAll(Filter filter) {
+        Optional<MetadataFilterSql.Condition> condition = MetadataFilterSql.render(filter);
+        if (condition.isPresent()) {
+            jdbcTemplate.update("DELETE FROM %s WHERE %s".formatted(table, condition.get().sql()),
+                    condition.get().parameters().toArray());
+            return;
+        }
+        List<String> ids = jdbcTemplate.query("SELECT embedding_id, metadata FROM %s".formatted(table),
+                        (rs, rowNum) -> filter.test(fromJson(rs.getString("metadata"))) ? rs.getString("embedding_id") : null)
+                .stream()
+                .filter(id -> id != null)
+                .toList();
+        if (!ids.isEmpty()) {
+            removeAll(ids);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        jdbcTemplate.update("DELETE FROM %s".formatted(table));
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        String query = toLiteral(request.queryEmbedding().vector());
+        int candidates = Math.max(request.maxResults(), rescoreCandidates);
+        Optional<MetadataFilterSql.Condition> condition = Optional.ofNullable(request.filter()).flatMap(MetadataFilterSql::render);
+        // A post-filter can discard candidates, so widen the window when the filter can't be pushed down
+        Filter postFilter = request.filter() != null && condition.isEmpty() ? request.filter() : null;
+        if (postFilter != null) {
+            candidates *= 4;
+        }
+        String where = condition.map(c -> "WHERE " + c.sql() + " ").orElse("");
+        String sql = ("SELECT embedding_id, embedding::text AS embedding, text, metadata, "
+                + "(2 - (embedding <=> ?::vector)) / 2 AS score "
+                + "FROM (SELECT * FROM %s %sORDER BY %s LIMIT ?) candidates "
+                + "ORDER BY embedding <=> ?::vector").formatted(table, where, quantization.distanceExpression(dimension));
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(query);
+        condition.ifPresent(c -> parameters.addAll(c.parameters()));
+        parameters.addAll(List.of(query, candidates, query));
+
+        RowMapper<EmbeddingMatch<TextSegment>> rowMapper = (rs, rowNum) -> {
+            String text = rs.getString("text");
+            TextSegment segment = text == null ? null : TextSegment.from(text, fromJson(rs.getString("metadata")));
+            return new EmbeddingMatch<>(
+                    rs.getDouble("score"),
+                    rs.getString("embedding_id"),
+                    Embedding.from(fromLiteral(rs.getString("embedding"))),
+                    segment);
+        };
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (EmbeddingMatch<TextSegment> match : jdbcTemplate.query(sql, rowMapper, parameters.toArray())) {
+            if (match.score() < request.minScore()) {
+                break;
+            }
+            if (postFilter != null && (match.embedded() == null || !postFilter.test(match.embedded().metadata()))) {
+                continue;
+            }
+            matches.add(match);
+            if (matches.size() == request.maxResults()) {
+                break;
+            }
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    static String toLiteral(float[] vector) {
+        StringBuilder literal = new StringBuilder(vector.length * 10).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(vector[i]);
+        }
+        return literal.append(']').toString();
+    }
+
+    static float[] fromLiteral(String literal) {
+        String body = literal.substring(1, literal.length() - 1);
+        if (body.isEmpty()) {
+            return new float[0];
+        }
+        String[] parts = body.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i]);
+        }
+        return vector;
+    }
+
+    private static String toJson(Metadata metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata.toMap());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata is not serializable", e);
+        }
+    }
+
+    private static Metadata fromJson(String json) {
+        if (json == null) {
+            return new Metadata();
+        }
+        try {
+            return Metadata.from(objectMapper.readValue(json, METADATA_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored metadata is not valid JSON", e);
+        }
+    }
+}
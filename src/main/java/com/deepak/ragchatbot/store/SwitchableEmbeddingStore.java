@@ -0,0 +1,105 @@
+package com.deepak.ragchatbot.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The application-wide embedding store: forwards to the store of the active index version.
+ * Switching is a single reference swap, so in-flight searches finish on the old table and
+ * every call after the switch goes to the new one.
+ * While a new version is being built writes are frozen: they would land in the old table only and be lost
+ * on the switch, so they are rejected (IllegalStateException) and searches keep working.
+ */
+public class SwitchableEmbeddingStore extends DelegatingEmbeddingStore {
+
+    private final AtomicReference<EmbeddingStore<TextSegment>> active;
+    private volatile boolean frozen;
+
+    public SwitchableEmbeddingStore(EmbeddingStore<TextSegment> initial) {
+        this.active = new AtomicReference<>(initial);
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> delegate() {
+        return active.get();
+    }
+
+    public EmbeddingStore<TextSegment> current() {
+        return active.get();
+    }
+
+    public void switchTo(EmbeddingStore<TextSegment> store) {
+        active.set(store);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return writable().add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        writable().add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        return writable().add(embedding, textSegment);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return writable().addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        return writable().addAll(embeddings, textSegments);
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        writable().addAll(ids, embeddings, textSegments);
+    }
+
+    @Override
+    public void remove(String id) {
+        writable().remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        writable().removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        writable().removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        writable().removeAll();
+    }
+
+    private EmbeddingStore<TextSegment> writable() {
+        if (frozen) {
+            throw new IllegalStateException("An index version is being built, documents can be added again once it is done");
+        }
+        return active.get();
+    }
+}
@@ -0,0 +1,46 @@
+package com.deepak.ragchatbot.store;
+
+/**
+ * How vectors are represented in the ANN index.
+ * The table always keeps the full-precision vector(n) column; quantization only changes the
+ * HNSW index expression, so the quantized index is used to pick candidates and the full vectors
+ * rerank them. Requires pgvector 0.7+ for HALFVEC / BINARY.
+ */
+public enum VectorQuantization {
+
+    /** float32 vectors, stock PgVectorEmbeddingStore (4 bytes per dimension). */
+    NONE,
+    /** float16 index via an expression index on embedding::halfvec(n) (2 bytes per dimension). */
+    HALFVEC,
+    /** 1 bit per dimension via binary_quantize(embedding)::bit(n), ranked by Hamming distance. */
+    BINARY;
+
+    public long indexBytesPerVector(int dimension) {
+        return switch (this) {
+            case NONE -> 4L * dimension;
+            case HALFVEC -> 2L * dimension;
+            case BINARY -> (dimension + 7) / 8;
+        };
+    }
+
+    /**
+     * SQL expression the ANN index is built on and ordered by. The single parameter is the query vector literal.
+     */
+    String distanceExpression(int dimension) {
+        return switch (this) {
+            case NONE -> "embedding <=> ?::vector(%d)".formatted(dimension);
+            case HALFVEC -> "embedding::halfvec(%1$d) <=> ?::halfvec(%1$d)".formatted(dimension);
+            case BINARY -> "binary_quantize(embedding)::bit(%1$d) <~> binary_quantize(?::vector(%1$d))".formatted(dimension);
+        };
+    }
+
+    String createIndexStatement(String table, int dimension) {
+        return switch (this) {
+            case NONE -> throw new IllegalStateException("Unquantized tables are managed by PgVectorEmbeddingStore");
+            case HALFVEC -> "CREATE INDEX IF NOT EXISTS %1$s_halfvec_idx ON %1$s USING hnsw ((embedding::halfvec(%2$d)) halfvec_cosine_ops)"
+                    .formatted(table, dimension);
+            case BINARY -> "CREATE INDEX IF NOT EXISTS %1$s_binary_idx ON %1$s USING hnsw ((binary_quantize(embedding)::bit(%2$d)) bit_hamming_ops)"
+                    .formatted(table, dimension);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reports how much a quantized layout saves and what it costs in recall, for the live embedding table.
+ * Recall is measured by using randomly sampled stored vectors as queries and comparing the
+ * index-driven (and, when quantized, rescored) top-k with an exact sequential-scan top-k.
+ */
+@Component
+public class VectorStorageInspector {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingStoreFactory embeddingStoreFactory;
+    private final EmbeddingStoreProperties embeddingStoreProperties;
+
+    public VectorStorageInspector(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  EmbeddingStoreFactory embeddingStoreFactory,
+                                  EmbeddingStoreProperties embeddingStoreProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.embeddingStoreFactory = embeddingStoreFactory;
+        this.embeddingStoreProperties = embeddingStoreProperties;
+    }
+
+    public VectorStorageReport report(String table, int sampleQueries, int k) {
+        int dimension = embeddingStoreProperties.dimension() > 0
+                ? embeddingStoreProperties.dimension()
+                : columnDimension(table);
+        VectorQuantization quantization = embeddingStoreFactory.quantization();
+
+        long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM %s".formatted(table), Long.class);
+        long tableBytes = jdbcTemplate.queryForObject("SELECT pg_table_size(?::regclass)", Long.class, table);
+        long indexBytes = jdbcTemplate.queryForObject("SELECT pg_indexes_size(?::regclass)", Long.class, table);
+
+        List<String> queries = sampleQueries <= 0 ? List.of() : jdbcTemplate.queryForList(
+                "SELECT embedding::text FROM %s ORDER BY random() LIMIT ?".formatted(table), String.class, sampleQueries);
+        double recall = queries.isEmpty()
+                ? Double.NaN
+                : queries.stream().mapToDouble(q -> recall(table, dimension, quantization, q, k)).average().orElse(Double.NaN);
+
+        return new VectorStorageReport(
+                table,
+                dimension,
+                quantization,
+                rows,
+                VectorQuantization.NONE.indexBytesPerVector(dimension),
+                quantization.indexBytesPerVector(dimension),
+                tableBytes,
+                indexBytes,
+                k,
+                queries.size(),
+                recall);
+    }
+
+    private double recall(String table, int dimension, VectorQuantization quantization, String query, int k) {
+        Set<String> exact = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+            return new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT embedding_id::text FROM %s ORDER BY embedding <=> ?::vector LIMIT ?".formatted(table),
+                    String.class, query, k));
+        });
+        // Same candidate + full-precision rescoring path the quantized store uses for search
+        int candidates = quantization == VectorQuantization.NONE ? k : Math.max(k, embeddingStoreProperties.rescoreCandidates());
+        List<String> approximate = jdbcTemplate.queryForList(
+                ("SELECT embedding_id::text FROM (SELECT * FROM %s ORDER BY %s LIMIT ?) candidates "
+                        + "ORDER BY embedding <=> ?::vector LIMIT ?").formatted(table, quantization.distanceExpression(dimension)),
+                String.class, query, candidates, query, k);
+        if (exact == null || exact.isEmpty()) {
+            return 1.0;
+        }
+        return approximate.stream().filter(exact::contains).count() / (double) exact.size();
+    }
+
+    private int columnDimension(String table) {
+        return jdbcTemplate.queryForObject(
+                "SELECT atttypmod FROM pg_attribute WHERE attrelid = ?::regclass AND attname = 'embedding'",
+                Integer.class, table);
+    }
+}
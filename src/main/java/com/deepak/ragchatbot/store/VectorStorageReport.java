@@ -0,0 +1,22 @@
+package com.deepak.ragchatbot.store;
+
+/**
+ * Memory / disk / recall trade-off of the current vector layout.
+ * - fullPrecisionBytesPerVector vs indexBytesPerVector: what the ANN index saves per row.
+ * - tableBytes / indexBytes: actual on-disk sizes reported by Postgres.
+ * - recallAtK: overlap of the quantized top-k with exact top-k over sampled stored vectors (NaN if not sampled).
+ */
+public record VectorStorageReport(
+        String table,
+        int dimension,
+        VectorQuantization quantization,
+        long rows,
+        long fullPrecisionBytesPerVector,
+        long indexBytesPerVector,
+        long tableBytes,
+        long indexBytes,
+        int k,
+        int sampledQueries,
+        double recallAtK
+) {
+}
@@ -0,0 +1,67 @@
+package com.deepak.ragchatbot.store.blob;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A stored blob as a Spring Resource: reads the (decompressed) content and reports the original file name.
+ */
+public class BlobResource extends AbstractResource {
+
+    private final String hash;
+    private final String fileName;
+    private final Path file;
+    private final boolean compressed;
+
+    public BlobResource(String hash, String fileName, Path file, boolean compressed) {
+        this.hash = hash;
+        this.fileName = fileName;
+        this.file = file;
+        this.compressed = compressed;
+    }
+
+    public String hash() {
+        return hash;
+    }
+
+    // Stored (possibly compressed) file; not exposed through getFile(), which callers would read as the content
+    Path path() {
+        return file;
+    }
+
+    @Override
+    public String getFilename() {
+        return fileName;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return compressed ? new GZIPInputStream(in) : in;
+    }
+
+    @Override
+    public String getDescription() {
+        return "blob " + hash + " [" + fileName + "]";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BlobResource that && hash.equals(that.hash) && fileName.equals(that.fileName);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode() * 31 + fileName.hashCode();
+    }
+}
@@ -0,0 +1,32 @@
+package com.deepak.ragchatbot.store.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Storage for uploaded documents, addressed by the SHA-256 of their content.
+ * Storing the same bytes twice keeps a single copy; the returned resource carries the file name it was uploaded
+ * under, since extractors are chosen by extension.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the content (or finds the existing copy) and marks it as recently used.
+     *
+     * @param content  read to the end, not closed
+     * @param fileName name the caller knows the document by
+     * @return the stored blob
+     * @throws IOException
+     */
+    BlobResource put(InputStream content, String fileName) throws IOException;
+
+    /**
+     * @param hash     SHA-256 of the content, lower-case hex
+     * @param fileName name to expose on the returned resource
+     * @return the blob, or empty when it was never stored or has been removed by retention
+     */
+    Optional<BlobResource> get(String hash, String fileName);
+
+    boolean delete(String hash);
+}
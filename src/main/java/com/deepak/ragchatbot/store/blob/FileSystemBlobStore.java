@@ -0,0 +1,243 @@
+package com.deepak.ragchatbot.store.blob;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * BlobStore on the local filesystem.
+ * - Layout: {dir}/{hash[0..2]}/{hash[2..4]}/{hash}.gz (or .bin uncompressed): two levels of 256 directories keep
+ *   every directory small with millions of blobs, and a lookup is a single path resolution.
+ * - Content is hashed while it is streamed to a temp file, which is then moved into place atomically;
+ *   if the blob already exists the temp file is dropped and the existing one is touched.
+ * - Retention: blobs not stored again for ttl are deleted, and once the store grows past maxBytes the least
+ *   recently stored blobs are deleted until it is back under 90% of the limit. Runs every cleanupInterval.
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemBlobStore.class);
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String COMPRESSED = ".gz";
+    private static final String PLAIN = ".bin";
+
+    private final Path directory;
+    private final boolean compress;
+    private final Duration ttl;
+    private final long maxBytes;
+    private final AtomicLong sizeBytes = new AtomicLong();
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("blob-retention").daemon().factory());
+
+    public FileSystemBlobStore(Path directory, boolean compress, Duration ttl, long maxBytes, Duration cleanupInterval) {
+        this.directory = directory;
+        this.compress = compress;
+        this.ttl = ttl;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory.resolve("tmp"));
+            sizeBytes.set(entries().stream().mapToLong(Entry::size).sum());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot initialise blob store at " + directory, e);
+        }
+        if (!cleanupInterval.isZero() && !cleanupInterval.isNegative()) {
+            long interval = cleanupInterval.toMillis();
+            cleaner.scheduleWithFixedDelay(this::enforceRetentionQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public BlobResource put(InputStream content, String fileName) throws IOException {
+        MessageDigest digest = sha256();
+        Path tmp = Files.createTempFile(directory.resolve("tmp"), "upload", ".tmp");
+        try {
+            try (DigestInputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = compress ? new GZIPOutputStream(Files.newOutputStream(tmp)) : Files.newOutputStream(tmp)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path file = path(hash, compress);
+            Optional<Path> existing = find(hash);
+            if (existing.isPresent()) {
+                touch(existing.get());
+                logger.debug("Blob {} already stored", hash);
+                return resource(hash, fileName, existing.get());
+            }
+            Files.createDirectories(file.getParent());
+            // Another upload of the same bytes may have won the race; the content is identical either way
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (sizeBytes.addAndGet(Files.size(file) - previous) > maxBytes) {
+                evictToSize();
+            }
+            return resource(hash, fileName, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Optional<BlobResource> get(String hash, String fileName) {
+        return valid(hash) ? find(hash).map(file -> resource(hash, fileName, file)) : Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String hash) {
+        return valid(hash) && find(hash).map(this::remove).orElse(false);
+    }
+
+    public long sizeBytes() {
+        return sizeBytes.get();
+    }
+
+    /**
+     * Applies the TTL and size limits now.
+     *
+     * @return number of blobs deleted
+     * @throws IOException
+     */
+    public synchronized int enforceRetention() throws IOException {
+        int deleted = 0;
+        if (!ttl.isZero() && !ttl.isNegative()) {
+            FileTime expiry = FileTime.fromMillis(System.currentTimeMillis() - ttl.toMillis());
+            for (Entry entry : entries()) {
+                if (entry.lastModified().compareTo(expiry) < 0 && remove(entry.file())) {
+                    deleted++;
+                }
+            }
+        }
+        deleted += evictToSize();
+        if (deleted > 0) {
+            logger.info("Blob retention deleted {} blobs, {} bytes left", deleted, sizeBytes.get());
+        }
+        return deleted;
+    }
+
+    private synchronized int evictToSize() throws IOException {
+        long target = maxBytes * 9 / 10;
+        if (sizeBytes.get() <= maxBytes) {
+            return 0;
+        }
+        List<Entry> entries = entries();
+        entries.sort(Comparator.comparing(Entry::lastModified));
+        int deleted = 0;
+        for (Entry entry : entries) {
+            if (sizeBytes.get() <= target) {
+                break;
+            }
+            if (remove(entry.file())) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private void enforceRetentionQuietly() {
+        try {
+            enforceRetention();
+        } catch (Exception e) {
+            logger.warn("Blob retention failed, retrying on next interval: {}", e.getMessage());
+        }
+    }
+
+    private Optional<Path> find(String hash) {
+        Path compressed = path(hash, true);
+        if (Files.exists(compressed)) {
+            return Optional.of(compressed);
+        }
+        Path plain = path(hash, false);
+        return Files.exists(plain) ? Optional.of(plain) : Optional.empty();
+    }
+
+    private BlobResource resource(String hash, String fileName, Path file) {
+        return new BlobResource(hash, fileName, file, file.getFileName().toString().endsWith(COMPRESSED));
+    }
+
+    private Path path(String hash, boolean compressed) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(hash + (compressed ? COMPRESSED : PLAIN));
+    }
+
+    private boolean remove(Path file) {
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                sizeBytes.addAndGet(-size);
+                return true;
+            }
+        } catch (NoSuchFileException ignored) {
+            // removed concurrently
+        } catch (IOException e) {
+            logger.warn("Failed to delete blob {}: {}", file, e.getMessage());
+        }
+        return false;
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory, 3)) {
+            for (Path file : (Iterable<Path>) files.filter(this::isBlob)::iterator) {
+                try {
+                    entries.add(new Entry(file, Files.size(file), Files.getLastModifiedTime(file)));
+                } catch (NoSuchFileException ignored) {
+                    // removed concurrently
+                }
+            }
+        }
+        return entries;
+    }
+
+    private boolean isBlob(Path file) {
+        String name = file.getFileName().toString();
+        return (name.endsWith(COMPRESSED) || name.endsWith(PLAIN)) && Files.isRegularFile(file);
+    }
+
+    private static void touch(Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    private static boolean valid(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    private record Entry(Path file, long size, FileTime lastModified) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.deepak.ragchatbot.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalEmbeddingEnvironmentPostProcessorTest {
+
+    private final LocalEmbeddingEnvironmentPostProcessor postProcessor = new LocalEmbeddingEnvironmentPostProcessor();
+
+    @Test
+    void localProvider_setsDimension_andUsesSeparateTable() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("embedding.provider", "local")
+                .withProperty("embedding.store.table", "embeddings")
+                .withProperty("embedding.store.dimension", "1536");
+
+        postProcessor.postProcessEnvironment(environment, null);
+
+        assertThat(environment.getProperty("embedding.store.dimension", Integer.class)).isEqualTo(384);
+        assertThat(environment.getProperty("embedding.store.table")).isEqualTo("embeddings_minilm");
+    }
+
+    @Test
+    void explicitLocalTable_isUsedAsIs() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("embedding.provider", "local")
+                .withProperty("embedding.store.table", "embeddings")
+                .withProperty("embedding.local.table", "local_vectors");
+
+        postProcessor.postProcessEnvironment(environment, null);
+
+        assertThat(environment.getProperty("embedding.store.table")).isEqualTo("local_vectors");
+    }
+
+    @Test
+    void remoteProvider_leavesEnvironmentAlone() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("embedding.store.table", "embeddings")
+                .withProperty("embedding.store.dimension", "1536");
+
+        postProcessor.postProcessEnvironment(environment, null);
+
+        assertThat(environment.getProperty("embedding.store.dimension")).isEqualTo("1536");
+        assertThat(environment.getProperty("embedding.store.table")).isEqualTo("embeddings");
+    }
+}
@@ -0,0 +1,146 @@
+package com.deepak.ragchatbot.controller;
+
+import com.deepak.ragchatbot.config.AdmissionProperties;
+import com.deepak.ragchatbot.config.WebSocketChatProperties;
+import com.deepak.ragchatbot.service.CoalescingChatService;
+import com.deepak.ragchatbot.service.stream.ChatStreamRegistry;
+import com.deepak.ragchatbot.service.stream.Frame;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatWebSocketHandlerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final CoalescingChatService chatService = mock(CoalescingChatService.class);
+    private final WebSocketChatProperties properties =
+            new WebSocketChatProperties(true, "/api/chat-ws", 4, 2, 8, Duration.ofSeconds(5), Duration.ofSeconds(1), 1024);
+    private final ChatStreamRegistry registry = new ChatStreamRegistry(properties, new SimpleMeterRegistry());
+    private final ChatWebSocketHandler handler = new ChatWebSocketHandler(chatService, registry,
+            new AdmissionProperties(false, 60000, Map.of(), 200, Duration.ofSeconds(5), 1500, "X-Tenant-Id"), properties);
+
+    @Test
+    void open_streamsTheAnswerUpToTheCredit_andRequestGrantsMore() throws Exception {
+        when(chatService.admit(eq("What is ACME?"), eq("tenant-a"), anyString()))
+                .thenReturn(Mono.just(Flux.just("ACME", "-RAG", "-CHECK")));
+        Connection connection = connect("c1", null, "tenant-a");
+
+        connection.send("{\"type\":\"open\",\"stream\":\"s1\",\"message\":\"What is ACME?\"}");
+        connection.send("{\"type\":\"request\",\"stream\":\"s1\",\"n\":5}");
+
+        assertThat(connection.frames()).extracting(Frame::type)
+                .containsExactly(Frame.HELLO, Frame.TOKEN, Frame.TOKEN, Frame.TOKEN, Frame.COMPLETE);
+        assertThat(connection.frames().subList(1, 5)).extracting(Frame::seq).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(connection.frames().get(1).stream()).isEqualTo("s1");
+    }
+
+    @Test
+    void invalidFrames_areAnsweredWithErrorFrames() throws Exception {
+        Connection connection = connect("c1", null, "tenant-a");
+
+        connection.send("not json");
+        connection.send("{\"type\":\"open\",\"stream\":\"s1\"}");
+        connection.send("{\"type\":\"request\",\"stream\":\"missing\",\"n\":1}");
+        connection.send("{\"type\":\"shout\",\"stream\":\"s1\"}");
+
+        assertThat(connection.frames().subList(1, 5)).extracting(Frame::type).containsOnly(Frame.ERROR);
+        assertThat(connection.frames().subList(1, 5)).extracting(Frame::data).containsExactly(
+                "Malformed frame", "message is required", "Unknown stream: missing", "Unknown frame type: shout");
+    }
+
+    @Test
+    void onlyIssuedSessions_ofTheSameTenant_canBeReconnectedTo() throws Exception {
+        String issued = connect("c1", null, "tenant-a").sessionId();
+
+        assertThat(connect("c2", issued, "tenant-a").sessionId()).isEqualTo(issued);
+        assertThat(connect("c3", issued, "tenant-b").sessionId()).isNotEqualTo(issued);
+        assertThat(connect("c4", "11111111-2222-3333-4444-555555555555", "tenant-a").sessionId())
+                .isNotEqualTo("11111111-2222-3333-4444-555555555555");
+    }
+
+    @Test
+    void resume_isRejectedWhileTheFirstConnectionIsOpen_andReplaysOnceItClosed() throws Exception {
+        when(chatService.admit(anyString(), any(), anyString())).thenReturn(Mono.just(Flux.just("a", "b", "c")));
+        Connection first = connect("c1", null, "tenant-a");
+        first.send("{\"type\":\"open\",\"stream\":\"s1\",\"message\":\"q\",\"n\":1}");
+
+        Connection second = connect("c2", first.sessionId(), "tenant-a");
+        second.send("{\"type\":\"resume\",\"stream\":\"s1\",\"lastSeq\":1}");
+        assertThat(second.frames().getLast().type()).isEqualTo(Frame.ERROR);
+
+        first.close();
+        second.send("{\"type\":\"resume\",\"stream\":\"s1\",\"lastSeq\":1}");
+        second.send("{\"type\":\"request\",\"stream\":\"s1\",\"n\":5}");
+
+        assertThat(second.frames().subList(2, second.frames().size())).extracting(Frame::data)
+                .containsExactly("b", "c", null);
+    }
+
+    private Connection connect(String id, String session, String tenant) throws Exception {
+        Connection connection = new Connection(id, session, tenant);
+        handler.afterConnectionEstablished(connection.session);
+        return connection;
+    }
+
+    private final class Connection {
+
+        private final WebSocketSession session = mock(WebSocketSession.class);
+        private final List<Frame> frames = new CopyOnWriteArrayList<>();
+
+        Connection(String id, String sessionId, String tenant) throws IOException {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("X-Tenant-Id", tenant);
+            Map<String, Object> attributes = new HashMap<>();
+            when(session.getId()).thenReturn(id);
+            when(session.getUri()).thenReturn(URI.create("ws://localhost/api/chat-ws"
+                    + (sessionId == null ? "" : "?session=" + sessionId)));
+            when(session.getHandshakeHeaders()).thenReturn(headers);
+            when(session.getAttributes()).thenReturn(attributes);
+            when(session.isOpen()).thenReturn(true);
+            doAnswer(invocation -> frames.add(objectMapper.readValue(
+                    invocation.<TextMessage>getArgument(0).getPayload(), Frame.class)))
+                    .when(session).sendMessage(any(WebSocketMessage.class));
+        }
+
+        void send(String payload) throws Exception {
+            handler.handleMessage(session, new TextMessage(payload));
+        }
+
+        void close() {
+            when(session.isOpen()).thenReturn(false);
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+
+        List<Frame> frames() {
+            return frames;
+        }
+
+        String sessionId() {
+            return frames.getFirst().data();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.deepak.ragchatbot.controller;
+
+import com.deepak.ragchatbot.exception.GlobalExceptionHandler;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.ingestion.IngestionJob;
+import com.deepak.ragchatbot.service.ingestion.IngestionJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class IngestionJobControllerTest {
+
+    private static final UUID ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private final IngestionJobService ingestionJobService = mock(IngestionJobService.class);
+    private final RagChatbotService ragChatbotService = mock(RagChatbotService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new IngestionJobController(ingestionJobService, ragChatbotService))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void submit_queuesTheDocument_andAnswersAccepted() throws Exception {
+        when(ragChatbotService.saveDocument(any())).thenReturn(new ByteArrayResource(new byte[]{1}));
+        when(ingestionJobService.submit(any(), eq(false))).thenReturn(ID);
+
+        mockMvc.perform(multipart("/api/ingest/jobs").file(file("a.pdf")))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(ID.toString()));
+    }
+
+    @Test
+    void submit_ofAnUnsupportedFile_isUnsupportedMediaType() throws Exception {
+        when(ragChatbotService.saveDocument(any())).thenReturn(new ByteArrayResource(new byte[]{1}));
+        when(ingestionJobService.submit(any(), eq(false))).thenThrow(new UnsupportedOperationException("Unsupported file type: a.xyz"));
+
+        mockMvc.perform(multipart("/api/ingest/jobs").file(file("a.xyz")))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(jsonPath("$.message").value("Unsupported file type: a.xyz"));
+    }
+
+    @Test
+    void status_ofAKnownJob_isItsRow_andOfAnUnknownOneIsNotFound() throws Exception {
+        when(ingestionJobService.find(ID)).thenReturn(Optional.of(new IngestionJob(ID, "a.pdf", IngestionJob.Status.FAILED,
+                false, 3, null, null, "lease expired", Instant.EPOCH, Instant.EPOCH)));
+        when(ingestionJobService.find(UUID.fromString("00000000-0000-0000-0000-000000000002"))).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/ingest/jobs/{id}", ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.attempts").value(3))
+                .andExpect(jsonPath("$.lastError").value("lease expired"));
+        mockMvc.perform(get("/api/ingest/jobs/{id}", "00000000-0000-0000-0000-000000000002"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void counts_arePerStatus() throws Exception {
+        when(ingestionJobService.counts()).thenReturn(Map.of(IngestionJob.Status.PENDING, 4L, IngestionJob.Status.RUNNING, 2L));
+
+        mockMvc.perform(get("/api/ingest/jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.PENDING").value(4))
+                .andExpect(jsonPath("$.RUNNING").value(2));
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("file", name, MediaType.APPLICATION_OCTET_STREAM_VALUE, new byte[]{1, 2, 3});
+    }
+}
@@ -13,8 +13,11 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
@@ -89,7 +92,7 @@ public class RagChatbotControllerTest {
         // Mock service behavior
         when(ragChatbotService.saveDocument(any())).thenReturn(mockResource);
         doThrow(new UnsupportedOperationException("Unsupported file type: .xyz"))
-                .when(ragChatbotService).saveSegments(mockResource);
+                .when(ragChatbotService).saveSegments(eq(List.of(mockResource)), anyInt());
 
         mockMvc.perform(multipart("/api/context-chatbot")
                         .file(file)
@@ -0,0 +1,82 @@
+package com.deepak.ragchatbot.eval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Deterministic, offline embedding model for retrieval evaluation: signed feature hashing of
+ * lower-cased word unigrams and bigrams, L2-normalised. Not a semantic model, but stable across runs
+ * and machines, so differences between sweep configurations come from chunking and retrieval settings only.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how", "i",
+            "in", "is", "it", "many", "much", "must", "of", "on", "or", "the", "to", "what", "when", "where",
+            "which", "who", "with");
+
+    private final int dimension;
+
+    public HashingEmbeddingModel(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(textSegments.stream().map(segment -> Embedding.from(embed(segment.text().toLowerCase(Locale.ROOT)))).toList());
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    private float[] embed(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        float[] vector = new float[dimension];
+        for (int i = 0; i < words.size(); i++) {
+            add(vector, words.get(i), 1f);
+            if (i > 0) {
+                add(vector, words.get(i - 1) + " " + words.get(i), 0.5f);
+            }
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        vector[Math.floorMod(hash, dimension)] += (hash & 0x8000_0000) == 0 ? weight : -weight;
+    }
+
+    // murmur3 finalizer, spreads String.hashCode over all bits
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,153 @@
+package com.deepak.ragchatbot.eval;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Runs the labelled fixture in src/test/resources/eval through the same splitter / ingestor / retriever
+ * classes the application uses, with a local embedding model and an in-memory store.
+ * A retrieved segment is relevant when it contains the expected answer fragment of the question.
+ */
+public class RetrievalEvaluator {
+
+    private final EmbeddingModel embeddingModel;
+    private final List<Document> documents;
+    private final List<Question> questions;
+
+    public RetrievalEvaluator(EmbeddingModel embeddingModel, List<Document> documents, List<Question> questions) {
+        this.embeddingModel = embeddingModel;
+        this.documents = documents;
+        this.questions = questions;
+    }
+
+    public static RetrievalEvaluator fromClasspath(EmbeddingModel embeddingModel) throws IOException, URISyntaxException {
+        Path root = Path.of(RetrievalEvaluator.class.getResource("/eval").toURI());
+        List<Document> documents = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root.resolve("corpus"))) {
+            for (Path file : files.sorted().toList()) {
+                documents.add(Document.from(Files.readString(file, StandardCharsets.UTF_8),
+                        Metadata.from("file_name", file.getFileName().toString())));
+            }
+        }
+        List<Question> questions = Files.readAllLines(root.resolve("questions.tsv"), StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                .map(line -> line.split("\t", 2))
+                .map(parts -> new Question(parts[0], parts[1]))
+                .toList();
+        return new RetrievalEvaluator(embeddingModel, documents, questions);
+    }
+
+    public int questionCount() {
+        return questions.size();
+    }
+
+    /**
+     * Evaluates every retrieval setting against one chunking (the corpus is ingested once per chunking).
+     *
+     * @param chunkSize
+     * @param chunkOverlap
+     * @param retrievals (maxResults, minScore) pairs
+     * @return one result per retrieval setting
+     */
+    public List<Result> evaluate(int chunkSize, int chunkOverlap, List<Retrieval> retrievals) {
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        EmbeddingStoreIngestor.builder()
+                .documentSplitter(DocumentSplitters.recursive(chunkSize, chunkOverlap))
+                .embeddingModel(embeddingModel)
+                .embeddingStore(store)
+                .build()
+                .ingest(documents);
+
+        List<Result> results = new ArrayList<>();
+        for (Retrieval retrieval : retrievals) {
+            EmbeddingStoreContentRetriever retriever = EmbeddingStoreContentRetriever.builder()
+                    .embeddingStore(store)
+                    .embeddingModel(embeddingModel)
+                    .maxResults(retrieval.maxResults())
+                    .minScore(retrieval.minScore())
+                    .build();
+
+            int hits = 0;
+            double reciprocalRanks = 0;
+            long promptTokens = 0;
+            long[] latencies = new long[questions.size()];
+            for (int q = 0; q < questions.size(); q++) {
+                Question question = questions.get(q);
+                long start = System.nanoTime();
+                List<Content> contents = retriever.retrieve(Query.from(question.text()));
+                latencies[q] = System.nanoTime() - start;
+
+                int rank = 0;
+                for (int i = 0; i < contents.size(); i++) {
+                    String segment = contents.get(i).textSegment().text();
+                    promptTokens += estimateTokens(segment);
+                    if (rank == 0 && normalize(segment).contains(normalize(question.answer()))) {
+                        rank = i + 1;
+                    }
+                }
+                if (rank > 0) {
+                    hits++;
+                    reciprocalRanks += 1.0 / rank;
+                }
+            }
+            Arrays.sort(latencies);
+            results.add(new Result(chunkSize, chunkOverlap, retrieval.maxResults(), retrieval.minScore(),
+                    (double) hits / questions.size(),
+                    reciprocalRanks / questions.size(),
+                    (double) promptTokens / questions.size(),
+                    latencies[latencies.length / 2] / 1_000_000.0,
+                    latencies[(int) Math.ceil(latencies.length * 0.95) - 1] / 1_000_000.0));
+        }
+        return results;
+    }
+
+    // Same 4-characters-per-token rule of thumb as the admission control estimate
+    static long estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static String normalize(String text) {
+        return text.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public record Question(String text, String answer) {
+    }
+
+    public record Retrieval(int maxResults, double minScore) {
+    }
+
+    /**
+     * Metrics of one configuration; promptTokens is the average number of context tokens added per question.
+     */
+    public record Result(int chunkSize, int chunkOverlap, int maxResults, double minScore,
+                         double recallAtK, double mrr, double promptTokens, double p50Millis, double p95Millis) {
+
+        static String csvHeader() {
+            return "chunk_size,chunk_overlap,max_results,min_score,recall_at_k,mrr,prompt_tokens,p50_ms,p95_ms";
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%d,%.2f,%.3f,%.3f,%.0f,%.3f,%.3f",
+                    chunkSize, chunkOverlap, maxResults, minScore, recallAtK, mrr, promptTokens, p50Millis, p95Millis);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.deepak.ragchatbot.eval;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Offline sweep of chunk size, chunk overlap, maxResults and minScore over the labelled fixture set.
+ * Prints the table and writes it to target/eval/retrieval-sweep.csv; run alone with
+ * {@code mvn test -Dtest=RetrievalSweepTest}. Use it to choose the retrieval.* properties.
+ */
+@Tag("eval")
+class RetrievalSweepTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetrievalSweepTest.class);
+
+    private static final int[] CHUNK_SIZES = {300, 500, 1000};
+    private static final int[] CHUNK_OVERLAPS = {0, 50, 100};
+    private static final int[] MAX_RESULTS = {1, 3, 5};
+    private static final double[] MIN_SCORES = {0.5, 0.6, 0.7};
+
+    @Test
+    void sweep() throws Exception {
+        RetrievalEvaluator evaluator = RetrievalEvaluator.fromClasspath(new HashingEmbeddingModel(512));
+        List<RetrievalEvaluator.Retrieval> retrievals = new ArrayList<>();
+        for (int maxResults : MAX_RESULTS) {
+            for (double minScore : MIN_SCORES) {
+                retrievals.add(new RetrievalEvaluator.Retrieval(maxResults, minScore));
+            }
+        }
+
+        List<RetrievalEvaluator.Result> results = new ArrayList<>();
+        for (int chunkSize : CHUNK_SIZES) {
+            for (int chunkOverlap : CHUNK_OVERLAPS) {
+                results.addAll(evaluator.evaluate(chunkSize, chunkOverlap, retrievals));
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(RetrievalEvaluator.Result.csvHeader());
+        results.stream()
+                .sorted(Comparator.comparingDouble(RetrievalEvaluator.Result::recallAtK).reversed()
+                        .thenComparingDouble(RetrievalEvaluator.Result::promptTokens))
+                .forEach(result -> lines.add(result.toCsv()));
+        Path report = Path.of("target", "eval", "retrieval-sweep.csv");
+        Files.createDirectories(report.getParent());
+        Files.write(report, lines, StandardCharsets.UTF_8);
+        logger.info("Retrieval sweep over {} questions ({} configurations), written to {}:\n{}",
+                evaluator.questionCount(), results.size(), report, String.join("\n", lines));
+
+        assertThat(results).hasSize(CHUNK_SIZES.length * CHUNK_OVERLAPS.length * retrievals.size());
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.recallAtK()).isBetween(0.0, 1.0);
+            assertThat(result.mrr()).isBetween(0.0, result.recallAtK());
+        });
+        assertThat(results).extracting(RetrievalEvaluator.Result::recallAtK).anySatisfy(recall -> assertThat(recall).isGreaterThanOrEqualTo(0.5));
+    }
+
+    @Test
+    void moreResults_neverLowerRecall_andRunsAreDeterministic() throws Exception {
+        RetrievalEvaluator evaluator = RetrievalEvaluator.fromClasspath(new HashingEmbeddingModel(512));
+        List<RetrievalEvaluator.Retrieval> retrievals = List.of(
+                new RetrievalEvaluator.Retrieval(1, 0.5),
+                new RetrievalEvaluator.Retrieval(5, 0.5));
+
+        List<RetrievalEvaluator.Result> first = evaluator.evaluate(1000, 100, retrievals);
+        List<RetrievalEvaluator.Result> second = evaluator.evaluate(1000, 100, retrievals);
+
+        assertThat(first.get(1).recallAtK()).isGreaterThanOrEqualTo(first.get(0).recallAtK());
+        assertThat(first).extracting(RetrievalEvaluator.Result::recallAtK)
+                .containsExactlyElementsOf(second.stream().map(RetrievalEvaluator.Result::recallAtK).toList());
+        assertThat(first).extracting(RetrievalEvaluator.Result::mrr)
+                .containsExactlyElementsOf(second.stream().map(RetrievalEvaluator.Result::mrr).toList());
+    }
+}
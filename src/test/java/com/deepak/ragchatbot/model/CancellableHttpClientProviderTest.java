@@ -0,0 +1,173 @@
+package com.deepak.ragchatbot.model;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.util.Context;
+import com.azure.core.util.HttpClientOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.azure.AzureOpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The LangChain4j Azure OpenAI streaming model and the Azure SDK client against a local server streaming a long
+ * completion, which records when the client closes the connection.
+ */
+class CancellableHttpClientProviderTest {
+
+    private static final int CHUNKS = 500;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger written = new AtomicInteger();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::streamCompletion);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void cancelledAnswer_closesTheConnection() throws Exception {
+        List<String> tokens = answer(model(new CancellableHttpClientProvider(CancellableHttpClientProviderTest::plainHttp)))
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(20));
+
+        assertThat(tokens).hasSize(3);
+        assertThat(closed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(written.get()).isLessThan(CHUNKS);
+        assertThat(meterRegistry.counter("rag.stream.cancelled").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("rag.stream.tokens.saved").count()).isPositive();
+    }
+
+    @Test
+    void answerThatIsNotCancelled_isReadToTheEnd() throws Exception {
+        server.removeContext("/");
+        server.createContext("/", exchange -> streamCompletion(exchange, 5));
+
+        List<String> tokens = answer(model(new CancellableHttpClientProvider(CancellableHttpClientProviderTest::plainHttp)))
+                .collectList()
+                .block(Duration.ofSeconds(20));
+
+        assertThat(tokens).hasSize(5);
+        assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(closed.getCount()).isEqualTo(1);
+    }
+
+    private StreamingChatModel model(CancellableHttpClientProvider httpClientProvider) {
+        return new CancellableStreamingChatModel(AzureOpenAiStreamingChatModel.builder()
+                .endpoint("https://localhost:" + server.getAddress().getPort())
+                .apiKey("test-key")
+                .deploymentName("gpt-4o")
+                .maxRetries(0)
+                .httpClientProvider(httpClientProvider)
+                .build(), () -> meterRegistry, 400);
+    }
+
+    private Flux<String> answer(StreamingChatModel model) {
+        return CancellationToken.bind(() -> Flux.create(sink -> model.chat(
+                ChatRequest.builder().messages(UserMessage.from("What is in the document?")).build(),
+                new StreamingChatResponseHandler() {
+                    @Override
+                    public void onPartialResponse(String partialResponse) {
+                        sink.next(partialResponse);
+                    }
+
+                    @Override
+                    public void onCompleteResponse(ChatResponse completeResponse) {
+                        sink.complete();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        sink.error(error);
+                    }
+                })));
+    }
+
+    private void streamCompletion(HttpExchange exchange) throws IOException {
+        streamCompletion(exchange, CHUNKS);
+    }
+
+    private void streamCompletion(HttpExchange exchange, int chunks) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            for (int i = 0; i < chunks; i++) {
+                body.write(event("{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,\"model\":\"gpt-4o\","
+                        + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"t" + i + " \"},"
+                        + "\"finish_reason\":null}]}"));
+                body.flush();
+                written.incrementAndGet();
+                Thread.sleep(20);
+            }
+            body.write(event("{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,\"model\":\"gpt-4o\","
+                    + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}"));
+            body.write(event("[DONE]"));
+            body.flush();
+            completed.countDown();
+        } catch (IOException e) {
+            closed.countDown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] event(String data) {
+        return ("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The SDK only sends api keys over https: the request leaves it as https and is sent to the local server over http.
+     */
+    private static HttpClient plainHttp(HttpClientOptions options) {
+        HttpClient netty = HttpClient.createDefault();
+        return new HttpClient() {
+            @Override
+            public Mono<HttpResponse> send(HttpRequest request) {
+                return send(request, Context.NONE);
+            }
+
+            @Override
+            public Mono<HttpResponse> send(HttpRequest request, Context context) {
+                request.setUrl(request.getUrl().toString().replaceFirst("^https:", "http:"));
+                return netty.send(request, context);
+            }
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package com.deepak.ragchatbot.model;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CancellableStreamingChatModelTest {
+
+    private static final int ANSWER_TOKENS = 200;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubStreamingModel stub = new StubStreamingModel();
+    private final StreamingChatModel model = new CancellableStreamingChatModel(stub, () -> meterRegistry, 400);
+
+    @Test
+    void cancellingTheAnswer_abortsTheUpstreamStream() throws Exception {
+        List<String> tokens = answer().take(3).collectList().block();
+
+        assertThat(tokens).hasSize(3);
+        assertThat(stub.finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stub.aborted).isTrue();
+        assertThat(stub.sent.get()).isLessThan(ANSWER_TOKENS);
+        assertThat(meterRegistry.counter("rag.stream.cancelled").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("rag.stream.tokens.saved").count()).isEqualTo(400 - 3);
+    }
+
+    @Test
+    void idleTimeout_cancelsUpstream() throws Exception {
+        stub.delayMillis = 200;
+
+        assertThatThrownBy(() -> answer().timeout(Duration.ofMillis(50)).blockLast())
+                .hasCauseInstanceOf(TimeoutException.class);
+
+        assertThat(stub.finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stub.aborted).isTrue();
+        assertThat(meterRegistry.counter("rag.stream.cancelled").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void providerThatKeepsStreaming_isCountedAsCancelled_butSavesNothing() throws Exception {
+        stub.closesOnCancel = false;
+
+        List<String> tokens = answer().take(3).collectList().block();
+
+        assertThat(tokens).hasSize(3);
+        assertThat(stub.finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stub.sent.get()).isEqualTo(ANSWER_TOKENS);
+        assertThat(meterRegistry.counter("rag.stream.cancelled").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("rag.stream.tokens.saved").counter()).isNull();
+    }
+
+    @Test
+    void completedAnswer_isNotCounted() {
+        List<String> tokens = answer().collectList().block();
+
+        assertThat(tokens).hasSize(ANSWER_TOKENS);
+        assertThat(stub.aborted).isFalse();
+        assertThat(meterRegistry.find("rag.stream.cancelled").counter()).isNull();
+    }
+
+    @Test
+    void callsOutsideAStream_arePassedThrough() throws Exception {
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        model.chat(request(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.countDown();
+            }
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received.get()).isEqualTo(ANSWER_TOKENS);
+    }
+
+    private Flux<String> answer() {
+        // Same shape as the AI service's Flux adapter: the model call starts when the Flux is subscribed
+        return CancellationToken.bind(() -> Flux.create(sink -> model.chat(request(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                sink.next(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                sink.complete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                sink.error(error);
+            }
+        })));
+    }
+
+    private static ChatRequest request() {
+        return ChatRequest.builder().messages(UserMessage.from("What is in the document?")).build();
+    }
+
+    /**
+     * Streams tokens from its own thread. With closesOnCancel it stops once the request's token is cancelled, the way
+     * CancellableHttpClientProvider closes the response (see CancellableHttpClientProviderTest for the real client);
+     * without it, it keeps streaming like a provider client whose transport can't be closed.
+     */
+    private static class StubStreamingModel implements StreamingChatModel {
+
+        final AtomicInteger sent = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean aborted;
+        volatile boolean closesOnCancel = true;
+        volatile long delayMillis = 1;
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            CancellationToken token = CancellationToken.current();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < ANSWER_TOKENS; i++) {
+                        Thread.sleep(delayMillis);
+                        if (closesOnCancel && token != null && token.isCancelled()) {
+                            aborted = true;
+                            token.markAborted();
+                            handler.onError(new CancellationException("Answer stream cancelled by the client"));
+                            return;
+                        }
+                        sent.incrementAndGet();
+                        handler.onPartialResponse("t" + i + " ");
+                    }
+                    handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("done")).build());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+    }
+}
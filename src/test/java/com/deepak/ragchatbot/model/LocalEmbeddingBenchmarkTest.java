@@ -0,0 +1,108 @@
+package com.deepak.ragchatbot.model;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.azure.AzureOpenAiEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Question-embedding latency and batch throughput of the in-process model vs the Azure embedding deployment.
+ * The remote half only runs when AZURE_OPENAI_ENDPOINT, AZURE_OPENAI_API_KEY and
+ * AZURE_OPENAI_EMBEDDING_DEPLOYMENT are set. Excluded from the regular build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class LocalEmbeddingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalEmbeddingBenchmarkTest.class);
+
+    private static final int WARMUP = 10;
+    private static final int QUERIES = 100;
+    private static final int BATCH = 256;
+
+    private static ExecutorService executor;
+    private static EmbeddingModel localModel;
+
+    @BeforeAll
+    static void setUp() {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        localModel = new AllMiniLmL6V2QuantizedEmbeddingModel(executor);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void localModel() {
+        assertThat(localModel.embed("warm up").content().dimension()).isEqualTo(384);
+        report("local", localModel);
+    }
+
+    @Test
+    void remoteModel() {
+        String endpoint = System.getenv("AZURE_OPENAI_ENDPOINT");
+        String apiKey = System.getenv("AZURE_OPENAI_API_KEY");
+        String deployment = System.getenv("AZURE_OPENAI_EMBEDDING_DEPLOYMENT");
+        assumeTrue(endpoint != null && apiKey != null && deployment != null, "Azure embedding deployment not configured");
+
+        report("azure", AzureOpenAiEmbeddingModel.builder()
+                .endpoint(endpoint)
+                .apiKey(apiKey)
+                .deploymentName(deployment)
+                .build());
+    }
+
+    private static void report(String name, EmbeddingModel model) {
+        for (int i = 0; i < WARMUP; i++) {
+            model.embed(question(i));
+        }
+
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            model.embed(question(i));
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        List<TextSegment> segments = new ArrayList<>();
+        IntStream.range(0, BATCH).forEach(i -> segments.add(TextSegment.from(passage(i))));
+        long start = System.nanoTime();
+        model.embedAll(segments);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        logger.info("{}: query p50={}ms p95={}ms p99={}ms, batch of {} passages: {} segments/sec",
+                name,
+                latencies[QUERIES / 2] / 1_000_000.0,
+                latencies[QUERIES * 95 / 100] / 1_000_000.0,
+                latencies[QUERIES * 99 / 100] / 1_000_000.0,
+                BATCH,
+                Math.round(BATCH / seconds));
+    }
+
+    private static String question(int i) {
+        return "What does section " + i + " of the contract say about the notice period?";
+    }
+
+    private static String passage(int i) {
+        return ("Clause " + i + ". Either party may terminate this agreement by giving the other party written notice. ")
+                .repeat(8);
+    }
+}
@@ -0,0 +1,39 @@
+package com.deepak.ragchatbot.model;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MatryoshkaEmbeddingModelTest {
+
+    private final EmbeddingModel fourDimensional = segments -> Response.from(segments.stream()
+            .map(s -> Embedding.from(new float[]{3f, 4f, 12f, 84f}))
+            .toList());
+
+    @Test
+    void embeddings_areTruncated_andRenormalized() {
+        var model = new MatryoshkaEmbeddingModel(fourDimensional, 2);
+
+        Embedding embedding = model.embed(TextSegment.from("ACME")).content();
+
+        assertThat(model.dimension()).isEqualTo(2);
+        assertThat(embedding.vector()[0]).isCloseTo(0.6f, within(1e-6f));
+        assertThat(embedding.vector()[1]).isCloseTo(0.8f, within(1e-6f));
+    }
+
+    @Test
+    void truncatingToMoreDimensionsThanTheModelProduces_fails() {
+        var model = new MatryoshkaEmbeddingModel(fourDimensional, 8);
+
+        assertThatThrownBy(() -> model.embedAll(List.of(TextSegment.from("ACME"))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,155 @@
+package com.deepak.ragchatbot.model;
+
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import com.deepak.ragchatbot.service.retrieval.OrderedContentInjector;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.rag.content.Content;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StablePrefixStreamingChatModelTest {
+
+    private static final String SYSTEM = "You are a helpful assistant.";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicReference<ChatRequest> sent = new AtomicReference<>();
+    private final OrderedContentInjector injector = new OrderedContentInjector();
+
+    @Test
+    void context_goesAfterTheSystemMessage_andBeforeTheHistory() {
+        ChatMessage question = injector.inject(List.of(
+                segment("contract.pdf", 2, "0", "Invoices are payable within sixty days."),
+                segment("contract.pdf", 1, "0", "The notice period is thirty days.")), UserMessage.from("What are the terms?"));
+
+        model(usage(1200, 0)).chat(request(SystemMessage.from(SYSTEM), UserMessage.from("Hi"), AiMessage.from("Hello!"), question), handler());
+
+        List<ChatMessage> messages = sent.get().messages();
+        assertThat(messages).hasSize(5);
+        // The system message stays as it is, the retrieved text comes as a user message of its own
+        assertThat(((SystemMessage) messages.get(0)).text()).isEqualTo(SYSTEM);
+        assertThat(((UserMessage) messages.get(1)).singleText()).isEqualTo(StablePrefixStreamingChatModel.CONTEXT_PREFIX
+                + "The notice period is thirty days.\n\nInvoices are payable within sixty days.");
+        assertThat(((UserMessage) messages.get(2)).singleText()).isEqualTo("Hi");
+        assertThat(((UserMessage) messages.get(4)).singleText()).isEqualTo("What are the terms?");
+    }
+
+    @Test
+    void sameSegmentsInAnotherOrder_giveTheSamePrompt() {
+        TextSegment first = segment("a.pdf", 1, "0", "Alpha.").textSegment();
+        TextSegment second = segment("a.pdf", 1, "1", "Beta.").textSegment();
+        TextSegment third = segment("b.pdf", 1, "0", "Gamma.").textSegment();
+
+        ChatMessage one = injector.inject(List.of(Content.from(third), Content.from(first), Content.from(second)), UserMessage.from("q"));
+        ChatMessage two = injector.inject(List.of(Content.from(second), Content.from(third), Content.from(first)), UserMessage.from("q"));
+
+        assertThat(one).isEqualTo(two);
+        assertThat(((UserMessage) one).singleText()).endsWith("Alpha.\n\nBeta.\n\nGamma.");
+    }
+
+    @Test
+    void contextOfEarlierTurns_isDroppedFromTheHistory() {
+        ChatMessage earlier = injector.inject(List.of(segment("a.pdf", 1, "0", "Alpha.")), UserMessage.from("First?"));
+        ChatMessage question = injector.inject(List.of(segment("a.pdf", 1, "0", "Alpha.")), UserMessage.from("Second?"));
+
+        model(usage(1200, 0)).chat(request(SystemMessage.from(SYSTEM), earlier, AiMessage.from("One."), question), handler());
+
+        assertThat(((UserMessage) sent.get().messages().get(2)).singleText()).isEqualTo("First?");
+    }
+
+    @Test
+    void messagesWithoutContext_areSentAsIs() {
+        ChatRequest request = request(SystemMessage.from(SYSTEM), UserMessage.from("Hello"));
+
+        model(usage(10, 0)).chat(request, handler());
+
+        assertThat(sent.get()).isSameAs(request);
+    }
+
+    @Test
+    void cachedTokens_areRecorded() {
+        model(new CachingUsage(1500, 20, 1024)).chat(request(SystemMessage.from(SYSTEM), UserMessage.from("Hello")), handler());
+
+        assertThat(meterRegistry.counter("rag.prompt.tokens", "type", "input").count()).isEqualTo(1500.0);
+        assertThat(meterRegistry.counter("rag.prompt.tokens", "type", "cached").count()).isEqualTo(1024.0);
+        assertThat(meterRegistry.timer("rag.prompt.first.token", "cached", "true").count()).isEqualTo(1);
+        assertThat(StablePrefixStreamingChatModel.cachedTokens(new TokenUsage(10, 5))).isZero();
+    }
+
+    private StreamingChatModel model(TokenUsage tokenUsage) {
+        StreamingChatModel stub = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                sent.set(chatRequest);
+                handler.onPartialResponse("ok");
+                handler.onCompleteResponse(ChatResponse.builder()
+                        .aiMessage(AiMessage.from("ok"))
+                        .tokenUsage(tokenUsage)
+                        .build());
+            }
+        };
+        return new StablePrefixStreamingChatModel(stub, () -> meterRegistry);
+    }
+
+    private static ChatRequest request(ChatMessage... messages) {
+        return ChatRequest.builder().messages(messages).build();
+    }
+
+    private static TokenUsage usage(int input, int output) {
+        return new TokenUsage(input, output);
+    }
+
+    private static Content segment(String fileName, int page, String index, String text) {
+        return Content.from(TextSegment.from(text, new Metadata()
+                .put(DocumentIndexer.FILE_NAME, fileName)
+                .put(DocumentIndexer.PAGE, page)
+                .put("index", index)));
+    }
+
+    private static StreamingChatResponseHandler handler() {
+        return new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+    }
+
+    public static class CachingUsage extends TokenUsage {
+
+        private final int cachedTokens;
+
+        CachingUsage(int input, int output, int cachedTokens) {
+            super(input, output);
+            this.cachedTokens = cachedTokens;
+        }
+
+        public Details inputTokensDetails() {
+            return new Details(cachedTokens);
+        }
+    }
+
+    public record Details(Integer cachedTokens) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.deepak.ragchatbot.model.routing;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uses local stub deployments instead of Azure endpoints.
+ */
+class LatencyAwareRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static EmbeddingModel stub(float value, long delayMillis, AtomicInteger calls) {
+        return segments -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(segments.stream().map(s -> Embedding.from(new float[]{value})).toList());
+        };
+    }
+
+    private static EmbeddingModel rateLimited(AtomicInteger calls) {
+        return segments -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("Status code 429, Too Many Requests");
+        };
+    }
+
+    private LatencyAwareRouter<EmbeddingModel> router(EmbeddingModel first, EmbeddingModel second) {
+        return new LatencyAwareRouter<>(List.of(
+                new LatencyAwareRouter.Route<>("eastus", first, new DeploymentStats(0.2, 0, System.nanoTime())),
+                new LatencyAwareRouter.Route<>("westeurope", second, new DeploymentStats(0.2, 0, System.nanoTime()))),
+                Duration.ofSeconds(10), meterRegistry, System::nanoTime);
+    }
+
+    @Test
+    void slowPrimary_isHedged_andTheFasterAnswerWins() {
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger fastCalls = new AtomicInteger();
+        var router = router(stub(1f, 2000, slowCalls), stub(2f, 10, fastCalls));
+        // Teach the router that "eastus" is the best deployment so it is chosen as primary
+        router.recordSuccess(router.ordered().stream().filter(r -> r.name().equals("eastus")).findFirst().orElseThrow(), 1_000_000, 0L);
+        router.recordSuccess(router.ordered().stream().filter(r -> r.name().equals("westeurope")).findFirst().orElseThrow(), 5_000_000, 0L);
+        var model = new RoutingEmbeddingModel(router, Executors.newVirtualThreadPerTaskExecutor(), Duration.ofMillis(50));
+
+        long start = System.nanoTime();
+        Embedding embedding = model.embed(TextSegment.from("ACME")).content();
+
+        assertThat(embedding.vector()).containsExactly(2f);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(slowCalls).hasValue(1);
+        assertThat(fastCalls).hasValue(1);
+    }
+
+    @Test
+    void rateLimitedDeployment_failsOver_andIsAvoidedDuringCooldown() {
+        AtomicInteger throttledCalls = new AtomicInteger();
+        AtomicInteger healthyCalls = new AtomicInteger();
+        var router = router(rateLimited(throttledCalls), stub(3f, 0, healthyCalls));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(router.call(m -> m.embed("ACME").content(), e -> 0L).vector()).containsExactly(3f);
+        }
+
+        assertThat(throttledCalls.get()).isLessThanOrEqualTo(1);
+        assertThat(healthyCalls).hasValue(5);
+        assertThat(meterRegistry.get("rag.routing.errors").tag("type", "rate_limit").counter().count())
+                .isEqualTo(throttledCalls.get());
+    }
+
+    @Test
+    void cancelledStream_isNeitherAFailureNorRetried() {
+        AtomicInteger secondCalls = new AtomicInteger();
+        StreamingChatModel cancelled = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                // What the provider reports once CancellableHttpClientProvider cut the response
+                handler.onError(new CancellationException("Answer stream cancelled by the client"));
+            }
+        };
+        StreamingChatModel second = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                secondCalls.incrementAndGet();
+            }
+        };
+        var router = new LatencyAwareRouter<>(List.of(
+                new LatencyAwareRouter.Route<>("eastus", cancelled, new DeploymentStats(0.2, 0, System.nanoTime())),
+                new LatencyAwareRouter.Route<>("westeurope", second, new DeploymentStats(0.2, 0, System.nanoTime()))),
+                Duration.ofSeconds(10), meterRegistry, System::nanoTime);
+        router.recordSuccess(router.ordered().stream().filter(r -> r.name().equals("eastus")).findFirst().orElseThrow(), 1_000_000, 0L);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        new RoutingStreamingChatModel(router).chat(ChatRequest.builder().messages(UserMessage.from("ACME?")).build(),
+                new StreamingChatResponseHandler() {
+                    @Override
+                    public void onPartialResponse(String partialResponse) {
+                    }
+
+                    @Override
+                    public void onCompleteResponse(ChatResponse completeResponse) {
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        error.set(throwable);
+                    }
+                });
+
+        assertThat(error.get()).isInstanceOf(CancellationException.class);
+        assertThat(secondCalls).hasValue(0);
+        assertThat(meterRegistry.find("rag.routing.errors").counter()).isNull();
+    }
+}
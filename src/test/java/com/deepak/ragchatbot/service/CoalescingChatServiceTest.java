@@ -0,0 +1,151 @@
+package com.deepak.ragchatbot.service;
+
+import com.deepak.ragchatbot.assistant.ChatAssistant;
+import com.deepak.ragchatbot.config.AdmissionProperties;
+import com.deepak.ragchatbot.service.admission.AdmissionControlService;
+import com.deepak.ragchatbot.service.admission.AdmissionRejectedException;
+import com.deepak.ragchatbot.store.PostgresChatMemoryStore;
+import dev.langchain4j.memory.ChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingChatServiceTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final Queue<String> memoryIds = new ConcurrentLinkedQueue<>();
+    private final Queue<Object> evicted = new ConcurrentLinkedQueue<>();
+    private final ChatAssistant slowAssistant = new ChatAssistant() {
+        @Override
+        public Flux<String> chat(String conversationId, String message) {
+            upstreamCalls.incrementAndGet();
+            memoryIds.add(conversationId);
+            return Flux.just("ACME", "-RAG", "-CHECK", "-42").delayElements(Duration.ofMillis(50));
+        }
+
+        @Override
+        public ChatMemory getChatMemory(Object memoryId) {
+            return null;
+        }
+
+        @Override
+        public boolean evictChatMemory(Object memoryId) {
+            return evicted.add(memoryId);
+        }
+    };
+    private final AdmissionControlService admissionDisabled = new AdmissionControlService(
+            new AdmissionProperties(false, 60000, Map.of(), 200, Duration.ofSeconds(5), 1500, "X-Tenant-Id"),
+            new SimpleMeterRegistry(),
+            "default");
+    private final CoalescingChatService service = new CoalescingChatService(slowAssistant, corpusVersion, admissionDisabled);
+
+    @Test
+    void identicalConcurrentQuestions_shareOneUpstreamCall_andLateSubscribersGetTheFullAnswer() {
+        Mono<String> first = service.chat("What is ACME?").collectList().map(tokens -> String.join("", tokens));
+        Mono<String> late = Mono.delay(Duration.ofMillis(120))
+                .then(service.chat("  what is   ACME? ").collectList().map(tokens -> String.join("", tokens)));
+
+        List<String> answers = Flux.merge(first, late).collectList().block();
+
+        assertThat(answers).containsOnly("ACME-RAG-CHECK-42");
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(service.inFlightCount()).isZero();
+    }
+
+    @Test
+    void newCorpusVersion_orFinishedAnswer_startsANewUpstreamCall() {
+        Flux<String> first = service.chat("What is ACME?");
+        first.blockLast();
+
+        corpusVersion.increment();
+        service.chat("What is ACME?").blockLast();
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void onlyTheRequestStartingTheUpstreamCall_isAdmitted_andRejectionsComeBeforeTheStream() {
+        // 1000-token burst, no wait queue: the first question uses the whole budget
+        AdmissionControlService admission = new AdmissionControlService(
+                new AdmissionProperties(true, 6000, Map.of(), 0, Duration.ofSeconds(5), 1500, "X-Tenant-Id"),
+                new SimpleMeterRegistry(),
+                "default");
+        CoalescingChatService limited = new CoalescingChatService(slowAssistant, corpusVersion, admission);
+
+        Mono<String> first = limited.admit("What is ACME?", "t1", null).block().collectList()
+                .map(tokens -> String.join("", tokens)).cache();
+        first.subscribe();
+        Flux<String> coalesced = limited.admit("what is acme?", "t2", null).block();
+
+        assertThatThrownBy(() -> limited.admit("Who is ACME?", "t3", null).block())
+                .isInstanceOf(AdmissionRejectedException.class);
+        assertThat(String.join("", coalesced.collectList().block())).isEqualTo("ACME-RAG-CHECK-42");
+        assertThat(first.block()).isEqualTo("ACME-RAG-CHECK-42");
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void identicalQuestionsAdmittedBeforeEitherStreams_areChargedOnce_andGetTheSameAnswer() {
+        // 1000-token burst, no wait queue: room for a single question
+        AdmissionControlService admission = new AdmissionControlService(
+                new AdmissionProperties(true, 6000, Map.of(), 0, Duration.ofSeconds(5), 1500, "X-Tenant-Id"),
+                new SimpleMeterRegistry(),
+                "default");
+        CoalescingChatService limited = new CoalescingChatService(slowAssistant, corpusVersion, admission);
+
+        Flux<String> first = limited.admit("What is ACME?", "t1", null).block();
+        Flux<String> second = limited.admit("what is acme?", "t2", null).block();
+
+        assertThat(second).isSameAs(first);
+        List<String> answers = Flux.merge(first.collectList(), second.collectList())
+                .map(tokens -> String.join("", tokens))
+                .collectList()
+                .block();
+        assertThat(answers).containsExactly("ACME-RAG-CHECK-42", "ACME-RAG-CHECK-42");
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void questionsOfDifferentConversations_areNeverCoalesced_andUseTheirOwnTenantScopedMemory() {
+        Flux<String> first = service.admit("What is ACME?", "t1", "conversation-a").block();
+        Flux<String> second = service.admit("What is ACME?", "t1", "conversation-b").block();
+
+        Flux.merge(first, second).blockLast();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(memoryIds).containsExactlyInAnyOrder("t1/conversation-a", "t1/conversation-b");
+        assertThat(evicted).isEmpty();
+    }
+
+    @Test
+    void oneOffQuestions_getAFreshMemory_thatIsEvictedWhenTheAnswerEnds() throws InterruptedException {
+        service.admit("What is ACME?", "t1", null).block().blockLast();
+        // Eviction runs in doFinally, right after the last subscriber saw the completion
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (evicted.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(memoryIds).singleElement().asString().startsWith(PostgresChatMemoryStore.ONE_OFF_PREFIX);
+        assertThat(evicted).containsExactlyElementsOf(memoryIds);
+    }
+
+    @Test
+    void malformedConversationIds_areRejected() {
+        assertThatThrownBy(() -> service.admit("What is ACME?", "t1", "../other-tenant/chat").block())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(upstreamCalls).hasValue(0);
+    }
+}
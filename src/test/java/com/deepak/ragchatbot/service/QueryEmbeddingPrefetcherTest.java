@@ -0,0 +1,52 @@
+package com.deepak.ragchatbot.service;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryEmbeddingPrefetcherTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final EmbeddingModel model = new EmbeddingModel() {
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            calls.incrementAndGet();
+            return Response.from(textSegments.stream()
+                    .map(segment -> Embedding.from(new float[]{segment.text().length()}))
+                    .toList());
+        }
+    };
+
+    @Test
+    void prefetchedQuestion_isEmbeddedOnce_andOnlyUsedOnce() {
+        QueryEmbeddingPrefetcher prefetcher = new QueryEmbeddingPrefetcher(model);
+
+        prefetcher.prefetch("what is acme?");
+        Embedding first = prefetcher.embeddingModel().embed("what is acme?").content();
+
+        assertThat(first.vector()).containsExactly(13f);
+        assertThat(calls).hasValue(1);
+
+        prefetcher.embeddingModel().embed("what is acme?");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void questionWithoutPrefetch_goesStraightToTheModel() {
+        QueryEmbeddingPrefetcher prefetcher = new QueryEmbeddingPrefetcher(model);
+
+        prefetcher.prefetch("other question");
+        prefetcher.discard("other question");
+        Embedding embedding = prefetcher.embeddingModel().embed("hi").content();
+
+        assertThat(embedding.vector()).containsExactly(2f);
+    }
+}
@@ -0,0 +1,88 @@
+package com.deepak.ragchatbot.service;
+
+import com.deepak.ragchatbot.config.ProfilerProperties;
+import com.deepak.ragchatbot.service.extractor.DocxTextExtractor;
+import com.deepak.ragchatbot.service.extractor.PdfTextExtractor;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.store.blob.BlobStore;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RagChatbotServiceTest {
+
+    private final EmbeddingStoreIngestor ingestor = mock(EmbeddingStoreIngestor.class);
+    @SuppressWarnings("unchecked")
+    private final EmbeddingStore<TextSegment> store = mock(EmbeddingStore.class);
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final RagChatbotService service = new RagChatbotService(ingestor, store,
+            List.of(new PdfTextExtractor(), new DocxTextExtractor()), corpusVersion,
+            new RequestProfiler(new ProfilerProperties(false, 512)),
+            mock(BlobStore.class), mock(ObjectProvider.class));
+
+    @Test
+    void multipleFiles_areIngested_andFailuresReportedPerFile() throws Exception {
+        List<UploadResult> results = service.saveSegments(List.of(
+                docx("a.docx", "Alpha document"),
+                resource("notes.xyz", "not supported".getBytes()),
+                docx("b.docx", "Beta document")), 2);
+
+        assertThat(results).extracting(UploadResult::fileName).containsExactly("a.docx", "notes.xyz", "b.docx");
+        assertThat(results).extracting(UploadResult::status).containsExactly(
+                UploadResult.Status.INDEXED, UploadResult.Status.FAILED, UploadResult.Status.INDEXED);
+        assertThat(results.get(1).error()).contains("Unsupported file type");
+        verify(store, times(1)).removeAll();
+        verify(ingestor, times(2)).ingest(anyList());
+    }
+
+    @Test
+    void emptyDocument_isReportedAsEmpty() throws Exception {
+        List<UploadResult> results = service.saveSegments(List.of(docx("blank.docx", " ")), 4);
+
+        assertThat(results).singleElement().extracting(UploadResult::status).isEqualTo(UploadResult.Status.EMPTY);
+        verify(ingestor, never()).ingest(anyList());
+    }
+
+    @Test
+    void allFilesFailing_rethrowsTheFirstFailure() {
+        assertThatThrownBy(() -> service.saveSegments(List.of(
+                resource("a.xyz", new byte[1]),
+                resource("b.xyz", new byte[1])), 2))
+                .isInstanceOf(UnsupportedOperationException.class)
+                .hasMessageContaining("a.xyz");
+    }
+
+    private static Resource docx(String name, String text) throws IOException {
+        try (var doc = new XWPFDocument(); var out = new ByteArrayOutputStream()) {
+            doc.createParagraph().createRun().setText(text);
+            doc.write(out);
+            return resource(name, out.toByteArray());
+        }
+    }
+
+    private static Resource resource(String name, byte[] bytes) {
+        return new ByteArrayResource(bytes) {
+            @Override
+            public String getFilename() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.deepak.ragchatbot.service.admission;
+
+import com.deepak.ragchatbot.config.AdmissionProperties;
+import com.deepak.ragchatbot.config.RoutingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlServiceTest {
+
+    // 6000 tokens per minute: 1000-token burst, no wait queue
+    private final AdmissionProperties properties =
+            new AdmissionProperties(true, 6000, Map.of(), 0, Duration.ofSeconds(5), 1500, "X-Tenant-Id");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionControlService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void withoutRouting_chatRequestsUseTheStreamingDeploymentsBucket() {
+        service = new AdmissionControlService(properties, meterRegistry, "gpt-4o");
+
+        service.admit("gpt-4o", "t1", 1000).block();
+
+        assertThatThrownBy(() -> service.admit("t2", "What is ACME?").block()).isInstanceOf(AdmissionRejectedException.class);
+        assertThat(meterRegistry.find("rag.admission.queue.depth").tag("deployment", "gpt-4o").gauge()).isNotNull();
+    }
+
+    @Test
+    void withRouting_chatRequestsShareOneBucketSizedForTheWholePool() {
+        RoutingProperties routing = new RoutingProperties(true, List.of(
+                new RoutingProperties.Deployment("eu", "https://eu", "key", "gpt-4o", null, 6000),
+                new RoutingProperties.Deployment("us", "https://us", "key", "gpt-4o", null, 0),
+                new RoutingProperties.Deployment("embeddings", "https://emb", "key", null, "ada", 60000)),
+                0.2, Duration.ofSeconds(10), Duration.ofMillis(150));
+        service = new AdmissionControlService(properties, meterRegistry, "gpt-4o", routing);
+
+        // 12000 tokens per minute across eu and us (admission.tokens-per-minute): a 2000-token burst,
+        // where a single deployment's 1000-token bucket would reject the second request
+        service.admit("t1", "What is ACME?").block();
+        service.admit(AdmissionControlService.ROUTED, "t2", 300).block();
+
+        assertThatThrownBy(() -> service.admit("t3", "What is ACME?").block()).isInstanceOf(AdmissionRejectedException.class);
+        assertThat(meterRegistry.find("rag.admission.queue.depth").tag("deployment", AdmissionControlService.ROUTED).gauge())
+                .isNotNull();
+        assertThat(meterRegistry.find("rag.admission.queue.depth").tag("deployment", "gpt-4o").gauge()).isNull();
+    }
+}
@@ -0,0 +1,63 @@
+package com.deepak.ragchatbot.service.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FairTokenSchedulerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    // 6000 tokens/minute => burst of 1000 tokens, refills 100 tokens per second
+    private FairTokenScheduler scheduler(int maxQueueSize, long maxWaitSeconds) {
+        return new FairTokenScheduler(6000, maxQueueSize, TimeUnit.SECONDS.toNanos(maxWaitSeconds), now::get);
+    }
+
+    @Test
+    void waitingTenants_areServedRoundRobin() {
+        FairTokenScheduler scheduler = scheduler(10, 60);
+        assertThat(scheduler.acquire("noisy", 1000)).isCompleted();
+
+        CompletableFuture<Void> noisy1 = scheduler.acquire("noisy", 100);
+        CompletableFuture<Void> noisy2 = scheduler.acquire("noisy", 100);
+        CompletableFuture<Void> quiet = scheduler.acquire("quiet", 100);
+        assertThat(scheduler.queued()).isEqualTo(3);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        scheduler.drain();
+
+        assertThat(noisy1).isCompleted();
+        assertThat(quiet).isCompleted();
+        assertThat(noisy2).isNotCompleted();
+    }
+
+    @Test
+    void requestsThatCannotStartBeforeTheDeadline_areRejectedOnArrival() {
+        FairTokenScheduler scheduler = scheduler(10, 1);
+        scheduler.acquire("a", 1000);
+
+        CompletableFuture<Void> tooLate = scheduler.acquire("b", 500);
+
+        assertThatThrownBy(tooLate::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(AdmissionRejectedException.class);
+        assertThat(scheduler.queued()).isZero();
+    }
+
+    @Test
+    void fullQueue_rejectsImmediately() {
+        FairTokenScheduler scheduler = scheduler(1, 60);
+        scheduler.acquire("a", 1000);
+        scheduler.acquire("a", 10);
+
+        CompletableFuture<Void> rejected = scheduler.acquire("b", 10);
+
+        assertThat(rejected).isCompletedExceptionally();
+    }
+}
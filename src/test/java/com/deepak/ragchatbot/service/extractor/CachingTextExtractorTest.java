@@ -0,0 +1,108 @@
+package com.deepak.ragchatbot.service.extractor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingTextExtractorTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void sameBytes_areParsedOnce_andKeepTheirStructure() {
+        AtomicInteger parses = new AtomicInteger();
+        TextExtractor counting = new TextExtractor() {
+            @Override
+            public boolean supports(String filename) {
+                return true;
+            }
+
+            @Override
+            public Optional<String> extract(InputStream inputStream) {
+                return Optional.of("page one\npage two");
+            }
+
+            @Override
+            public Optional<ExtractedText> extractStructured(InputStream inputStream) {
+                parses.incrementAndGet();
+                return Optional.of(new ExtractedText(List.of(
+                        new ExtractedText.Section(null, 1, "page one"),
+                        new ExtractedText.Section("Intro", 2, "page two"))));
+            }
+        };
+        CachingTextExtractor extractor = new CachingTextExtractor(counting, new ExtractedTextCache(tmp, 1024 * 1024));
+
+        Optional<ExtractedText> first = extractor.extractStructured(stream("same bytes"));
+        Optional<ExtractedText> second = extractor.extractStructured(stream("same bytes"));
+        // a fresh cache over the same directory still hits
+        Optional<String> reopened = new CachingTextExtractor(counting, new ExtractedTextCache(tmp, 1024 * 1024))
+                .extract(stream("same bytes"));
+
+        assertThat(parses).hasValue(1);
+        assertThat(second).isEqualTo(first);
+        assertThat(second.get().sections().get(1).title()).isEqualTo("Intro");
+        assertThat(reopened).contains("page one\npage two");
+
+        extractor.extractStructured(stream("other bytes"));
+        assertThat(parses).hasValue(2);
+    }
+
+    @Test
+    void plainText_isExactlyWhatTheWrappedExtractorReturns() {
+        AtomicInteger parses = new AtomicInteger();
+        TextExtractor pdfLike = new TextExtractor() {
+            @Override
+            public boolean supports(String filename) {
+                return true;
+            }
+
+            @Override
+            public Optional<String> extract(InputStream inputStream) {
+                parses.incrementAndGet();
+                return Optional.of("Title\r\npage one\r\n\r\npage two\r\n");
+            }
+
+            @Override
+            public Optional<ExtractedText> extractStructured(InputStream inputStream) {
+                parses.incrementAndGet();
+                return Optional.of(new ExtractedText(List.of(
+                        new ExtractedText.Section(null, 1, "page one"),
+                        new ExtractedText.Section(null, 2, "page two"))));
+            }
+        };
+        CachingTextExtractor extractor = new CachingTextExtractor(pdfLike, new ExtractedTextCache(tmp, 1024 * 1024));
+
+        Optional<ExtractedText> structured = extractor.extractStructured(stream("pdf bytes"));
+        Optional<String> first = extractor.extract(stream("pdf bytes"));
+        Optional<String> second = extractor.extract(stream("pdf bytes"));
+
+        assertThat(first).contains("Title\r\npage one\r\n\r\npage two\r\n");
+        assertThat(second).isEqualTo(first);
+        assertThat(structured.get().text()).isEqualTo("page one\npage two");
+        assertThat(parses).hasValue(2);
+    }
+
+    @Test
+    void cacheOverItsLimit_evictsLeastRecentlyUsedEntries() {
+        ExtractedTextCache cache = new ExtractedTextCache(tmp, 400);
+        for (int i = 0; i < 20; i++) {
+            cache.put(ExtractedTextCache.hash(new byte[]{(byte) i}), ExtractedText.of("entry " + i));
+        }
+
+        assertThat(cache.sizeBytes()).isLessThanOrEqualTo(400);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,10 @@
 package com.deepak.ragchatbot.service.extractor;
 
+import com.deepak.ragchatbot.config.ProfilerProperties;
+import com.deepak.ragchatbot.service.CorpusVersion;
 import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.store.blob.BlobStore;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
@@ -12,6 +16,7 @@ import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 
@@ -45,7 +50,11 @@ public class TextExtractorTest {
                 List.of(
                         new PdfTextExtractor(),
                         new DocxTextExtractor()
-                ));
+                ),
+                new CorpusVersion(),
+                new RequestProfiler(new ProfilerProperties(false, 512)),
+                mock(BlobStore.class),
+                mock(ObjectProvider.class));
     }
 
     @Test
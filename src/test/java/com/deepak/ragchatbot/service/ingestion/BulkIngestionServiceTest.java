@@ -0,0 +1,126 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.BulkIngestionProperties;
+import com.deepak.ragchatbot.config.ProfilerProperties;
+import com.deepak.ragchatbot.eval.HashingEmbeddingModel;
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.extractor.DocxTextExtractor;
+import com.deepak.ragchatbot.service.extractor.PdfTextExtractor;
+import com.deepak.ragchatbot.service.extractor.TextExtractor;
+import com.deepak.ragchatbot.service.profiling.RequestProfiler;
+import com.deepak.ragchatbot.store.blob.BlobStore;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class BulkIngestionServiceTest {
+
+    private static final String PARAGRAPH = "The supplier delivers the goods within thirty days of the order. ";
+
+    @TempDir
+    Path tmp;
+
+    private final EmbeddingModel embeddingModel = new HashingEmbeddingModel(64);
+    private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+
+    @Test
+    void directory_isIndexed_andASecondRunSkipsUnchangedFiles() throws Exception {
+        Path corpus = Files.createDirectories(tmp.resolve("corpus"));
+        docx(corpus.resolve("a.docx"), PARAGRAPH.repeat(4));
+        docx(Files.createDirectories(corpus.resolve("sub")).resolve("b.docx"), PARAGRAPH.repeat(2));
+        Files.writeString(corpus.resolve("notes.txt"), "not supported");
+        BulkIngestionService service = service(corpus.toString());
+
+        BulkIngestionReport first = service.ingest(corpus);
+        assertThat(first.status()).isEqualTo(BulkIngestionReport.Status.COMPLETED);
+        assertThat(first.documents()).isEqualTo(2);
+        assertThat(first.failed()).isZero();
+        assertThat(segmentsOf(corpus.resolve("a.docx")).size() + segmentsOf(corpus.resolve("sub/b.docx")).size()).isEqualTo((int) first.segments());
+
+        BulkIngestionReport second = service.ingest(corpus);
+        assertThat(second.documents()).isZero();
+        assertThat(second.skipped()).isEqualTo(2);
+    }
+
+    @Test
+    void documentThatShrinks_losesItsTrailingSegments() throws Exception {
+        Path corpus = Files.createDirectories(tmp.resolve("corpus"));
+        Path file = corpus.resolve("a.docx");
+        docx(file, PARAGRAPH.repeat(6));
+        BulkIngestionService service = service(corpus.toString());
+        service.ingest(corpus);
+        int before = segmentsOf(corpus.resolve("a.docx")).size();
+
+        docx(file, PARAGRAPH);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        service.ingest(corpus);
+
+        assertThat(before).isGreaterThan(1);
+        assertThat(segmentsOf(corpus.resolve("a.docx"))).singleElement()
+                .extracting(match -> match.embedded().text()).asString().contains("thirty days");
+    }
+
+    @Test
+    void adminDirectories_mustStayUnderTheRoot() throws Exception {
+        Path corpus = Files.createDirectories(tmp.resolve("corpus"));
+        Files.createDirectories(corpus.resolve("contracts"));
+        Files.createDirectories(tmp.resolve("private"));
+
+        assertThat(service(corpus.toString()).resolveDirectory("contracts")).isEqualTo(corpus.resolve("contracts").toRealPath());
+        assertThatThrownBy(() -> service(corpus.toString()).resolveDirectory("../private"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service(corpus.toString()).resolveDirectory(tmp.resolve("private").toString()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service("").resolveDirectory(corpus.toString()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BulkIngestionService service(String root) {
+        List<TextExtractor> extractors = List.of(new PdfTextExtractor(), new DocxTextExtractor());
+        RagChatbotService ragChatbotService = new RagChatbotService(mock(EmbeddingStoreIngestor.class), store,
+                extractors, new CorpusVersion(), new RequestProfiler(new ProfilerProperties(false, 512)),
+                mock(BlobStore.class), mock(ObjectProvider.class));
+        DocumentIndexer documentIndexer = new DocumentIndexer(DocumentSplitters.recursive(80, 0), embeddingModel, store,
+                new CorpusVersion(), mock(ObjectProvider.class));
+        return new BulkIngestionService(ragChatbotService, documentIndexer, extractors,
+                new BulkIngestionProperties(2, tmp.resolve("checkpoints").toString(), root));
+    }
+
+    private List<EmbeddingMatch<TextSegment>> segmentsOf(Path file) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddingModel.embed("goods").content())
+                .filter(metadataKey(DocumentIndexer.DOCUMENT_ID).isEqualTo(DocumentIndexer.bulkId(file)))
+                .maxResults(1000)
+                .minScore(0.0)
+                .build()).matches();
+    }
+
+    private static void docx(Path file, String text) throws IOException {
+        try (var doc = new XWPFDocument(); OutputStream out = Files.newOutputStream(file)) {
+            doc.createParagraph().createRun().setText(text);
+            doc.write(out);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.eval.HashingEmbeddingModel;
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import com.deepak.ragchatbot.store.blob.BlobResource;
+import com.deepak.ragchatbot.store.blob.FileSystemBlobStore;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DocumentIndexerTest {
+
+    private final EmbeddingModel embeddingModel = new HashingEmbeddingModel(128);
+    private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reindexing_replacesTheSegments_butLeavesTheSummariesToTheirOwnRefresh() {
+        DocumentIndexer indexer = new DocumentIndexer(DocumentSplitters.recursive(80, 0), embeddingModel, store,
+                corpusVersion, mock(ObjectProvider.class));
+        TextSegment summary = TextSegment.from("A supply contract.", new Metadata()
+                .put(DocumentIndexer.DOCUMENT_ID, "contract")
+                .put(SummaryIndexer.NODE_TYPE, SummaryIndexer.SUMMARY));
+        indexer.index("contract", "contract.pdf", "The supplier delivers the goods within ten days. Delivery is free of charge.");
+        store.add(embeddingModel.embed(summary).content(), summary);
+
+        indexer.index("contract", "contract.pdf", "The supplier delivers the goods within twenty days.");
+
+        assertThat(entries()).extracting(TextSegment::text)
+                .containsExactlyInAnyOrder("The supplier delivers the goods within twenty days.", "A supply contract.");
+        assertThat(corpusVersion.current()).isEqualTo(2);
+    }
+
+    @Test
+    void documentIds_identifyTheContentOfUploads_andThePathOfBulkFiles(@TempDir Path tmp) throws IOException {
+        byte[] content = "The supplier delivers the goods within ten days.".getBytes(StandardCharsets.UTF_8);
+        FileSystemBlobStore blobs = new FileSystemBlobStore(tmp.resolve("blobs"), false, Duration.ofDays(1), 0, Duration.ZERO);
+        try {
+            BlobResource blob = blobs.put(new ByteArrayInputStream(content), "contract.pdf");
+
+            assertThat(DocumentIndexer.uploadId(blob)).isEqualTo("upload:" + blob.hash());
+            assertThat(DocumentIndexer.uploadId(new ByteArrayResource(content))).isEqualTo(DocumentIndexer.uploadId(blob));
+            assertThat(DocumentIndexer.uploadId(new ByteArrayResource("other".getBytes(StandardCharsets.UTF_8))))
+                    .isNotEqualTo(DocumentIndexer.uploadId(blob));
+        } finally {
+            blobs.shutdown();
+        }
+        assertThat(DocumentIndexer.bulkId(tmp.resolve("corpus/../corpus/contract.pdf")))
+                .isEqualTo("bulk:" + tmp.toAbsolutePath().resolve("corpus/contract.pdf"));
+    }
+
+    private List<TextSegment> entries() {
+        return store.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(embeddingModel.embed("goods").content())
+                        .filter(metadataKey(DocumentIndexer.DOCUMENT_ID).isEqualTo("contract"))
+                        .maxResults(100)
+                        .minScore(0.0)
+                        .build())
+                .matches().stream()
+                .map(EmbeddingMatch::embedded)
+                .toList();
+    }
+}
@@ -0,0 +1,54 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestionCheckpointTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void completedFiles_surviveReopen_andChangedFilesAreNotSkipped() throws Exception {
+        Path log = tmp.resolve("checkpoints").resolve("run.log");
+        String done = IngestionCheckpoint.key("a/acme.docx", 120, 1000);
+
+        try (IngestionCheckpoint checkpoint = IngestionCheckpoint.open(log)) {
+            checkpoint.markDone(done);
+            checkpoint.markDone(done);
+        }
+
+        try (IngestionCheckpoint resumed = IngestionCheckpoint.open(log)) {
+            assertThat(resumed.isDone(done)).isTrue();
+            assertThat(resumed.isDone(IngestionCheckpoint.key("a/acme.docx", 121, 2000))).isFalse();
+            assertThat(resumed.completedCount()).isEqualTo(1);
+        }
+        assertThat(Files.readAllLines(log)).hasSize(1);
+    }
+
+    @Test
+    void tornLastLine_isDropped_andTheNextAppendStartsOnItsOwnLine() throws Exception {
+        Path log = tmp.resolve("run.log");
+        String done = IngestionCheckpoint.key("a/acme.docx", 120, 1000);
+        String next = IngestionCheckpoint.key("b/beta.pdf", 300, 2000);
+        Files.writeString(log, done + "\n" + "b/beta.pdf\t30");
+
+        try (IngestionCheckpoint checkpoint = IngestionCheckpoint.open(log)) {
+            assertThat(checkpoint.isDone(done)).isTrue();
+            assertThat(checkpoint.isDone("b/beta.pdf\t30")).isFalse();
+            checkpoint.markDone(next);
+        }
+
+        try (IngestionCheckpoint resumed = IngestionCheckpoint.open(log)) {
+            assertThat(resumed.isDone(done)).isTrue();
+            assertThat(resumed.isDone(next)).isTrue();
+            assertThat(resumed.completedCount()).isEqualTo(2);
+        }
+        assertThat(Files.readAllLines(log)).containsExactly(done, next);
+    }
+}
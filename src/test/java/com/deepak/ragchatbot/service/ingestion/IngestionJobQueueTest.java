@@ -0,0 +1,95 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.IngestionQueueProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionJobQueueTest {
+
+    private static final UUID ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final IngestionJobQueue queue = new IngestionJobQueue(jdbcTemplate, new IngestionQueueProperties(
+            true, "ingestion_jobs", 2, Duration.ofMillis(10), Duration.ofMinutes(2), Duration.ofSeconds(20), 3,
+            Duration.ofMinutes(2)));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_takesTheOldestRunnableOrExpiredJob_withSkipLocked_andLeasesIt() {
+        queue.claim("node/0");
+
+        verify(jdbcTemplate).query(
+                contains("WHERE ((status = 'PENDING' AND run_after <= now()) OR (status = 'RUNNING' AND locked_until < now())) "
+                        + "AND attempts < ? ORDER BY created_at FOR UPDATE SKIP LOCKED LIMIT 1"),
+                any(RowMapper.class), eq("node/0"), eq(120.0), eq(3));
+    }
+
+    @Test
+    void heartbeat_extendsTheLease_onlyWhileTheWorkerStillHoldsIt() {
+        when(jdbcTemplate.update(contains("SET locked_until = now() + make_interval(secs => ?)"), eq(120.0), eq(ID), eq("node/0")))
+                .thenReturn(1);
+
+        assertThat(queue.heartbeat(ID, "node/0")).isTrue();
+        // Another worker took the job over after the lease expired
+        assertThat(queue.heartbeat(ID, "node/1")).isFalse();
+        verify(jdbcTemplate).update(contains("WHERE id = ? AND status = 'RUNNING' AND locked_by = ?"),
+                eq(120.0), eq(ID), eq("node/1"));
+    }
+
+    @Test
+    void fail_retriesWithBackoffUntilMaxAttempts_andOnlyForTheLeaseHolder() {
+        queue.fail(ID, "node/0", "timeout", true);
+
+        verify(jdbcTemplate).update(
+                "UPDATE ingestion_jobs SET status = CASE WHEN ? AND attempts < ? THEN 'PENDING' ELSE 'FAILED' END, "
+                        + "run_after = now() + make_interval(secs => 5 * attempts), locked_by = NULL, locked_until = NULL, "
+                        + "last_error = ?, updated_at = now() WHERE id = ? AND locked_by = ?",
+                true, 3, "timeout", ID, "node/0");
+    }
+
+    @Test
+    void failAbandoned_onlyFailsExpiredJobsWithoutAttemptsLeft() {
+        when(jdbcTemplate.update(anyString(), eq(3))).thenReturn(2);
+
+        assertThat(queue.failAbandoned()).isEqualTo(2);
+        verify(jdbcTemplate).update(contains("WHERE status = 'RUNNING' AND locked_until < now() AND attempts >= ?"), eq(3));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void awaitCompletion_returnsTheSucceededJob_andReportsAFailedOne() throws IOException {
+        when(jdbcTemplate.query(startsWith("SELECT * FROM ingestion_jobs WHERE id = ?"), any(RowMapper.class), eq(ID)))
+                .thenReturn(List.of(job(IngestionJob.Status.RUNNING, null)), List.of(job(IngestionJob.Status.SUCCEEDED, null)));
+
+        assertThat(queue.awaitCompletion(ID, Duration.ofSeconds(5)).status()).isEqualTo(IngestionJob.Status.SUCCEEDED);
+
+        when(jdbcTemplate.query(startsWith("SELECT * FROM ingestion_jobs WHERE id = ?"), any(RowMapper.class), eq(ID)))
+                .thenReturn(List.of(job(IngestionJob.Status.FAILED, "lease expired")));
+
+        assertThatThrownBy(() -> queue.awaitCompletion(ID, Duration.ofSeconds(5)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("lease expired");
+    }
+
+    private static IngestionJob job(IngestionJob.Status status, String lastError) {
+        return new IngestionJob(ID, "a.pdf", status, false, 1, "node/0", null, lastError, Instant.EPOCH, Instant.EPOCH);
+    }
+}
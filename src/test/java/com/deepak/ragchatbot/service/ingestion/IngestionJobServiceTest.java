@@ -0,0 +1,102 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.IngestionQueueProperties;
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.service.UploadResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionJobServiceTest {
+
+    private static final UUID REPLACE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID APPEND = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final Duration AWAIT = Duration.ofSeconds(30);
+
+    private final IngestionJobQueue queue = mock(IngestionJobQueue.class);
+    private final RagChatbotService ragChatbotService = mock(RagChatbotService.class);
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final IngestionJobService service = new IngestionJobService(queue, ragChatbotService, corpusVersion,
+            new IngestionQueueProperties(true, "ingestion_jobs", 2, Duration.ofMillis(10), Duration.ofMinutes(2),
+                    Duration.ofSeconds(20), 3, AWAIT));
+
+    @BeforeEach
+    void setUp() {
+        when(ragChatbotService.isSupported(anyString())).thenAnswer(invocation -> !invocation.<String>getArgument(0).endsWith(".xyz"));
+    }
+
+    @Test
+    void unsupportedFiles_areRejectedBeforeTheyAreQueued() {
+        assertThatThrownBy(() -> service.submit(resource("notes.xyz"), false))
+                .isInstanceOf(UnsupportedOperationException.class);
+        verify(queue, never()).enqueue(anyString(), any(), anyBoolean());
+    }
+
+    @Test
+    void uploadAndAsk_waitsForTheReplaceJob_thenBumpsTheCorpusVersion() throws IOException {
+        when(queue.enqueue(eq("a.pdf"), any(), eq(true))).thenReturn(REPLACE);
+        when(queue.awaitCompletion(REPLACE, AWAIT)).thenReturn(job(REPLACE, 12));
+        long before = corpusVersion.current();
+
+        service.ingestAndWait(resource("a.pdf"));
+
+        verify(queue).awaitCompletion(REPLACE, AWAIT);
+        assertThat(corpusVersion.current()).isGreaterThan(before);
+    }
+
+    @Test
+    void severalFiles_firstUsableOneReplacesTheCorpus_andTheOthersAreAppended() throws IOException {
+        when(queue.enqueue(eq("b.pdf"), any(), eq(true))).thenReturn(REPLACE);
+        when(queue.enqueue(eq("c.pdf"), any(), eq(false))).thenReturn(APPEND);
+        when(queue.awaitCompletion(REPLACE, AWAIT)).thenReturn(job(REPLACE, null));
+        when(queue.awaitCompletion(APPEND, AWAIT)).thenReturn(job(APPEND, 0));
+
+        List<UploadResult> results = service.ingestAndWait(List.of(resource("a.xyz"), resource("b.pdf"), resource("c.pdf")));
+
+        assertThat(results).extracting(UploadResult::status)
+                .containsExactly(UploadResult.Status.FAILED, UploadResult.Status.INDEXED, UploadResult.Status.EMPTY);
+        verify(queue, never()).enqueue(eq("c.pdf"), any(), eq(true));
+    }
+
+    @Test
+    void whenEveryFileFails_theFirstFailureIsRethrown() throws IOException {
+        when(queue.enqueue(eq("b.pdf"), any(), eq(true))).thenReturn(REPLACE);
+        when(queue.awaitCompletion(REPLACE, AWAIT)).thenThrow(new IOException("Ingestion job failed: corrupt"));
+
+        assertThatThrownBy(() -> service.ingestAndWait(List.of(resource("a.xyz"), resource("b.pdf"))))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static Resource resource(String fileName) {
+        return new ByteArrayResource(new byte[]{1, 2, 3}) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
+    }
+
+    private static IngestionJob job(UUID id, Integer segments) {
+        return new IngestionJob(id, "file", IngestionJob.Status.SUCCEEDED, false, 1, null, segments, null,
+                Instant.EPOCH, Instant.EPOCH);
+    }
+}
@@ -0,0 +1,149 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.IngestionQueueProperties;
+import com.deepak.ragchatbot.service.RagChatbotService;
+import com.deepak.ragchatbot.store.SwitchableEmbeddingStore;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionWorkersTest {
+
+    private static final UUID FIRST = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID SECOND = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    private final IngestionJobQueue queue = mock(IngestionJobQueue.class);
+    private final RagChatbotService ragChatbotService = mock(RagChatbotService.class);
+    @SuppressWarnings("unchecked")
+    private final SwitchableEmbeddingStore embeddingStore = new SwitchableEmbeddingStore(mock(EmbeddingStore.class));
+    private IngestionWorkers workers;
+
+    @AfterEach
+    void tearDown() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    void claimedJob_isIngested_andCompleted() throws IOException {
+        claims(job(FIRST));
+
+        start(Duration.ofMinutes(1));
+
+        verify(queue, timeout(5000)).complete(eq(FIRST), anyString(), isNull());
+        verify(ragChatbotService).saveSegments(any(Resource.class));
+        verify(queue, never()).fail(any(), anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void failures_areRetried_unlessTheFileItselfIsUnusable() throws IOException {
+        claims(job(FIRST), job(SECOND));
+        doThrow(new IOException("embedding service down"))
+                .doThrow(new UnsupportedOperationException("Unsupported file type: .xyz"))
+                .when(ragChatbotService).saveSegments(any(Resource.class));
+
+        start(Duration.ofMinutes(1));
+
+        verify(queue, timeout(5000)).fail(eq(FIRST), anyString(), eq("embedding service down"), eq(true));
+        verify(queue, timeout(5000)).fail(eq(SECOND), anyString(), eq("Unsupported file type: .xyz"), eq(false));
+    }
+
+    @Test
+    void lostLease_interruptsTheJob_whichIsNeitherCompletedNorFailed_andTheWorkerGoesOn() throws IOException {
+        claims(job(FIRST), job(SECOND));
+        when(queue.heartbeat(eq(FIRST), anyString())).thenReturn(false);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IOException("Interrupted while embedding", e);
+            }
+            return null;
+        }).doNothing().when(ragChatbotService).saveSegments(any(Resource.class));
+
+        start(Duration.ofMinutes(1));
+
+        verify(queue, timeout(5000)).complete(eq(SECOND), anyString(), isNull());
+        assertThat(interrupted.getCount()).isZero();
+        verify(queue, never()).complete(eq(FIRST), anyString(), any());
+        verify(queue, never()).fail(eq(FIRST), anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void noJobIsClaimed_whileAnIndexBuildFreezesTheStore() throws IOException {
+        claims(job(FIRST));
+        embeddingStore.setFrozen(true);
+
+        start(Duration.ofMinutes(1));
+
+        verify(queue, after(200).never()).claim(anyString());
+
+        embeddingStore.setFrozen(false);
+
+        verify(queue, timeout(5000)).complete(eq(FIRST), anyString(), isNull());
+    }
+
+    @Test
+    void abandonedJobs_areSweptOncePerVisibilityTimeout_notOnEveryPoll() {
+        when(queue.claim(anyString())).thenReturn(Optional.empty());
+
+        start(Duration.ofMinutes(1));
+
+        verify(queue, timeout(5000).atLeast(10)).claim(anyString());
+        verify(queue, never()).failAbandoned();
+
+        workers.shutdown();
+        start(Duration.ofMillis(100));
+
+        verify(queue, timeout(5000)).failAbandoned();
+        assertThat(mockingDetails(queue).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("failAbandoned"))
+                .count()).isLessThan(10);
+    }
+
+    private void claims(IngestionJobQueue.ClaimedJob... jobs) {
+        var stubbing = when(queue.claim(anyString()));
+        for (IngestionJobQueue.ClaimedJob job : jobs) {
+            stubbing = stubbing.thenReturn(Optional.of(job));
+        }
+        stubbing.thenReturn(Optional.empty());
+        when(queue.heartbeat(any(), anyString())).thenReturn(true);
+    }
+
+    private void start(Duration visibilityTimeout) {
+        workers = new IngestionWorkers(queue, ragChatbotService, mock(DocumentIndexer.class), new IngestionQueueProperties(
+                true, "ingestion_jobs", 1, Duration.ofMillis(10), visibilityTimeout, Duration.ofMillis(20), 3,
+                Duration.ofMinutes(2)), embeddingStore);
+        workers.start();
+    }
+
+    private static IngestionJobQueue.ClaimedJob job(UUID id) {
+        return new IngestionJobQueue.ClaimedJob(id, "a.pdf", new byte[]{1, 2, 3}, true, 1);
+    }
+}
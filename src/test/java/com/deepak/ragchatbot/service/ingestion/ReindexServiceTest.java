@@ -0,0 +1,193 @@
+package com.deepak.ragchatbot.service.ingestion;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import com.deepak.ragchatbot.config.IndexVersionProperties;
+import com.deepak.ragchatbot.service.CorpusVersion;
+import com.deepak.ragchatbot.store.EmbeddingStoreFactory;
+import com.deepak.ragchatbot.store.IndexVersion;
+import com.deepak.ragchatbot.store.IndexVersionRegistry;
+import com.deepak.ragchatbot.store.SwitchableEmbeddingStore;
+import com.deepak.ragchatbot.store.VectorQuantization;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReindexServiceTest {
+
+    @TempDir
+    Path corpus;
+
+    private final BulkIngestionService bulkIngestionService = mock(BulkIngestionService.class);
+    private final IndexVersionRegistry registry = mock(IndexVersionRegistry.class);
+    private final EmbeddingStoreFactory factory = mock(EmbeddingStoreFactory.class);
+    @SuppressWarnings("unchecked")
+    private final EmbeddingStore<TextSegment> live = mock(EmbeddingStore.class);
+    @SuppressWarnings("unchecked")
+    private final EmbeddingStore<TextSegment> rebuilt = mock(EmbeddingStore.class);
+    private final SwitchableEmbeddingStore store = new SwitchableEmbeddingStore(live);
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final ReindexService service = new ReindexService(bulkIngestionService, registry, factory,
+            new EmbeddingStoreProperties("localhost", 5432, "rag", "rag", "rag", "embeddings", 3, true,
+                    VectorQuantization.NONE, 40, false),
+            mock(EmbeddingModel.class), store, corpusVersion,
+            new IndexVersionProperties(Duration.ofSeconds(10), Duration.ofMinutes(10), Duration.ofMinutes(1)));
+
+    @BeforeEach
+    void setUp() {
+        when(registry.createBuilding(3)).thenReturn(version(IndexVersion.Status.BUILDING));
+        when(registry.find(1)).thenReturn(Optional.of(version(IndexVersion.Status.READY)));
+        when(factory.create(eq("embeddings_v1"), eq(3), any(Boolean.class))).thenReturn(rebuilt);
+        when(registry.building()).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void completedBuild_isActivated_andQueriesSwitchToIt() throws Exception {
+        built(BulkIngestionReport.Status.COMPLETED, 0);
+        when(registry.activate(1)).thenReturn(version(IndexVersion.Status.ACTIVE));
+        long before = corpusVersion.current();
+
+        service.startAsync(corpus, true);
+
+        verify(registry, timeout(5000)).activate(1);
+        verify(registry).markStatus(1, IndexVersion.Status.READY);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (store.current() != rebuilt && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.current()).isSameAs(rebuilt);
+        assertThat(corpusVersion.current()).isGreaterThan(before);
+    }
+
+    @Test
+    void failedActivation_leavesTheBuiltVersionReady() throws Exception {
+        built(BulkIngestionReport.Status.COMPLETED, 0);
+        when(registry.activate(1)).thenThrow(new IllegalStateException("registry unavailable"));
+
+        service.startAsync(corpus, true);
+
+        verify(registry, timeout(5000)).activate(1);
+        verify(registry).markStatus(1, IndexVersion.Status.READY);
+        verify(registry, after(200).never()).markStatus(1, IndexVersion.Status.FAILED);
+        assertThat(store.current()).isSameAs(live);
+    }
+
+    @Test
+    void failedBuild_isMarkedFailed_andNeverActivated() throws Exception {
+        built(BulkIngestionReport.Status.FAILED, 0);
+
+        service.startAsync(corpus, true);
+
+        verify(registry, timeout(5000)).markStatus(1, IndexVersion.Status.FAILED);
+        verify(registry, never()).activate(anyInt());
+        assertThat(store.current()).isSameAs(live);
+    }
+
+    @Test
+    void buildWithFailedDocuments_isReadyButNotActivated() throws Exception {
+        built(BulkIngestionReport.Status.COMPLETED, 2);
+
+        service.startAsync(corpus, true);
+
+        verify(registry, timeout(5000)).markStatus(1, IndexVersion.Status.READY);
+        verify(registry, after(200).never()).activate(anyInt());
+    }
+
+    @Test
+    void versionActivatedByAnotherNode_isFollowedOnTheNextPoll() {
+        when(registry.active()).thenReturn(Optional.of(version(IndexVersion.Status.ACTIVE)));
+        long before = corpusVersion.current();
+
+        service.poll();
+
+        assertThat(store.current()).isSameAs(rebuilt);
+        assertThat(corpusVersion.current()).isGreaterThan(before);
+
+        service.poll();
+
+        // already on it: no second switch
+        verify(factory).create(eq("embeddings_v1"), eq(3), any(Boolean.class));
+        verify(registry, times(2)).dropRetired(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void buildOnAnyNode_freezesWrites_untilItIsDone() {
+        when(registry.active()).thenReturn(Optional.empty());
+        when(registry.building()).thenReturn(Optional.of(version(IndexVersion.Status.BUILDING)), Optional.empty());
+
+        service.poll();
+
+        assertThat(store.isFrozen()).isTrue();
+        assertThatThrownBy(() -> store.removeAll()).isInstanceOf(IllegalStateException.class);
+        verify(live, never()).removeAll();
+        verify(registry).failStale(Duration.ofMinutes(1));
+
+        service.poll();
+
+        assertThat(store.isFrozen()).isFalse();
+        store.removeAll();
+        verify(live).removeAll();
+    }
+
+    @Test
+    void localBuild_freezesWritesAtOnce_andHeartbeatsWhileRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkIngestionService.ingestInto(eq(corpus), eq(rebuilt), anyString(), any())).thenAnswer(invocation -> {
+            release.await();
+            return new BulkIngestionReport(corpus.toString(), BulkIngestionReport.Status.COMPLETED, 10, 100, 0, 0, 1000, 10, 100);
+        });
+        when(registry.active()).thenReturn(Optional.empty());
+
+        service.startAsync(corpus, false);
+
+        assertThat(store.isFrozen()).isTrue();
+        service.poll();
+        verify(registry).heartbeat(1);
+
+        release.countDown();
+
+        verify(registry, timeout(5000)).markStatus(1, IndexVersion.Status.READY);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (store.isFrozen() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.isFrozen()).isFalse();
+    }
+
+    private void built(BulkIngestionReport.Status status, long failed) throws Exception {
+        when(bulkIngestionService.ingestInto(eq(corpus), eq(rebuilt), anyString(), any()))
+                .thenReturn(new BulkIngestionReport(corpus.toString(), status, 10, 100, 0, failed, 1000, 10, 100));
+    }
+
+    private static IndexVersion version(IndexVersion.Status status) {
+        return new IndexVersion(1, "embeddings_v1", 3, status, Instant.EPOCH, null);
+    }
+}
@@ -0,0 +1,52 @@
+package com.deepak.ragchatbot.service.profiling;
+
+import com.deepak.ragchatbot.config.ProfilerProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestProfilerTest {
+
+    @Test
+    void ringBuffer_keepsTheMostRecentRequests_andReturnsTheSlowestFirst() {
+        RequestProfiler profiler = new RequestProfiler(new ProfilerProperties(true, 3));
+
+        for (int i = 1; i <= 5; i++) {
+            RequestProfile profile = profiler.start("/api/chatbot", "q" + i);
+            profile.record(Stage.VECTOR_SEARCH, i * 1_000_000L);
+            profiler.complete(profile, "COMPLETED");
+            profiler.detach();
+        }
+
+        assertThat(profiler.slowest(10)).hasSize(3)
+                .extracting(RequestProfileReport::message)
+                .containsExactlyInAnyOrder("q3", "q4", "q5");
+        assertThat(profiler.slowest(1).getFirst().stages()).containsKey(Stage.VECTOR_SEARCH);
+    }
+
+    @Test
+    void trackedStream_recordsFirstTokenAndCompletion_andIsReachableByQuestionWhileStreaming() {
+        RequestProfiler profiler = new RequestProfiler(new ProfilerProperties(true, 8));
+        RequestProfile profile = profiler.start("/api/chatbot", "what is acme?");
+        profiler.detach();
+
+        Flux<String> answer = Flux.just("a", "b").doOnNext(token ->
+                assertThat(profiler.forQuery("what is acme?")).isSameAs(profile));
+        profiler.track(profile, "what is acme?", answer).blockLast();
+
+        RequestProfileReport report = profiler.slowest(1).getFirst();
+        assertThat(report.outcome()).isEqualTo("COMPLETED");
+        assertThat(report.stages()).containsKeys(Stage.FIRST_TOKEN, Stage.COMPLETION);
+        assertThat(profiler.forQuery("what is acme?")).isNull();
+    }
+
+    @Test
+    void disabledProfiler_recordsNothing() {
+        RequestProfiler profiler = new RequestProfiler(new ProfilerProperties(false, 8));
+
+        assertThat(profiler.start("/api/chatbot", "hi")).isNull();
+        assertThat(profiler.time(Stage.UPLOAD, () -> "ok")).isEqualTo("ok");
+        assertThat(profiler.slowest(5)).isEmpty();
+    }
+}
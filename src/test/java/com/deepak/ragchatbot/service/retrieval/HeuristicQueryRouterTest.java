@@ -0,0 +1,96 @@
+package com.deepak.ragchatbot.service.retrieval;
+
+import com.deepak.ragchatbot.config.QueryRoutingProperties;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeuristicQueryRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger retrievals = new AtomicInteger();
+    private final ContentRetriever retriever = query -> {
+        retrievals.incrementAndGet();
+        return List.of(Content.from("segment"));
+    };
+    private final HeuristicQueryRouter router = new HeuristicQueryRouter(retriever, properties(true, List.of("translate .*")), meterRegistry);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Hi", "hello there!", "Thanks a lot", "ok", "Good morning", "what is 12 * 7?", "translate good night to French", "why?"})
+    void smallTalkArithmeticPatternsAndShortMessages_skipRetrieval(String message) {
+        assertThat(router.route(Query.from(message))).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"What is the notice period for termination?", "Summarize the document", "page 3?", "What does the contract say about renewals"})
+    void documentQuestions_areRetrievedFor(String message) {
+        assertThat(router.route(Query.from(message))).hasSize(1);
+    }
+
+    @Test
+    void decisions_andSavedLatency_areRecorded() {
+        router.route(Query.from("What is the notice period for termination?")).iterator().next()
+                .retrieve(Query.from("What is the notice period for termination?"));
+        router.route(Query.from("thanks"));
+
+        assertThat(retrievals.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("rag.router.decisions", "decision", "retrieve", "reason", "default").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("rag.router.decisions", "decision", "skip", "reason", "small-talk").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.timer("rag.retrieval.latency").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("rag.router.latency.saved").count()).isGreaterThan(0.0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Summarize please", "Key dates?", "Deadlines?"})
+    void shortQuestions_areRetrievedFor_withTheDefaultSettings(String message) {
+        QueryRoutingProperties defaults = new Binder(new MapConfigurationPropertySource(Map.of()))
+                .bindOrCreate("retrieval.routing", QueryRoutingProperties.class);
+        HeuristicQueryRouter router = new HeuristicQueryRouter(retriever, defaults, meterRegistry);
+
+        assertThat(router.route(Query.from(message))).hasSize(1);
+        assertThat(router.route(Query.from("thanks"))).isEmpty();
+    }
+
+    @Test
+    void disabledRouter_alwaysRetrieves() {
+        HeuristicQueryRouter disabled = new HeuristicQueryRouter(retriever, properties(false, List.of()), meterRegistry);
+
+        assertThat(disabled.route(Query.from("hi"))).hasSize(1);
+    }
+
+    @Test
+    void broadQuestions_goToTheSummaries_whenTheyAreBuilt() {
+        AtomicInteger summaryRetrievals = new AtomicInteger();
+        ContentRetriever summaries = query -> {
+            summaryRetrievals.incrementAndGet();
+            return List.of(Content.from("document summary"));
+        };
+        HeuristicQueryRouter withSummaries = new HeuristicQueryRouter(retriever, summaries,
+                List.of("summar(y|ise|ize)", "what is the content of"), properties(true, List.of()), meterRegistry);
+
+        withSummaries.route(Query.from("What is the content of the document?")).iterator().next()
+                .retrieve(Query.from("What is the content of the document?"));
+        withSummaries.route(Query.from("What is the notice period for termination?")).iterator().next()
+                .retrieve(Query.from("What is the notice period for termination?"));
+
+        assertThat(summaryRetrievals.get()).isEqualTo(1);
+        assertThat(retrievals.get()).isEqualTo(1);
+        assertThat(router.decide("Summarize the document").summaries()).isFalse();
+    }
+
+    private static QueryRoutingProperties properties(boolean enabled, List<String> skipPatterns) {
+        return new QueryRoutingProperties(enabled, 3, skipPatterns, List.of("document", "page", "contract"));
+    }
+}
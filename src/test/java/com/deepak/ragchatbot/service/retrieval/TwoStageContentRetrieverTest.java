@@ -0,0 +1,102 @@
+package com.deepak.ragchatbot.service.retrieval;
+
+import com.deepak.ragchatbot.config.RerankProperties;
+import com.deepak.ragchatbot.eval.HashingEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwoStageContentRetrieverTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmbeddingModel embeddingModel = new HashingEmbeddingModel(256);
+    private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+    private final TwoStageContentRetriever retriever = new TwoStageContentRetriever(embeddingModel, store, 0.0,
+            new RerankProperties(true, 50, 3, 0.3, 0.7, Duration.ofSeconds(5)), meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        retriever.close();
+    }
+
+    @Test
+    void keepsTheConfiguredNumberOfSegments_outOfAWiderCandidateSet() {
+        for (int i = 0; i < 20; i++) {
+            add("Clause " + i + " of the contract covers topic number " + i + ".");
+        }
+
+        List<Content> contents = retriever.retrieve(Query.from("Which clause of the contract covers topic 17?"));
+
+        assertThat(contents).hasSize(3);
+        assertThat(contents.getFirst().textSegment().text()).contains("topic number 17");
+        assertThat(meterRegistry.timer("rag.rerank.latency").count()).isEqualTo(1);
+    }
+
+    @Test
+    void nearDuplicates_areNotSelectedTwice() {
+        TwoStageContentRetriever diverse = new TwoStageContentRetriever(embeddingModel, store, 0.0,
+                new RerankProperties(true, 50, 2, 0.3, 0.5, Duration.ofSeconds(5)), meterRegistry);
+        add("The notice period for termination is thirty days.");
+        add("The notice period for termination is thirty days!");
+        add("Termination of the agreement requires written notice.");
+
+        try (diverse) {
+            List<Content> contents = diverse.retrieve(Query.from("notice period for termination"));
+
+            assertThat(contents).extracting(content -> content.textSegment().text())
+                    .contains("Termination of the agreement requires written notice.")
+                    .filteredOn(text -> text.startsWith("The notice period"))
+                    .hasSize(1);
+        }
+    }
+
+    @Test
+    void queryTermCoverage_liftsASegmentAboveAHigherVectorScore() {
+        List<EmbeddingMatch<TextSegment>> candidates = List.of(
+                match("a", 0.80, "General terms apply to all agreements."),
+                match("b", 0.75, "Late invoices incur a penalty of two percent."));
+
+        List<Content> contents = retriever.rerank("penalty for late invoices", candidates, System.nanoTime() + 1_000_000_000L);
+
+        assertThat(contents.getFirst().textSegment().text()).contains("penalty");
+    }
+
+    @Test
+    void exhaustedBudget_fallsBackToVectorScores() {
+        List<EmbeddingMatch<TextSegment>> candidates = List.of(
+                match("a", 0.80, "General terms apply to all agreements."),
+                match("b", 0.75, "Late invoices incur a penalty of two percent."));
+
+        List<Content> contents = retriever.rerank("penalty for late invoices", candidates, System.nanoTime() - 1);
+
+        assertThat(contents.getFirst().textSegment().text()).startsWith("General terms");
+        assertThat(meterRegistry.counter("rag.rerank.budget.exceeded").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void terms_dropStopWordsAndSingleCharacters() {
+        assertThat(TwoStageContentRetriever.terms("What is the Notice period, in 3 days?"))
+                .containsExactlyInAnyOrder("notice", "period", "days");
+    }
+
+    private void add(String text) {
+        TextSegment segment = TextSegment.from(text);
+        store.add(embeddingModel.embed(segment).content(), segment);
+    }
+
+    private static EmbeddingMatch<TextSegment> match(String id, double score, String text) {
+        return new EmbeddingMatch<>(score, id, (Embedding) null, TextSegment.from(text));
+    }
+}
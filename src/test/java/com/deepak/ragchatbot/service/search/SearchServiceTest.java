@@ -0,0 +1,125 @@
+package com.deepak.ragchatbot.service.search;
+
+import com.deepak.ragchatbot.config.RetrievalProperties;
+import com.deepak.ragchatbot.config.SearchProperties;
+import com.deepak.ragchatbot.eval.HashingEmbeddingModel;
+import com.deepak.ragchatbot.service.extractor.ExtractedText;
+import com.deepak.ragchatbot.service.ingestion.DocumentIndexer;
+import com.deepak.ragchatbot.service.summary.SummaryIndexer;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchServiceTest {
+
+    private final EmbeddingModel embeddingModel = new HashingEmbeddingModel(256);
+    private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+    private final SearchService searchService = new SearchService(embeddingModel, store,
+            new RetrievalProperties(1000, 100, 5, 0.0), new SearchProperties(2, 5, 6));
+
+    @BeforeEach
+    void setUp() {
+        ExtractedText contract = new ExtractedText(List.of(
+                new ExtractedText.Section(null, 1, "The notice period for termination is thirty days."),
+                new ExtractedText.Section(null, 2, "Invoices are payable within sixty days of receipt."),
+                new ExtractedText.Section(null, 3, "Termination requires written notice to the other party.")));
+        ExtractedText handbook = new ExtractedText(List.of(
+                new ExtractedText.Section("Holidays", 0, "Employees get twenty five days of paid holiday per year.")));
+        index(DocumentIndexer.documents(contract, "contract", "contract.pdf"));
+        index(DocumentIndexer.documents(handbook, "handbook", "handbook.docx"));
+    }
+
+    @Test
+    void hits_carryScoreDocumentAndPageMetadata() {
+        List<SearchHit> hits = search("notice period for termination", 0, null, Map.of());
+
+        assertThat(hits).hasSize(2);
+        SearchHit top = hits.getFirst();
+        assertThat(top.rank()).isEqualTo(1);
+        assertThat(top.documentId()).isEqualTo("contract");
+        assertThat(top.fileName()).isEqualTo("contract.pdf");
+        assertThat(top.page()).isEqualTo(1);
+        assertThat(top.embeddingId()).isNotNull();
+        assertThat(top.score()).isGreaterThanOrEqualTo(hits.get(1).score());
+    }
+
+    @Test
+    void paging_continuesRanking() {
+        List<SearchHit> first = search("notice termination", 0, 2, Map.of());
+        List<SearchHit> second = search("notice termination", 1, 2, Map.of());
+
+        assertThat(second).extracting(SearchHit::rank).containsExactly(3, 4);
+        assertThat(second).extracting(SearchHit::embeddingId)
+                .doesNotContainAnyElementsOf(first.stream().map(SearchHit::embeddingId).toList());
+    }
+
+    @Test
+    void filters_restrictByMetadata() {
+        List<SearchHit> byFile = search("days", 0, 5, Map.of("file_name", "handbook.docx"));
+        List<SearchHit> byPage = search("days", 0, 5, Map.of("document_id", "contract", "page", "2"));
+
+        assertThat(byFile).singleElement().satisfies(hit -> {
+            assertThat(hit.section()).isEqualTo("Holidays");
+            assertThat(hit.page()).isNull();
+        });
+        assertThat(byPage).singleElement().extracting(SearchHit::page).isEqualTo(2);
+    }
+
+    @Test
+    void paging_beyondWindow_isRejected() {
+        assertThatThrownBy(() -> searchService.search("notice", 3, 2, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("notice", 0, 6, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void onlyKnownKeys_canBeFiltered_andValuesAreTypedByKey() {
+        index(DocumentIndexer.documents(new ExtractedText(List.of(
+                new ExtractedText.Section(null, 1, "Minutes of the 2024 meeting about holidays."))), "2024", "2024.pdf"));
+
+        assertThatThrownBy(() -> searchService.search("days", 0, 5, Map.of("text') OR true --", "x")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("days", 0, 5, Map.of("page", "two")))
+                .isInstanceOf(IllegalArgumentException.class);
+        // A numeric-looking document id still matches the text metadata
+        assertThat(search("holidays", 0, 5, Map.of("document_id", "2024")))
+                .singleElement().extracting(SearchHit::documentId).isEqualTo("2024");
+    }
+
+    @Test
+    void summaryNodes_areNeverReturned() {
+        index(List.of(Document.from("Summary: the notice period for termination is thirty days.", new Metadata()
+                .put(DocumentIndexer.DOCUMENT_ID, "contract")
+                .put(DocumentIndexer.FILE_NAME, "contract.pdf")
+                .put(SummaryIndexer.NODE_TYPE, SummaryIndexer.SUMMARY))));
+
+        assertThat(search("notice period for termination", 0, 5, Map.of()))
+                .isNotEmpty()
+                .noneMatch(hit -> hit.text().startsWith("Summary:"));
+        assertThat(search("notice period for termination", 0, 5, Map.of("document_id", "contract")))
+                .isNotEmpty()
+                .noneMatch(hit -> hit.text().startsWith("Summary:"));
+    }
+
+    private List<SearchHit> search(String query, int page, Integer size, Map<String, String> filters) {
+        return searchService.search(query, page, size, filters).collectList().block();
+    }
+
+    private void index(List<Document> documents) {
+        for (Document document : documents) {
+            TextSegment segment = TextSegment.from(document.text(), document.metadata());
+            store.add(embeddingModel.embed(segment).content(), segment);
+        }
+    }
+}
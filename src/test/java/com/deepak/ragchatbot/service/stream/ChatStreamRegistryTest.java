@@ -0,0 +1,152 @@
+package com.deepak.ragchatbot.service.stream;
+
+import com.deepak.ragchatbot.config.WebSocketChatProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatStreamRegistryTest {
+
+    private final ChatStreamRegistry registry = new ChatStreamRegistry(
+            new WebSocketChatProperties(true, "/api/chat-ws", 2, 4, 8, Duration.ofMillis(200), Duration.ofSeconds(1), 1024),
+            new SimpleMeterRegistry());
+    private final List<Frame> received = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void upstreamDemand_followsTheClientsCredit() {
+        AtomicLong requested = new AtomicLong();
+        Flux<String> answer = tokens(10).doOnRequest(requested::addAndGet);
+
+        ChatStream stream = registry.open("session-1", "s1", answer, 3, "c1", received::add);
+        assertThat(received).extracting(Frame::data).containsExactly("t1", "t2", "t3");
+        assertThat(requested.get()).isEqualTo(3);
+
+        stream.request(20);
+        assertThat(received).extracting(Frame::seq).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L);
+        assertThat(received.getLast().type()).isEqualTo(Frame.COMPLETE);
+    }
+
+    @Test
+    void streamsOfOneConnection_doNotBlockEachOther() {
+        List<Frame> other = new CopyOnWriteArrayList<>();
+
+        registry.open("session-1", "slow", tokens(10), 1, "c1", received::add);
+        registry.open("session-1", "fast", tokens(3), 10, "c1", other::add);
+
+        assertThat(received).hasSize(1);
+        assertThat(other).extracting(Frame::type).containsExactly(Frame.TOKEN, Frame.TOKEN, Frame.TOKEN, Frame.COMPLETE);
+    }
+
+    @Test
+    void resume_replaysTheFramesAfterTheLastOneReceived() {
+        ChatStream stream = registry.open("session-1", "s1", tokens(5), 2, "c1", received::add);
+        registry.detach("session-1", "c1");
+        stream.request(10);
+        assertThat(received).hasSize(2);
+
+        List<Frame> resumed = new CopyOnWriteArrayList<>();
+        assertThat(registry.find("session-1", "s1").orElseThrow().attach("c2", resumed::add, 2)).isTrue();
+
+        assertThat(resumed).extracting(Frame::seq).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(resumed.getLast().type()).isEqualTo(Frame.COMPLETE);
+    }
+
+    @Test
+    void resume_failsWhenTheFramesAreNoLongerBuffered() {
+        ChatStream stream = registry.open("session-1", "s1", tokens(20), 20, "c1", received::add);
+        registry.detach("session-1", "c1");
+
+        assertThat(stream.attach("c2", frame -> { }, 2)).isFalse();
+        assertThat(stream.attach("c2", frame -> { }, 14)).isTrue();
+    }
+
+    @Test
+    void streamsNotResumedInTime_areCancelled() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        registry.open("session-1", "s1", Flux.<String>never().doOnCancel(cancelled::countDown), 4, "c1", received::add);
+
+        registry.detach("session-1", "c1");
+
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(registry.find("session-1", "s1")).isEmpty();
+    }
+
+    @Test
+    void cancel_stopsTheUpstream() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ChatStream stream = registry.open("session-1", "s1", Flux.<String>never().doOnCancel(() -> cancelled.set(true)), 4, "c1", received::add);
+
+        stream.cancel();
+
+        assertThat(cancelled).isTrue();
+    }
+
+    @Test
+    void streamLimitAndDuplicateIds_areRejected() {
+        registry.open("session-1", "s1", Flux.never(), 1, "c1", received::add);
+
+        assertThatThrownBy(() -> registry.open("session-1", "s1", Flux.never(), 1, "c1", received::add))
+                .isInstanceOf(IllegalStateException.class);
+        registry.open("session-1", "s2", Flux.never(), 1, "c1", received::add);
+        assertThatThrownBy(() -> registry.open("session-1", "s3", Flux.never(), 1, "c1", received::add))
+                .isInstanceOf(IllegalStateException.class);
+        registry.open("session-2", "s1", Flux.never(), 1, "c2", received::add);
+    }
+
+    @Test
+    void sessions_canOnlyBeReconnectedToByTheTenantTheyWereIssuedTo() {
+        String issued = registry.connect(null, "tenant-a");
+
+        assertThat(registry.connect(issued, "tenant-a")).isEqualTo(issued);
+        assertThat(registry.connect(issued, "tenant-b")).isNotEqualTo(issued);
+        assertThat(registry.connect("0b5e2a4c-made-up-by-the-client", "tenant-a")).isNotEqualTo("0b5e2a4c-made-up-by-the-client");
+    }
+
+    @Test
+    void resume_isRejectedWhileTheStreamIsAttachedToAnotherOpenConnection() {
+        ChatStream stream = registry.open("session-1", "s1", tokens(5), 2, "c1", received::add);
+
+        assertThatThrownBy(() -> stream.attach("c2", frame -> { }, 2)).isInstanceOf(IllegalStateException.class);
+        assertThat(stream.attach("c1", frame -> { }, 2)).isTrue();
+
+        registry.detach("session-1", "c1");
+        assertThat(stream.attach("c2", frame -> { }, 2)).isTrue();
+    }
+
+    @Test
+    void sessionsWithoutConnections_expireWithTheirStreams() throws InterruptedException {
+        String session = registry.connect(null, "tenant-a");
+        CountDownLatch cancelled = new CountDownLatch(1);
+        registry.open(session, "s1", Flux.<String>never().doOnCancel(cancelled::countDown), 4, "c1", received::add);
+
+        registry.disconnect(session, "c1");
+
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (registry.sessionCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.connect(session, "tenant-a")).isNotEqualTo(session);
+    }
+
+    private static Flux<String> tokens(int count) {
+        return Flux.range(1, count).map(i -> "t" + i);
+    }
+}
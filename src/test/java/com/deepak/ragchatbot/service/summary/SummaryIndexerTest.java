@@ -0,0 +1,167 @@
+package com.deepak.ragchatbot.service.summary;
+
+import com.deepak.ragchatbot.config.SummaryProperties;
+import com.deepak.ragchatbot.eval.HashingEmbeddingModel;
+import com.deepak.ragchatbot.service.extractor.ExtractedText;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SummaryIndexerTest {
+
+    private static final String PAGE_ONE = "The supplier delivers the goods within ten days. Delivery is free of charge. "
+            + "Goods remain the property of the supplier until paid.";
+    private static final String PAGE_TWO = "Invoices are payable within sixty days. Late payments incur interest. "
+            + "Either party may terminate with thirty days notice.";
+
+    private final EmbeddingModel embeddingModel = new HashingEmbeddingModel(128);
+    private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private volatile CountDownLatch gate;
+    private final SummaryIndexer indexer = new SummaryIndexer(summarizer(), embeddingModel, DocumentSplitters.recursive(80, 0),
+            new SummaryProperties(true, 4, 60, 120, 200, 8, 3, 0, List.of()), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        indexer.close();
+    }
+
+    @Test
+    void buildsSectionAndDocumentSummaries_fromChunkSummariesThatAreNotStored() {
+        int nodes = indexer.refresh(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO));
+
+        Map<String, Long> levels = summaries().stream()
+                .collect(Collectors.groupingBy(segment -> segment.metadata().getString(SummaryIndexer.LEVEL), Collectors.counting()));
+        assertThat(summaries()).hasSize(nodes);
+        assertThat(levels).containsOnlyKeys(SummaryIndexer.DOCUMENT, SummaryIndexer.SECTION);
+        assertThat(levels.get(SummaryIndexer.DOCUMENT)).isEqualTo(1);
+        assertThat(levels.get(SummaryIndexer.SECTION)).isEqualTo(2);
+        assertThat(summaries()).allSatisfy(segment -> {
+            assertThat(segment.metadata().getString(SummaryIndexer.NODE_TYPE)).isEqualTo(SummaryIndexer.SUMMARY);
+            assertThat(segment.metadata().getString(SummaryIndexer.HASH)).isNotBlank();
+        });
+        // Every chunk was summarized on the way
+        assertThat(calls.get()).isGreaterThan(nodes);
+    }
+
+    @Test
+    void refresh_onlyRegeneratesWhatChanged() {
+        int nodes = indexer.refresh(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO));
+        calls.set(0);
+
+        assertThat(indexer.refresh(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO))).isEqualTo(nodes);
+        assertThat(calls.get()).isZero();
+
+        indexer.refresh(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO.replace("sixty", "ninety")));
+        // Both chunks of the changed section (chunk summaries aren't stored and the cache is off), the section and the document
+        assertThat(calls.get()).isEqualTo(4);
+        assertThat(summaries()).hasSize(nodes);
+    }
+
+    @Test
+    void refreshAsync_storesTheSummariesInTheBackground() throws Exception {
+        int nodes = indexer.refreshAsync(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO)).get(10, TimeUnit.SECONDS);
+
+        assertThat(nodes).isPositive();
+        assertThat(summaries()).hasSize(nodes);
+    }
+
+    @Test
+    void discardPending_dropsTheRunningAndQueuedRefreshes_butNotLaterOnes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        gate = release;
+        CompletableFuture<Integer> running = indexer.refreshAsync(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO));
+        CompletableFuture<Integer> queued = indexer.refreshAsync(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO));
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (calls.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // The corpus is replaced while the first refresh waits for the model
+        indexer.discardPending(store);
+        release.countDown();
+
+        assertThat(running.get(10, TimeUnit.SECONDS)).isZero();
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isZero();
+        assertThat(summaries()).isEmpty();
+
+        int nodes = indexer.refreshAsync(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO)).get(10, TimeUnit.SECONDS);
+        assertThat(nodes).isPositive();
+        assertThat(summaries()).hasSize(nodes);
+    }
+
+    @Test
+    void failingModel_keepsThePreviousSummaries() {
+        int nodes = indexer.refresh(store, "contract", "contract.pdf", contract(PAGE_ONE, PAGE_TWO));
+        failing.set(true);
+
+        assertThat(indexer.refresh(store, "contract", "contract.pdf", contract(PAGE_ONE, "Something else entirely."))).isZero();
+        assertThat(summaries()).hasSize(nodes);
+    }
+
+    private List<TextSegment> summaries() {
+        return store.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(embeddingModel.embed("contract").content())
+                        .filter(SummaryIndexer.summariesOf("contract"))
+                        .maxResults(100)
+                        .minScore(0.0)
+                        .build())
+                .matches().stream()
+                .map(EmbeddingMatch::embedded)
+                .toList();
+    }
+
+    private static ExtractedText contract(String pageOne, String pageTwo) {
+        return new ExtractedText(List.of(
+                new ExtractedText.Section(null, 1, pageOne),
+                new ExtractedText.Section(null, 2, pageTwo)));
+    }
+
+    private ChatModel summarizer() {
+        // Stands for a real summary: changes whenever anything in the summarized input changes
+        Function<String, String> summarize = prompt -> "Summary " + Integer.toHexString(prompt.substring(prompt.indexOf("\n\n") + 2).hashCode());
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                calls.incrementAndGet();
+                CountDownLatch waitFor = gate;
+                if (waitFor != null) {
+                    try {
+                        waitFor.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (failing.get()) {
+                    throw new IllegalStateException("model unavailable");
+                }
+                String prompt = ((UserMessage) chatRequest.messages().getLast()).singleText();
+                return ChatResponse.builder().aiMessage(AiMessage.from(summarize.apply(prompt))).build();
+            }
+        };
+    }
+}
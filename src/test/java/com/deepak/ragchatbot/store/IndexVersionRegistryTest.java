@@ -0,0 +1,122 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.EmbeddingStoreProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexVersionRegistryTest {
+
+    private static final String REGISTRY = "embeddings_index_versions";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final IndexVersionRegistry registry = new IndexVersionRegistry(jdbcTemplate, transactionTemplate,
+            new EmbeddingStoreProperties("localhost", 5432, "rag", "rag", "rag", "embeddings", 3, true,
+                    VectorQuantization.NONE, 40, false));
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void readsBeforeVersioningIsUsed_findNothing_andRunNoDdl() {
+        when(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, REGISTRY)).thenReturn(false);
+
+        assertThat(registry.active()).isEmpty();
+        assertThat(registry.list()).isEmpty();
+        assertThat(registry.previous()).isEmpty();
+        assertThat(registry.building()).isEmpty();
+        assertThat(registry.failStale(Duration.ofMinutes(1))).isZero();
+        assertThat(registry.dropRetired(Duration.ofMinutes(10))).isEmpty();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void activate_demotesTheActiveVersion_andDropsNothing() {
+        registryExists();
+        when(jdbcTemplate.query(startsWith("SELECT * FROM " + REGISTRY + " WHERE version = ?"), any(RowMapper.class), eq(3)))
+                .thenReturn(List.of(version(3, IndexVersion.Status.READY)), List.of(version(3, IndexVersion.Status.ACTIVE)));
+
+        IndexVersion active = registry.activate(3);
+
+        assertThat(active.status()).isEqualTo(IndexVersion.Status.ACTIVE);
+        verify(jdbcTemplate).update("UPDATE " + REGISTRY + " SET status = 'READY', deactivated_at = now() WHERE status = 'ACTIVE'");
+        // replicas may still search the older versions until they poll the switch
+        verify(jdbcTemplate, never()).update(contains("RETIRED"), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dropRetired_dropsTheOlderVersions_onceTheLastSwitchIsOlderThanTheGracePeriod() {
+        registryExists();
+        when(jdbcTemplate.queryForObject(contains("MAX(activated_at)"), eq(Boolean.class), eq(600.0))).thenReturn(true);
+        when(jdbcTemplate.query(contains("OFFSET 1"), any(RowMapper.class)))
+                .thenReturn(List.of(version(1, IndexVersion.Status.READY), version(0, IndexVersion.Status.READY)));
+
+        List<String> dropped = registry.dropRetired(Duration.ofMinutes(10));
+
+        assertThat(dropped).containsExactly("embeddings_v1");
+        verify(jdbcTemplate).update("UPDATE " + REGISTRY + " SET status = 'RETIRED' WHERE version = ?", 1);
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS embeddings_v1");
+        // version 0 is the original table, it is retired but never dropped
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS embeddings");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dropRetired_keepsEverything_withinTheGracePeriod() {
+        registryExists();
+        when(jdbcTemplate.queryForObject(contains("MAX(activated_at)"), eq(Boolean.class), eq(600.0))).thenReturn(false);
+
+        assertThat(registry.dropRetired(Duration.ofMinutes(10))).isEmpty();
+
+        verify(jdbcTemplate, never()).query(contains("OFFSET 1"), any(RowMapper.class));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlyReadyVersions_canBeActivated() {
+        registryExists();
+        when(jdbcTemplate.query(startsWith("SELECT * FROM " + REGISTRY + " WHERE version = ?"), any(RowMapper.class), eq(2)))
+                .thenReturn(List.of(version(2, IndexVersion.Status.FAILED)));
+
+        assertThatThrownBy(() -> registry.activate(2)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> registry.activate(9)).isInstanceOf(IllegalArgumentException.class);
+        verify(jdbcTemplate, never()).update(contains("SET status = 'ACTIVE'"), any(Object[].class));
+    }
+
+    private void registryExists() {
+        when(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, REGISTRY)).thenReturn(true);
+    }
+
+    private static IndexVersion version(int version, IndexVersion.Status status) {
+        return new IndexVersion(version, version == 0 ? "embeddings" : "embeddings_v" + version, 3, status, Instant.EPOCH, null);
+    }
+}
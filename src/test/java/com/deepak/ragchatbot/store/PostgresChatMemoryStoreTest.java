@@ -0,0 +1,134 @@
+package com.deepak.ragchatbot.store;
+
+import com.deepak.ragchatbot.config.ChatAssistantConfiguration;
+import com.deepak.ragchatbot.config.ChatMemoryProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageType;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostgresChatMemoryStoreTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    // Long flush interval: the test drives flush() itself
+    private final ChatMemoryProperties properties =
+            new ChatMemoryProperties("postgres", 10, "chat_memory", Duration.ofHours(1), Duration.ofSeconds(2));
+    private final PostgresChatMemoryStore store = new PostgresChatMemoryStore(jdbcTemplate, properties);
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void turnsAreServedFromTheCache_andWrittenInOneBatch() {
+        List<ChatMessage> first = List.of(UserMessage.from("hi"));
+        List<ChatMessage> second = List.of(UserMessage.from("hi"), AiMessage.from("hello"));
+
+        store.updateMessages("chat-1", first);
+        store.updateMessages("chat-1", second);
+        store.updateMessages("chat-2", first);
+
+        assertThat(store.getMessages("chat-1")).isEqualTo(second);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(store.pendingWrites()).isEqualTo(2);
+
+        store.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertThat(store.pendingWrites()).isZero();
+    }
+
+    @Test
+    void deletedChat_isEmptyLocally_beforeTheDeleteIsFlushed() {
+        store.updateMessages("chat-1", List.of(UserMessage.from("hi")));
+        store.deleteMessages("chat-1");
+
+        assertThat(store.getMessages("chat-1")).isEmpty();
+        assertThat(store.pendingWrites()).isEqualTo(1);
+    }
+
+    @Test
+    void flushedDelete_leavesNothingCached() {
+        store.updateMessages("chat-1", List.of(UserMessage.from("hi")));
+        store.flush();
+        store.deleteMessages("chat-1");
+
+        store.flush();
+
+        assertThat(store.pendingWrites()).isZero();
+        assertThat(store.cachedChats()).isZero();
+    }
+
+    @Test
+    void cleanChats_leaveTheCacheOnceExpired() {
+        PostgresChatMemoryStore expiring = new PostgresChatMemoryStore(jdbcTemplate,
+                new ChatMemoryProperties("postgres", 10, "chat_memory", Duration.ofHours(1), Duration.ZERO));
+        try {
+            expiring.getMessages("chat-1");
+            expiring.updateMessages("chat-2", List.of(UserMessage.from("hi")));
+            assertThat(expiring.cachedChats()).isEqualTo(2);
+
+            expiring.flush();
+
+            assertThat(expiring.cachedChats()).isZero();
+        } finally {
+            expiring.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void oneOffMemories_areNeverWrittenToPostgres() {
+        String memoryId = PostgresChatMemoryStore.ONE_OFF_PREFIX + "question-1";
+
+        store.updateMessages(memoryId, List.of(UserMessage.from("hi")));
+        assertThat(store.getMessages(memoryId)).containsExactly(UserMessage.from("hi"));
+        store.deleteMessages(memoryId);
+        store.flush();
+
+        assertThat(store.getMessages(memoryId)).isEmpty();
+        assertThat(store.cachedChats()).isZero();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void twoConversationIds_keepSeparateHistories() {
+        ObjectProvider<ChatMemoryStore> stores = mock(ObjectProvider.class);
+        when(stores.getIfAvailable()).thenReturn(store);
+        ChatMemoryProvider provider = new ChatAssistantConfiguration(null).chatMemoryProvider(properties, stores);
+
+        ChatMemory a = provider.get("t1/conversation-a");
+        a.add(UserMessage.from("My name is Ada"));
+        a.add(AiMessage.from("Hello Ada"));
+        provider.get("t1/conversation-b").add(UserMessage.from("What is my name?"));
+
+        assertThat(provider.get("t1/conversation-a").messages()).extracting(ChatMessage::type)
+                .containsExactly(ChatMessageType.USER, ChatMessageType.AI);
+        assertThat(store.getMessages("t1/conversation-b")).containsExactly(UserMessage.from("What is my name?"));
+        assertThat(store.pendingWrites()).isEqualTo(2);
+    }
+}
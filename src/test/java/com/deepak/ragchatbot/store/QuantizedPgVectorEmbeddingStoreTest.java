@@ -0,0 +1,158 @@
+package com.deepak.ragchatbot.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuantizedPgVectorEmbeddingStoreTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final QuantizedPgVectorEmbeddingStore store = new QuantizedPgVectorEmbeddingStore(
+            jdbcTemplate, "embeddings", 3, VectorQuantization.HALFVEC, 10, false);
+
+    @Test
+    void vectorLiteral_roundTrips() {
+        float[] vector = {0.25f, -1.5f, 1.0E-5f};
+
+        String literal = QuantizedPgVectorEmbeddingStore.toLiteral(vector);
+
+        assertThat(literal).startsWith("[").endsWith("]");
+        assertThat(QuantizedPgVectorEmbeddingStore.fromLiteral(literal)).containsExactly(vector);
+    }
+
+    @Test
+    void quantizedIndexes_shrinkBytesPerVector() {
+        int dimension = 3072;
+
+        assertThat(VectorQuantization.NONE.indexBytesPerVector(dimension)).isEqualTo(12288);
+        assertThat(VectorQuantization.HALFVEC.indexBytesPerVector(dimension)).isEqualTo(6144);
+        assertThat(VectorQuantization.BINARY.indexBytesPerVector(dimension)).isEqualTo(384);
+    }
+
+    @Test
+    void search_takesCandidatesFromTheQuantizedIndex_andRescoresThemWithTheFullVectors() throws SQLException {
+        AtomicReference<String> sql = new AtomicReference<>();
+        List<Object> parameters = new ArrayList<>();
+        // Rows come back the way the outer ORDER BY (exact distance) ranks them
+        rows(sql, parameters, row("1", 0.95, "b"), row("2", 0.90, "a"), row("3", 0.80, "a"), row("4", 0.40, "a"));
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0, 0}))
+                .maxResults(3)
+                .minScore(0.85)
+                .build()).matches();
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("1", "2");
+        assertThat(sql.get()).contains("FROM (SELECT * FROM embeddings ORDER BY embedding::halfvec(3) <=> ?::halfvec(3) LIMIT ?) candidates")
+                .endsWith("ORDER BY embedding <=> ?::vector");
+        assertThat(parameters).containsExactly("[1.0,0.0,0.0]", "[1.0,0.0,0.0]", 10, "[1.0,0.0,0.0]");
+    }
+
+    @Test
+    void search_withFilter_rendersItIntoTheCandidateQuery() throws SQLException {
+        AtomicReference<String> sql = new AtomicReference<>();
+        List<Object> parameters = new ArrayList<>();
+        rows(sql, parameters, row("2", 0.90, "a"), row("3", 0.80, "a"), row("4", 0.70, "a"));
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0, 0}))
+                .filter(metadataKey("document_id").isEqualTo("a"))
+                .maxResults(2)
+                .build()).matches();
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("2", "3");
+        assertThat(sql.get()).contains("FROM (SELECT * FROM embeddings WHERE COALESCE((metadata->>?) = ?, false) "
+                + "ORDER BY embedding::halfvec(3) <=> ?::halfvec(3) LIMIT ?) candidates");
+        // the window isn't widened: every candidate matches the filter
+        assertThat(parameters).containsExactly("[1.0,0.0,0.0]", "document_id", "a", "[1.0,0.0,0.0]", 10, "[1.0,0.0,0.0]");
+    }
+
+    @Test
+    void search_withFilterThatCantBeRendered_widensTheCandidateWindow_andFiltersTheRescoredRows() throws SQLException {
+        AtomicReference<String> sql = new AtomicReference<>();
+        List<Object> parameters = new ArrayList<>();
+        rows(sql, parameters, row("1", 0.95, "b"), row("2", 0.90, "a"), row("3", 0.80, "a"), row("4", 0.70, "a"));
+        Filter custom = object -> object instanceof Metadata metadata && "a".equals(metadata.getString("document_id"));
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0, 0}))
+                .filter(custom)
+                .maxResults(2)
+                .build()).matches();
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("2", "3");
+        assertThat(matches.getFirst().embedding().vector()).containsExactly(1f, 0f, 0f);
+        assertThat(sql.get()).doesNotContain("WHERE");
+        assertThat(parameters.get(2)).isEqualTo(40);
+    }
+
+    @Test
+    void removeAllByFilter_isOneDeleteWithBoundKeysAndValues() {
+        store.removeAll(metadataKey("document_id").isEqualTo("a.pdf'; DROP TABLE embeddings; --")
+                .and(metadataKey("page").isGreaterThan(2).or(metadataKey("node_type").isNotIn("summary"))));
+
+        verify(jdbcTemplate).update(
+                "DELETE FROM embeddings WHERE (COALESCE((metadata->>?) = ?, false) AND "
+                        + "(COALESCE((metadata->>?)::numeric > ?, false) OR COALESCE((metadata->>?) NOT IN (?), true)))",
+                "document_id", "a.pdf'; DROP TABLE embeddings; --", "page", 2, "node_type", "summary");
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class));
+    }
+
+    @Test
+    void filtersThatCantBeRendered_areNotPushedDown() {
+        Filter custom = object -> object instanceof Metadata metadata && metadata.containsKey("page");
+
+        assertThat(MetadataFilterSql.render(custom)).isEmpty();
+        assertThat(MetadataFilterSql.render(metadataKey("page").isEqualTo(1).and(custom))).isEmpty();
+        assertThat(MetadataFilterSql.render(Filter.not(metadataKey("page").isIn(1, 2))).orElseThrow().sql())
+                .isEqualTo("NOT COALESCE((metadata->>?)::numeric IN (?, ?), false)");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rows(AtomicReference<String> sql, List<Object> parameters, ResultSet... rows) {
+        doAnswer(invocation -> {
+            sql.set(invocation.getArgument(0));
+            Object[] arguments = invocation.getArguments();
+            parameters.addAll(Arrays.asList(arguments).subList(2, arguments.length));
+            RowMapper<EmbeddingMatch<TextSegment>> mapper = invocation.getArgument(1);
+            List<EmbeddingMatch<TextSegment>> mapped = new ArrayList<>();
+            for (int i = 0; i < rows.length; i++) {
+                mapped.add(mapper.mapRow(rows[i], i));
+            }
+            return mapped;
+        }).when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+
+    private static ResultSet row(String id, double score, String documentId) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("embedding_id")).thenReturn(id);
+        when(rs.getDouble("score")).thenReturn(score);
+        when(rs.getString("embedding")).thenReturn("[1,0,0]");
+        when(rs.getString("text")).thenReturn("segment " + id);
+        when(rs.getString("metadata")).thenReturn("{\"document_id\":\"" + documentId + "\"}");
+        return rs;
+    }
+}
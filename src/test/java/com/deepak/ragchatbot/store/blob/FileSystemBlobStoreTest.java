@@ -0,0 +1,106 @@
+package com.deepak.ragchatbot.store.blob;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private FileSystemBlobStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void identicalUploads_areStoredOnce_andKeepTheirNames() throws IOException {
+        store = new FileSystemBlobStore(dir, true, Duration.ZERO, 1_000_000, Duration.ZERO);
+
+        BlobResource first = store.put(stream("same bytes"), "a.pdf");
+        BlobResource second = store.put(stream("same bytes"), "copy-of-a.pdf");
+
+        assertThat(second.hash()).isEqualTo(first.hash());
+        assertThat(first.getFilename()).isEqualTo("a.pdf");
+        assertThat(second.getFilename()).isEqualTo("copy-of-a.pdf");
+        assertThat(second.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("same bytes");
+        assertThat(blobCount()).isEqualTo(1);
+    }
+
+    @Test
+    void blobs_areShardedByHash_andReadableByHash() throws IOException {
+        store = new FileSystemBlobStore(dir, false, Duration.ZERO, 1_000_000, Duration.ZERO);
+
+        BlobResource blob = store.put(stream("content"), "doc.docx");
+
+        String hash = blob.hash();
+        assertThat(dir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".bin")).exists();
+        assertThat(store.get(hash, "doc.docx")).hasValueSatisfying(found ->
+                assertThat(found.getFilename()).isEqualTo("doc.docx"));
+        assertThat(store.get("../../etc/passwd", "x")).isEmpty();
+        assertThat(store.delete(hash)).isTrue();
+        assertThat(store.get(hash, "doc.docx")).isEmpty();
+        assertThat(store.sizeBytes()).isZero();
+    }
+
+    @Test
+    void expiredBlobs_areDeletedByRetention() throws IOException {
+        store = new FileSystemBlobStore(dir, true, Duration.ofDays(1), 1_000_000, Duration.ZERO);
+        BlobResource old = store.put(stream("old"), "old.pdf");
+        BlobResource fresh = store.put(stream("fresh"), "fresh.pdf");
+        store.get(old.hash(), "old.pdf").ifPresent(blob -> setAge(blob, Duration.ofDays(2)));
+
+        assertThat(store.enforceRetention()).isEqualTo(1);
+        assertThat(store.get(old.hash(), "old.pdf")).isEmpty();
+        assertThat(store.get(fresh.hash(), "fresh.pdf")).isPresent();
+    }
+
+    @Test
+    void oversizedStore_evictsLeastRecentlyStored() throws IOException {
+        store = new FileSystemBlobStore(dir, false, Duration.ZERO, 250, Duration.ZERO);
+        BlobResource first = store.put(stream("a".repeat(100)), "1.pdf");
+        setAge(first, Duration.ofMinutes(2));
+        BlobResource second = store.put(stream("b".repeat(100)), "2.pdf");
+        setAge(second, Duration.ofMinutes(1));
+
+        BlobResource third = store.put(stream("c".repeat(100)), "3.pdf");
+
+        assertThat(store.get(first.hash(), "1.pdf")).isEmpty();
+        assertThat(store.get(third.hash(), "3.pdf")).isPresent();
+        assertThat(store.sizeBytes()).isLessThanOrEqualTo(225);
+    }
+
+    private long blobCount() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(file -> file.toString().endsWith(".gz") || file.toString().endsWith(".bin")).count();
+        }
+    }
+
+    private static void setAge(BlobResource blob, Duration age) {
+        try {
+            Files.setLastModifiedTime(blob.path(), FileTime.fromMillis(System.currentTimeMillis() - age.toMillis()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}